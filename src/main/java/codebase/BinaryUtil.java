@@ -70,6 +70,11 @@ public final class BinaryUtil {
      */
     public static final long LONG_HIGH_BYTE_MASK = 0xFF00000000000000L;
 
+    /**
+     * The size of a short in bytes.
+     */
+    public static final int SIZE_OF_SHORT = 2;
+
     /**
      * The size of an integer in bytes.
      */
@@ -594,6 +599,54 @@ public final class BinaryUtil {
         return result;
     }
 
+    /**
+     * Maps a signed integer to an unsigned one so that values of small magnitude, either
+     * positive or negative, become small numbers.
+     * <p>
+     * The mapping interleaves the positive and negative values: 0 maps to 0, -1 to 1, 1 to
+     * 2, -2 to 3 and so on.
+     * 
+     * @param value the value to encode
+     * @return the zigzag encoding of the value
+     */
+    public static int zigZagEncode(final int value) {
+        return (value << 1) ^ (value >> (BIT_SIZE_OF_INTEGER - 1));
+    }
+
+    /**
+     * Reverts the mapping done by {@link #zigZagEncode(int)}.
+     * 
+     * @param value the encoded value
+     * @return the original signed value
+     */
+    public static int zigZagDecode(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Maps a signed long to an unsigned one so that values of small magnitude, either
+     * positive or negative, become small numbers.
+     * 
+     * @param value the value to encode
+     * @return the zigzag encoding of the value
+     * @see #zigZagEncode(int)
+     */
+    public static long zigZagEncode(final long value) {
+        // CHECKSTYLE:OFF - shifts the sign bit of a long
+        return (value << 1) ^ (value >> 63);
+        // CHECKSTYLE:ON
+    }
+
+    /**
+     * Reverts the mapping done by {@link #zigZagEncode(long)}.
+     * 
+     * @param value the encoded value
+     * @return the original signed value
+     */
+    public static long zigZagDecode(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     /**
      * Prevent instantiation.
      */
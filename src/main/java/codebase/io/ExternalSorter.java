@@ -0,0 +1,656 @@
+package codebase.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import codebase.io.converters.Converter;
+import codebase.io.converters.ObjectConverterInput;
+import codebase.streams.CounterInputStream;
+import codebase.streams.Streams;
+
+/**
+ * Sorts streams of records that do not fit in memory.
+ * <p>
+ * Records are read and written with a {@link Converter} and ordered by a
+ * {@link Comparator}. The input is consumed in runs whose encoded size fits in a share
+ * of the memory budget. Each run is sorted and spilled to a temporary file by a task of
+ * an executor while the next run is read. The runs are then merged with a loser tree,
+ * at most {@link #getMergeFactor()} at a time, in as many passes as needed; the merges of
+ * an intermediate pass run concurrently, as many at a time as the runs sorted. When the
+ * whole input fits in a single run, it is sorted in memory and nothing is spilled.
+ * <p>
+ * The sort is stable: records that compare equal keep their input order. Temporary files
+ * are read and written through buffers of {@link #IO_BUFFER_SIZE} bytes and are deleted
+ * when the sort ends, even if it fails.
+ * <p>
+ * The memory budget bounds the encoded size of the records held in memory, which is a
+ * fraction of their size on the heap; it should be set accordingly.
+ */
+public class ExternalSorter {
+
+    /**
+     * The number of bytes of the buffers of the temporary files.
+     */
+    public static final int IO_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The default maximum number of runs merged at once.
+     */
+    public static final int DEFAULT_MERGE_FACTOR = 64;
+
+    /**
+     * The number of records read at a time from the input.
+     */
+    private static final int READ_BATCH_SIZE = 256;
+
+    /**
+     * The statistics of a sort.
+     */
+    public static final class Report {
+
+        /**
+         * The number of records sorted.
+         */
+        private final long records;
+
+        /**
+         * The number of sorted runs generated.
+         */
+        private final int runs;
+
+        /**
+         * The number of bytes written to temporary files.
+         */
+        private final long bytesSpilled;
+
+        /**
+         * The number of merge passes.
+         */
+        private final int mergePasses;
+
+        /**
+         * Creates a report.
+         *
+         * @param recordCount the number of records sorted
+         * @param runCount the number of sorted runs generated
+         * @param spilled the number of bytes written to temporary files
+         * @param passes the number of merge passes
+         */
+        private Report(final long recordCount, final int runCount, final long spilled,
+                       final int passes) {
+            records = recordCount;
+            runs = runCount;
+            bytesSpilled = spilled;
+            mergePasses = passes;
+        }
+
+        /**
+         * Gets the number of records sorted.
+         *
+         * @return the number of records.
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * Gets the number of sorted runs generated from the input.
+         *
+         * @return the number of runs.
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * Gets the number of bytes written to temporary files, in all passes.
+         *
+         * @return the number of bytes spilled.
+         */
+        public long getBytesSpilled() {
+            return bytesSpilled;
+        }
+
+        /**
+         * Gets the number of merge passes, including the one that writes the output.
+         *
+         * @return the number of passes, <code>0</code> if the input was sorted in memory.
+         */
+        public int getMergePasses() {
+            return mergePasses;
+        }
+
+        /**
+         * Creates a string representation of the report.
+         *
+         * @return the statistics of the sort.
+         */
+        @Override
+        public String toString() {
+            return records + " records, " + runs + " runs, " + bytesSpilled
+                    + " bytes spilled, " + mergePasses + " merge passes";
+        }
+    }
+
+    /**
+     * A sorted run spilled to a temporary file.
+     */
+    private static final class Run {
+
+        /**
+         * The file holding the run.
+         */
+        private final File file;
+
+        /**
+         * The number of records of the run.
+         */
+        private final long records;
+
+        /**
+         * Creates a run.
+         *
+         * @param path the file holding the run
+         * @param count the number of records of the run
+         */
+        private Run(final File path, final long count) {
+            file = path;
+            records = count;
+        }
+    }
+
+    /**
+     * A tournament tree that keeps the smallest head of the merged runs at its root.
+     * <p>
+     * Each internal node holds the loser of the match played there, so replacing the
+     * winner replays a single path from a leaf to the root.
+     */
+    private final class LoserTree {
+
+        /**
+         * The inputs of the runs.
+         */
+        private final DataInputStream[] inputs;
+
+        /**
+         * The number of records still to read from each run.
+         */
+        private final long[] remaining;
+
+        /**
+         * The current record of each run, valid if the run is not exhausted.
+         */
+        private final Object[] heads;
+
+        /**
+         * Indicates the runs that have no more records.
+         */
+        private final boolean[] exhausted;
+
+        /**
+         * The losers of the internal nodes, with the overall winner at index 0.
+         */
+        private final int[] tree;
+
+        /**
+         * Builds the tree with the first record of each run.
+         *
+         * @param runInputs the inputs of the runs
+         * @param counts the number of records of each run
+         * @throws IOException if a record cannot be read
+         */
+        private LoserTree(final DataInputStream[] runInputs, final long[] counts)
+                throws IOException {
+            final int k = runInputs.length;
+            inputs = runInputs;
+            remaining = counts.clone();
+            heads = new Object[k];
+            exhausted = new boolean[k];
+            tree = new int[k];
+            for (int i = 0; i < k; i++) {
+                advance(i);
+            }
+
+            final int[] winners = new int[2 * k];
+            for (int i = 0; i < k; i++) {
+                winners[k + i] = i;
+            }
+            for (int n = k - 1; n > 0; n--) {
+                final int a = winners[2 * n];
+                final int b = winners[2 * n + 1];
+                if (precedes(b, a)) {
+                    winners[n] = b;
+                    tree[n] = a;
+                } else {
+                    winners[n] = a;
+                    tree[n] = b;
+                }
+            }
+            tree[0] = k == 1 ? 0 : winners[1];
+        }
+
+        /**
+         * Indicates if all the runs are exhausted.
+         *
+         * @return <code>true</code> if there are no more records
+         */
+        private boolean isEmpty() {
+            return exhausted[tree[0]];
+        }
+
+        /**
+         * Removes the smallest record.
+         *
+         * @return the smallest head of the runs
+         * @throws IOException if the next record of its run cannot be read
+         */
+        private Object poll() throws IOException {
+            final int winner = tree[0];
+            final Object record = heads[winner];
+            advance(winner);
+
+            int s = winner;
+            for (int n = (winner + tree.length) / 2; n > 0; n /= 2) {
+                if (precedes(tree[n], s)) {
+                    final int t = tree[n];
+                    tree[n] = s;
+                    s = t;
+                }
+            }
+            tree[0] = s;
+            return record;
+        }
+
+        /**
+         * Reads the next record of a run.
+         *
+         * @param run the index of the run
+         * @throws IOException if the record cannot be read
+         */
+        private void advance(final int run) throws IOException {
+            if (remaining[run] == 0) {
+                heads[run] = null;
+                exhausted[run] = true;
+            } else {
+                heads[run] = recordConverter.read(inputs[run]);
+                remaining[run]--;
+            }
+        }
+
+        /**
+         * Indicates if the head of a run precedes the head of another.
+         * <p>
+         * Ties are broken by the index of the runs, keeping the sort stable.
+         *
+         * @param a the index of the first run
+         * @param b the index of the second run
+         * @return <code>true</code> if the head of <code>a</code> comes first
+         */
+        private boolean precedes(final int a, final int b) {
+            if (exhausted[a] || exhausted[b]) {
+                return !exhausted[a];
+            }
+            final int c = recordComparator.compare(heads[a], heads[b]);
+            return c < 0 || (c == 0 && a < b);
+        }
+    }
+
+    /**
+     * The converter of the records.
+     */
+    private final Converter recordConverter;
+
+    /**
+     * The order of the records.
+     */
+    private final Comparator<Object> recordComparator;
+
+    /**
+     * The maximum number of bytes of encoded records held in memory.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The directory of the temporary files, <code>null</code> for the default one.
+     */
+    private final File tempDirectory;
+
+    /**
+     * The executor that sorts and spills the runs and merges the intermediate passes.
+     */
+    private final ExecutorService sortExecutor;
+
+    /**
+     * The number of runs sorted, or merged, concurrently.
+     */
+    private final int parallelRuns;
+
+    /**
+     * The maximum number of runs merged at once.
+     */
+    private final int mergeFactor;
+
+    /**
+     * Creates an external sorter that merges up to {@link #DEFAULT_MERGE_FACTOR} runs at
+     * once.
+     *
+     * @param converter the converter of the records
+     * @param comparator the order of the records
+     * @param budget the maximum number of bytes of encoded records held in memory
+     * @param directory the directory of the temporary files, <code>null</code> for the
+     *            default temporary directory
+     * @param executor the executor that sorts and spills the runs
+     * @param parallelism the number of runs sorted concurrently
+     * @throws IllegalArgumentException if an argument is not assigned or not positive
+     */
+    public ExternalSorter(final Converter converter, final Comparator<Object> comparator,
+                          final long budget, final File directory,
+                          final ExecutorService executor, final int parallelism) {
+        this(converter, comparator, budget, directory, executor, parallelism,
+                DEFAULT_MERGE_FACTOR);
+    }
+
+    /**
+     * Creates an external sorter.
+     *
+     * @param converter the converter of the records
+     * @param comparator the order of the records
+     * @param budget the maximum number of bytes of encoded records held in memory
+     * @param directory the directory of the temporary files, <code>null</code> for the
+     *            default temporary directory
+     * @param executor the executor that sorts and spills the runs
+     * @param parallelism the number of runs sorted concurrently
+     * @param factor the maximum number of runs merged at once, at least 2
+     * @throws IllegalArgumentException if an argument is not assigned or not positive, or
+     *             the merge factor is less than 2
+     */
+    public ExternalSorter(final Converter converter, final Comparator<Object> comparator,
+                          final long budget, final File directory,
+                          final ExecutorService executor, final int parallelism,
+                          final int factor) {
+        if (converter == null || comparator == null || executor == null) {
+            throw new IllegalArgumentException(
+                    "The converter, comparator and executor must be assigned");
+        }
+        if (budget < 1 || parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "The budget and parallelism must be positive");
+        }
+        if (factor < 2) {
+            throw new IllegalArgumentException("Invalid merge factor: " + factor);
+        }
+        recordConverter = converter;
+        recordComparator = comparator;
+        memoryBudget = budget;
+        tempDirectory = directory;
+        sortExecutor = executor;
+        parallelRuns = parallelism;
+        mergeFactor = factor;
+    }
+
+    /**
+     * Gets the maximum number of runs merged at once.
+     *
+     * @return the merge factor.
+     */
+    public final int getMergeFactor() {
+        return mergeFactor;
+    }
+
+    /**
+     * Sorts the records of a stream.
+     * <p>
+     * The records are read until the end of the input and written in order to the
+     * output, which is flushed but not closed.
+     *
+     * @param in the stream holding the records to sort
+     * @param out the stream where the sorted records are written
+     * @return the statistics of the sort
+     * @throws IOException if the records cannot be read, spilled or written
+     */
+    public Report sort(final InputStream in, final OutputStream out) throws IOException {
+        final CounterInputStream counter = new CounterInputStream(
+                new BufferedInputStream(in, IO_BUFFER_SIZE));
+        final ObjectConverterInput input = new ObjectConverterInput(
+                new PushbackInputStream(counter), recordConverter);
+        final long runBudget = Math.max(1, memoryBudget / (parallelRuns + 1));
+
+        final List<File> files = new ArrayList<File>();
+        final LinkedList<Future<Run>> pending = new LinkedList<Future<Run>>();
+        final List<Run> runs = new ArrayList<Run>();
+        try {
+            long records = 0;
+            final Object[] batch = new Object[READ_BATCH_SIZE];
+            boolean more = true;
+            while (more) {
+                counter.resetCount();
+                final List<Object> run = new ArrayList<Object>();
+                int count;
+                while ((count = input.readObjects(batch, batch.length)) > 0) {
+                    run.addAll(Arrays.asList(batch).subList(0, count));
+                    if (counter.getCount() >= runBudget) {
+                        break;
+                    }
+                }
+                more = count > 0;
+                records += run.size();
+                if (!more && runs.isEmpty() && pending.isEmpty()) {
+                    // the whole input fits in memory
+                    Collections.sort(run, recordComparator);
+                    final DataOutputStream output = new DataOutputStream(
+                            new BufferedOutputStream(out, IO_BUFFER_SIZE));
+                    for (Object record : run) {
+                        recordConverter.write(output, record);
+                    }
+                    output.flush();
+                    return new Report(records, run.isEmpty() ? 0 : 1, 0, 0);
+                }
+                if (!run.isEmpty()) {
+                    if (pending.size() == parallelRuns) {
+                        runs.add(await(pending.removeFirst()));
+                    }
+                    final File file = createTempFile(files);
+                    pending.add(sortExecutor.submit(spillTask(run, file)));
+                }
+            }
+            while (!pending.isEmpty()) {
+                runs.add(await(pending.removeFirst()));
+            }
+
+            final int runCount = runs.size();
+            long spilled = totalLength(runs);
+            int passes = 1;
+            List<Run> level = runs;
+            while (level.size() > mergeFactor) {
+                final List<Run> next = new ArrayList<Run>();
+                for (int i = 0; i < level.size(); i += mergeFactor) {
+                    if (pending.size() == parallelRuns) {
+                        next.add(await(pending.removeFirst()));
+                    }
+                    final List<Run> group = level.subList(i,
+                            Math.min(level.size(), i + mergeFactor));
+                    final File file = createTempFile(files);
+                    pending.add(sortExecutor.submit(mergeTask(group, file)));
+                }
+                while (!pending.isEmpty()) {
+                    next.add(await(pending.removeFirst()));
+                }
+                spilled += totalLength(next);
+                for (Run merged : level) {
+                    merged.file.delete();
+                }
+                level = next;
+                passes++;
+            }
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    out, IO_BUFFER_SIZE));
+            merge(level, output);
+            output.flush();
+            return new Report(records, runCount, spilled, passes);
+        } finally {
+            for (Future<Run> task : pending) {
+                task.cancel(true);
+            }
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Creates a temporary file, to be deleted at the end of the sort.
+     *
+     * @param files the temporary files of the sort
+     * @return the new file
+     * @throws IOException if the file cannot be created
+     */
+    private File createTempFile(final List<File> files) throws IOException {
+        final File file = File.createTempFile("sort", ".run", tempDirectory);
+        files.add(file);
+        return file;
+    }
+
+    /**
+     * Creates a task that sorts a run and spills it.
+     *
+     * @param records the records of the run
+     * @param file the file where the run is spilled
+     * @return the task that returns the spilled run
+     */
+    private Callable<Run> spillTask(final List<Object> records, final File file) {
+        return new Callable<Run>() {
+            @Override
+            public Run call() throws IOException {
+                Collections.sort(records, recordComparator);
+                final DataOutputStream output = openOutput(file);
+                try {
+                    for (Object record : records) {
+                        recordConverter.write(output, record);
+                    }
+                } finally {
+                    output.close();
+                }
+                return new Run(file, records.size());
+            }
+        };
+    }
+
+    /**
+     * Creates a task that merges runs into a new run.
+     *
+     * @param group the runs to merge
+     * @param file the file where the merged run is written
+     * @return the task that returns the merged run
+     */
+    private Callable<Run> mergeTask(final List<Run> group, final File file) {
+        return new Callable<Run>() {
+            @Override
+            public Run call() throws IOException {
+                final DataOutputStream output = openOutput(file);
+                try {
+                    return new Run(file, merge(group, output));
+                } finally {
+                    output.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Merges runs into an output.
+     *
+     * @param group the runs to merge
+     * @param output the output where the merged records are written
+     * @return the number of records written
+     * @throws IOException if the runs cannot be read or the output cannot be written
+     */
+    private long merge(final List<Run> group, final DataOutputStream output)
+            throws IOException {
+        final DataInputStream[] inputs = new DataInputStream[group.size()];
+        final long[] counts = new long[group.size()];
+        try {
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(group.get(i).file), IO_BUFFER_SIZE));
+                counts[i] = group.get(i).records;
+            }
+            final LoserTree tree = new LoserTree(inputs, counts);
+            long records = 0;
+            while (!tree.isEmpty()) {
+                recordConverter.write(output, tree.poll());
+                records++;
+            }
+            return records;
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a buffered output over a temporary file.
+     *
+     * @param file the file to write
+     * @return the output
+     * @throws IOException if the file cannot be opened
+     */
+    private static DataOutputStream openOutput(final File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+                IO_BUFFER_SIZE));
+    }
+
+    /**
+     * Computes the number of bytes of runs.
+     *
+     * @param runs the runs
+     * @return the sum of the lengths of their files
+     */
+    private static long totalLength(final List<Run> runs) {
+        long length = 0;
+        for (Run run : runs) {
+            length += run.file.length();
+        }
+        return length;
+    }
+
+    /**
+     * Waits for a task of the executor.
+     *
+     * @param task the task
+     * @return the run returned by the task
+     * @throws IOException if the task failed or the thread was interrupted
+     */
+    private static Run await(final Future<Run> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sorting");
+        } catch (ExecutionException e) {
+            throw Streams.unwrap(e, "Cannot sort a run");
+        }
+    }
+}
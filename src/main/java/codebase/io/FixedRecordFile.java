@@ -0,0 +1,447 @@
+package codebase.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import codebase.io.converters.StructConverter;
+
+/**
+ * A file of fixed-size records accessed through a memory mapping.
+ * <p>
+ * The layout of the records is given by a {@link StructConverter}. Record <i>i</i> is
+ * stored at byte {@link #HEADER_SIZE} + <i>i</i> &times; <i>size</i> of the file, so any
+ * record, or a single field of it, is read in constant time without decoding the rest of
+ * the file.
+ * <p>
+ * The header of the file holds the size and the number of the records, which is updated
+ * after each record appended. The file grows ahead of the records, thus the records
+ * counted in the header are the only ones that exist, even if the file was not closed.
+ * The room left after the records is trimmed when the file is opened again for writing,
+ * where the system allows it.
+ * <p>
+ * Several threads can read from the same file concurrently. Writing must be synchronized
+ * externally. Since the whole file is mapped in a single buffer, its length is limited to
+ * {@link Integer#MAX_VALUE} bytes.
+ */
+public class FixedRecordFile {
+
+    /**
+     * Receives the records visited by a {@link FixedRecordFile#scan scan}.
+     */
+    public interface RecordVisitor {
+
+        /**
+         * Visits a record.
+         * <p>
+         * The record is not decoded: its fields can be read directly from the buffer, for
+         * example with {@link StructConverter#readField(ByteBuffer, int, int)}. The
+         * position of the buffer must not be relied upon.
+         *
+         * @param index the index of the record
+         * @param buffer the buffer holding the record
+         * @param offset the index of the first byte of the record in the buffer
+         * @throws IOException to abort the scan
+         */
+        void visit(int index, ByteBuffer buffer, int offset) throws IOException;
+    }
+
+    /**
+     * The number of bytes of the header that precedes the records.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * The value that starts the header of a record file.
+     */
+    // CHECKSTYLE:OFF - the bytes "FRF1"
+    private static final int MAGIC = 0x46524631;
+    // CHECKSTYLE:ON
+
+    /**
+     * The offset of the size of a record in the header.
+     */
+    private static final int RECORD_SIZE_OFFSET = 4;
+
+    /**
+     * The offset of the number of records in the header.
+     */
+    private static final int RECORD_COUNT_OFFSET = 8;
+
+    /**
+     * The minimum number of records for which room is made when the file grows.
+     */
+    private static final int MIN_GROWTH = 64;
+
+    /**
+     * The layout of the records.
+     */
+    private final StructConverter recordLayout;
+
+    /**
+     * The number of bytes of a record.
+     */
+    private final int recordSize;
+
+    /**
+     * Indicates if records can be written.
+     */
+    private final boolean writable;
+
+    /**
+     * The file being accessed.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapping of the file, possibly larger than the records held, or
+     * <code>null</code> once the file is closed.
+     */
+    private MappedByteBuffer mapping;
+
+    /**
+     * The number of records held.
+     */
+    private int recordCount;
+
+    /**
+     * Opens a file of fixed-size records.
+     * <p>
+     * A writable file is created if it does not exist, and is trimmed to the records it
+     * holds otherwise.
+     *
+     * @param path the file to open
+     * @param layout the layout of the records, cannot be <code>null</code>
+     * @param canWrite <code>true</code> if records are to be written
+     * @throws IOException if the file cannot be opened, is not a record file, or holds
+     *             records of another size
+     */
+    public FixedRecordFile(final File path, final StructConverter layout,
+                           final boolean canWrite) throws IOException {
+        if (layout == null) {
+            throw new IllegalArgumentException("The record layout must be assigned");
+        }
+        recordLayout = layout;
+        recordSize = layout.getSize();
+        writable = canWrite;
+        file = new RandomAccessFile(path, canWrite ? "rw" : "r");
+        channel = file.getChannel();
+
+        try {
+            long length = channel.size();
+            if (length == 0 && canWrite) {
+                map(HEADER_SIZE);
+                mapping.putInt(0, MAGIC);
+                mapping.putInt(RECORD_SIZE_OFFSET, recordSize);
+                mapping.putInt(RECORD_COUNT_OFFSET, 0);
+                return;
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("The file " + path + " is too large to be mapped");
+            }
+            recordCount = readHeader(path, length);
+            final long used = HEADER_SIZE + (long) recordCount * recordSize;
+            if (canWrite && length > used) {
+                try {
+                    channel.truncate(used);
+                    length = used;
+                } catch (IOException e) {
+                    // some systems refuse while the file is still mapped, keep the room
+                }
+            }
+            map(length);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads and checks the header of the file.
+     *
+     * @param path the file, to report errors
+     * @param length the length of the file
+     * @return the number of records held
+     * @throws IOException if the file is not a record file, holds records of another size,
+     *             or is shorter than its records
+     */
+    private int readHeader(final File path, final long length) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("The file " + path + " is not a record file");
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("The file " + path + " is not a record file");
+        }
+        if (header.getInt(RECORD_SIZE_OFFSET) != recordSize) {
+            throw new IOException("The file " + path + " holds records of "
+                    + header.getInt(RECORD_SIZE_OFFSET) + " bytes, not " + recordSize);
+        }
+        final int count = header.getInt(RECORD_COUNT_OFFSET);
+        if (count < 0 || HEADER_SIZE + (long) count * recordSize > length) {
+            throw new IOException("The file " + path + " is shorter than its " + count
+                    + " records");
+        }
+        return count;
+    }
+
+    /**
+     * Maps the file.
+     *
+     * @param length the number of bytes to map
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(final long length) throws IOException {
+        mapping = channel.map(writable ? FileChannel.MapMode.READ_WRITE
+                : FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+
+    /**
+     * Gets the layout of the records.
+     *
+     * @return the converter of the records.
+     */
+    public final StructConverter getLayout() {
+        return recordLayout;
+    }
+
+    /**
+     * Gets the number of records held in the file.
+     *
+     * @return the number of records.
+     */
+    public final int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the offset of a record in the buffer returned by {@link #getBuffer()}.
+     *
+     * @param index the index of the record
+     * @return the index of the first byte of the record.
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public final int getRecordOffset(final int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record #" + index + " does not exist, "
+                    + recordCount + " records are held");
+        }
+        return HEADER_SIZE + index * recordSize;
+    }
+
+    /**
+     * Gets a read-only view of the mapped records.
+     * <p>
+     * The view allows reading primitive fields without boxing, for example with
+     * {@link codebase.io.converters.binary.IntegerConverter#readInt(ByteBuffer, int)} at
+     * <code>getRecordOffset(i) + getLayout().getFieldOffset(f)</code>. The view does not
+     * follow the growth of the file, and must not be used once the file is closed.
+     *
+     * @return a read-only buffer over the mapped file.
+     * @throws IllegalStateException if the file is closed
+     */
+    public final ByteBuffer getBuffer() {
+        if (mapping == null) {
+            throw new IllegalStateException("The file is closed");
+        }
+        return mapping.asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param index the index of the record
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws IOException if the bytes do not hold a valid record
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public Object read(final int index) throws IOException {
+        return recordLayout.read(mapped(), getRecordOffset(index));
+    }
+
+    /**
+     * Reads consecutive records.
+     *
+     * @param from the index of the first record
+     * @param records the array where the records are stored
+     * @throws IOException if the bytes do not hold valid records
+     * @throws IndexOutOfBoundsException if the records do not exist
+     */
+    public void read(final int from, final Object[] records) throws IOException {
+        final ByteBuffer buffer = mapped();
+        if (records.length > 0) {
+            getRecordOffset(from + records.length - 1);
+        }
+        int offset = getRecordOffset(from);
+        for (int i = 0; i < records.length; i++) {
+            records[i] = recordLayout.read(buffer, offset);
+            offset += recordSize;
+        }
+    }
+
+    /**
+     * Reads a single field of a record without decoding the other fields.
+     *
+     * @param index the index of the record
+     * @param field the index of the field
+     * @return the value of the field
+     * @throws IOException if the bytes do not hold a valid value
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public Object readField(final int index, final int field) throws IOException {
+        return recordLayout.readField(mapped(), getRecordOffset(index), field);
+    }
+
+    /**
+     * Reads a single field of a record without decoding the other fields.
+     *
+     * @param index the index of the record
+     * @param name the name of the field
+     * @return the value of the field
+     * @throws IOException if the bytes do not hold a valid value
+     * @throws IndexOutOfBoundsException if there is no such record
+     * @throws IllegalArgumentException if there is no field with the given name
+     */
+    public Object readField(final int index, final String name) throws IOException {
+        return readField(index, recordLayout.getFieldIndex(name));
+    }
+
+    /**
+     * Visits a range of records in sequence.
+     *
+     * @param from the index of the first record to visit
+     * @param to the index after the last record to visit
+     * @param visitor the visitor of the records
+     * @throws IOException if the visitor aborts the scan
+     * @throws IndexOutOfBoundsException if the range is not valid
+     */
+    public void scan(final int from, final int to, final RecordVisitor visitor)
+            throws IOException {
+        if (from < 0 || to > recordCount || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to
+                    + "[ of " + recordCount + " records");
+        }
+        final ByteBuffer buffer = mapped().duplicate();
+        int offset = HEADER_SIZE + from * recordSize;
+        for (int i = from; i < to; i++) {
+            visitor.visit(i, buffer, offset);
+            offset += recordSize;
+        }
+    }
+
+    /**
+     * Overwrites a record.
+     *
+     * @param index the index of the record
+     * @param record the <code>Object[]</code> with the values of the fields
+     * @throws IOException if the file is read-only or a value cannot be represented
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void write(final int index, final Object record) throws IOException {
+        checkWritable();
+        final ByteBuffer buffer = mapped().duplicate();
+        final int offset = getRecordOffset(index);
+        buffer.position(offset);
+        recordLayout.write(buffer, record);
+    }
+
+    /**
+     * Adds a record at the end of the file.
+     * <p>
+     * The file grows geometrically, thus appending is done in amortized constant time. The
+     * record is counted in the header once it is written.
+     *
+     * @param record the <code>Object[]</code> with the values of the fields
+     * @return the index of the new record
+     * @throws IOException if the file is read-only, cannot grow or a value cannot be
+     *             represented
+     */
+    public int append(final Object record) throws IOException {
+        checkWritable();
+        final long end = HEADER_SIZE + (long) (recordCount + 1) * recordSize;
+        if (end > mapped().capacity()) {
+            final long limit = HEADER_SIZE
+                    + (Integer.MAX_VALUE - HEADER_SIZE) / recordSize * recordSize;
+            final long capacity = Math.min(limit, Math.max(end, 2L * mapping.capacity())
+                    + (long) MIN_GROWTH * recordSize);
+            if (capacity < end) {
+                throw new IOException("The file is too large to be mapped");
+            }
+            map(capacity);
+        }
+        final ByteBuffer buffer = mapping.duplicate();
+        buffer.position(HEADER_SIZE + recordCount * recordSize);
+        recordLayout.write(buffer, record);
+        recordCount++;
+        mapping.putInt(RECORD_COUNT_OFFSET, recordCount);
+        return recordCount - 1;
+    }
+
+    /**
+     * Writes the changes to the storage device.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        if (writable) {
+            mapped().force();
+        }
+    }
+
+    /**
+     * Closes the file.
+     * <p>
+     * The file is not trimmed here, since the mapping, and the views returned by
+     * {@link #getBuffer()}, are only released when they are garbage collected; the room
+     * after the records is trimmed when the file is opened again for writing.
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    public void close() throws IOException {
+        if (mapping == null) {
+            return;
+        }
+        try {
+            if (writable) {
+                mapping.force();
+            }
+        } finally {
+            mapping = null;
+            file.close();
+        }
+    }
+
+    /**
+     * Gets the mapping of the file.
+     *
+     * @return the mapping.
+     * @throws IOException if the file is closed
+     */
+    private MappedByteBuffer mapped() throws IOException {
+        if (mapping == null) {
+            throw new IOException("The file is closed");
+        }
+        return mapping;
+    }
+
+    /**
+     * Checks that the file can be written.
+     *
+     * @throws IOException if the file is read-only
+     */
+    private void checkWritable() throws IOException {
+        if (!writable) {
+            throw new IOException("The file was opened read-only");
+        }
+    }
+}
@@ -54,8 +54,81 @@ public class ArrayConverter
         return array;
     }
 
+    /**
+     * Reads an array of primitive values using the wrapped converter.
+     * <p>
+     * The values are read through the primitive methods of the wrapped converter and are
+     * never boxed. For example, if the wrapped converter is an {@link IntValueConverter}
+     * an <code>int[]</code> is returned.
+     * 
+     * @param dataInput the stream to read data from in order to restore the values.
+     * @return the array of primitive values.
+     * @throws IOException if I/O errors occur.
+     * @throws UnsupportedOperationException if the wrapped converter does not convert
+     *             primitive values.
+     */
+    public final Object readPrimitives(final DataInput dataInput) throws IOException {
+        if (wrappedConverter instanceof BooleanValueConverter) {
+            final BooleanValueConverter converter = (BooleanValueConverter) wrappedConverter;
+            final boolean[] array = new boolean[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readBoolean(dataInput);
+            }
+            return array;
+        } else if (wrappedConverter instanceof ByteValueConverter) {
+            final ByteValueConverter converter = (ByteValueConverter) wrappedConverter;
+            final byte[] array = new byte[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readByte(dataInput);
+            }
+            return array;
+        } else if (wrappedConverter instanceof CharValueConverter) {
+            final CharValueConverter converter = (CharValueConverter) wrappedConverter;
+            final char[] array = new char[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readChar(dataInput);
+            }
+            return array;
+        } else if (wrappedConverter instanceof IntValueConverter) {
+            final IntValueConverter converter = (IntValueConverter) wrappedConverter;
+            final int[] array = new int[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readInt(dataInput);
+            }
+            return array;
+        } else if (wrappedConverter instanceof LongValueConverter) {
+            final LongValueConverter converter = (LongValueConverter) wrappedConverter;
+            final long[] array = new long[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readLong(dataInput);
+            }
+            return array;
+        } else if (wrappedConverter instanceof FloatValueConverter) {
+            final FloatValueConverter converter = (FloatValueConverter) wrappedConverter;
+            final float[] array = new float[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readFloat(dataInput);
+            }
+            return array;
+        } else if (wrappedConverter instanceof DoubleValueConverter) {
+            final DoubleValueConverter converter = (DoubleValueConverter) wrappedConverter;
+            final double[] array = new double[occurrences];
+            for (int i = 0; i < occurrences; i++) {
+                array[i] = converter.readDouble(dataInput);
+            }
+            return array;
+        } else {
+            throw new UnsupportedOperationException("The converter " + wrappedConverter
+                    + " does not convert primitive values");
+        }
+    }
+
     /**
      * Writes an array of objects using the wrapped converter.
+     * <p>
+     * Arrays of primitive values, such as <code>int[]</code>, are also accepted when the
+     * wrapped converter converts values of that primitive type. In that case the values
+     * are written without being boxed.
      * 
      * @param dataOutput the stream to write the state (the attributes) of the object to.
      * @param object the object whose state (attributes) should be written to the data
@@ -63,10 +136,57 @@ public class ArrayConverter
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public final void write(final DataOutput dataOutput, final Object object) throws IOException {
-        final Object[] objects = (Object[]) object;
+        if (object instanceof Object[]) {
+            final Object[] objects = (Object[]) object;
 
-        for (int i = 0; i < occurrences; i++) {
-            wrappedConverter.write(dataOutput, objects[i]);
+            for (int i = 0; i < occurrences; i++) {
+                wrappedConverter.write(dataOutput, objects[i]);
+            }
+        } else if (object instanceof boolean[] && wrappedConverter instanceof BooleanValueConverter) {
+            final BooleanValueConverter converter = (BooleanValueConverter) wrappedConverter;
+            final boolean[] values = (boolean[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeBoolean(dataOutput, values[i]);
+            }
+        } else if (object instanceof byte[] && wrappedConverter instanceof ByteValueConverter) {
+            final ByteValueConverter converter = (ByteValueConverter) wrappedConverter;
+            final byte[] values = (byte[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeByte(dataOutput, values[i]);
+            }
+        } else if (object instanceof char[] && wrappedConverter instanceof CharValueConverter) {
+            final CharValueConverter converter = (CharValueConverter) wrappedConverter;
+            final char[] values = (char[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeChar(dataOutput, values[i]);
+            }
+        } else if (object instanceof int[] && wrappedConverter instanceof IntValueConverter) {
+            final IntValueConverter converter = (IntValueConverter) wrappedConverter;
+            final int[] values = (int[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeInt(dataOutput, values[i]);
+            }
+        } else if (object instanceof long[] && wrappedConverter instanceof LongValueConverter) {
+            final LongValueConverter converter = (LongValueConverter) wrappedConverter;
+            final long[] values = (long[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeLong(dataOutput, values[i]);
+            }
+        } else if (object instanceof float[] && wrappedConverter instanceof FloatValueConverter) {
+            final FloatValueConverter converter = (FloatValueConverter) wrappedConverter;
+            final float[] values = (float[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeFloat(dataOutput, values[i]);
+            }
+        } else if (object instanceof double[] && wrappedConverter instanceof DoubleValueConverter) {
+            final DoubleValueConverter converter = (DoubleValueConverter) wrappedConverter;
+            final double[] values = (double[]) object;
+            for (int i = 0; i < occurrences; i++) {
+                converter.writeDouble(dataOutput, values[i]);
+            }
+        } else {
+            throw new IllegalArgumentException("The converter " + wrappedConverter
+                    + " cannot write an array of " + object.getClass().getComponentType());
         }
     }
 
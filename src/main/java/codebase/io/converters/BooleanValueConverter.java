@@ -0,0 +1,35 @@
+package codebase.io.converters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface of converters that read and write <tt>boolean</tt> values without boxing them.
+ * <p>
+ * The {@link #read(DataInput)} and {@link #write(DataOutput, Object)} methods are kept
+ * as a bridge to the object based API and use <tt>Boolean</tt> objects. Callers that know
+ * the type of the values should call {@link #readBoolean(DataInput)} and
+ * {@link #writeBoolean(DataOutput, boolean)} directly.
+ */
+public interface BooleanValueConverter
+        extends Converter {
+
+    /**
+     * Reads a <tt>boolean</tt> value from the input.
+     * 
+     * @param dataInput the input to read data from
+     * @return the value read
+     * @throws IOException if I/O errors occur
+     */
+    boolean readBoolean(final DataInput dataInput) throws IOException;
+
+    /**
+     * Writes a <tt>boolean</tt> value to the output.
+     * 
+     * @param dataOutput the output to write the value to
+     * @param value the value to be written
+     * @throws IOException if an I/O error occurs
+     */
+    void writeBoolean(final DataOutput dataOutput, final boolean value) throws IOException;
+}
@@ -0,0 +1,59 @@
+package codebase.io.converters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The interface of converters that read and write objects directly from and to a
+ * {@link ByteBuffer}.
+ * <p>
+ * This interface parallels {@link Converter} for data held in memory, such as heap,
+ * direct or memory-mapped buffers. Objects are decoded in place, without wrapping the
+ * buffer in a stream.
+ * <p>
+ * The relative methods start at the position of the buffer and advance it past the bytes
+ * transferred. The absolute methods read at a given offset and leave the position of the
+ * buffer unchanged. Running past the limit of the buffer is reported with the unchecked
+ * {@link java.nio.BufferUnderflowException} and
+ * {@link java.nio.BufferOverflowException} or with an
+ * {@link IndexOutOfBoundsException}, as done by the buffer itself.
+ *
+ * @see StreamToBufferConverter
+ * @see BufferToStreamConverter
+ */
+public interface BufferConverter {
+
+    /**
+     * Reads an object at the position of the buffer.
+     * <p>
+     * The position of the buffer is advanced past the bytes of the object.
+     *
+     * @param buffer the buffer to read the object from
+     * @return the object read
+     * @throws IOException if the bytes do not hold a valid object
+     */
+    Object read(final ByteBuffer buffer) throws IOException;
+
+    /**
+     * Reads an object at an absolute offset of the buffer.
+     * <p>
+     * The position of the buffer is not changed.
+     *
+     * @param buffer the buffer to read the object from
+     * @param offset the index of the first byte of the object in the buffer
+     * @return the object read
+     * @throws IOException if the bytes do not hold a valid object
+     */
+    Object read(final ByteBuffer buffer, final int offset) throws IOException;
+
+    /**
+     * Writes an object at the position of the buffer.
+     * <p>
+     * The position of the buffer is advanced past the bytes of the object.
+     *
+     * @param buffer the buffer to write the object to
+     * @param object the object to be written, cannot be <code>null</code>
+     * @throws IOException if the object cannot be represented
+     */
+    void write(final ByteBuffer buffer, final Object object) throws IOException;
+}
@@ -0,0 +1,146 @@
+package codebase.io.converters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.ByteBufferDataOutput;
+
+/**
+ * Adapts a {@link BufferConverter} of fixed size to the stream {@link Converter}
+ * interface.
+ * <p>
+ * When the data input or output is backed by a buffer, that is, it is a
+ * {@link ByteBufferDataInput} or a {@link ByteBufferDataOutput}, the object is
+ * converted in place. Otherwise, the bytes of the object are transferred through a
+ * buffer of the current thread. Either way, exactly {@link #getSize()} bytes are
+ * consumed or produced: objects shorter than the size are padded with zeros.
+ *
+ * @see StreamToBufferConverter
+ */
+public class BufferToStreamConverter extends
+        AbstractFixedSizeConverter {
+
+    /**
+     * The converter that is being adapted.
+     */
+    private final BufferConverter wrappedConverter;
+
+    /**
+     * The buffer used by each thread to transfer the bytes of an object.
+     */
+    private final ThreadLocal<ByteBuffer> transferBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(getSize());
+        }
+    };
+
+    /**
+     * Creates a stream converter from a buffer converter.
+     *
+     * @param converter the converter to be adapted, cannot be <code>null</code>
+     * @param size the number of bytes of each object
+     * @throws IllegalArgumentException if the converter is not assigned or the size is not
+     *             positive
+     */
+    public BufferToStreamConverter(final BufferConverter converter, final int size) {
+        super(size);
+        if (converter == null) {
+            throw new IllegalArgumentException("The converter must be assigned");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("The size must be positive");
+        }
+        wrappedConverter = converter;
+    }
+
+    /**
+     * Creates a stream converter from a buffer converter that has a fixed size.
+     *
+     * @param converter the converter to be adapted, cannot be <code>null</code>
+     */
+    public <C extends BufferConverter & FixedSizeConverter> BufferToStreamConverter(
+            final C converter) {
+        this(converter, converter.getSize());
+    }
+
+    /**
+     * Reads an object with the wrapped converter.
+     *
+     * @param dataInput the stream to read the object from
+     * @return the object read
+     * @throws EOFException if fewer than {@link #getSize()} bytes are left
+     * @throws IOException if I/O errors occur
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        if (dataInput instanceof ByteBufferDataInput) {
+            final ByteBuffer buffer = ((ByteBufferDataInput) dataInput).getBuffer();
+            if (buffer.remaining() < getSize()) {
+                throw new EOFException("Not enough bytes left to read an object");
+            }
+            final int start = buffer.position();
+            final Object object = wrappedConverter.read(buffer);
+            buffer.position(start + getSize());
+            return object;
+        }
+
+        final ByteBuffer buffer = transferBuffer.get();
+        buffer.clear();
+        dataInput.readFully(buffer.array(), 0, getSize());
+        return wrappedConverter.read(buffer);
+    }
+
+    /**
+     * Writes an object with the wrapped converter.
+     *
+     * @param dataOutput the stream to write the object to
+     * @param object the object to be written
+     * @throws IOException if I/O errors occur or the object is larger than the size of
+     *             the converter
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object) throws IOException {
+        if (dataOutput instanceof ByteBufferDataOutput) {
+            final ByteBuffer buffer = ((ByteBufferDataOutput) dataOutput).getBuffer();
+            if (buffer.remaining() < getSize()) {
+                throw new EOFException("Output buffer full");
+            }
+            final ByteBuffer view = buffer.slice();
+            view.order(buffer.order());
+            view.limit(getSize());
+            writeObject(view, object);
+            buffer.position(buffer.position() + getSize());
+            return;
+        }
+
+        final ByteBuffer buffer = transferBuffer.get();
+        buffer.clear();
+        writeObject(buffer, object);
+        dataOutput.write(buffer.array(), 0, getSize());
+    }
+
+    /**
+     * Writes an object with the wrapped converter and pads the rest of the buffer.
+     *
+     * @param buffer the buffer, with room for exactly {@link #getSize()} bytes
+     * @param object the object to be written
+     * @throws IOException if the object is larger than the size of the converter
+     */
+    private void writeObject(final ByteBuffer buffer, final Object object)
+            throws IOException {
+        try {
+            wrappedConverter.write(buffer, object);
+        } catch (BufferOverflowException e) {
+            throw new IOException("The object does not fit in " + getSize() + " bytes");
+        }
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0);
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import codebase.streams.ByteBufferDataInput;
+
+/**
+ * A converter that frames the objects of another converter with a checksum, to detect
+ * corrupted data.
+ * <p>
+ * A frame holds one or more objects and is written as:
+ * <ol>
+ * <li>the {@link #FRAME_MARKER}, as an <code>int</code>;</li>
+ * <li>the number of bytes of the payload, as an <code>int</code>;</li>
+ * <li>the number of objects of the payload, as an <code>int</code>;</li>
+ * <li>the payload, with the objects written by the framed converter;</li>
+ * <li>the CRC-32 of the two counts and of the payload, as an <code>int</code>.</li>
+ * </ol>
+ * Each frame adds {@link #FRAME_OVERHEAD} bytes. Writing several objects in a frame with
+ * {@link #writeFrame(DataOutput, Object[], int, int)} keeps the overhead small for small
+ * objects. A frame is assembled in memory and written with a single call.
+ * <p>
+ * Frames are verified when read and a corrupted frame throws an {@link IOException}.
+ * When the converter resynchronizes, {@link #readFrame(PushbackInputStream)} skips the
+ * corrupted bytes instead, up to the next valid frame. Reading from a {@link DataInput}
+ * never resynchronizes, since the bytes read after the corruption cannot be given back.
+ * <p>
+ * <b>Memory use:</b> the maximum payload length bounds the memory used to read a frame,
+ * and resynchronizing requires giving back the bytes of a whole corrupted frame. An
+ * input created by {@link #newInput(InputStream)} for a converter that resynchronizes
+ * therefore holds a pushback buffer of {@link #getMaxPayload()} plus
+ * {@link #FRAME_OVERHEAD} bytes. The default maximum, {@link #DEFAULT_MAX_PAYLOAD}, keeps
+ * this buffer small; raise it only as needed by the largest frames written.
+ */
+public class ChecksumConverter implements Converter {
+
+    /**
+     * The <code>int</code> that starts every frame.
+     */
+    // CHECKSTYLE:OFF
+    public static final int FRAME_MARKER = 0xF7C3A51E;
+    // CHECKSTYLE:ON
+
+    /**
+     * The number of bytes written before the payload of a frame.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * The number of bytes of a frame besides its payload.
+     */
+    public static final int FRAME_OVERHEAD = HEADER_SIZE + 4;
+
+    /**
+     * The default maximum number of bytes of a payload, which is also the size of the
+     * pushback buffer of an input that resynchronizes.
+     */
+    public static final int DEFAULT_MAX_PAYLOAD = 1 << 16;
+
+    /**
+     * The buffers used by a thread to assemble and verify frames.
+     */
+    private static final class Scratch extends ByteArrayOutputStream {
+
+        /**
+         * The data output writing to this buffer.
+         */
+        private final DataOutputStream output = new DataOutputStream(this);
+
+        /**
+         * The checksum of the frames.
+         */
+        private final CRC32 checksum = new CRC32();
+
+        /**
+         * Gets the array of this buffer, grown to at least a given capacity.
+         *
+         * @param capacity the minimum number of bytes of the array
+         * @return the array of this buffer, with the bytes it held
+         */
+        private byte[] array(final int capacity) {
+            if (buf.length < capacity) {
+                buf = Arrays.copyOf(buf, Math.max(capacity, 2 * buf.length));
+            }
+            return buf;
+        }
+
+        /**
+         * Computes the CRC-32 of a sequence of bytes.
+         *
+         * @param bytes the bytes
+         * @param offset the offset of the first byte
+         * @param length the number of bytes
+         * @return the CRC-32, as an <code>int</code>
+         */
+        private int crc(final byte[] bytes, final int offset, final int length) {
+            checksum.reset();
+            checksum.update(bytes, offset, length);
+            return (int) checksum.getValue();
+        }
+    }
+
+    /**
+     * The converter of the framed objects.
+     */
+    private final Converter objectConverter;
+
+    /**
+     * The maximum number of bytes of a payload.
+     */
+    private final int maxPayload;
+
+    /**
+     * Indicates if corrupted frames are skipped.
+     */
+    private final boolean resynchronize;
+
+    /**
+     * The number of bytes skipped while resynchronizing.
+     */
+    private final AtomicLong skippedBytes = new AtomicLong();
+
+    /**
+     * The buffers of each thread.
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Creates a converter that throws on corrupted frames, with payloads of at most
+     * {@link #DEFAULT_MAX_PAYLOAD} bytes.
+     *
+     * @param converter the converter of the framed objects
+     * @throws IllegalArgumentException if the converter is not assigned
+     */
+    public ChecksumConverter(final Converter converter) {
+        this(converter, DEFAULT_MAX_PAYLOAD, false);
+    }
+
+    /**
+     * Creates a converter.
+     *
+     * @param converter the converter of the framed objects
+     * @param maxPayloadLength the maximum number of bytes of a payload, which bounds the
+     *            memory used to read a frame whose length is corrupted, and the size of
+     *            the pushback buffer of each input if the converter resynchronizes
+     * @param resynchronizes indicates if corrupted frames are skipped by
+     *            {@link #readFrame(PushbackInputStream)}
+     * @throws IllegalArgumentException if the converter is not assigned or the maximum
+     *             length is negative or too large
+     */
+    public ChecksumConverter(final Converter converter, final int maxPayloadLength,
+                             final boolean resynchronizes) {
+        if (converter == null) {
+            throw new IllegalArgumentException("The converter must be assigned");
+        }
+        if (maxPayloadLength < 0
+                || maxPayloadLength > Integer.MAX_VALUE - FRAME_OVERHEAD) {
+            throw new IllegalArgumentException("Invalid maximum payload length: "
+                    + maxPayloadLength);
+        }
+        this.objectConverter = converter;
+        this.maxPayload = maxPayloadLength;
+        this.resynchronize = resynchronizes;
+    }
+
+    /**
+     * Gets the converter of the framed objects.
+     *
+     * @return the object converter.
+     */
+    public final Converter getConverter() {
+        return objectConverter;
+    }
+
+    /**
+     * Gets the maximum number of bytes of a payload.
+     *
+     * @return the maximum payload length.
+     */
+    public final int getMaxPayload() {
+        return maxPayload;
+    }
+
+    /**
+     * Gets the number of bytes skipped so far while resynchronizing.
+     *
+     * @return the number of bytes skipped.
+     */
+    public final long getSkippedBytes() {
+        return skippedBytes.get();
+    }
+
+    /**
+     * Creates an input to read frames from a stream.
+     * <p>
+     * If the converter resynchronizes, the input can push back the bytes of a whole
+     * frame, as required by {@link #readFrame(PushbackInputStream)}, and so holds a
+     * buffer of up to {@link #getMaxPayload()} plus {@link #FRAME_OVERHEAD} bytes.
+     * Otherwise nothing is pushed back and the buffer is minimal.
+     *
+     * @param input the stream to read the frames from
+     * @return the pushback input
+     */
+    public PushbackInputStream newInput(final InputStream input) {
+        return new PushbackInputStream(input, resynchronize ? maxPayload + FRAME_OVERHEAD
+                : 1);
+    }
+
+    /**
+     * Reads a frame of a single object.
+     *
+     * @param dataInput the input to read the frame from
+     * @return the object of the frame
+     * @throws IOException if the frame is corrupted, does not hold one object, or the
+     *             object cannot be read
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        final Object[] objects = readFrame(dataInput);
+        if (objects.length != 1) {
+            throw new IOException("Expected a frame of one object, found "
+                    + objects.length);
+        }
+        return objects[0];
+    }
+
+    /**
+     * Writes an object in a frame of its own.
+     *
+     * @param dataOutput the output to write the frame to
+     * @param object the object to write
+     * @throws IOException if the object cannot be written or its frame is too large
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object)
+            throws IOException {
+        writeFrame(dataOutput, new Object[] { object }, 0, 1);
+    }
+
+    /**
+     * Writes several objects in a single frame.
+     *
+     * @param dataOutput the output to write the frame to
+     * @param objects the array holding the objects
+     * @param offset the index of the first object to write
+     * @param length the number of objects to write
+     * @throws IOException if an object cannot be written or the frame is too large
+     */
+    public void writeFrame(final DataOutput dataOutput, final Object[] objects,
+                           final int offset, final int length) throws IOException {
+        assert dataOutput != null;
+        if (offset < 0 || length < 0 || offset + length > objects.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        final Scratch frame = scratch.get();
+        frame.reset();
+        frame.output.writeLong(0);
+        frame.output.writeInt(0);
+        for (int i = offset; i < offset + length; i++) {
+            objectConverter.write(frame.output, objects[i]);
+        }
+        final int payload = frame.size() - HEADER_SIZE;
+        if (payload > maxPayload) {
+            throw new IOException("The frame payload of " + payload
+                    + " bytes exceeds the maximum of " + maxPayload);
+        }
+
+        final byte[] bytes = frame.array(0);
+        putInt(bytes, 0, FRAME_MARKER);
+        putInt(bytes, 4, payload);
+        putInt(bytes, 8, length);
+        frame.output.writeInt(frame.crc(bytes, 4, HEADER_SIZE - 4 + payload));
+        dataOutput.write(frame.array(0), 0, frame.size());
+    }
+
+    /**
+     * Reads a frame, without resynchronizing.
+     *
+     * @param dataInput the input to read the frame from
+     * @return the objects of the frame
+     * @throws EOFException if the input ends before the frame
+     * @throws IOException if the frame is corrupted or an object cannot be read
+     */
+    public Object[] readFrame(final DataInput dataInput) throws IOException {
+        final Scratch frame = scratch.get();
+        final byte[] header = frame.array(HEADER_SIZE);
+        dataInput.readFully(header, 0, HEADER_SIZE);
+        final String error = checkHeader(header);
+        if (error != null) {
+            throw new IOException(error);
+        }
+
+        final int total = HEADER_SIZE + getInt(header, 4) + 4;
+        final byte[] bytes = frame.array(total);
+        dataInput.readFully(bytes, HEADER_SIZE, total - HEADER_SIZE);
+        if (!checksumMatches(frame, bytes)) {
+            throw new IOException("Frame checksum mismatch");
+        }
+        return decode(bytes);
+    }
+
+    /**
+     * Reads a frame, skipping corrupted bytes if the converter resynchronizes.
+     * <p>
+     * If the converter resynchronizes, the input must be able to push back
+     * {@link #FRAME_OVERHEAD} bytes more than the maximum payload, like the ones created
+     * by {@link #newInput(InputStream)}.
+     *
+     * @param input the input to read the frame from
+     * @return the objects of the frame, or <code>null</code> if the input ends before
+     *         the next frame
+     * @throws EOFException if the input ends in a frame and the converter does not
+     *             resynchronize
+     * @throws IOException if the frame is corrupted and the converter does not
+     *             resynchronize, or an object cannot be read
+     */
+    public Object[] readFrame(final PushbackInputStream input) throws IOException {
+        final Scratch frame = scratch.get();
+        byte[] bytes = frame.array(HEADER_SIZE);
+        int count = fill(input, bytes, 0, HEADER_SIZE);
+        while (count > 0) {
+            String error;
+            boolean truncated = false;
+            if (count < HEADER_SIZE) {
+                error = "Truncated frame header";
+                truncated = true;
+            } else {
+                error = checkHeader(bytes);
+                if (error == null) {
+                    final int total = HEADER_SIZE + getInt(bytes, 4) + 4;
+                    bytes = frame.array(total);
+                    count += fill(input, bytes, count, total - count);
+                    if (count < total) {
+                        error = "Truncated frame";
+                        truncated = true;
+                    } else if (checksumMatches(frame, bytes)) {
+                        return decode(bytes);
+                    } else {
+                        error = "Frame checksum mismatch";
+                    }
+                }
+            }
+
+            if (!resynchronize) {
+                if (truncated) {
+                    throw new EOFException(error);
+                }
+                throw new IOException(error);
+            }
+            // give back everything after the first candidate marker and retry there
+            final int next = nextMarker(bytes, 1, count);
+            skippedBytes.addAndGet(next);
+            input.unread(bytes, next, count - next);
+            count = fill(input, bytes, 0, HEADER_SIZE);
+        }
+        return null;
+    }
+
+    /**
+     * Checks the header of a frame.
+     *
+     * @param header the bytes of the header
+     * @return the error found, or <code>null</code> if the header is valid
+     */
+    private String checkHeader(final byte[] header) {
+        if (getInt(header, 0) != FRAME_MARKER) {
+            return "Frame marker not found";
+        }
+        final int payload = getInt(header, 4);
+        if (payload < 0 || payload > maxPayload) {
+            return "Invalid frame payload length: " + payload;
+        }
+        if (getInt(header, 8) < 0) {
+            return "Invalid frame object count: " + getInt(header, 8);
+        }
+        return null;
+    }
+
+    /**
+     * Verifies the checksum of a frame.
+     *
+     * @param frame the buffers of the thread
+     * @param bytes the bytes of the frame, with a valid header
+     * @return <code>true</code> if the checksum matches the frame
+     */
+    private static boolean checksumMatches(final Scratch frame, final byte[] bytes) {
+        final int payload = getInt(bytes, 4);
+        return frame.crc(bytes, 4, HEADER_SIZE - 4 + payload)
+                == getInt(bytes, HEADER_SIZE + payload);
+    }
+
+    /**
+     * Decodes the objects of a verified frame.
+     *
+     * @param bytes the bytes of the frame
+     * @return the objects of the frame
+     * @throws IOException if an object cannot be read
+     */
+    private Object[] decode(final byte[] bytes) throws IOException {
+        final Object[] objects = new Object[getInt(bytes, 8)];
+        final ByteBufferDataInput payload = new ByteBufferDataInput(
+                ByteBuffer.wrap(bytes, HEADER_SIZE, getInt(bytes, 4)));
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = objectConverter.read(payload);
+        }
+        return objects;
+    }
+
+    /**
+     * Finds where the next frame may start.
+     * <p>
+     * A frame may start where the marker is found, or where the bytes at the end are the
+     * beginning of the marker.
+     *
+     * @param bytes the bytes to search
+     * @param from the index where the search starts
+     * @param to the index where the search ends
+     * @return the index of the first candidate, or <code>to</code> if there is none
+     */
+    private static int nextMarker(final byte[] bytes, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            int j = 0;
+            while (j < 4 && i + j < to
+                    && bytes[i + j] == (byte) (FRAME_MARKER >>> (24 - 8 * j))) {
+                j++;
+            }
+            if (j == 4 || i + j == to) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Reads bytes until a number of bytes is read or the input ends.
+     *
+     * @param input the input to read from
+     * @param bytes the array where the bytes are stored
+     * @param offset the index where the first byte is stored
+     * @param length the number of bytes to read
+     * @return the number of bytes read, smaller than the length if the input ended
+     * @throws IOException if the bytes cannot be read
+     */
+    private static int fill(final InputStream input, final byte[] bytes, final int offset,
+                            final int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int n = input.read(bytes, offset + read, length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    /**
+     * Gets a big-endian <code>int</code> from an array.
+     *
+     * @param bytes the array
+     * @param offset the index of the first byte
+     * @return the <code>int</code>
+     */
+    // CHECKSTYLE:OFF
+    private static int getInt(final byte[] bytes, final int offset) {
+        return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+    // CHECKSTYLE:ON
+
+    /**
+     * Puts a big-endian <code>int</code> in an array.
+     *
+     * @param bytes the array
+     * @param offset the index of the first byte
+     * @param value the <code>int</code>
+     */
+    // CHECKSTYLE:OFF
+    private static void putInt(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+    // CHECKSTYLE:ON
+}
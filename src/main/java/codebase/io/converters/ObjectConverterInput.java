@@ -1,21 +1,108 @@
 package codebase.io.converters;
 
 import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
+import java.io.PushbackInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import codebase.streams.BlockCompressedInputStream;
+import codebase.streams.BlockIndex;
+import codebase.streams.ByteBufferDataInput;
 
 /**
  * An {@link ObjectInput} that write objects through a {@link Converter}.
+ * <p>
+ * Objects can be read one at a time with {@link #readObject()}, or in batches with
+ * {@link #readObjects(Object[], int)} and {@link #iterator()}, which stop at the end of
+ * the input. The end of the input is detected without exceptions by peeking a byte when
+ * the input is built over a {@link PushbackInputStream} or a block compressed file, or
+ * by the remaining bytes of a {@link ByteBufferDataInput}; an object cut by the end of
+ * such an input is an error. Otherwise, reading stops at the first {@link EOFException},
+ * which also suits formats that may end with separators.
  */
 public class ObjectConverterInput
-        implements ObjectInput {
+        implements ObjectInput, Iterable<Object> {
+
+    /**
+     * The number of objects read at a time by the iterators.
+     */
+    private static final int ITERATOR_BATCH_SIZE = 64;
 
     private final DataInput dataInput;
     private final Converter objectConverter;
 
+    /**
+     * The stream closed with the input, or <code>null</code>.
+     */
+    private final InputStream ownedStream;
+
+    /**
+     * The stream used to peek the next byte, or <code>null</code> if unknown.
+     */
+    private final PushbackInputStream peekStream;
+
     public ObjectConverterInput(DataInput dataInput, Converter nodeConverter) {
         this.objectConverter = nodeConverter;
         this.dataInput = dataInput;
+        this.ownedStream = null;
+        this.peekStream = null;
+    }
+
+    /**
+     * Creates an input that reads objects from a stream.
+     * <p>
+     * The stream is used to detect the end of the input by peeking the next byte; wrap
+     * any stream in a {@link PushbackInputStream} to have batch reads stop exactly at its
+     * end. Closing the input does not close the stream.
+     *
+     * @param stream the stream to read the objects from
+     * @param nodeConverter the converter of the objects
+     */
+    public ObjectConverterInput(PushbackInputStream stream, Converter nodeConverter) {
+        this.objectConverter = nodeConverter;
+        this.peekStream = stream;
+        this.dataInput = new DataInputStream(peekStream);
+        this.ownedStream = null;
+    }
+
+    /**
+     * Creates an input that reads the objects of a block compressed file, starting at a
+     * given object.
+     * <p>
+     * Only the block where the object starts and the following ones are decompressed.
+     * The objects must have been written by an {@link ObjectConverterOutput} over a
+     * {@link codebase.streams.BlockCompressedOutputStream}. Closing the input closes the
+     * channel.
+     *
+     * @param channel the channel of the file
+     * @param index the index of the blocks of the file
+     * @param object the number of the first object to read
+     * @param nodeConverter the converter of the objects
+     * @throws IOException if the file cannot be read
+     * @throws IndexOutOfBoundsException if there is no such object
+     */
+    public ObjectConverterInput(FileChannel channel, BlockIndex index, long object,
+                                Converter nodeConverter) throws IOException {
+        final int block = index.findBlock(object);
+        channel.position(index.getBlockOffset(block));
+        this.ownedStream = new BlockCompressedInputStream(Channels
+                .newInputStream(channel));
+        this.objectConverter = nodeConverter;
+        this.peekStream = new PushbackInputStream(ownedStream);
+        this.dataInput = new DataInputStream(peekStream);
+
+        final long offset = index.getFirstRecordOffset(block);
+        if (ownedStream.skip(offset) != offset) {
+            throw new IOException("The block of object #" + object + " is truncated");
+        }
+        skipObjects(object - index.getFirstRecord(block));
     }
 
     public Converter getConverter() {
@@ -106,6 +193,122 @@ public class ObjectConverterInput
         return objectConverter.read(dataInput);
     }
 
+    /**
+     * Reads a batch of objects.
+     * <p>
+     * Objects are read until <code>max</code> objects are read, the array is full or the
+     * input ends. When the end of the input can be detected, an object cut by it is an
+     * error; otherwise the first {@link EOFException} is taken for the end of the input
+     * and the object cut by it is discarded.
+     *
+     * @param dest the array where the objects are stored, from its first position
+     * @param max the maximum number of objects to read
+     * @return the number of objects read, <code>0</code> at the end of the input if
+     *         <code>max</code> is positive
+     * @throws IOException if the objects cannot be read or an object is truncated
+     * @throws IllegalArgumentException if <code>max</code> is negative
+     */
+    public int readObjects(Object[] dest, int max) throws IOException {
+        if (max < 0) {
+            throw new IllegalArgumentException("Invalid number of objects: " + max);
+        }
+        final int count = Math.min(max, dest.length);
+        final boolean endDetectable = peekStream != null
+                || dataInput instanceof ByteBufferDataInput;
+        int i = 0;
+        try {
+            while (i < count && !atEnd()) {
+                dest[i] = objectConverter.read(dataInput);
+                i++;
+            }
+        } catch (EOFException e) {
+            if (endDetectable) {
+                throw new IOException("The input ends within an object", e);
+            }
+            // end of input
+        }
+        return i;
+    }
+
+    /**
+     * Checks if the input has no more bytes.
+     *
+     * @return <code>true</code> if the end of the input is known to be reached
+     * @throws IOException if the next byte cannot be peeked
+     */
+    private boolean atEnd() throws IOException {
+        if (peekStream != null) {
+            final int b = peekStream.read();
+            if (b < 0) {
+                return true;
+            }
+            peekStream.unread(b);
+            return false;
+        }
+        if (dataInput instanceof ByteBufferDataInput) {
+            return !((ByteBufferDataInput) dataInput).getBuffer().hasRemaining();
+        }
+        return false;
+    }
+
+    /**
+     * Gets an iterator over the remaining objects of the input.
+     * <p>
+     * The iterator reads objects in batches with {@link #readObjects(Object[], int)}.
+     * Since iterators cannot throw checked exceptions, read errors are thrown as
+     * {@link IllegalStateException}s with the {@link IOException} as cause.
+     *
+     * @return an iterator that consumes the input
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private final Object[] batch = new Object[ITERATOR_BATCH_SIZE];
+            private int size;
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == size) {
+                    try {
+                        size = readObjects(batch, batch.length);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Cannot read the next objects", e);
+                    }
+                    next = 0;
+                }
+                return next < size;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Object object = batch[next];
+                batch[next++] = null;
+                return object;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Reads objects and discards them.
+     *
+     * @param count the number of objects to skip
+     * @throws IOException if the objects cannot be read
+     */
+    public void skipObjects(long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            objectConverter.read(dataInput);
+        }
+    }
+
     @Override
     public int read() throws IOException {
         return dataInput.readByte();
@@ -137,6 +340,8 @@ public class ObjectConverterInput
 
     @Override
     public void close() throws IOException {
-        // Closing an object converter does nothing.
+        if (ownedStream != null) {
+            ownedStream.close();
+        }
     }
 }
@@ -1,9 +1,12 @@
 package codebase.io.converters;
 
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutput;
 
+import codebase.streams.BlockCompressedOutputStream;
+
 /**
  * An {@link DataOutput} that write objects through a {@link Converter}.
  */
@@ -13,9 +16,32 @@ public class ObjectConverterOutput
     private final DataOutput dataOutput;
     private final Converter objectConverter;
 
+    /**
+     * The block compressed stream where the objects are written, or <code>null</code>.
+     */
+    private final BlockCompressedOutputStream blockStream;
+
     public ObjectConverterOutput(DataOutput dataOutput, Converter nodeConverter) {
         this.dataOutput = dataOutput;
         this.objectConverter = nodeConverter;
+        this.blockStream = null;
+    }
+
+    /**
+     * Creates an output that writes objects in compressed blocks.
+     * <p>
+     * Every object written is marked as a record of the stream, thus the index of the
+     * blocks allows {@link ObjectConverterInput} to seek any of them. Flushing and closing
+     * the output flush and close the stream.
+     *
+     * @param stream the stream where the objects are written
+     * @param nodeConverter the converter of the objects
+     */
+    public ObjectConverterOutput(BlockCompressedOutputStream stream,
+                                 Converter nodeConverter) {
+        this.dataOutput = new DataOutputStream(stream);
+        this.objectConverter = nodeConverter;
+        this.blockStream = stream;
     }
 
     public DataOutput getDataOutput() {
@@ -90,9 +116,59 @@ public class ObjectConverterOutput
 
     @Override
     public void writeObject(Object obj) throws IOException {
+        if (blockStream != null) {
+            blockStream.markRecord();
+        }
         objectConverter.write(dataOutput, obj);
     }
 
+    /**
+     * Writes a batch of objects.
+     *
+     * @param objects the objects to write
+     * @return the number of objects written
+     * @throws IOException if an object cannot be written
+     */
+    public int writeObjects(Iterable<?> objects) throws IOException {
+        int count = 0;
+        if (blockStream != null) {
+            for (Object object : objects) {
+                blockStream.markRecord();
+                objectConverter.write(dataOutput, object);
+                count++;
+            }
+        } else {
+            for (Object object : objects) {
+                objectConverter.write(dataOutput, object);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a batch of objects from an array.
+     *
+     * @param objects the array holding the objects
+     * @param offset the index of the first object to write
+     * @param length the number of objects to write
+     * @throws IOException if an object cannot be written
+     * @throws IndexOutOfBoundsException if the range is not inside the array
+     */
+    public void writeObjects(Object[] objects, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > objects.length) {
+            throw new IndexOutOfBoundsException("Invalid range [" + offset + ", "
+                    + (offset + length) + "[ of " + objects.length + " objects");
+        }
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (blockStream != null) {
+                blockStream.markRecord();
+            }
+            objectConverter.write(dataOutput, objects[i]);
+        }
+    }
+
     @Override
     public void write(int b) throws IOException {
         dataOutput.write(b);
@@ -111,11 +187,15 @@ public class ObjectConverterOutput
 
     @Override
     public void flush() throws IOException {
-        // There are no data to flush.
+        if (blockStream != null) {
+            blockStream.flush();
+        }
     }
 
     @Override
     public void close() throws IOException {
-        // There are no resources to be closed.
+        if (blockStream != null) {
+            blockStream.close();
+        }
     }
 }
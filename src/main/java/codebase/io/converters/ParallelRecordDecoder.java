@@ -0,0 +1,259 @@
+package codebase.io.converters;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.Streams;
+
+/**
+ * Decodes the records of a buffer or file in parallel with a {@link FixedSizeConverter}.
+ * <p>
+ * Since every record has {@link FixedSizeConverter#getSize()} bytes, the boundaries of
+ * the records are known without reading them. The records are split in chunks of
+ * consecutive records, which are decoded by tasks submitted to an executor and stored
+ * in order in the result array. Chunks of a file are mapped in memory by the task that
+ * decodes them.
+ * <p>
+ * Records are decoded in place when the converter is a {@link BufferConverter}, and
+ * through a {@link ByteBufferDataInput} otherwise. Either way, the converter must allow
+ * concurrent reads.
+ */
+public class ParallelRecordDecoder {
+
+    /**
+     * The default number of records of a chunk.
+     */
+    public static final int DEFAULT_CHUNK_RECORDS = 16384;
+
+    /**
+     * The converter of the records.
+     */
+    private final FixedSizeConverter recordConverter;
+
+    /**
+     * The executor that decodes the chunks.
+     */
+    private final ExecutorService chunkExecutor;
+
+    /**
+     * The number of records of a chunk.
+     */
+    private final int chunkRecords;
+
+    /**
+     * Creates a parallel decoder with chunks of {@link #DEFAULT_CHUNK_RECORDS} records.
+     *
+     * @param converter the converter of the records
+     * @param executor the executor that decodes the chunks
+     * @throws IllegalArgumentException if the converter or the executor are not assigned,
+     *             or the size of the records is not positive
+     */
+    public ParallelRecordDecoder(final FixedSizeConverter converter,
+                                 final ExecutorService executor) {
+        this(converter, executor, DEFAULT_CHUNK_RECORDS);
+    }
+
+    /**
+     * Creates a parallel decoder.
+     *
+     * @param converter the converter of the records
+     * @param executor the executor that decodes the chunks
+     * @param recordsPerChunk the number of records decoded by each task
+     * @throws IllegalArgumentException if the converter or the executor are not assigned,
+     *             or the size of the records or of the chunks is not positive
+     */
+    public ParallelRecordDecoder(final FixedSizeConverter converter,
+                                 final ExecutorService executor,
+                                 final int recordsPerChunk) {
+        if (converter == null || executor == null) {
+            throw new IllegalArgumentException(
+                    "The converter and executor must be assigned");
+        }
+        if (converter.getSize() < 1) {
+            throw new IllegalArgumentException("The record size must be positive");
+        }
+        if (recordsPerChunk < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + recordsPerChunk);
+        }
+        this.recordConverter = converter;
+        this.chunkExecutor = executor;
+        this.chunkRecords = recordsPerChunk;
+    }
+
+    /**
+     * Gets the converter of the records.
+     *
+     * @return the record converter.
+     */
+    public final FixedSizeConverter getConverter() {
+        return recordConverter;
+    }
+
+    /**
+     * Gets the number of records decoded by each task.
+     *
+     * @return the number of records of a chunk.
+     */
+    public final int getChunkRecords() {
+        return chunkRecords;
+    }
+
+    /**
+     * Decodes the records between the position and the limit of a buffer.
+     * <p>
+     * The position of the buffer is moved to its limit once all the records are decoded.
+     *
+     * @param buffer the buffer holding the records
+     * @return the records, in the order they are stored
+     * @throws IOException if the bytes are not a whole number of records or a record
+     *             cannot be decoded
+     */
+    public Object[] decode(final ByteBuffer buffer) throws IOException {
+        final int size = recordConverter.getSize();
+        final int start = buffer.position();
+        final int count = recordCount(buffer.remaining());
+
+        final Object[] records = new Object[count];
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int first = 0; first < count; first += chunkRecords) {
+            final int from = first;
+            final int to = Math.min(count, first + chunkRecords);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    final ByteBuffer chunk = buffer.duplicate();
+                    chunk.order(buffer.order());
+                    chunk.limit(start + to * size);
+                    chunk.position(start + from * size);
+                    decodeChunk(chunk, records, from);
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+        buffer.position(buffer.limit());
+        return records;
+    }
+
+    /**
+     * Decodes the records of a file, from its first byte to its end.
+     * <p>
+     * The position of the channel is not used nor changed.
+     *
+     * @param channel the file holding the records
+     * @return the records, in the order they are stored
+     * @throws IOException if the file cannot be read, its size is not a whole number of
+     *             records, there are more than {@link Integer#MAX_VALUE} records, or a
+     *             record cannot be decoded
+     */
+    public Object[] decode(final FileChannel channel) throws IOException {
+        final long size = recordConverter.getSize();
+        final int count = recordCount(channel.size());
+
+        final Object[] records = new Object[count];
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int first = 0; first < count; first += chunkRecords) {
+            final int from = first;
+            final int length = Math.min(count - first, chunkRecords);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    final ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                            from * size, length * size);
+                    decodeChunk(chunk, records, from);
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+        return records;
+    }
+
+    /**
+     * Computes the number of records held by a number of bytes.
+     *
+     * @param bytes the number of bytes
+     * @return the number of records
+     * @throws IOException if the bytes are not a whole number of records or there are more
+     *             than {@link Integer#MAX_VALUE} records
+     */
+    private int recordCount(final long bytes) throws IOException {
+        final int size = recordConverter.getSize();
+        if (bytes % size != 0) {
+            throw new IOException("Found " + bytes
+                    + " bytes, which are not a multiple of the " + size
+                    + " bytes of a record");
+        }
+        if (bytes / size > Integer.MAX_VALUE) {
+            throw new IOException("Too many records: " + bytes / size);
+        }
+        return (int) (bytes / size);
+    }
+
+    /**
+     * Decodes the records of a chunk.
+     *
+     * @param chunk the buffer holding the records of the chunk, from its position
+     * @param records the array where the records are stored
+     * @param first the index where the first record of the chunk is stored
+     * @throws IOException if a record cannot be decoded
+     */
+    private void decodeChunk(final ByteBuffer chunk, final Object[] records,
+                             final int first) throws IOException {
+        final int size = recordConverter.getSize();
+        final int count = chunk.remaining() / size;
+        if (recordConverter instanceof BufferConverter) {
+            final BufferConverter converter = (BufferConverter) recordConverter;
+            final int start = chunk.position();
+            for (int i = 0; i < count; i++) {
+                records[first + i] = converter.read(chunk, start + i * size);
+            }
+        } else {
+            final ByteBufferDataInput input = new ByteBufferDataInput(chunk);
+            final int start = chunk.position();
+            for (int i = 0; i < count; i++) {
+                // realign on each record, whatever the converter consumed
+                chunk.position(start + i * size);
+                records[first + i] = recordConverter.read(input);
+            }
+        }
+    }
+
+    /**
+     * Runs tasks on the executor and waits for all of them.
+     * <p>
+     * When a task fails, the tasks still pending are cancelled.
+     *
+     * @param tasks the tasks to run
+     * @throws IOException if a task fails
+     */
+    private void runAll(final List<Callable<Void>> tasks) throws IOException {
+        final List<Future<Void>> results = new ArrayList<Future<Void>>(tasks.size());
+        try {
+            for (Callable<Void> task : tasks) {
+                results.add(chunkExecutor.submit(task));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding records");
+        } catch (ExecutionException e) {
+            throw Streams.unwrap(e, "Cannot decode records");
+        } finally {
+            for (Future<Void> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package codebase.io.converters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.ByteBufferDataOutput;
+
+/**
+ * Adapts a stream {@link Converter} to the {@link BufferConverter} interface.
+ * <p>
+ * The buffer is wrapped in a {@link ByteBufferDataInput} or {@link ByteBufferDataOutput}
+ * and handed to the converter. Use this adapter for converters that do not implement
+ * {@link BufferConverter} themselves.
+ *
+ * @see BufferToStreamConverter
+ */
+public class StreamToBufferConverter implements BufferConverter {
+
+    /**
+     * The converter that is being adapted.
+     */
+    private final Converter wrappedConverter;
+
+    /**
+     * Creates a buffer converter from a stream converter.
+     *
+     * @param converter the converter to be adapted, cannot be <code>null</code>
+     */
+    public StreamToBufferConverter(final Converter converter) {
+        if (converter == null) {
+            throw new IllegalArgumentException("The converter must be assigned");
+        }
+        wrappedConverter = converter;
+    }
+
+    /**
+     * Reads an object at the position of the buffer with the wrapped converter.
+     *
+     * @param buffer the buffer to read the object from
+     * @return the object read
+     * @throws IOException if the converter fails or the buffer ends prematurely
+     */
+    @Override
+    public Object read(final ByteBuffer buffer) throws IOException {
+        return wrappedConverter.read(new ByteBufferDataInput(buffer));
+    }
+
+    /**
+     * Reads an object at an absolute offset of the buffer with the wrapped converter.
+     *
+     * @param buffer the buffer to read the object from
+     * @param offset the index of the first byte of the object in the buffer
+     * @return the object read
+     * @throws IOException if the converter fails or the buffer ends prematurely
+     */
+    @Override
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        view.order(buffer.order());
+        view.position(offset);
+        return read(view);
+    }
+
+    /**
+     * Writes an object at the position of the buffer with the wrapped converter.
+     *
+     * @param buffer the buffer to write the object to
+     * @param object the object to be written
+     * @throws IOException if the converter fails or the buffer is full
+     */
+    @Override
+    public void write(final ByteBuffer buffer, final Object object) throws IOException {
+        wrappedConverter.write(new ByteBufferDataOutput(buffer), object);
+    }
+
+    /**
+     * @return a string containing <tt>ClassName(<i>converter</i>)</tt>.
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + wrappedConverter + ")";
+    }
+}
@@ -0,0 +1,286 @@
+package codebase.io.converters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * A converter for records made of named fixed-size fields.
+ * <p>
+ * The fields are laid out one after the other, in the order given in the constructor,
+ * without padding. Since every field has a fixed size, the offset of each field within
+ * the record is computed once, when the converter is created. This allows reading a single
+ * field of a record held in a {@link ByteBuffer} without decoding the other fields.
+ * <p>
+ * Records are represented as <code>Object[]</code> arrays with one value per field.
+ * Fields whose converter does not implement {@link BufferConverter} are converted on
+ * buffers through a {@link StreamToBufferConverter}.
+ */
+public class StructConverter extends
+        AbstractFixedSizeConverter
+        implements BufferConverter {
+
+    /**
+     * The names of the fields.
+     */
+    private final String[] fieldNames;
+
+    /**
+     * The converters of the fields.
+     */
+    private final FixedSizeConverter[] fieldConverters;
+
+    /**
+     * The converters of the fields used on buffers.
+     */
+    private final BufferConverter[] fieldBufferConverters;
+
+    /**
+     * The offset of each field within a record.
+     */
+    private final int[] fieldOffsets;
+
+    /**
+     * The index of each field by name.
+     */
+    private final HashMap<String, Integer> fieldIndexes;
+
+    /**
+     * Creates a converter for records with the given fields.
+     *
+     * @param names the names of the fields, must be unique
+     * @param converters the converters of the fields, in the same order of the names
+     * @throws IllegalArgumentException if there are no fields, if the number of names and
+     *             converters differ or if a name is repeated or not assigned
+     */
+    public StructConverter(final String[] names, final FixedSizeConverter[] converters) {
+        super(totalSize(names, converters));
+
+        fieldNames = names.clone();
+        fieldConverters = converters.clone();
+        fieldBufferConverters = new BufferConverter[converters.length];
+        fieldOffsets = new int[converters.length];
+        fieldIndexes = new HashMap<String, Integer>(names.length * 2);
+
+        int offset = 0;
+        for (int i = 0; i < fieldConverters.length; i++) {
+            if (fieldNames[i] == null) {
+                throw new IllegalArgumentException("The name of field #" + i
+                        + " must be assigned");
+            }
+            if (fieldIndexes.put(fieldNames[i], i) != null) {
+                throw new IllegalArgumentException("Repeated field name " + fieldNames[i]);
+            }
+            if (fieldConverters[i] instanceof BufferConverter) {
+                fieldBufferConverters[i] = (BufferConverter) fieldConverters[i];
+            } else {
+                fieldBufferConverters[i] = new StreamToBufferConverter(fieldConverters[i]);
+            }
+            fieldOffsets[i] = offset;
+            offset += fieldConverters[i].getSize();
+        }
+    }
+
+    /**
+     * Computes the size of a record and validates the fields.
+     *
+     * @param names the names of the fields
+     * @param converters the converters of the fields
+     * @return the sum of the sizes of the fields
+     */
+    private static int totalSize(final String[] names, final FixedSizeConverter[] converters) {
+        if (names == null || converters == null || converters.length == 0) {
+            throw new IllegalArgumentException("A struct must have at least one field");
+        }
+        if (names.length != converters.length) {
+            throw new IllegalArgumentException(
+                    "The number of names must match the number of converters");
+        }
+        int size = 0;
+        for (FixedSizeConverter converter : converters) {
+            if (converter == null) {
+                throw new IllegalArgumentException("The field converters must be assigned");
+            }
+            size += converter.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of fields of a record.
+     *
+     * @return the number of fields.
+     */
+    public final int getFieldCount() {
+        return fieldConverters.length;
+    }
+
+    /**
+     * Gets the index of a field.
+     *
+     * @param name the name of the field
+     * @return the index of the field
+     * @throws IllegalArgumentException if there is no field with the given name
+     */
+    public final int getFieldIndex(final String name) {
+        final Integer index = fieldIndexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown field " + name);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Gets the name of a field.
+     *
+     * @param field the index of the field
+     * @return the name of the field.
+     */
+    public final String getFieldName(final int field) {
+        return fieldNames[field];
+    }
+
+    /**
+     * Gets the converter of a field.
+     *
+     * @param field the index of the field
+     * @return the converter of the field.
+     */
+    public final FixedSizeConverter getFieldConverter(final int field) {
+        return fieldConverters[field];
+    }
+
+    /**
+     * Gets the offset of a field within a record.
+     *
+     * @param field the index of the field
+     * @return the number of bytes of the record that precede the field.
+     */
+    public final int getFieldOffset(final int field) {
+        return fieldOffsets[field];
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param dataInput the stream to read the record from
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws IOException if I/O errors occur
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        final Object[] record = new Object[fieldConverters.length];
+        for (int i = 0; i < fieldConverters.length; i++) {
+            record[i] = fieldConverters[i].read(dataInput);
+        }
+        return record;
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param dataOutput the stream to write the record to
+     * @param object the <code>Object[]</code> with the values of the fields
+     * @throws IOException if I/O errors occur
+     * @throws IllegalArgumentException if the number of values does not match the number
+     *             of fields
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object) throws IOException {
+        final Object[] record = checkRecord(object);
+        for (int i = 0; i < fieldConverters.length; i++) {
+            fieldConverters[i].write(dataOutput, record[i]);
+        }
+    }
+
+    /**
+     * Reads a record at the position of the buffer.
+     *
+     * @param buffer the buffer to read the record from
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws IOException if the bytes do not hold a valid record
+     */
+    @Override
+    public Object read(final ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        final Object record = read(buffer, start);
+        buffer.position(start + getSize());
+        return record;
+    }
+
+    /**
+     * Reads a record at an absolute offset of the buffer.
+     *
+     * @param buffer the buffer to read the record from
+     * @param offset the index of the first byte of the record in the buffer
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws IOException if the bytes do not hold a valid record
+     */
+    @Override
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        final Object[] record = new Object[fieldBufferConverters.length];
+        for (int i = 0; i < fieldBufferConverters.length; i++) {
+            record[i] = fieldBufferConverters[i].read(buffer, offset + fieldOffsets[i]);
+        }
+        return record;
+    }
+
+    /**
+     * Reads a single field of a record held in a buffer.
+     * <p>
+     * The other fields are not decoded and the position of the buffer is not changed.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the index of the first byte of the record in the buffer
+     * @param field the index of the field
+     * @return the value of the field
+     * @throws IOException if the bytes do not hold a valid value
+     */
+    public Object readField(final ByteBuffer buffer, final int offset, final int field)
+            throws IOException {
+        return fieldBufferConverters[field].read(buffer, offset + fieldOffsets[field]);
+    }
+
+    /**
+     * Writes a record at the position of the buffer.
+     *
+     * @param buffer the buffer to write the record to
+     * @param object the <code>Object[]</code> with the values of the fields
+     * @throws IOException if a value cannot be represented
+     * @throws IllegalArgumentException if the number of values does not match the number
+     *             of fields
+     */
+    @Override
+    public void write(final ByteBuffer buffer, final Object object) throws IOException {
+        final Object[] record = checkRecord(object);
+        final int start = buffer.position();
+        if (buffer.remaining() < getSize()) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < fieldBufferConverters.length; i++) {
+            buffer.position(start + fieldOffsets[i]);
+            fieldBufferConverters[i].write(buffer, record[i]);
+        }
+        buffer.position(start + getSize());
+    }
+
+    /**
+     * Checks that an object is a record with a value for each field.
+     *
+     * @param object the object to be checked
+     * @return the record
+     * @throws IllegalArgumentException if the number of values does not match the number
+     *             of fields
+     */
+    private Object[] checkRecord(final Object object) {
+        final Object[] record = (Object[]) object;
+        if (record.length != fieldConverters.length) {
+            throw new IllegalArgumentException("Expected " + fieldConverters.length
+                    + " field values but got " + record.length);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,240 @@
+package codebase.io.converters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A converter for objects of several types, each written by its own converter after a
+ * one-byte type tag.
+ * <p>
+ * Types are registered with a tag and the converter of their objects. Reading an object
+ * reads its tag and dispatches to the converter found at that index of an array. Writing
+ * an object looks up its class in a cache. A class that was not registered uses the
+ * converter of its closest registered superclass, or else of a registered interface it
+ * implements, and is cached on first use. Neither dispatch uses reflection.
+ * <p>
+ * Types are usually registered once, before the converter is used. Registration is
+ * synchronized and objects can be read and written concurrently with it; a class that
+ * misses the cache is resolved under the same lock, so that it is never cached with an
+ * entry older than the last registration.
+ * <p>
+ * The cache holds the classes written, and so their class loaders, for as long as the
+ * converter is reachable. A converter that outlives the class loaders of the objects it
+ * writes, such as one shared by redeployed components, should be recreated with them.
+ */
+public class TaggedConverter implements Converter {
+
+    /**
+     * The number of distinct tags.
+     */
+    public static final int MAX_TAGS = 256;
+
+    /**
+     * A registered type, with its tag and converter.
+     */
+    private static final class Entry {
+
+        /**
+         * The tag written before the objects of the type.
+         */
+        private final int tag;
+
+        /**
+         * The converter of the objects of the type.
+         */
+        private final Converter converter;
+
+        /**
+         * Creates an entry.
+         *
+         * @param typeTag the tag of the type
+         * @param typeConverter the converter of the type
+         */
+        private Entry(final int typeTag, final Converter typeConverter) {
+            tag = typeTag;
+            converter = typeConverter;
+        }
+    }
+
+    /**
+     * The converters indexed by tag, replaced when a type is registered.
+     */
+    private volatile Converter[] convertersByTag = new Converter[MAX_TAGS];
+
+    /**
+     * The types registered explicitly.
+     */
+    private final ConcurrentHashMap<Class<?>, Entry> registeredTypes =
+            new ConcurrentHashMap<Class<?>, Entry>();
+
+    /**
+     * The entry of every class written, including the ones resolved from supertypes.
+     */
+    private final ConcurrentHashMap<Class<?>, Entry> entriesByClass =
+            new ConcurrentHashMap<Class<?>, Entry>();
+
+    /**
+     * Registers a type.
+     *
+     * @param tag the tag written before the objects of the type, from 0 to 255
+     * @param type the class or interface of the objects
+     * @param converter the converter of the objects
+     * @return this converter, to chain registrations
+     * @throws IllegalArgumentException if an argument is not assigned, the tag is out of
+     *             range or in use, or the type is already registered
+     */
+    public synchronized TaggedConverter register(final int tag, final Class<?> type,
+                                                 final Converter converter) {
+        if (type == null || converter == null) {
+            throw new IllegalArgumentException("The type and converter must be assigned");
+        }
+        if (tag < 0 || tag >= MAX_TAGS) {
+            throw new IllegalArgumentException("Invalid tag: " + tag);
+        }
+        if (convertersByTag[tag] != null) {
+            throw new IllegalArgumentException("The tag " + tag + " is already in use");
+        }
+        if (registeredTypes.containsKey(type)) {
+            throw new IllegalArgumentException("The type " + type.getName()
+                    + " is already registered");
+        }
+
+        final Converter[] converters = convertersByTag.clone();
+        converters[tag] = converter;
+        convertersByTag = converters;
+        registeredTypes.put(type, new Entry(tag, converter));
+        // resolved subclasses may now have a closer registered type
+        entriesByClass.clear();
+        return this;
+    }
+
+    /**
+     * Gets the converter of a tag.
+     *
+     * @param tag the tag
+     * @return the converter, or <code>null</code> if the tag is not in use.
+     */
+    public Converter getConverter(final int tag) {
+        return convertersByTag[tag];
+    }
+
+    /**
+     * Gets the tag written before the objects of a class.
+     *
+     * @param type the class of the objects
+     * @return the tag, or <code>-1</code> if the class has no registered supertype.
+     */
+    public int getTag(final Class<?> type) {
+        final Entry entry = lookup(type);
+        return entry == null ? -1 : entry.tag;
+    }
+
+    /**
+     * Reads an object preceded by its tag.
+     *
+     * @param dataInput the input to read the object from
+     * @return the object read
+     * @throws IOException if the tag is not in use or the object cannot be read
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        final int tag = dataInput.readUnsignedByte();
+        final Converter converter = convertersByTag[tag];
+        if (converter == null) {
+            throw new IOException("Unknown type tag: " + tag);
+        }
+        return converter.read(dataInput);
+    }
+
+    /**
+     * Writes an object preceded by the tag of its type.
+     *
+     * @param dataOutput the output to write the object to
+     * @param object the object to write, cannot be <code>null</code>
+     * @throws IOException if the object cannot be written
+     * @throws IllegalArgumentException if the type of the object is not registered
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object)
+            throws IOException {
+        assert dataOutput != null;
+
+        final Entry entry = lookup(object.getClass());
+        if (entry == null) {
+            throw new IllegalArgumentException("The type " + object.getClass().getName()
+                    + " is not registered");
+        }
+        dataOutput.writeByte(entry.tag);
+        entry.converter.write(dataOutput, object);
+    }
+
+    /**
+     * Finds the entry used to write the objects of a class.
+     *
+     * @param type the class of the objects
+     * @return the entry, or <code>null</code> if the class has no registered supertype
+     */
+    private Entry lookup(final Class<?> type) {
+        Entry entry = entriesByClass.get(type);
+        if (entry == null) {
+            // resolved under the lock of register, which clears the cache
+            synchronized (this) {
+                entry = entriesByClass.get(type);
+                if (entry == null) {
+                    entry = resolve(type);
+                    if (entry != null) {
+                        entriesByClass.put(type, entry);
+                    }
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Finds the closest registered supertype of a class.
+     * <p>
+     * Superclasses are searched first, from the class up, then the interfaces of each
+     * of them.
+     *
+     * @param type the class
+     * @return the entry of the supertype, or <code>null</code> if there is none
+     */
+    private Entry resolve(final Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            final Entry entry = registeredTypes.get(c);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            final Entry entry = resolveInterfaces(c);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a registered interface among the interfaces of a type.
+     *
+     * @param type the class or interface
+     * @return the entry of the first registered interface, or <code>null</code> if there
+     *         is none
+     */
+    private Entry resolveInterfaces(final Class<?> type) {
+        for (Class<?> i : type.getInterfaces()) {
+            Entry entry = registeredTypes.get(i);
+            if (entry == null) {
+                entry = resolveInterfaces(i);
+            }
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.BufferConverter;
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.ByteBufferDataOutput;
+
+/**
+ * The base class of converters for primitive values that may be in a given byte order.
+ * <p>
+ * Without a byte order, values are big-endian on streams, as written by
+ * {@link DataOutput}, and in the byte order of each buffer on buffers. With a byte order,
+ * values are read and written in that order on streams and on buffers, whatever the order
+ * of the buffers.
+ * <p>
+ * A {@link ByteBufferDataInput} or {@link ByteBufferDataOutput} reads and writes in the
+ * order of its buffer, so a value is transferred through the buffer itself, with the
+ * rules of buffers, rather than swapped as on other streams.
+ */
+public abstract class AbstractByteOrderConverter extends
+        AbstractFixedSizeConverter
+        implements BufferConverter {
+
+    /**
+     * The byte order of the values, or <code>null</code> for the default order.
+     */
+    private final ByteOrder byteOrder;
+
+    /**
+     * Indicates if the values are swapped on streams.
+     */
+    private final boolean littleEndian;
+
+    /**
+     * Constructs a converter for values in the default byte order.
+     *
+     * @param size the number of bytes of a value
+     */
+    protected AbstractByteOrderConverter(final int size) {
+        super(size);
+        byteOrder = null;
+        littleEndian = false;
+    }
+
+    /**
+     * Constructs a converter for values in a given byte order.
+     *
+     * @param size the number of bytes of a value
+     * @param order the byte order of the values, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the order is not assigned
+     */
+    protected AbstractByteOrderConverter(final int size, final ByteOrder order) {
+        super(size);
+        if (order == null) {
+            throw new IllegalArgumentException("The byte order must be assigned");
+        }
+        byteOrder = order;
+        littleEndian = order == ByteOrder.LITTLE_ENDIAN;
+    }
+
+    /**
+     * Gets the byte order of the values.
+     *
+     * @return the byte order, or <code>null</code> if values are big-endian on streams and
+     *         in the order of each buffer on buffers.
+     */
+    public final ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    /**
+     * Indicates if the bytes of the values must be reversed on a stream.
+     *
+     * @return <code>true</code> if the values are little-endian
+     */
+    protected final boolean swapsStreams() {
+        return littleEndian;
+    }
+
+    /**
+     * Indicates if the bytes of the values must be reversed on a buffer.
+     *
+     * @param buffer the buffer holding the values
+     * @return <code>true</code> if the order of the buffer is not the one of the converter
+     */
+    protected final boolean swaps(final ByteBuffer buffer) {
+        return byteOrder != null && buffer.order() != byteOrder;
+    }
+
+    /**
+     * Gets the buffer read by a data input, if any.
+     *
+     * @param dataInput the data input
+     * @return the buffer, positioned at the value, or <code>null</code> if the input does
+     *         not read a buffer
+     * @throws EOFException if the buffer has too few bytes left to read a value
+     */
+    protected final ByteBuffer bufferOf(final DataInput dataInput) throws EOFException {
+        if (!(dataInput instanceof ByteBufferDataInput)) {
+            return null;
+        }
+        final ByteBuffer buffer = ((ByteBufferDataInput) dataInput).getBuffer();
+        if (buffer.remaining() < getSize()) {
+            throw new EOFException("Not enough bytes left to read a value");
+        }
+        return buffer;
+    }
+
+    /**
+     * Gets the buffer written by a data output, if any.
+     *
+     * @param dataOutput the data output
+     * @return the buffer, positioned where the value goes, or <code>null</code> if the
+     *         output does not write a buffer
+     * @throws EOFException if the buffer has too little room left to write a value
+     */
+    protected final ByteBuffer bufferOf(final DataOutput dataOutput) throws EOFException {
+        if (!(dataOutput instanceof ByteBufferDataOutput)) {
+            return null;
+        }
+        final ByteBuffer buffer = ((ByteBufferDataOutput) dataOutput).getBuffer();
+        if (buffer.remaining() < getSize()) {
+            throw new EOFException("Output buffer full");
+        }
+        return buffer;
+    }
+}
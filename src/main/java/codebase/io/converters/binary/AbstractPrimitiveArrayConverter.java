@@ -0,0 +1,240 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.BufferConverter;
+
+/**
+ * The base class of converters for arrays of primitive values with a fixed length.
+ * <p>
+ * The bytes of the whole array are transferred in a single <code>readFully</code> or
+ * <code>write</code> call and converted in bulk through a typed view of a
+ * {@link ByteBuffer} (for example {@link ByteBuffer#asIntBuffer()}) in the byte order
+ * specified in the constructor. Unlike {@link codebase.io.converters.ArrayConverter},
+ * there is no call to the data input or output per element.
+ * <p>
+ * Each thread uses its own transfer buffer, so instances can be shared between threads.
+ * With {@link ByteOrder#BIG_ENDIAN} the format is the same as writing each element with
+ * the corresponding {@link DataOutput} method.
+ * <p>
+ * Arrays held in a {@link ByteBuffer} are converted in place, always in the byte order of
+ * the converter, regardless of the order of the buffer.
+ */
+public abstract class AbstractPrimitiveArrayConverter extends
+        AbstractFixedSizeConverter
+        implements BufferConverter {
+
+    /**
+     * The number of elements of the arrays.
+     */
+    private final int arrayLength;
+
+    /**
+     * The byte order of the elements.
+     */
+    private final ByteOrder byteOrder;
+
+    /**
+     * The buffer used by each thread to transfer the bytes of an array.
+     */
+    private final ThreadLocal<ByteBuffer> transferBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(getSize()).order(byteOrder);
+        }
+    };
+
+    /**
+     * Constructs a converter for arrays of primitive values.
+     *
+     * @param length the number of elements of the arrays
+     * @param elementSize the number of bytes of each element
+     * @param order the byte order of the elements, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the length is not positive or the order is not
+     *             assigned
+     */
+    protected AbstractPrimitiveArrayConverter(final int length,
+                                              final int elementSize,
+                                              final ByteOrder order) {
+        super(length * elementSize);
+        if (length < 1) {
+            throw new IllegalArgumentException(
+                    "A primitive array converter must have at least one element");
+        }
+        if (order == null) {
+            throw new IllegalArgumentException("The byte order must be assigned");
+        }
+        arrayLength = length;
+        byteOrder = order;
+    }
+
+    /**
+     * Gets the number of elements of the arrays.
+     *
+     * @return the number of elements read and written.
+     */
+    public final int getLength() {
+        return arrayLength;
+    }
+
+    /**
+     * Gets the byte order of the elements.
+     *
+     * @return the byte order.
+     */
+    public final ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    /**
+     * Reads the bytes of an array into the transfer buffer of the current thread.
+     *
+     * @param dataInput the stream to read the bytes from.
+     * @return the transfer buffer positioned at the first byte.
+     * @throws IOException if I/O errors occur.
+     */
+    protected final ByteBuffer fillBuffer(final DataInput dataInput) throws IOException {
+        final ByteBuffer buffer = transferBuffer.get();
+        buffer.clear();
+        dataInput.readFully(buffer.array(), 0, getSize());
+        return buffer;
+    }
+
+    /**
+     * Gets the transfer buffer of the current thread, ready to be filled.
+     *
+     * @return the cleared transfer buffer.
+     */
+    protected final ByteBuffer emptyBuffer() {
+        final ByteBuffer buffer = transferBuffer.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Writes the bytes of the transfer buffer to the output.
+     *
+     * @param dataOutput the stream to write the bytes to.
+     * @param buffer the transfer buffer, filled with a whole array.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    protected final void flushBuffer(final DataOutput dataOutput, final ByteBuffer buffer)
+            throws IOException {
+        dataOutput.write(buffer.array(), 0, getSize());
+    }
+
+    /**
+     * Checks that an array has enough elements to be written.
+     *
+     * @param length the length of the array.
+     * @throws IllegalArgumentException if the array is too short.
+     */
+    protected final void checkLength(final int length) {
+        if (length < arrayLength) {
+            throw new IllegalArgumentException("The array must have at least " + arrayLength
+                    + " elements");
+        }
+    }
+
+    /**
+     * Reads an array.
+     *
+     * @param dataInput the stream to read data from in order to restore the array.
+     * @return a new array.
+     * @throws IOException if I/O errors occur.
+     */
+    @Override
+    public final Object read(final DataInput dataInput) throws IOException {
+        return decode(fillBuffer(dataInput));
+    }
+
+    /**
+     * Writes an array.
+     *
+     * @param dataOutput the stream to write the array to.
+     * @param object the array to be written.
+     * @throws IOException includes any I/O exceptions that may occur.
+     * @throws IllegalArgumentException if the array is too short.
+     */
+    @Override
+    public final void write(final DataOutput dataOutput, final Object object)
+            throws IOException {
+        final ByteBuffer buffer = emptyBuffer();
+        encode(buffer, object);
+        flushBuffer(dataOutput, buffer);
+    }
+
+    /**
+     * Reads an array at the position of the buffer.
+     *
+     * @param buffer the buffer to read the array from.
+     * @return a new array.
+     */
+    @Override
+    public final Object read(final ByteBuffer buffer) {
+        final Object array = decode(view(buffer, buffer.position()));
+        buffer.position(buffer.position() + getSize());
+        return array;
+    }
+
+    /**
+     * Reads an array at an absolute offset of the buffer.
+     *
+     * @param buffer the buffer to read the array from.
+     * @param offset the index of the first byte of the array in the buffer.
+     * @return a new array.
+     */
+    @Override
+    public final Object read(final ByteBuffer buffer, final int offset) {
+        return decode(view(buffer, offset));
+    }
+
+    /**
+     * Writes an array at the position of the buffer.
+     *
+     * @param buffer the buffer to write the array to.
+     * @param object the array to be written.
+     * @throws IllegalArgumentException if the array is too short.
+     */
+    @Override
+    public final void write(final ByteBuffer buffer, final Object object) {
+        encode(view(buffer, buffer.position()), object);
+        buffer.position(buffer.position() + getSize());
+    }
+
+    /**
+     * Creates a view of a buffer in the byte order of the converter.
+     *
+     * @param buffer the buffer to be viewed.
+     * @param offset the index of the first byte of the view.
+     * @return a view sharing the contents of the buffer.
+     */
+    protected final ByteBuffer view(final ByteBuffer buffer, final int offset) {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.order(byteOrder);
+        return view;
+    }
+
+    /**
+     * Converts the bytes at the position of a buffer to a new array.
+     *
+     * @param buffer the buffer holding the array, in the byte order of the converter.
+     * @return a new array.
+     */
+    protected abstract Object decode(final ByteBuffer buffer);
+
+    /**
+     * Converts an array to bytes at the position of a buffer.
+     *
+     * @param buffer the buffer to hold the array, in the byte order of the converter.
+     * @param object the array to be converted.
+     * @throws IllegalArgumentException if the array is too short.
+     */
+    protected abstract void encode(final ByteBuffer buffer, final Object object);
+}
@@ -0,0 +1,502 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import codebase.io.converters.Converter;
+
+/**
+ * A converter for objects of a class whose fields are marked with {@link RecordField}.
+ * <p>
+ * The fields are converted one after the other, in the order of their positions, with
+ * the encodings of the converters of this package: primitive fields as their value
+ * converters, for example {@link IntegerConverter}, <code>short</code> fields as
+ * {@link DataOutput#writeShort(int)} and {@link String} fields with a
+ * {@link UTF8StringConverter}. Fields whose class has marked fields are converted
+ * recursively, and must hold instances of exactly that class. String and object fields
+ * are preceded by a byte that tells if they are <code>null</code>.
+ * <p>
+ * The class is analyzed once, when its converter is first requested through
+ * {@link #forClass(Class)}, which caches the converters by class. The classes of its
+ * object fields are analyzed with it, except the ones being analyzed already, such as the
+ * class itself for a recursive structure. Each field is then
+ * handled by an accessor specialized for its type, which transfers primitive values
+ * without boxing them. Objects are created with the constructor without arguments of the
+ * class, which may be private.
+ * <p>
+ * Instances can be shared between threads.
+ */
+public final class AnnotatedRecordConverter implements Converter {
+
+    /**
+     * The converters created, by class.
+     */
+    private static final ConcurrentHashMap<Class<?>, AnnotatedRecordConverter> CONVERTERS =
+            new ConcurrentHashMap<Class<?>, AnnotatedRecordConverter>();
+
+    /**
+     * The converter of <code>boolean</code> fields.
+     */
+    private static final BooleanConverter BOOLEANS = new BooleanConverter();
+
+    /**
+     * The converter of <code>byte</code> fields.
+     */
+    private static final ByteConverter BYTES = new ByteConverter();
+
+    /**
+     * The converter of <code>char</code> fields.
+     */
+    private static final CharacterConverter CHARS = new CharacterConverter();
+
+    /**
+     * The converter of <code>int</code> fields.
+     */
+    private static final IntegerConverter INTS = new IntegerConverter();
+
+    /**
+     * The converter of <code>long</code> fields.
+     */
+    private static final LongConverter LONGS = new LongConverter();
+
+    /**
+     * The converter of <code>float</code> fields.
+     */
+    private static final FloatConverter FLOATS = new FloatConverter();
+
+    /**
+     * The converter of <code>double</code> fields.
+     */
+    private static final DoubleConverter DOUBLES = new DoubleConverter();
+
+    /**
+     * The converter of {@link String} fields.
+     */
+    private static final UTF8StringConverter STRINGS =
+            UTF8StringConverter.DEFAULT_INSTANCE;
+
+    /**
+     * The classes being analyzed by the current thread, whose fields may refer to them.
+     */
+    private static final ThreadLocal<Set<Class<?>>> ANALYZING =
+            new ThreadLocal<Set<Class<?>>>() {
+                @Override
+                protected Set<Class<?>> initialValue() {
+                    return new HashSet<Class<?>>();
+                }
+            };
+
+    /**
+     * Orders fields by their position in the record.
+     */
+    private static final Comparator<Field> BY_POSITION = new Comparator<Field>() {
+        @Override
+        public int compare(final Field a, final Field b) {
+            final int x = a.getAnnotation(RecordField.class).value();
+            final int y = b.getAnnotation(RecordField.class).value();
+            return x < y ? -1 : (x == y ? 0 : 1);
+        }
+    };
+
+    /**
+     * Transfers the value of a field.
+     */
+    private abstract static class FieldAccessor {
+
+        /**
+         * The field accessed.
+         */
+        protected final Field field;
+
+        /**
+         * Creates an accessor.
+         *
+         * @param f the field accessed, already made accessible
+         */
+        FieldAccessor(final Field f) {
+            field = f;
+        }
+
+        /**
+         * Reads the value of the field into an object.
+         *
+         * @param input the input to read the value from
+         * @param object the object whose field is set
+         * @throws IOException if the value cannot be read
+         * @throws IllegalAccessException if the field cannot be set
+         */
+        abstract void read(DataInput input, Object object) throws IOException,
+                IllegalAccessException;
+
+        /**
+         * Writes the value of the field of an object.
+         *
+         * @param output the output to write the value to
+         * @param object the object whose field is read
+         * @throws IOException if the value cannot be written
+         * @throws IllegalAccessException if the field cannot be read
+         */
+        abstract void write(DataOutput output, Object object) throws IOException,
+                IllegalAccessException;
+    }
+
+    /**
+     * The class of the objects converted.
+     */
+    private final Class<?> recordClass;
+
+    /**
+     * The constructor of the objects read.
+     */
+    private final Constructor<?> constructor;
+
+    /**
+     * The accessors of the fields, in the order of the record.
+     */
+    private final FieldAccessor[] accessors;
+
+    /**
+     * Analyzes a class.
+     *
+     * @param type the class of the objects converted
+     * @throws IllegalArgumentException if the class has no marked fields, two fields have
+     *             the same position, a field is static or of an unsupported type, or the
+     *             class has no constructor without arguments
+     */
+    private AnnotatedRecordConverter(final Class<?> type) {
+        final Set<Class<?>> analyzing = ANALYZING.get();
+        analyzing.add(type);
+        try {
+            recordClass = type;
+            accessors = analyze(type);
+        } finally {
+            analyzing.remove(type);
+        }
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("The class " + type.getName()
+                    + " has no constructor without arguments");
+        }
+    }
+
+    /**
+     * Creates the accessors of the marked fields of a class.
+     *
+     * @param type the class
+     * @return the accessors, in the order of the record
+     * @throws IllegalArgumentException if the class has no marked fields, two fields have
+     *             the same position, or a field is static or of an unsupported type
+     */
+    private static FieldAccessor[] analyze(final Class<?> type) {
+        final List<Field> fields = new ArrayList<Field>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(RecordField.class)) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        throw new IllegalArgumentException("The field " + field
+                                + " is static");
+                    }
+                    fields.add(field);
+                }
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("The class " + type.getName()
+                    + " has no record fields");
+        }
+        Collections.sort(fields, BY_POSITION);
+
+        final FieldAccessor[] accessors = new FieldAccessor[fields.size()];
+        for (int i = 0; i < accessors.length; i++) {
+            final Field field = fields.get(i);
+            if (i > 0 && BY_POSITION.compare(fields.get(i - 1), field) == 0) {
+                throw new IllegalArgumentException("The fields " + fields.get(i - 1)
+                        + " and " + field + " have the same position");
+            }
+            field.setAccessible(true);
+            accessors[i] = createAccessor(field);
+        }
+        return accessors;
+    }
+
+    /**
+     * Gets the converter of a class.
+     * <p>
+     * The converter is created on the first request and reused afterwards.
+     *
+     * @param type the class of the objects to convert
+     * @return the converter of the class
+     * @throws IllegalArgumentException if the class cannot be converted
+     */
+    public static AnnotatedRecordConverter forClass(final Class<?> type) {
+        AnnotatedRecordConverter converter = CONVERTERS.get(type);
+        if (converter == null) {
+            converter = new AnnotatedRecordConverter(type);
+            final AnnotatedRecordConverter existing = CONVERTERS.putIfAbsent(type,
+                    converter);
+            if (existing != null) {
+                converter = existing;
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * Gets the class of the objects converted.
+     *
+     * @return the record class.
+     */
+    public Class<?> getRecordClass() {
+        return recordClass;
+    }
+
+    /**
+     * Reads an object.
+     *
+     * @param dataInput the input to read the object from
+     * @return the new object, with its record fields read
+     * @throws IOException if a field cannot be read or the object cannot be created
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        final Object object;
+        try {
+            object = constructor.newInstance();
+        } catch (InstantiationException e) {
+            throw new IOException("Cannot create an instance of " + recordClass.getName(),
+                    e);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Cannot create an instance of " + recordClass.getName(),
+                    e);
+        } catch (InvocationTargetException e) {
+            throw new IOException("Cannot create an instance of " + recordClass.getName(),
+                    e.getCause());
+        }
+        try {
+            for (FieldAccessor accessor : accessors) {
+                accessor.read(dataInput, object);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("The record fields were made accessible", e);
+        }
+        return object;
+    }
+
+    /**
+     * Writes the record fields of an object.
+     *
+     * @param dataOutput the output to write the object to
+     * @param object the object to write, an instance of the record class
+     * @throws IOException if a field cannot be written
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object)
+            throws IOException {
+        assert recordClass.isInstance(object);
+
+        try {
+            for (FieldAccessor accessor : accessors) {
+                accessor.write(dataOutput, object);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("The record fields were made accessible", e);
+        }
+    }
+
+    /**
+     * Creates the accessor of a field, specialized for its type.
+     *
+     * @param field the field
+     * @return the accessor
+     * @throws IllegalArgumentException if the type of the field is not supported
+     */
+    private static FieldAccessor createAccessor(final Field field) {
+        final Class<?> type = field.getType();
+        if (type == int.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setInt(object, INTS.readInt(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    INTS.writeInt(output, field.getInt(object));
+                }
+            };
+        } else if (type == long.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setLong(object, LONGS.readLong(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    LONGS.writeLong(output, field.getLong(object));
+                }
+            };
+        } else if (type == double.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setDouble(object, DOUBLES.readDouble(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    DOUBLES.writeDouble(output, field.getDouble(object));
+                }
+            };
+        } else if (type == float.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setFloat(object, FLOATS.readFloat(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    FLOATS.writeFloat(output, field.getFloat(object));
+                }
+            };
+        } else if (type == boolean.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setBoolean(object, BOOLEANS.readBoolean(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    BOOLEANS.writeBoolean(output, field.getBoolean(object));
+                }
+            };
+        } else if (type == byte.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setByte(object, BYTES.readByte(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    BYTES.writeByte(output, field.getByte(object));
+                }
+            };
+        } else if (type == char.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setChar(object, CHARS.readChar(input));
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    CHARS.writeChar(output, field.getChar(object));
+                }
+            };
+        } else if (type == short.class) {
+            return new FieldAccessor(field) {
+                @Override
+                void read(final DataInput input, final Object object)
+                        throws IOException, IllegalAccessException {
+                    field.setShort(object, input.readShort());
+                }
+
+                @Override
+                void write(final DataOutput output, final Object object)
+                        throws IOException, IllegalAccessException {
+                    output.writeShort(field.getShort(object));
+                }
+            };
+        } else if (type == String.class) {
+            return createObjectAccessor(field, STRINGS);
+        } else if (!type.isPrimitive() && !type.isArray()) {
+            if (!ANALYZING.get().contains(type)) {
+                try {
+                    forClass(type);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("The field " + field
+                            + " has unsupported type " + type.getName() + ": "
+                            + e.getMessage(), e);
+                }
+            }
+            // the converter is found on first use, as the class may refer to itself
+            return createObjectAccessor(field, null);
+        }
+        throw new IllegalArgumentException("The field " + field + " has unsupported type "
+                + type.getName());
+    }
+
+    /**
+     * Creates the accessor of a field that holds an object, preceded by a
+     * <code>null</code> flag.
+     * <p>
+     * Objects written with the converter of the type of the field must be of that exact
+     * type, since they are read as such.
+     *
+     * @param field the field
+     * @param fieldConverter the converter of the object, or <code>null</code> to use the
+     *            converter of the type of the field
+     * @return the accessor
+     */
+    private static FieldAccessor createObjectAccessor(final Field field,
+                                                      final Converter fieldConverter) {
+        return new FieldAccessor(field) {
+            private Converter converter() {
+                return fieldConverter != null ? fieldConverter : forClass(field.getType());
+            }
+
+            @Override
+            void read(final DataInput input, final Object object) throws IOException,
+                    IllegalAccessException {
+                field.set(object, input.readBoolean() ? converter().read(input) : null);
+            }
+
+            @Override
+            void write(final DataOutput output, final Object object) throws IOException,
+                    IllegalAccessException {
+                final Object value = field.get(object);
+                if (fieldConverter == null && value != null
+                        && value.getClass() != field.getType()) {
+                    throw new IllegalArgumentException("The field " + field + " holds a "
+                            + value.getClass().getName() + ", which would be read as a "
+                            + field.getType().getName());
+                }
+                output.writeBoolean(value != null);
+                if (value != null) {
+                    converter().write(output, value);
+                }
+            }
+        };
+    }
+}
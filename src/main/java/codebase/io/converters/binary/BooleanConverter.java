@@ -3,8 +3,11 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.BooleanValueConverter;
 
 
 /**
@@ -45,7 +48,8 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see IOException
  */
 public class BooleanConverter extends
-        AbstractFixedSizeConverter {
+        AbstractFixedSizeConverter
+        implements BooleanValueConverter, BufferConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>boolean</tt>
@@ -73,10 +77,7 @@ public class BooleanConverter extends
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        if (dataInput.readBoolean())
-            return Boolean.TRUE;
-        else
-            return Boolean.FALSE;
+        return Boolean.valueOf(readBoolean(dataInput));
     }
 
     /**
@@ -92,6 +93,91 @@ public class BooleanConverter extends
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.writeBoolean(((Boolean) object).booleanValue());
+        writeBoolean(dataOutput, ((Boolean) object).booleanValue());
+    }
+
+    /**
+     * Reads the <tt>boolean</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>boolean</tt> value from.
+     * @return the read <tt>boolean</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public boolean readBoolean(DataInput dataInput) throws IOException {
+        return dataInput.readBoolean();
+    }
+
+    /**
+     * Writes the specified <tt>boolean</tt> value to the specified data output.
+     * 
+     * @param dataOutput the stream to write the specified <tt>boolean</tt> value to.
+     * @param value the <tt>boolean</tt> value that should be written to the data output.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeBoolean(DataOutput dataOutput, boolean value) throws IOException {
+        dataOutput.writeBoolean(value);
+    }
+
+    /**
+     * Reads a <tt>Boolean</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>boolean</tt> value from.
+     * @return the read <tt>Boolean</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Boolean.valueOf(readBoolean(buffer));
+    }
+
+    /**
+     * Reads a <tt>Boolean</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>boolean</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Boolean</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Boolean.valueOf(readBoolean(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>boolean</tt> value of the specified <tt>Boolean</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>boolean</tt> value to.
+     * @param object the <tt>Boolean</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeBoolean(buffer, ((Boolean) object).booleanValue());
+    }
+
+    /**
+     * Reads a <tt>boolean</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>boolean</tt> value from.
+     * @return the read <tt>boolean</tt> value.
+     */
+    public boolean readBoolean(ByteBuffer buffer) {
+        return buffer.get() != 0;
+    }
+
+    /**
+     * Reads a <tt>boolean</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>boolean</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>boolean</tt> value.
+     */
+    public boolean readBoolean(ByteBuffer buffer, int offset) {
+        return buffer.get(offset) != 0;
+    }
+
+    /**
+     * Writes the specified <tt>boolean</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>boolean</tt> value to.
+     * @param value the <tt>boolean</tt> value to be written.
+     */
+    public void writeBoolean(ByteBuffer buffer, boolean value) {
+        buffer.put((byte) (value ? 1 : 0));
     }
 }
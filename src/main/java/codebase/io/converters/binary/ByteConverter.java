@@ -3,8 +3,11 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.ByteValueConverter;
 
 
 /**
@@ -44,7 +47,8 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see IOException
  */
 public class ByteConverter extends
-        AbstractFixedSizeConverter {
+        AbstractFixedSizeConverter
+        implements ByteValueConverter, BufferConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>byte</tt> value
@@ -72,20 +76,7 @@ public class ByteConverter extends
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        return Byte.valueOf(dataInput.readByte());
-    }
-
-    /**
-     * Reads the <tt>byte</tt> value from the specified data input and returns it. <br>
-     * This implementation uses the read method and converts the returned <tt>Byte</tt>
-     * object to its primitive <tt>byte</tt> type.
-     * 
-     * @param dataInput the stream to read the <tt>byte</tt> value from.
-     * @return the read <tt>byte</tt> value.
-     * @throws IOException if I/O errors occur.
-     */
-    public byte readByte(DataInput dataInput) throws IOException {
-        return ((Byte) read(dataInput)).byteValue();
+        return Byte.valueOf(readByte(dataInput));
     }
 
     /**
@@ -101,6 +92,91 @@ public class ByteConverter extends
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.write(((Byte) object).byteValue());
+        writeByte(dataOutput, ((Byte) object).byteValue());
+    }
+
+    /**
+     * Reads the <tt>byte</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>byte</tt> value from.
+     * @return the read <tt>byte</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public byte readByte(DataInput dataInput) throws IOException {
+        return dataInput.readByte();
+    }
+
+    /**
+     * Writes the specified <tt>byte</tt> value to the specified data output.
+     * 
+     * @param dataOutput the stream to write the specified <tt>byte</tt> value to.
+     * @param value the <tt>byte</tt> value that should be written to the data output.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeByte(DataOutput dataOutput, byte value) throws IOException {
+        dataOutput.writeByte(value);
+    }
+
+    /**
+     * Reads a <tt>Byte</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>byte</tt> value from.
+     * @return the read <tt>Byte</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Byte.valueOf(readByte(buffer));
+    }
+
+    /**
+     * Reads a <tt>Byte</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>byte</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Byte</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Byte.valueOf(readByte(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>byte</tt> value of the specified <tt>Byte</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>byte</tt> value to.
+     * @param object the <tt>Byte</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeByte(buffer, ((Byte) object).byteValue());
+    }
+
+    /**
+     * Reads a <tt>byte</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>byte</tt> value from.
+     * @return the read <tt>byte</tt> value.
+     */
+    public byte readByte(ByteBuffer buffer) {
+        return buffer.get();
+    }
+
+    /**
+     * Reads a <tt>byte</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>byte</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>byte</tt> value.
+     */
+    public byte readByte(ByteBuffer buffer, int offset) {
+        return buffer.get(offset);
+    }
+
+    /**
+     * Writes the specified <tt>byte</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>byte</tt> value to.
+     * @param value the <tt>byte</tt> value to be written.
+     */
+    public void writeByte(ByteBuffer buffer, byte value) {
+        buffer.put(value);
     }
 }
@@ -7,10 +7,13 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 import codebase.ArrayUtil;
 import codebase.StringUtil;
 import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.BufferConverter;
 
 /**
  * A converter for that skips a predefined number of bytes when reading.
@@ -21,7 +24,9 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * The write operation will write out a predefined byte array specified in the
  * constructor.
  */
-public class ByteSkipConverter extends AbstractFixedSizeConverter {
+public class ByteSkipConverter extends
+        AbstractFixedSizeConverter
+        implements BufferConverter {
 
     /**
      * Caches the number of ASCII characters to read for optimization purposes. Thus is
@@ -101,4 +106,40 @@ public class ByteSkipConverter extends AbstractFixedSizeConverter {
     public final void write(final DataOutput dataOutput, final Object object) throws IOException {
         dataOutput.write(writeBytes);
     }
+
+    /**
+     * Skips the specified number of bytes of the buffer.
+     * 
+     * @param buffer the buffer whose position is advanced
+     * @return <code>null</code>
+     * @throws BufferUnderflowException if fewer bytes remain in the buffer
+     */
+    public final Object read(final ByteBuffer buffer) {
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        buffer.position(buffer.position() + length);
+        return null;
+    }
+
+    /**
+     * Does nothing, there is nothing to read.
+     * 
+     * @param buffer the buffer, ignored
+     * @param offset the offset, ignored
+     * @return <code>null</code>
+     */
+    public final Object read(final ByteBuffer buffer, final int offset) {
+        return null;
+    }
+
+    /**
+     * Writes out the byte array at the position of the buffer.
+     * 
+     * @param buffer where to write the data
+     * @param object ignored
+     */
+    public final void write(final ByteBuffer buffer, final Object object) {
+        buffer.put(writeBytes);
+    }
 }
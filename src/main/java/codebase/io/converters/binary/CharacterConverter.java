@@ -3,8 +3,10 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.CharValueConverter;
 
 /**
  * Provides a converter that is able to read and write <tt>Character</tt> objects.
@@ -43,7 +45,9 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see DataOutput
  * @see IOException
  */
-public class CharacterConverter extends AbstractFixedSizeConverter {
+public class CharacterConverter extends
+        AbstractByteOrderConverter
+        implements CharValueConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>char</tt> value
@@ -53,12 +57,28 @@ public class CharacterConverter extends AbstractFixedSizeConverter {
     public static final int SIZE = 2;
 
     /**
-     * Sole constructor. (For invocation by subclass constructors, typically implicit.)
+     * Creates a converter for values in the default byte order.
+     * <p>
+     * Values are big-endian on streams, as written by {@link DataOutput}, and in the byte
+     * order of each buffer on buffers.
      */
     public CharacterConverter() {
         super(SIZE);
     }
 
+    /**
+     * Creates a converter for values in a given byte order.
+     * <p>
+     * Values are read and written in that order on streams and on buffers, whatever the
+     * order of the buffers.
+     *
+     * @param order the byte order of the values, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the order is not assigned
+     */
+    public CharacterConverter(final ByteOrder order) {
+        super(SIZE, order);
+    }
+
     /**
      * Reads the <tt>char</tt> value for the specified (<tt>Character</tt>) object from
      * the specified data input and returns the restored object. <br>
@@ -72,20 +92,7 @@ public class CharacterConverter extends AbstractFixedSizeConverter {
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        return Character.valueOf(dataInput.readChar());
-    }
-
-    /**
-     * Reads the <tt>char</tt> value from the specified data input and returns it. <br>
-     * This implementation uses the read method and converts the returned
-     * <tt>Character</tt> object to its primitive <tt>char</tt> type.
-     * 
-     * @param dataInput the stream to read the <tt>char</tt> value from.
-     * @return the read <tt>char</tt> value.
-     * @throws IOException if I/O errors occur.
-     */
-    public char readChar(DataInput dataInput) throws IOException {
-        return ((Character) read(dataInput)).charValue();
+        return Character.valueOf(readChar(dataInput));
     }
 
     /**
@@ -101,19 +108,117 @@ public class CharacterConverter extends AbstractFixedSizeConverter {
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.writeChar(((Character) object).charValue());
+        writeChar(dataOutput, ((Character) object).charValue());
+    }
+
+    /**
+     * Reads the <tt>char</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>char</tt> value from.
+     * @return the read <tt>char</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public char readChar(DataInput dataInput) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataInput);
+        if (buffer != null) {
+            return readChar(buffer);
+        }
+        if (swapsStreams()) {
+            return Character.reverseBytes(dataInput.readChar());
+        }
+        return dataInput.readChar();
     }
 
     /**
-     * Writes the specified <tt>char</tt> value to the specified data output. <br>
-     * This implementation calls the write method with a <tt>Character</tt> object
-     * wrapping the specified <tt>char</tt> value.
+     * Writes the specified <tt>char</tt> value to the specified data output.
      * 
      * @param dataOutput the stream to write the specified <tt>char</tt> value to.
-     * @param c the <tt>char</tt> value that should be written to the data output.
+     * @param value the <tt>char</tt> value that should be written to the data output.
      * @throws IOException includes any I/O exceptions that may occur.
      */
-    public void writeChar(DataOutput dataOutput, char c) throws IOException {
-        write(dataOutput, Character.valueOf(c));
+    public void writeChar(DataOutput dataOutput, char value) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataOutput);
+        if (buffer != null) {
+            writeChar(buffer, value);
+            return;
+        }
+        if (swapsStreams()) {
+            dataOutput.writeChar(Character.reverseBytes(value));
+        } else {
+            dataOutput.writeChar(value);
+        }
+    }
+
+    /**
+     * Reads a <tt>Character</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>char</tt> value from.
+     * @return the read <tt>Character</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Character.valueOf(readChar(buffer));
+    }
+
+    /**
+     * Reads a <tt>Character</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>char</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Character</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Character.valueOf(readChar(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>char</tt> value of the specified <tt>Character</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>char</tt> value to.
+     * @param object the <tt>Character</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeChar(buffer, ((Character) object).charValue());
+    }
+
+    /**
+     * Reads a <tt>char</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>char</tt> value from.
+     * @return the read <tt>char</tt> value.
+     */
+    public char readChar(ByteBuffer buffer) {
+        if (swaps(buffer)) {
+            return Character.reverseBytes(buffer.getChar());
+        }
+        return buffer.getChar();
+    }
+
+    /**
+     * Reads a <tt>char</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>char</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>char</tt> value.
+     */
+    public char readChar(ByteBuffer buffer, int offset) {
+        if (swaps(buffer)) {
+            return Character.reverseBytes(buffer.getChar(offset));
+        }
+        return buffer.getChar(offset);
+    }
+
+    /**
+     * Writes the specified <tt>char</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>char</tt> value to.
+     * @param value the <tt>char</tt> value to be written.
+     */
+    public void writeChar(ByteBuffer buffer, char value) {
+        if (swaps(buffer)) {
+            buffer.putChar(Character.reverseBytes(value));
+        } else {
+            buffer.putChar(value);
+        }
     }
 }
@@ -0,0 +1,79 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import codebase.BinaryUtil;
+
+/**
+ * A converter for <code>double[]</code> arrays with a fixed number of elements.
+ * <p>
+ * The elements are converted in bulk through {@link ByteBuffer#asDoubleBuffer()}.
+ * With the default big-endian order the format is the same as the one of an
+ * {@link codebase.io.converters.ArrayConverter} of {@link DoubleConverter}.
+ */
+public class DoubleArrayConverter extends
+        AbstractPrimitiveArrayConverter {
+
+    /**
+     * Constructs a converter for big-endian arrays.
+     * 
+     * @param length the number of elements of the arrays.
+     */
+    public DoubleArrayConverter(final int length) {
+        this(length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructs a converter for arrays in the given byte order.
+     * 
+     * @param length the number of elements of the arrays.
+     * @param order the byte order of the elements.
+     */
+    public DoubleArrayConverter(final int length, final ByteOrder order) {
+        super(length, BinaryUtil.SIZE_OF_DOUBLE, order);
+    }
+
+    /**
+     * Reads the elements of an array into an existing array.
+     * 
+     * @param dataInput the stream to read data from in order to restore the array.
+     * @param values the array where the elements are stored, starting at the first
+     *            position.
+     * @throws IOException if I/O errors occur.
+     * @throws IllegalArgumentException if the array is too short.
+     */
+    public void read(final DataInput dataInput, final double[] values) throws IOException {
+        checkLength(values.length);
+        fillBuffer(dataInput).asDoubleBuffer().get(values, 0, getLength());
+    }
+
+    /**
+     * Writes the first {@link #getLength()} elements of an array.
+     * 
+     * @param dataOutput the stream to write the array to.
+     * @param values the array to be written.
+     * @throws IOException includes any I/O exceptions that may occur.
+     * @throws IllegalArgumentException if the array is too short.
+     */
+    public void write(final DataOutput dataOutput, final double[] values) throws IOException {
+        write(dataOutput, (Object) values);
+    }
+
+    @Override
+    protected Object decode(final ByteBuffer buffer) {
+        final double[] values = new double[getLength()];
+        buffer.asDoubleBuffer().get(values);
+        return values;
+    }
+
+    @Override
+    protected void encode(final ByteBuffer buffer, final Object object) {
+        final double[] values = (double[]) object;
+        checkLength(values.length);
+        buffer.asDoubleBuffer().put(values, 0, getLength());
+    }
+}
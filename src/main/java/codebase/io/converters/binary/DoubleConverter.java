@@ -3,8 +3,10 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.DoubleValueConverter;
 
 
 /**
@@ -47,7 +49,8 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see IOException
  */
 public class DoubleConverter extends
-        AbstractFixedSizeConverter {
+        AbstractByteOrderConverter
+        implements DoubleValueConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>double</tt>
@@ -57,12 +60,28 @@ public class DoubleConverter extends
     public static final int SIZE = 8;
 
     /**
-     * Sole constructor. (For invocation by subclass constructors, typically implicit.)
+     * Creates a converter for values in the default byte order.
+     * <p>
+     * Values are big-endian on streams, as written by {@link DataOutput}, and in the byte
+     * order of each buffer on buffers.
      */
     public DoubleConverter() {
         super(SIZE);
     }
 
+    /**
+     * Creates a converter for values in a given byte order.
+     * <p>
+     * Values are read and written in that order on streams and on buffers, whatever the
+     * order of the buffers.
+     *
+     * @param order the byte order of the values, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the order is not assigned
+     */
+    public DoubleConverter(final ByteOrder order) {
+        super(SIZE, order);
+    }
+
     /**
      * Reads the <tt>double</tt> value for the specified (<tt>Double</tt>) object from the
      * specified data input and returns the restored object. <br>
@@ -75,7 +94,7 @@ public class DoubleConverter extends
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        return new Double(dataInput.readDouble());
+        return Double.valueOf(readDouble(dataInput));
     }
 
     /**
@@ -91,6 +110,117 @@ public class DoubleConverter extends
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.writeDouble(((Double) object).doubleValue());
+        writeDouble(dataOutput, ((Double) object).doubleValue());
+    }
+
+    /**
+     * Reads the <tt>double</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>double</tt> value from.
+     * @return the read <tt>double</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public double readDouble(DataInput dataInput) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataInput);
+        if (buffer != null) {
+            return readDouble(buffer);
+        }
+        if (swapsStreams()) {
+            return Double.longBitsToDouble(Long.reverseBytes(dataInput.readLong()));
+        }
+        return dataInput.readDouble();
+    }
+
+    /**
+     * Writes the specified <tt>double</tt> value to the specified data output.
+     * 
+     * @param dataOutput the stream to write the specified <tt>double</tt> value to.
+     * @param value the <tt>double</tt> value that should be written to the data output.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeDouble(DataOutput dataOutput, double value) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataOutput);
+        if (buffer != null) {
+            writeDouble(buffer, value);
+            return;
+        }
+        if (swapsStreams()) {
+            dataOutput.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+        } else {
+            dataOutput.writeDouble(value);
+        }
+    }
+
+    /**
+     * Reads a <tt>Double</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>double</tt> value from.
+     * @return the read <tt>Double</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Double.valueOf(readDouble(buffer));
+    }
+
+    /**
+     * Reads a <tt>Double</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>double</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Double</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Double.valueOf(readDouble(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>double</tt> value of the specified <tt>Double</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>double</tt> value to.
+     * @param object the <tt>Double</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeDouble(buffer, ((Double) object).doubleValue());
+    }
+
+    /**
+     * Reads a <tt>double</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>double</tt> value from.
+     * @return the read <tt>double</tt> value.
+     */
+    public double readDouble(ByteBuffer buffer) {
+        if (swaps(buffer)) {
+            return Double.longBitsToDouble(Long.reverseBytes(buffer.getLong()));
+        }
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads a <tt>double</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>double</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>double</tt> value.
+     */
+    public double readDouble(ByteBuffer buffer, int offset) {
+        if (swaps(buffer)) {
+            return Double.longBitsToDouble(Long.reverseBytes(buffer.getLong(offset)));
+        }
+        return buffer.getDouble(offset);
+    }
+
+    /**
+     * Writes the specified <tt>double</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>double</tt> value to.
+     * @param value the <tt>double</tt> value to be written.
+     */
+    public void writeDouble(ByteBuffer buffer, double value) {
+        if (swaps(buffer)) {
+            buffer.putLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+        } else {
+            buffer.putDouble(value);
+        }
     }
 }
@@ -3,8 +3,10 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.FloatValueConverter;
 
 /**
  * This class provides a converter that is able to read and write <tt>Float</tt> objects.
@@ -46,7 +48,8 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see IOException
  */
 public class FloatConverter extends
-        AbstractFixedSizeConverter {
+        AbstractByteOrderConverter
+        implements FloatValueConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>float</tt>
@@ -56,12 +59,28 @@ public class FloatConverter extends
     public static final int SIZE = 4;
 
     /**
-     * Sole constructor. (For invocation by subclass constructors, typically implicit.)
+     * Creates a converter for values in the default byte order.
+     * <p>
+     * Values are big-endian on streams, as written by {@link DataOutput}, and in the byte
+     * order of each buffer on buffers.
      */
     public FloatConverter() {
         super(SIZE);
     }
 
+    /**
+     * Creates a converter for values in a given byte order.
+     * <p>
+     * Values are read and written in that order on streams and on buffers, whatever the
+     * order of the buffers.
+     *
+     * @param order the byte order of the values, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the order is not assigned
+     */
+    public FloatConverter(final ByteOrder order) {
+        super(SIZE, order);
+    }
+
     /**
      * Reads the <tt>float</tt> value for the specified (<tt>Float</tt>) object from the
      * specified data input and returns the restored object. <br>
@@ -74,7 +93,7 @@ public class FloatConverter extends
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        return new Float(dataInput.readFloat());
+        return Float.valueOf(readFloat(dataInput));
     }
 
     /**
@@ -90,6 +109,117 @@ public class FloatConverter extends
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.writeFloat(((Float) object).floatValue());
+        writeFloat(dataOutput, ((Float) object).floatValue());
+    }
+
+    /**
+     * Reads the <tt>float</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>float</tt> value from.
+     * @return the read <tt>float</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public float readFloat(DataInput dataInput) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataInput);
+        if (buffer != null) {
+            return readFloat(buffer);
+        }
+        if (swapsStreams()) {
+            return Float.intBitsToFloat(Integer.reverseBytes(dataInput.readInt()));
+        }
+        return dataInput.readFloat();
+    }
+
+    /**
+     * Writes the specified <tt>float</tt> value to the specified data output.
+     * 
+     * @param dataOutput the stream to write the specified <tt>float</tt> value to.
+     * @param value the <tt>float</tt> value that should be written to the data output.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeFloat(DataOutput dataOutput, float value) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataOutput);
+        if (buffer != null) {
+            writeFloat(buffer, value);
+            return;
+        }
+        if (swapsStreams()) {
+            dataOutput.writeInt(Integer.reverseBytes(Float.floatToRawIntBits(value)));
+        } else {
+            dataOutput.writeFloat(value);
+        }
+    }
+
+    /**
+     * Reads a <tt>Float</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>float</tt> value from.
+     * @return the read <tt>Float</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Float.valueOf(readFloat(buffer));
+    }
+
+    /**
+     * Reads a <tt>Float</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>float</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Float</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Float.valueOf(readFloat(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>float</tt> value of the specified <tt>Float</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>float</tt> value to.
+     * @param object the <tt>Float</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeFloat(buffer, ((Float) object).floatValue());
+    }
+
+    /**
+     * Reads a <tt>float</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>float</tt> value from.
+     * @return the read <tt>float</tt> value.
+     */
+    public float readFloat(ByteBuffer buffer) {
+        if (swaps(buffer)) {
+            return Float.intBitsToFloat(Integer.reverseBytes(buffer.getInt()));
+        }
+        return buffer.getFloat();
+    }
+
+    /**
+     * Reads a <tt>float</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>float</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>float</tt> value.
+     */
+    public float readFloat(ByteBuffer buffer, int offset) {
+        if (swaps(buffer)) {
+            return Float.intBitsToFloat(Integer.reverseBytes(buffer.getInt(offset)));
+        }
+        return buffer.getFloat(offset);
+    }
+
+    /**
+     * Writes the specified <tt>float</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>float</tt> value to.
+     * @param value the <tt>float</tt> value to be written.
+     */
+    public void writeFloat(ByteBuffer buffer, float value) {
+        if (swaps(buffer)) {
+            buffer.putInt(Integer.reverseBytes(Float.floatToRawIntBits(value)));
+        } else {
+            buffer.putFloat(value);
+        }
     }
 }
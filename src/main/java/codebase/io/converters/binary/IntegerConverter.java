@@ -3,8 +3,10 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.IntValueConverter;
 
 /**
  * Provides a converter that is able to read and write <tt>Integer</tt> objects.
@@ -43,7 +45,8 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see IOException
  */
 public class IntegerConverter extends
-        AbstractFixedSizeConverter {
+        AbstractByteOrderConverter
+        implements IntValueConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>int</tt> value
@@ -53,12 +56,28 @@ public class IntegerConverter extends
     public static final int SIZE = 4;
 
     /**
-     * Sole constructor. (For invocation by subclass constructors, typically implicit.)
+     * Creates a converter for values in the default byte order.
+     * <p>
+     * Values are big-endian on streams, as written by {@link DataOutput}, and in the byte
+     * order of each buffer on buffers.
      */
     public IntegerConverter() {
         super(SIZE);
     }
 
+    /**
+     * Creates a converter for values in a given byte order.
+     * <p>
+     * Values are read and written in that order on streams and on buffers, whatever the
+     * order of the buffers.
+     *
+     * @param order the byte order of the values, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the order is not assigned
+     */
+    public IntegerConverter(final ByteOrder order) {
+        super(SIZE, order);
+    }
+
     /**
      * Reads the <tt>int</tt> value for the specified (<tt>Integer</tt>) object from the
      * specified data input and returns the restored object. <br>
@@ -71,7 +90,7 @@ public class IntegerConverter extends
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        return Integer.valueOf(dataInput.readInt());
+        return Integer.valueOf(readInt(dataInput));
     }
 
     /**
@@ -87,7 +106,117 @@ public class IntegerConverter extends
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.writeInt(((Integer) object).intValue());
+        writeInt(dataOutput, ((Integer) object).intValue());
+    }
+
+    /**
+     * Reads the <tt>int</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>int</tt> value from.
+     * @return the read <tt>int</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public int readInt(DataInput dataInput) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataInput);
+        if (buffer != null) {
+            return readInt(buffer);
+        }
+        if (swapsStreams()) {
+            return Integer.reverseBytes(dataInput.readInt());
+        }
+        return dataInput.readInt();
+    }
+
+    /**
+     * Writes the specified <tt>int</tt> value to the specified data output.
+     * 
+     * @param dataOutput the stream to write the specified <tt>int</tt> value to.
+     * @param value the <tt>int</tt> value that should be written to the data output.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeInt(DataOutput dataOutput, int value) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataOutput);
+        if (buffer != null) {
+            writeInt(buffer, value);
+            return;
+        }
+        if (swapsStreams()) {
+            dataOutput.writeInt(Integer.reverseBytes(value));
+        } else {
+            dataOutput.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads an <tt>Integer</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>int</tt> value from.
+     * @return the read <tt>Integer</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Integer.valueOf(readInt(buffer));
     }
 
+    /**
+     * Reads an <tt>Integer</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>int</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Integer</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Integer.valueOf(readInt(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>int</tt> value of the specified <tt>Integer</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>int</tt> value to.
+     * @param object the <tt>Integer</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeInt(buffer, ((Integer) object).intValue());
+    }
+
+    /**
+     * Reads an <tt>int</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>int</tt> value from.
+     * @return the read <tt>int</tt> value.
+     */
+    public int readInt(ByteBuffer buffer) {
+        if (swaps(buffer)) {
+            return Integer.reverseBytes(buffer.getInt());
+        }
+        return buffer.getInt();
+    }
+
+    /**
+     * Reads an <tt>int</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>int</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>int</tt> value.
+     */
+    public int readInt(ByteBuffer buffer, int offset) {
+        if (swaps(buffer)) {
+            return Integer.reverseBytes(buffer.getInt(offset));
+        }
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * Writes the specified <tt>int</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>int</tt> value to.
+     * @param value the <tt>int</tt> value to be written.
+     */
+    public void writeInt(ByteBuffer buffer, int value) {
+        if (swaps(buffer)) {
+            buffer.putInt(Integer.reverseBytes(value));
+        } else {
+            buffer.putInt(value);
+        }
+    }
 }
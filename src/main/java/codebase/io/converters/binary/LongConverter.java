@@ -3,8 +3,10 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.LongValueConverter;
 
 /**
  * Provides a converter that is able to read and write <tt>Long</tt> objects.
@@ -43,7 +45,8 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * @see IOException
  */
 public class LongConverter extends
-        AbstractFixedSizeConverter {
+        AbstractByteOrderConverter
+        implements LongValueConverter {
 
     /**
      * This field contains the number of bytes needed to serialize the <tt>long</tt> value
@@ -53,12 +56,28 @@ public class LongConverter extends
     public static final int SIZE = 8;
 
     /**
-     * Sole constructor. (For invocation by subclass constructors, typically implicit.)
+     * Creates a converter for values in the default byte order.
+     * <p>
+     * Values are big-endian on streams, as written by {@link DataOutput}, and in the byte
+     * order of each buffer on buffers.
      */
     public LongConverter() {
         super(SIZE);
     }
 
+    /**
+     * Creates a converter for values in a given byte order.
+     * <p>
+     * Values are read and written in that order on streams and on buffers, whatever the
+     * order of the buffers.
+     *
+     * @param order the byte order of the values, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the order is not assigned
+     */
+    public LongConverter(final ByteOrder order) {
+        super(SIZE, order);
+    }
+
     /**
      * Reads the <tt>long</tt> value for the specified (<tt>Long</tt>) object from the
      * specified data input and returns the restored object. <br>
@@ -71,7 +90,7 @@ public class LongConverter extends
      * @throws IOException if I/O errors occur.
      */
     public Object read(DataInput dataInput) throws IOException {
-        return Long.valueOf(dataInput.readLong());
+        return Long.valueOf(readLong(dataInput));
     }
 
     /**
@@ -87,6 +106,117 @@ public class LongConverter extends
      * @throws IOException includes any I/O exceptions that may occur.
      */
     public void write(DataOutput dataOutput, Object object) throws IOException {
-        dataOutput.writeLong(((Long) object).longValue());
+        writeLong(dataOutput, ((Long) object).longValue());
+    }
+
+    /**
+     * Reads the <tt>long</tt> value from the specified data input and returns it.
+     * 
+     * @param dataInput the stream to read the <tt>long</tt> value from.
+     * @return the read <tt>long</tt> value.
+     * @throws IOException if I/O errors occur.
+     */
+    public long readLong(DataInput dataInput) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataInput);
+        if (buffer != null) {
+            return readLong(buffer);
+        }
+        if (swapsStreams()) {
+            return Long.reverseBytes(dataInput.readLong());
+        }
+        return dataInput.readLong();
+    }
+
+    /**
+     * Writes the specified <tt>long</tt> value to the specified data output.
+     * 
+     * @param dataOutput the stream to write the specified <tt>long</tt> value to.
+     * @param value the <tt>long</tt> value that should be written to the data output.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeLong(DataOutput dataOutput, long value) throws IOException {
+        final ByteBuffer buffer = bufferOf(dataOutput);
+        if (buffer != null) {
+            writeLong(buffer, value);
+            return;
+        }
+        if (swapsStreams()) {
+            dataOutput.writeLong(Long.reverseBytes(value));
+        } else {
+            dataOutput.writeLong(value);
+        }
+    }
+
+    /**
+     * Reads a <tt>Long</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>long</tt> value from.
+     * @return the read <tt>Long</tt> object.
+     */
+    public Object read(ByteBuffer buffer) {
+        return Long.valueOf(readLong(buffer));
+    }
+
+    /**
+     * Reads a <tt>Long</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>long</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>Long</tt> object.
+     */
+    public Object read(ByteBuffer buffer, int offset) {
+        return Long.valueOf(readLong(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>long</tt> value of the specified <tt>Long</tt> object at the
+     * position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>long</tt> value to.
+     * @param object the <tt>Long</tt> object to be written.
+     */
+    public void write(ByteBuffer buffer, Object object) {
+        writeLong(buffer, ((Long) object).longValue());
+    }
+
+    /**
+     * Reads a <tt>long</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>long</tt> value from.
+     * @return the read <tt>long</tt> value.
+     */
+    public long readLong(ByteBuffer buffer) {
+        if (swaps(buffer)) {
+            return Long.reverseBytes(buffer.getLong());
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * Reads a <tt>long</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the <tt>long</tt> value from.
+     * @param offset the index of the value in the buffer.
+     * @return the read <tt>long</tt> value.
+     */
+    public long readLong(ByteBuffer buffer, int offset) {
+        if (swaps(buffer)) {
+            return Long.reverseBytes(buffer.getLong(offset));
+        }
+        return buffer.getLong(offset);
+    }
+
+    /**
+     * Writes the specified <tt>long</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the <tt>long</tt> value to.
+     * @param value the <tt>long</tt> value to be written.
+     */
+    public void writeLong(ByteBuffer buffer, long value) {
+        if (swaps(buffer)) {
+            buffer.putLong(Long.reverseBytes(value));
+        } else {
+            buffer.putLong(value);
+        }
     }
 }
@@ -0,0 +1,26 @@
+package codebase.io.converters.binary;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field converted by an {@link AnnotatedRecordConverter}.
+ * <p>
+ * The fields of a record are converted in the increasing order of their positions, which
+ * must be distinct within the class and its superclasses.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface RecordField {
+
+    /**
+     * Gets the position of the field in the record.
+     *
+     * @return the position of the field.
+     */
+    int value();
+}
@@ -0,0 +1,479 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.Converter;
+
+/**
+ * A converter for <tt>String</tt> objects of any length in standard UTF-8.
+ * <p>
+ * A string is written as the number of bytes of its encoding, as a variable-length value
+ * (see {@link VarIntUtil}), followed by the UTF-8 bytes. Unlike
+ * {@link UTFStringConverter}, the bytes are standard UTF-8: characters outside the basic
+ * multilingual plane take four bytes and the null character takes one. Unpaired
+ * surrogates are written as <code>'?'</code>.
+ * <p>
+ * Strings are encoded and decoded in per-thread scratch buffers, so no intermediate array
+ * is allocated. When decoding, runs of ASCII characters are recognized eight bytes at a
+ * time with <code>long</code> loads.
+ * <p>
+ * The converter can optionally deduplicate short strings: the strings recently read by a
+ * thread are kept in a small direct-mapped cache, and reading the same bytes again
+ * returns the cached instance without decoding them. This saves time and memory when the
+ * same values, such as names or codes, repeat through many records.
+ * <p>
+ * Instances can be shared between threads.
+ */
+public class UTF8StringConverter
+        implements Converter, BufferConverter {
+
+    /**
+     * The maximum number of bytes of a string kept in the cache.
+     */
+    public static final int MAX_CACHED_BYTES = 64;
+
+    /**
+     * A default instance that does not deduplicate strings.
+     */
+    public static final UTF8StringConverter DEFAULT_INSTANCE = new UTF8StringConverter();
+
+    // CHECKSTYLE:OFF - masks of the UTF-8 encoding
+    /**
+     * The mask of the high bits of eight bytes, which are all clear for ASCII bytes.
+     */
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+    // CHECKSTYLE:ON
+
+    /**
+     * The scratch buffers and the cache of a thread.
+     */
+    private static final class Scratch {
+
+        /**
+         * The bytes being encoded or decoded.
+         */
+        private byte[] bytes = new byte[256];
+
+        /**
+         * A buffer over {@link #bytes}.
+         */
+        private ByteBuffer view = ByteBuffer.wrap(bytes);
+
+        /**
+         * The characters being encoded or decoded.
+         */
+        private char[] chars = new char[256];
+
+        /**
+         * The number of UTF-8 bytes of the last string encoded.
+         */
+        private int encodedLength;
+
+        /**
+         * The bytes of the cached strings.
+         */
+        private final byte[][] cacheKeys;
+
+        /**
+         * The cached strings.
+         */
+        private final String[] cacheValues;
+
+        /**
+         * Creates scratch buffers.
+         *
+         * @param cacheSize the number of entries of the cache, a power of two or zero
+         */
+        private Scratch(final int cacheSize) {
+            cacheKeys = new byte[cacheSize][];
+            cacheValues = new String[cacheSize];
+        }
+
+        /**
+         * Makes room for a number of bytes.
+         *
+         * @param length the number of bytes needed
+         */
+        private void ensureBytes(final int length) {
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, 2 * bytes.length)];
+                view = ByteBuffer.wrap(bytes);
+            }
+        }
+
+        /**
+         * Makes room for a number of characters.
+         *
+         * @param length the number of characters needed
+         */
+        private void ensureChars(final int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, 2 * chars.length)];
+            }
+        }
+    }
+
+    /**
+     * The number of entries of the cache of each thread.
+     */
+    private final int cacheSize;
+
+    /**
+     * The scratch buffers of each thread.
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch(cacheSize);
+        }
+    };
+
+    /**
+     * Constructs a converter that does not deduplicate strings.
+     */
+    public UTF8StringConverter() {
+        this(0);
+    }
+
+    /**
+     * Constructs a converter that deduplicates the strings read.
+     *
+     * @param cacheEntries the number of strings cached by each thread, rounded up to a
+     *            power of two, or zero to disable the cache
+     * @throws IllegalArgumentException if the number of entries is negative or too large
+     */
+    public UTF8StringConverter(final int cacheEntries) {
+        if (cacheEntries < 0 || cacheEntries > 1 << 20) {
+            throw new IllegalArgumentException("Invalid number of cache entries: "
+                    + cacheEntries);
+        }
+        if (cacheEntries <= 1) {
+            cacheSize = cacheEntries;
+        } else {
+            cacheSize = Integer.highestOneBit(cacheEntries - 1) << 1;
+        }
+    }
+
+    /**
+     * Gets the number of strings cached by each thread.
+     *
+     * @return the number of entries of the cache, zero if strings are not deduplicated.
+     */
+    public final int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param dataInput the stream to read the string from
+     * @return the <tt>String</tt> read
+     * @throws IOException if the string cannot be read or is not valid UTF-8
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        final int length = VarIntUtil.readInt(dataInput);
+        checkLength(length);
+        final Scratch buffers = scratch.get();
+        buffers.ensureBytes(length);
+        dataInput.readFully(buffers.bytes, 0, length);
+        return lookup(buffers.view, 0, length, buffers);
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param dataOutput the stream to write the string to
+     * @param object the <tt>String</tt> to write
+     * @throws IOException if the string cannot be written
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object)
+            throws IOException {
+        final Scratch buffers = scratch.get();
+        final int start = encode((String) object, buffers);
+        dataOutput.write(buffers.bytes, start, VarIntUtil.MAX_INT_BYTES - start
+                + buffers.encodedLength);
+    }
+
+    /**
+     * Reads a string at the position of a buffer.
+     *
+     * @param buffer the buffer to read the string from
+     * @return the <tt>String</tt> read
+     * @throws IOException if the bytes are not valid UTF-8
+     * @throws BufferUnderflowException if the string is not whole in the buffer
+     */
+    @Override
+    public Object read(final ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        final int length = VarIntUtil.readInt(buffer);
+        checkLength(length);
+        if (buffer.remaining() < length) {
+            buffer.position(start);
+            throw new BufferUnderflowException();
+        }
+        final String string = lookup(buffer, buffer.position(), length, scratch.get());
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /**
+     * Reads a string at an absolute offset of a buffer.
+     *
+     * @param buffer the buffer to read the string from
+     * @param offset the index of the first byte of the string
+     * @return the <tt>String</tt> read
+     * @throws IOException if the bytes are not valid UTF-8
+     * @throws BufferUnderflowException if the string is not whole in the buffer
+     */
+    @Override
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        final int length = VarIntUtil.readInt(buffer, offset);
+        checkLength(length);
+        final int start = offset + VarIntUtil.sizeOf(length);
+        if (buffer.limit() - start < length) {
+            throw new BufferUnderflowException();
+        }
+        return lookup(buffer, start, length, scratch.get());
+    }
+
+    /**
+     * Writes a string at the position of a buffer.
+     *
+     * @param buffer the buffer to write the string to
+     * @param object the <tt>String</tt> to write
+     * @throws BufferOverflowException if there is no room for the string
+     */
+    @Override
+    public void write(final ByteBuffer buffer, final Object object) {
+        final Scratch buffers = scratch.get();
+        final int start = encode((String) object, buffers);
+        final int length = VarIntUtil.MAX_INT_BYTES - start + buffers.encodedLength;
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(buffers.bytes, start, length);
+    }
+
+    /**
+     * Checks the number of bytes of a string read.
+     *
+     * @param length the number of bytes
+     * @throws IOException if the number is negative
+     */
+    private static void checkLength(final int length) throws IOException {
+        if (length < 0) {
+            throw new UTFDataFormatException("Invalid length of a string: " + length);
+        }
+    }
+
+    /**
+     * Encodes a string in the scratch bytes.
+     * <p>
+     * The UTF-8 bytes start at {@link VarIntUtil#MAX_INT_BYTES} and their number is left
+     * in the scratch buffers; the length is written just before them.
+     *
+     * @param string the string to encode
+     * @param buffers the scratch buffers
+     * @return the index of the first byte of the encoded length
+     */
+    private static int encode(final String string, final Scratch buffers) {
+        final int length = string.length();
+        buffers.ensureChars(length);
+        buffers.ensureBytes(VarIntUtil.MAX_INT_BYTES + 3 * length);
+        final char[] chars = buffers.chars;
+        final byte[] bytes = buffers.bytes;
+        string.getChars(0, length, chars, 0);
+
+        // CHECKSTYLE:OFF - uses the bit patterns of each UTF-8 sequence
+        int j = VarIntUtil.MAX_INT_BYTES;
+        int i = 0;
+        while (i < length && chars[i] < 0x80) {
+            bytes[j++] = (byte) chars[i++];
+        }
+        while (i < length) {
+            final char c = chars[i++];
+            if (c < 0x80) {
+                bytes[j++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[j++] = (byte) (0xC0 | (c >> 6));
+                bytes[j++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                bytes[j++] = (byte) (0xE0 | (c >> 12));
+                bytes[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[j++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i < length
+                    && Character.isLowSurrogate(chars[i])) {
+                final int code = Character.toCodePoint(c, chars[i++]);
+                bytes[j++] = (byte) (0xF0 | (code >> 18));
+                bytes[j++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+                bytes[j++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+                bytes[j++] = (byte) (0x80 | (code & 0x3F));
+            } else {
+                bytes[j++] = '?';
+            }
+        }
+        // CHECKSTYLE:ON
+
+        final int utfLength = j - VarIntUtil.MAX_INT_BYTES;
+        final int start = VarIntUtil.MAX_INT_BYTES - VarIntUtil.sizeOf(utfLength);
+        VarIntUtil.encode(bytes, start, utfLength);
+        buffers.encodedLength = utfLength;
+        return start;
+    }
+
+    /**
+     * Decodes UTF-8 bytes of a buffer, or gets the cached string with the same bytes.
+     *
+     * @param buffer the buffer holding the bytes
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @param buffers the scratch buffers
+     * @return the decoded string
+     * @throws UTFDataFormatException if the bytes are not valid UTF-8
+     */
+    private String lookup(final ByteBuffer buffer, final int start, final int length,
+                          final Scratch buffers) throws UTFDataFormatException {
+        if (cacheSize == 0 || length > MAX_CACHED_BYTES) {
+            return decode(buffer, start, length, buffers);
+        }
+
+        int hash = length;
+        for (int i = start; i < start + length; i++) {
+            // CHECKSTYLE:OFF - the usual multiplier of hash codes
+            hash = 31 * hash + buffer.get(i);
+            // CHECKSTYLE:ON
+        }
+        final int entry = (hash ^ (hash >>> 16)) & (cacheSize - 1);
+        final byte[] key = buffers.cacheKeys[entry];
+        if (key != null && key.length == length) {
+            int i = 0;
+            while (i < length && key[i] == buffer.get(start + i)) {
+                i++;
+            }
+            if (i == length) {
+                return buffers.cacheValues[entry];
+            }
+        }
+
+        final String string = decode(buffer, start, length, buffers);
+        final byte[] newKey = new byte[length];
+        for (int i = 0; i < length; i++) {
+            newKey[i] = buffer.get(start + i);
+        }
+        buffers.cacheKeys[entry] = newKey;
+        buffers.cacheValues[entry] = string;
+        return string;
+    }
+
+    /**
+     * Decodes UTF-8 bytes of a buffer without moving its position.
+     *
+     * @param buffer the buffer holding the bytes
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @param buffers the scratch buffers
+     * @return the decoded string
+     * @throws UTFDataFormatException if the bytes are not valid UTF-8
+     */
+    private static String decode(final ByteBuffer buffer, final int start,
+                                 final int length, final Scratch buffers)
+            throws UTFDataFormatException {
+        buffers.ensureChars(length);
+        final char[] chars = buffers.chars;
+        final int end = start + length;
+        int count = 0;
+        int i = start;
+
+        // CHECKSTYLE:OFF - uses the bit patterns of each UTF-8 sequence
+        while (i < end) {
+            while (i + 8 <= end && (buffer.getLong(i) & NON_ASCII_MASK) == 0) {
+                for (int k = i; k < i + 8; k++) {
+                    chars[count++] = (char) buffer.get(k);
+                }
+                i += 8;
+            }
+            if (i == end) {
+                break;
+            }
+            final int c = buffer.get(i) & 0xFF;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+                i++;
+            } else if (c >= 0xC2 && c < 0xE0) {
+                checkSequence(buffer, i, 2, end, start);
+                chars[count++] = (char) (((c & 0x1F) << 6) | (buffer.get(i + 1) & 0x3F));
+                i += 2;
+            } else if (c >= 0xE0 && c < 0xF0) {
+                checkSequence(buffer, i, 3, end, start);
+                final int code = ((c & 0x0F) << 12) | ((buffer.get(i + 1) & 0x3F) << 6)
+                        | (buffer.get(i + 2) & 0x3F);
+                if (code < 0x800 || (code >= Character.MIN_SURROGATE
+                        && code <= Character.MAX_SURROGATE)) {
+                    throw malformed(i - start);
+                }
+                chars[count++] = (char) code;
+                i += 3;
+            } else if (c >= 0xF0 && c < 0xF5) {
+                checkSequence(buffer, i, 4, end, start);
+                final int code = ((c & 0x07) << 18) | ((buffer.get(i + 1) & 0x3F) << 12)
+                        | ((buffer.get(i + 2) & 0x3F) << 6) | (buffer.get(i + 3) & 0x3F);
+                if (code < Character.MIN_SUPPLEMENTARY_CODE_POINT
+                        || code > Character.MAX_CODE_POINT) {
+                    throw malformed(i - start);
+                }
+                chars[count++] = (char) (Character.MIN_HIGH_SURROGATE
+                        + ((code - Character.MIN_SUPPLEMENTARY_CODE_POINT) >>> 10));
+                chars[count++] = (char) (Character.MIN_LOW_SURROGATE + (code & 0x3FF));
+                i += 4;
+            } else {
+                throw malformed(i - start);
+            }
+        }
+        // CHECKSTYLE:ON
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Checks that a multi-byte sequence is whole and made of continuation bytes.
+     *
+     * @param buffer the buffer holding the bytes
+     * @param index the index of the first byte of the sequence
+     * @param size the number of bytes of the sequence
+     * @param end the index after the last byte of the string
+     * @param start the index of the first byte of the string
+     * @throws UTFDataFormatException if the sequence is not valid
+     */
+    private static void checkSequence(final ByteBuffer buffer, final int index,
+                                      final int size, final int end, final int start)
+            throws UTFDataFormatException {
+        if (index + size > end) {
+            throw new UTFDataFormatException("Partial character at end");
+        }
+        for (int k = index + 1; k < index + size; k++) {
+            // CHECKSTYLE:OFF - continuation bytes are 10xxxxxx
+            if ((buffer.get(k) & 0xC0) != 0x80) {
+                throw malformed(index - start);
+            }
+            // CHECKSTYLE:ON
+        }
+    }
+
+    /**
+     * Creates the exception reporting malformed bytes.
+     *
+     * @param index the index of the malformed sequence in the string
+     * @return the exception to throw
+     */
+    private static UTFDataFormatException malformed(final int index) {
+        return new UTFDataFormatException("Malformed input around byte " + index);
+    }
+}
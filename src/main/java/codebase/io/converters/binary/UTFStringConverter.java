@@ -3,7 +3,13 @@ package codebase.io.converters.binary;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
+import codebase.BinaryUtil;
+import codebase.io.converters.BufferConverter;
 import codebase.io.converters.Converter;
 
 /**
@@ -43,7 +49,12 @@ import codebase.io.converters.Converter;
  * @see IOException
  */
 public class UTFStringConverter
-        implements Converter {
+        implements Converter, BufferConverter {
+
+    /**
+     * Maximum size in bytes of an UTF string.
+     */
+    private static final int UTF_MAX_BYTES = 65535;
 
     /**
      * This instance can be used for getting a default instance of StringConverter. It is
@@ -93,4 +104,160 @@ public class UTFStringConverter
     public void write(DataOutput dataOutput, Object object) throws IOException {
         dataOutput.writeUTF((String) object);
     }
+
+    /**
+     * Reads a string encoded in modified UTF-8 at the position of the buffer.
+     * <p>
+     * The format is the same as the one of {@link DataInput#readUTF()}: an unsigned
+     * short with the number of bytes that follow, then the characters.
+     * 
+     * @param buffer the buffer to read the string from.
+     * @return the read <tt>String</tt> object.
+     * @throws UTFDataFormatException if the bytes are not a valid modified UTF-8 string.
+     */
+    public Object read(ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        final int utfLength = readLength(buffer, start);
+        final String string = decode(buffer, start + BinaryUtil.SIZE_OF_SHORT, utfLength);
+        buffer.position(start + BinaryUtil.SIZE_OF_SHORT + utfLength);
+        return string;
+    }
+
+    /**
+     * Reads a string encoded in modified UTF-8 at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the string from.
+     * @param offset the index of the first byte of the string in the buffer.
+     * @return the read <tt>String</tt> object.
+     * @throws UTFDataFormatException if the bytes are not a valid modified UTF-8 string.
+     */
+    public Object read(ByteBuffer buffer, int offset) throws IOException {
+        final int utfLength = readLength(buffer, offset);
+        return decode(buffer, offset + BinaryUtil.SIZE_OF_SHORT, utfLength);
+    }
+
+    /**
+     * Writes a string in modified UTF-8 at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the string to.
+     * @param object the <tt>String</tt> object to be written.
+     * @throws UTFDataFormatException if the string is too long to be encoded.
+     */
+    public void write(ByteBuffer buffer, Object object) throws IOException {
+        final String string = (String) object;
+        final int length = string.length();
+
+        // CHECKSTYLE:OFF - uses the byte limits of each modified UTF-8 sequence
+        int utfLength = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                utfLength++;
+            } else if (c > 0x07FF) {
+                utfLength += 3;
+            } else {
+                utfLength += 2;
+            }
+        }
+        if (utfLength > UTF_MAX_BYTES) {
+            throw new UTFDataFormatException("String too long: " + utfLength + " bytes");
+        }
+        if (buffer.remaining() < BinaryUtil.SIZE_OF_SHORT + utfLength) {
+            throw new BufferOverflowException();
+        }
+
+        buffer.putShort((short) utfLength);
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                buffer.put((byte) c);
+            } else if (c > 0x07FF) {
+                buffer.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        // CHECKSTYLE:ON
+    }
+
+    /**
+     * Reads the number of bytes of an encoded string and checks they are in the buffer.
+     * 
+     * @param buffer the buffer holding the string.
+     * @param offset the index of the length in the buffer.
+     * @return the number of bytes that follow the length.
+     */
+    private static int readLength(final ByteBuffer buffer, final int offset) {
+        // CHECKSTYLE:OFF - reads an unsigned short
+        final int utfLength = buffer.getShort(offset) & 0xFFFF;
+        // CHECKSTYLE:ON
+        if (buffer.limit() - offset - BinaryUtil.SIZE_OF_SHORT < utfLength) {
+            throw new BufferUnderflowException();
+        }
+        return utfLength;
+    }
+
+    /**
+     * Decodes modified UTF-8 bytes of a buffer without moving its position.
+     * 
+     * @param buffer the buffer holding the bytes.
+     * @param start the index of the first byte.
+     * @param utfLength the number of bytes to decode.
+     * @return the decoded string.
+     * @throws UTFDataFormatException if the bytes are malformed.
+     */
+    private static String decode(final ByteBuffer buffer, final int start, final int utfLength)
+            throws UTFDataFormatException {
+        final char[] chars = new char[utfLength];
+        final int end = start + utfLength;
+        int count = 0;
+        int i = start;
+
+        // CHECKSTYLE:OFF - uses the bit patterns of each modified UTF-8 sequence
+        while (i < end) {
+            final int c = buffer.get(i) & BinaryUtil.INT_LOW_BYTE_MASK;
+            switch (c >> 4) {
+                case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+                    chars[count++] = (char) c;
+                    i++;
+                    break;
+                case 12: case 13: {
+                    if (i + 2 > end) {
+                        throw new UTFDataFormatException("Partial character at end");
+                    }
+                    final int c2 = buffer.get(i + 1);
+                    if ((c2 & 0xC0) != 0x80) {
+                        throw new UTFDataFormatException("Malformed input around byte "
+                                + (i - start));
+                    }
+                    chars[count++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                    i += 2;
+                    break;
+                }
+                case 14: {
+                    if (i + 3 > end) {
+                        throw new UTFDataFormatException("Partial character at end");
+                    }
+                    final int c2 = buffer.get(i + 1);
+                    final int c3 = buffer.get(i + 2);
+                    if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80) {
+                        throw new UTFDataFormatException("Malformed input around byte "
+                                + (i - start));
+                    }
+                    chars[count++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6)
+                            | (c3 & 0x3F));
+                    i += 3;
+                    break;
+                }
+                default:
+                    throw new UTFDataFormatException("Malformed input around byte "
+                            + (i - start));
+            }
+        }
+        // CHECKSTYLE:ON
+        return new String(chars, 0, count);
+    }
 }
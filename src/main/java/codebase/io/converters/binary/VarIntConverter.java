@@ -0,0 +1,197 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.BinaryUtil;
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.IntValueConverter;
+
+/**
+ * Provides a converter that reads and writes <tt>Integer</tt> objects in the LEB128
+ * variable-length format.
+ * <p>
+ * Small values take fewer bytes than the four bytes written by {@link IntegerConverter}:
+ * values below 128 take a single byte. The values are either taken as unsigned, in which
+ * case negative values take five bytes, or zigzag encoded, in which case values of
+ * small magnitude take few bytes regardless of their sign.
+ * 
+ * @see VarIntUtil
+ */
+public class VarIntConverter
+        implements IntValueConverter, BufferConverter {
+
+    /**
+     * Indicates if the values are zigzag encoded.
+     */
+    private final boolean zigZag;
+
+    /**
+     * Constructs a converter for unsigned values.
+     */
+    public VarIntConverter() {
+        this(false);
+    }
+
+    /**
+     * Constructs a converter.
+     * 
+     * @param zigZagEncoded <code>true</code> if the values are zigzag encoded,
+     *            <code>false</code> if they are taken as unsigned
+     */
+    public VarIntConverter(final boolean zigZagEncoded) {
+        zigZag = zigZagEncoded;
+    }
+
+    /**
+     * Tells if the values are zigzag encoded.
+     * 
+     * @return <code>true</code> if the values are zigzag encoded.
+     */
+    public final boolean isZigZag() {
+        return zigZag;
+    }
+
+    /**
+     * Reads an <tt>Integer</tt> object.
+     * 
+     * @param dataInput the stream to read the value from.
+     * @return the read <tt>Integer</tt> object.
+     * @throws IOException if I/O errors occur or the encoding is malformed.
+     */
+    public Object read(final DataInput dataInput) throws IOException {
+        return Integer.valueOf(readInt(dataInput));
+    }
+
+    /**
+     * Writes the <tt>int</tt> value of an <tt>Integer</tt> object.
+     * 
+     * @param dataOutput the stream to write the value to.
+     * @param object the <tt>Integer</tt> object to be written.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void write(final DataOutput dataOutput, final Object object) throws IOException {
+        writeInt(dataOutput, ((Integer) object).intValue());
+    }
+
+    /**
+     * Reads an <tt>int</tt> value.
+     * 
+     * @param dataInput the stream to read the value from.
+     * @return the read <tt>int</tt> value.
+     * @throws IOException if I/O errors occur or the encoding is malformed.
+     */
+    public int readInt(final DataInput dataInput) throws IOException {
+        return decode(VarIntUtil.readInt(dataInput));
+    }
+
+    /**
+     * Writes an <tt>int</tt> value.
+     * 
+     * @param dataOutput the stream to write the value to.
+     * @param value the <tt>int</tt> value to be written.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeInt(final DataOutput dataOutput, final int value) throws IOException {
+        VarIntUtil.writeInt(dataOutput, encode(value));
+    }
+
+    /**
+     * Reads an <tt>Integer</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @return the read <tt>Integer</tt> object.
+     * @throws IOException if the encoding is malformed.
+     */
+    public Object read(final ByteBuffer buffer) throws IOException {
+        return Integer.valueOf(readInt(buffer));
+    }
+
+    /**
+     * Reads an <tt>Integer</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @param offset the index of the first byte of the value in the buffer.
+     * @return the read <tt>Integer</tt> object.
+     * @throws IOException if the encoding is malformed.
+     */
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        return Integer.valueOf(readInt(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>int</tt> value of an <tt>Integer</tt> object at the position
+     * of the buffer.
+     * 
+     * @param buffer the buffer to write the value to.
+     * @param object the <tt>Integer</tt> object to be written.
+     */
+    public void write(final ByteBuffer buffer, final Object object) {
+        writeInt(buffer, ((Integer) object).intValue());
+    }
+
+    /**
+     * Reads an <tt>int</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @return the read <tt>int</tt> value.
+     * @throws IOException if the encoding is malformed.
+     */
+    public int readInt(final ByteBuffer buffer) throws IOException {
+        return decode(VarIntUtil.readInt(buffer));
+    }
+
+    /**
+     * Reads an <tt>int</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @param offset the index of the first byte of the value in the buffer.
+     * @return the read <tt>int</tt> value.
+     * @throws IOException if the encoding is malformed.
+     */
+    public int readInt(final ByteBuffer buffer, final int offset) throws IOException {
+        return decode(VarIntUtil.readInt(buffer, offset));
+    }
+
+    /**
+     * Writes an <tt>int</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the value to.
+     * @param value the <tt>int</tt> value to be written.
+     */
+    public void writeInt(final ByteBuffer buffer, final int value) {
+        VarIntUtil.writeInt(buffer, encode(value));
+    }
+
+    /**
+     * Computes the number of bytes of an encoded value.
+     * 
+     * @param value the value
+     * @return the number of bytes written for the value.
+     */
+    public int sizeOf(final int value) {
+        return VarIntUtil.sizeOf(encode(value));
+    }
+
+    /**
+     * Maps a value to the unsigned value that is written.
+     * 
+     * @param value the value
+     * @return the unsigned value
+     */
+    private int encode(final int value) {
+        return zigZag ? BinaryUtil.zigZagEncode(value) : value;
+    }
+
+    /**
+     * Maps an unsigned value read back to the original value.
+     * 
+     * @param value the unsigned value
+     * @return the value
+     */
+    private int decode(final int value) {
+        return zigZag ? BinaryUtil.zigZagDecode(value) : value;
+    }
+}
@@ -0,0 +1,29 @@
+package codebase.io.converters.binary;
+
+/**
+ * The ways of mapping the elements of an integer array to variable-length values.
+ *
+ * @see VarIntArrayConverter
+ * @see VarLongArrayConverter
+ */
+public enum VarIntEncoding {
+
+    /**
+     * The elements are encoded as they are, taken as unsigned. Suits arrays of small
+     * non-negative values.
+     */
+    UNSIGNED,
+
+    /**
+     * The elements are zigzag encoded. Suits arrays of values of small magnitude, either
+     * positive or negative.
+     */
+    ZIGZAG,
+
+    /**
+     * The first element and the difference between each element and the previous one
+     * are zigzag encoded. Suits sorted or slowly changing sequences, such as identifiers
+     * and timestamps.
+     */
+    DELTA
+}
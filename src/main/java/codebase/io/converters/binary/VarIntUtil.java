@@ -0,0 +1,503 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.BinaryUtil;
+
+/**
+ * Utility class to encode and decode integers in the LEB128 variable-length format.
+ * <p>
+ * Each byte holds seven bits of the value, least significant group first, and the most
+ * significant bit of the byte tells if more bytes follow. Values below 128 take one byte,
+ * an <code>int</code> takes at most five bytes and a <code>long</code> at most ten. The
+ * values are treated as unsigned: negative values take the maximum number of bytes unless
+ * they are {@link BinaryUtil#zigZagEncode(int) zigzag encoded} first.
+ * <p>
+ * The bulk methods decode whole arrays from a byte array with an unrolled loop.
+ */
+public final class VarIntUtil {
+
+    /**
+     * The maximum number of bytes of an encoded <code>int</code>.
+     */
+    public static final int MAX_INT_BYTES = 5;
+
+    /**
+     * The maximum number of bytes of an encoded <code>long</code>.
+     */
+    public static final int MAX_LONG_BYTES = 10;
+
+    /**
+     * The bits of a byte that hold the value.
+     */
+    private static final int PAYLOAD_MASK = 0x7F;
+
+    /**
+     * The bit of a byte that tells if more bytes follow.
+     */
+    private static final int CONTINUATION_BIT = 0x80;
+
+    /**
+     * The number of value bits held by each byte.
+     */
+    private static final int BITS_PER_BYTE = 7;
+
+    /**
+     * Prevent instantiation.
+     */
+    private VarIntUtil() {
+    }
+
+    /**
+     * Computes the number of bytes of an encoded integer.
+     *
+     * @param value the value, taken as unsigned
+     * @return a number between 1 and {@link #MAX_INT_BYTES}
+     */
+    public static int sizeOf(final int value) {
+        int size = 1;
+        int rest = value >>> BITS_PER_BYTE;
+        while (rest != 0) {
+            size++;
+            rest >>>= BITS_PER_BYTE;
+        }
+        return size;
+    }
+
+    /**
+     * Computes the number of bytes of an encoded long.
+     *
+     * @param value the value, taken as unsigned
+     * @return a number between 1 and {@link #MAX_LONG_BYTES}
+     */
+    public static int sizeOf(final long value) {
+        int size = 1;
+        long rest = value >>> BITS_PER_BYTE;
+        while (rest != 0) {
+            size++;
+            rest >>>= BITS_PER_BYTE;
+        }
+        return size;
+    }
+
+    /**
+     * Writes an integer to a data output.
+     *
+     * @param dataOutput the output to write to
+     * @param value the value, taken as unsigned
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeInt(final DataOutput dataOutput, final int value)
+            throws IOException {
+        int rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            dataOutput.writeByte((rest & PAYLOAD_MASK) | CONTINUATION_BIT);
+            rest >>>= BITS_PER_BYTE;
+        }
+        dataOutput.writeByte(rest);
+    }
+
+    /**
+     * Writes a long to a data output.
+     *
+     * @param dataOutput the output to write to
+     * @param value the value, taken as unsigned
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeLong(final DataOutput dataOutput, final long value)
+            throws IOException {
+        long rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            dataOutput.writeByte((int) (rest & PAYLOAD_MASK) | CONTINUATION_BIT);
+            rest >>>= BITS_PER_BYTE;
+        }
+        dataOutput.writeByte((int) rest);
+    }
+
+    /**
+     * Reads an integer from a data input.
+     *
+     * @param dataInput the input to read from
+     * @return the value read
+     * @throws IOException if an I/O error occurs or the encoding is longer than
+     *             {@link #MAX_INT_BYTES}
+     */
+    public static int readInt(final DataInput dataInput) throws IOException {
+        int b = dataInput.readByte();
+        if (b >= 0) {
+            return b;
+        }
+        int result = b & PAYLOAD_MASK;
+        for (int shift = BITS_PER_BYTE; shift < BinaryUtil.BIT_SIZE_OF_INTEGER;
+                shift += BITS_PER_BYTE) {
+            b = dataInput.readByte();
+            result |= (b & PAYLOAD_MASK) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * Reads a long from a data input.
+     *
+     * @param dataInput the input to read from
+     * @return the value read
+     * @throws IOException if an I/O error occurs or the encoding is longer than
+     *             {@link #MAX_LONG_BYTES}
+     */
+    public static long readLong(final DataInput dataInput) throws IOException {
+        int b = dataInput.readByte();
+        if (b >= 0) {
+            return b;
+        }
+        long result = b & PAYLOAD_MASK;
+        for (int shift = BITS_PER_BYTE; shift < Long.SIZE; shift += BITS_PER_BYTE) {
+            b = dataInput.readByte();
+            result |= (long) (b & PAYLOAD_MASK) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * Writes an integer at the position of a buffer.
+     *
+     * @param buffer the buffer to write to
+     * @param value the value, taken as unsigned
+     */
+    public static void writeInt(final ByteBuffer buffer, final int value) {
+        int rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            buffer.put((byte) ((rest & PAYLOAD_MASK) | CONTINUATION_BIT));
+            rest >>>= BITS_PER_BYTE;
+        }
+        buffer.put((byte) rest);
+    }
+
+    /**
+     * Writes a long at the position of a buffer.
+     *
+     * @param buffer the buffer to write to
+     * @param value the value, taken as unsigned
+     */
+    public static void writeLong(final ByteBuffer buffer, final long value) {
+        long rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            buffer.put((byte) ((rest & PAYLOAD_MASK) | CONTINUATION_BIT));
+            rest >>>= BITS_PER_BYTE;
+        }
+        buffer.put((byte) rest);
+    }
+
+    /**
+     * Reads an integer at the position of a buffer.
+     *
+     * @param buffer the buffer to read from
+     * @return the value read
+     * @throws IOException if the encoding is longer than {@link #MAX_INT_BYTES}
+     */
+    public static int readInt(final ByteBuffer buffer) throws IOException {
+        int b = buffer.get();
+        if (b >= 0) {
+            return b;
+        }
+        int result = b & PAYLOAD_MASK;
+        for (int shift = BITS_PER_BYTE; shift < BinaryUtil.BIT_SIZE_OF_INTEGER;
+                shift += BITS_PER_BYTE) {
+            b = buffer.get();
+            result |= (b & PAYLOAD_MASK) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * Reads an integer at an absolute offset of a buffer.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the index of the first byte of the value
+     * @return the value read
+     * @throws IOException if the encoding is longer than {@link #MAX_INT_BYTES}
+     */
+    public static int readInt(final ByteBuffer buffer, final int offset) throws IOException {
+        int b = buffer.get(offset);
+        if (b >= 0) {
+            return b;
+        }
+        int result = b & PAYLOAD_MASK;
+        int index = offset + 1;
+        for (int shift = BITS_PER_BYTE; shift < BinaryUtil.BIT_SIZE_OF_INTEGER;
+                shift += BITS_PER_BYTE) {
+            b = buffer.get(index++);
+            result |= (b & PAYLOAD_MASK) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * Reads a long at the position of a buffer.
+     *
+     * @param buffer the buffer to read from
+     * @return the value read
+     * @throws IOException if the encoding is longer than {@link #MAX_LONG_BYTES}
+     */
+    public static long readLong(final ByteBuffer buffer) throws IOException {
+        int b = buffer.get();
+        if (b >= 0) {
+            return b;
+        }
+        long result = b & PAYLOAD_MASK;
+        for (int shift = BITS_PER_BYTE; shift < Long.SIZE; shift += BITS_PER_BYTE) {
+            b = buffer.get();
+            result |= (long) (b & PAYLOAD_MASK) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * Reads a long at an absolute offset of a buffer.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the index of the first byte of the value
+     * @return the value read
+     * @throws IOException if the encoding is longer than {@link #MAX_LONG_BYTES}
+     */
+    public static long readLong(final ByteBuffer buffer, final int offset) throws IOException {
+        int b = buffer.get(offset);
+        if (b >= 0) {
+            return b;
+        }
+        long result = b & PAYLOAD_MASK;
+        int index = offset + 1;
+        for (int shift = BITS_PER_BYTE; shift < Long.SIZE; shift += BITS_PER_BYTE) {
+            b = buffer.get(index++);
+            result |= (long) (b & PAYLOAD_MASK) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * Encodes an integer into a byte array.
+     *
+     * @param bytes the array to write to, with room for {@link #MAX_INT_BYTES} bytes
+     * @param offset the index of the first byte to write
+     * @param value the value, taken as unsigned
+     * @return the index after the last byte written
+     */
+    public static int encode(final byte[] bytes, final int offset, final int value) {
+        int pos = offset;
+        int rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            bytes[pos++] = (byte) ((rest & PAYLOAD_MASK) | CONTINUATION_BIT);
+            rest >>>= BITS_PER_BYTE;
+        }
+        bytes[pos++] = (byte) rest;
+        return pos;
+    }
+
+    /**
+     * Encodes a long into a byte array.
+     *
+     * @param bytes the array to write to, with room for {@link #MAX_LONG_BYTES} bytes
+     * @param offset the index of the first byte to write
+     * @param value the value, taken as unsigned
+     * @return the index after the last byte written
+     */
+    public static int encode(final byte[] bytes, final int offset, final long value) {
+        int pos = offset;
+        long rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            bytes[pos++] = (byte) ((rest & PAYLOAD_MASK) | CONTINUATION_BIT);
+            rest >>>= BITS_PER_BYTE;
+        }
+        bytes[pos++] = (byte) rest;
+        return pos;
+    }
+
+    /**
+     * Decodes consecutive integers from a byte array.
+     * <p>
+     * The decoding of each value is unrolled, so the common short encodings take a
+     * couple of comparisons and no loop. Bytes are checked against the end only for the
+     * values that start less than {@link #MAX_INT_BYTES} bytes before it.
+     *
+     * @param bytes the array to read from
+     * @param offset the index of the first byte of the first value
+     * @param end the index after the last byte of the last value
+     * @param values the array where the values are stored
+     * @param count the number of values to decode
+     * @throws EOFException if the bytes end in the middle of a value
+     * @throws IOException if the bytes do not hold exactly <code>count</code> values
+     * @throws IndexOutOfBoundsException if the range is not inside the array
+     */
+    public static void decode(final byte[] bytes, final int offset, final int end,
+                              final int[] values, final int count) throws IOException {
+        checkRange(bytes, offset, end);
+        int pos = offset;
+        // CHECKSTYLE:OFF - uses the bit offsets of each group of seven bits
+        for (int i = 0; i < count; i++) {
+            if (end - pos < MAX_INT_BYTES) {
+                int v = 0;
+                int shift = 0;
+                int b;
+                do {
+                    if (pos == end) {
+                        throw new EOFException("Truncated variable-length int");
+                    }
+                    b = bytes[pos++];
+                    if (b < 0 && shift == 28) {
+                        throw new IOException("Malformed variable-length int");
+                    }
+                    v |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                values[i] = v;
+                continue;
+            }
+            int b = bytes[pos++];
+            if (b >= 0) {
+                values[i] = b;
+                continue;
+            }
+            int v = b & 0x7F;
+            b = bytes[pos++];
+            if (b >= 0) {
+                values[i] = v | (b << 7);
+                continue;
+            }
+            v |= (b & 0x7F) << 7;
+            b = bytes[pos++];
+            if (b >= 0) {
+                values[i] = v | (b << 14);
+                continue;
+            }
+            v |= (b & 0x7F) << 14;
+            b = bytes[pos++];
+            if (b >= 0) {
+                values[i] = v | (b << 21);
+                continue;
+            }
+            v |= (b & 0x7F) << 21;
+            b = bytes[pos++];
+            if (b < 0) {
+                throw new IOException("Malformed variable-length int");
+            }
+            values[i] = v | (b << 28);
+        }
+        // CHECKSTYLE:ON
+        checkEnd(pos, end);
+    }
+
+    /**
+     * Decodes consecutive longs from a byte array.
+     *
+     * @param bytes the array to read from
+     * @param offset the index of the first byte of the first value
+     * @param end the index after the last byte of the last value
+     * @param values the array where the values are stored
+     * @param count the number of values to decode
+     * @throws EOFException if the bytes end in the middle of a value
+     * @throws IOException if the bytes do not hold exactly <code>count</code> values
+     * @throws IndexOutOfBoundsException if the range is not inside the array
+     */
+    public static void decode(final byte[] bytes, final int offset, final int end,
+                              final long[] values, final int count) throws IOException {
+        checkRange(bytes, offset, end);
+        int pos = offset;
+        // CHECKSTYLE:OFF - uses the bit offsets of each group of seven bits
+        for (int i = 0; i < count; i++) {
+            if (end - pos < MAX_LONG_BYTES) {
+                long v = 0;
+                int shift = 0;
+                int b;
+                do {
+                    if (pos == end) {
+                        throw new EOFException("Truncated variable-length long");
+                    }
+                    b = bytes[pos++];
+                    if (b < 0 && shift == 63) {
+                        throw new IOException("Malformed variable-length long");
+                    }
+                    v |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                values[i] = v;
+                continue;
+            }
+            int b = bytes[pos++];
+            if (b >= 0) {
+                values[i] = b;
+                continue;
+            }
+            long v = b & 0x7F;
+            b = bytes[pos++];
+            if (b >= 0) {
+                values[i] = v | (b << 7);
+                continue;
+            }
+            v |= (b & 0x7F) << 7;
+            int shift = 14;
+            while (true) {
+                b = bytes[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+                shift += 7;
+                if (shift >= Long.SIZE) {
+                    throw new IOException("Malformed variable-length long");
+                }
+            }
+            values[i] = v;
+        }
+        // CHECKSTYLE:ON
+        checkEnd(pos, end);
+    }
+
+    /**
+     * Checks that a range of bytes is inside an array.
+     *
+     * @param bytes the array
+     * @param offset the index of the first byte
+     * @param end the index after the last byte
+     * @throws IndexOutOfBoundsException if the range is not inside the array
+     */
+    private static void checkRange(final byte[] bytes, final int offset, final int end) {
+        if (offset < 0 || end > bytes.length || offset > end) {
+            throw new IndexOutOfBoundsException("Invalid range [" + offset + ", " + end
+                    + "[ of an array of " + bytes.length + " bytes");
+        }
+    }
+
+    /**
+     * Checks that decoding stopped at the expected index.
+     *
+     * @param pos the index after the last byte decoded
+     * @param end the expected index
+     * @throws IOException if the indexes differ
+     */
+    private static void checkEnd(final int pos, final int end) throws IOException {
+        if (pos != end) {
+            throw new IOException("The variable-length values do not end at byte " + end);
+        }
+    }
+}
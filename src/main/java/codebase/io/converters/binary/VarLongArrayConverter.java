@@ -0,0 +1,345 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import codebase.BinaryUtil;
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.Converter;
+
+/**
+ * A converter for <code>long[]</code> arrays of any length in the LEB128 variable-length
+ * format.
+ * <p>
+ * An array is written as the number of elements and the number of bytes of the encoded
+ * elements, both as variable-length values, followed by the encoded elements, mapped as
+ * specified by a {@link VarIntEncoding}. Knowing the number of bytes up front, the
+ * elements are read in a single transfer and decoded in bulk with
+ * {@link VarIntUtil#decode(byte[], int, int, long[], int)}.
+ * <p>
+ * Each thread uses its own transfer buffer, so instances can be shared between threads.
+ * Large arrays are encoded in chunks, so the transfer buffers stay small.
+ */
+public class VarLongArrayConverter
+        implements Converter, BufferConverter {
+
+    /**
+     * The number of elements encoded at a time.
+     */
+    private static final int CHUNK_VALUES = 4096;
+
+    /**
+     * The largest transfer buffer kept by a thread, in bytes.
+     */
+    private static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+    /**
+     * The mapping of the elements to unsigned values.
+     */
+    private final VarIntEncoding encoding;
+
+    /**
+     * The buffer used by each thread to transfer the encoded elements.
+     */
+    private final ThreadLocal<byte[]> transferBuffer = new ThreadLocal<byte[]>();
+
+    /**
+     * Constructs a converter for arrays of unsigned values.
+     */
+    public VarLongArrayConverter() {
+        this(VarIntEncoding.UNSIGNED);
+    }
+
+    /**
+     * Constructs a converter.
+     * 
+     * @param elementEncoding the mapping of the elements to unsigned values, cannot be
+     *            <code>null</code>
+     */
+    public VarLongArrayConverter(final VarIntEncoding elementEncoding) {
+        if (elementEncoding == null) {
+            throw new IllegalArgumentException("The encoding must be assigned");
+        }
+        encoding = elementEncoding;
+    }
+
+    /**
+     * Gets the mapping of the elements to unsigned values.
+     * 
+     * @return the encoding of the elements.
+     */
+    public final VarIntEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Reads a <code>long[]</code> array.
+     * 
+     * @param dataInput the stream to read the array from.
+     * @return a new <code>long[]</code> array.
+     * @throws IOException if I/O errors occur or the encoding is malformed.
+     */
+    public Object read(final DataInput dataInput) throws IOException {
+        final int count = VarIntUtil.readInt(dataInput);
+        final int length = VarIntUtil.readInt(dataInput);
+        checkHeader(count, length);
+
+        final byte[] bytes = transferBuffer(length);
+        dataInput.readFully(bytes, 0, length);
+        return decode(bytes, 0, length, count);
+    }
+
+    /**
+     * Writes a <code>long[]</code> array.
+     * 
+     * @param dataOutput the stream to write the array to.
+     * @param object the <code>long[]</code> array to be written.
+     * @throws IOException includes any I/O exceptions that may occur, or if the encoded
+     *             elements take more than {@link Integer#MAX_VALUE} bytes.
+     */
+    public void write(final DataOutput dataOutput, final Object object) throws IOException {
+        final long[] values = (long[]) object;
+        final byte[] bytes = transferBuffer(CHUNK_VALUES * VarIntUtil.MAX_LONG_BYTES);
+        if (values.length <= CHUNK_VALUES) {
+            final int length = encode(values, 0, values.length, bytes);
+            VarIntUtil.writeInt(dataOutput, values.length);
+            VarIntUtil.writeInt(dataOutput, length);
+            dataOutput.write(bytes, 0, length);
+            return;
+        }
+
+        final long length = encodedLength(values);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("The array of " + values.length + " elements takes "
+                    + length + " bytes, too many to be written");
+        }
+        VarIntUtil.writeInt(dataOutput, values.length);
+        VarIntUtil.writeInt(dataOutput, (int) length);
+        for (int from = 0; from < values.length; from += CHUNK_VALUES) {
+            final int to = Math.min(values.length, from + CHUNK_VALUES);
+            dataOutput.write(bytes, 0, encode(values, from, to, bytes));
+        }
+    }
+
+    /**
+     * Reads a <code>long[]</code> array at the position of the buffer.
+     * <p>
+     * Arrays held in heap buffers are decoded in place.
+     * 
+     * @param buffer the buffer to read the array from.
+     * @return a new <code>long[]</code> array.
+     * @throws IOException if the encoding is malformed.
+     */
+    public Object read(final ByteBuffer buffer) throws IOException {
+        final int count = VarIntUtil.readInt(buffer);
+        final int length = VarIntUtil.readInt(buffer);
+        checkHeader(count, length);
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+
+        final Object values;
+        if (buffer.hasArray()) {
+            final int start = buffer.arrayOffset() + buffer.position();
+            values = decode(buffer.array(), start, start + length, count);
+            buffer.position(buffer.position() + length);
+        } else {
+            final byte[] bytes = transferBuffer(length);
+            buffer.get(bytes, 0, length);
+            values = decode(bytes, 0, length, count);
+        }
+        return values;
+    }
+
+    /**
+     * Reads a <code>long[]</code> array at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the array from.
+     * @param offset the index of the first byte of the array in the buffer.
+     * @return a new <code>long[]</code> array.
+     * @throws IOException if the encoding is malformed.
+     */
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return read(view);
+    }
+
+    /**
+     * Writes a <code>long[]</code> array at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the array to.
+     * @param object the <code>long[]</code> array to be written.
+     * @throws BufferOverflowException if the array does not fit in the buffer.
+     */
+    public void write(final ByteBuffer buffer, final Object object) {
+        final long[] values = (long[]) object;
+        final byte[] bytes = transferBuffer(CHUNK_VALUES * VarIntUtil.MAX_LONG_BYTES);
+        if (values.length <= CHUNK_VALUES) {
+            final int length = encode(values, 0, values.length, bytes);
+            VarIntUtil.writeInt(buffer, values.length);
+            VarIntUtil.writeInt(buffer, length);
+            buffer.put(bytes, 0, length);
+            return;
+        }
+
+        final long length = encodedLength(values);
+        if (length > buffer.remaining()) {
+            throw new BufferOverflowException();
+        }
+        VarIntUtil.writeInt(buffer, values.length);
+        VarIntUtil.writeInt(buffer, (int) length);
+        for (int from = 0; from < values.length; from += CHUNK_VALUES) {
+            final int to = Math.min(values.length, from + CHUNK_VALUES);
+            buffer.put(bytes, 0, encode(values, from, to, bytes));
+        }
+    }
+
+    /**
+     * Checks the header of an array.
+     * 
+     * @param count the number of elements
+     * @param length the number of bytes of the encoded elements
+     * @throws IOException if the values are not consistent
+     */
+    private static void checkHeader(final int count, final int length) throws IOException {
+        if (count < 0 || length < count
+                || length > (long) count * VarIntUtil.MAX_LONG_BYTES) {
+            throw new IOException("Invalid array of " + count + " elements in " + length
+                    + " bytes");
+        }
+    }
+
+    /**
+     * Gets the transfer buffer of the current thread with a minimum size.
+     * <p>
+     * Buffers larger than {@link #MAX_RETAINED_BYTES} are not kept by the thread.
+     * 
+     * @param size the number of bytes needed
+     * @return the transfer buffer.
+     */
+    private byte[] transferBuffer(final int size) {
+        if (size > MAX_RETAINED_BYTES) {
+            return new byte[size];
+        }
+        byte[] bytes = transferBuffer.get();
+        if (bytes == null || bytes.length < size) {
+            bytes = new byte[Math.min(MAX_RETAINED_BYTES,
+                    Math.max(size, bytes == null ? 0 : 2 * bytes.length))];
+            transferBuffer.set(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Computes the number of bytes of the encoded elements of an array.
+     * 
+     * @param values the elements
+     * @return the number of bytes
+     */
+    private long encodedLength(final long[] values) {
+        long length = 0;
+        switch (encoding) {
+            case UNSIGNED:
+                for (int i = 0; i < values.length; i++) {
+                    length += VarIntUtil.sizeOf(values[i]);
+                }
+                break;
+            case ZIGZAG:
+                for (int i = 0; i < values.length; i++) {
+                    length += VarIntUtil.sizeOf(BinaryUtil.zigZagEncode(values[i]));
+                }
+                break;
+            default:
+                long previous = 0;
+                for (int i = 0; i < values.length; i++) {
+                    length += VarIntUtil.sizeOf(
+                            BinaryUtil.zigZagEncode(values[i] - previous));
+                    previous = values[i];
+                }
+                break;
+        }
+        return length;
+    }
+
+    /**
+     * Encodes a range of the elements of an array.
+     * 
+     * @param values the elements
+     * @param from the index of the first element to encode
+     * @param to the index after the last element to encode
+     * @param bytes the array to hold the encoded elements
+     * @return the number of bytes of the encoded elements
+     */
+    private int encode(final long[] values, final int from, final int to,
+                       final byte[] bytes) {
+        int pos = 0;
+        switch (encoding) {
+            case UNSIGNED:
+                for (int i = from; i < to; i++) {
+                    pos = VarIntUtil.encode(bytes, pos, values[i]);
+                }
+                break;
+            case ZIGZAG:
+                for (int i = from; i < to; i++) {
+                    pos = VarIntUtil.encode(bytes, pos, BinaryUtil.zigZagEncode(values[i]));
+                }
+                break;
+            default:
+                long previous = from == 0 ? 0 : values[from - 1];
+                for (int i = from; i < to; i++) {
+                    pos = VarIntUtil.encode(bytes, pos,
+                            BinaryUtil.zigZagEncode(values[i] - previous));
+                    previous = values[i];
+                }
+                break;
+        }
+        return pos;
+    }
+
+    /**
+     * Decodes the elements of an array.
+     * 
+     * @param bytes the array holding the encoded elements
+     * @param start the index of the first byte of the elements
+     * @param end the index after the last byte of the elements
+     * @param count the number of elements
+     * @return a new array with the elements.
+     * @throws IOException if the encoding is malformed
+     */
+    private long[] decode(final byte[] bytes, final int start, final int end, final int count)
+            throws IOException {
+        final long[] values = new long[count];
+        VarIntUtil.decode(bytes, start, end, values, count);
+
+        switch (encoding) {
+            case UNSIGNED:
+                break;
+            case ZIGZAG:
+                for (int i = 0; i < count; i++) {
+                    values[i] = BinaryUtil.zigZagDecode(values[i]);
+                }
+                break;
+            default:
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    previous += BinaryUtil.zigZagDecode(values[i]);
+                    values[i] = previous;
+                }
+                break;
+        }
+        return values;
+    }
+
+    /**
+     * @return a string containing <tt>ClassName(<i>encoding</i>)</tt>.
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + encoding + ")";
+    }
+}
@@ -0,0 +1,197 @@
+package codebase.io.converters.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.BinaryUtil;
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.LongValueConverter;
+
+/**
+ * Provides a converter that reads and writes <tt>Long</tt> objects in the LEB128
+ * variable-length format.
+ * <p>
+ * Small values take fewer bytes than the eight bytes written by {@link LongConverter}:
+ * values below 128 take a single byte. The values are either taken as unsigned, in which
+ * case negative values take ten bytes, or zigzag encoded, in which case values of
+ * small magnitude take few bytes regardless of their sign.
+ * 
+ * @see VarIntUtil
+ */
+public class VarLongConverter
+        implements LongValueConverter, BufferConverter {
+
+    /**
+     * Indicates if the values are zigzag encoded.
+     */
+    private final boolean zigZag;
+
+    /**
+     * Constructs a converter for unsigned values.
+     */
+    public VarLongConverter() {
+        this(false);
+    }
+
+    /**
+     * Constructs a converter.
+     * 
+     * @param zigZagEncoded <code>true</code> if the values are zigzag encoded,
+     *            <code>false</code> if they are taken as unsigned
+     */
+    public VarLongConverter(final boolean zigZagEncoded) {
+        zigZag = zigZagEncoded;
+    }
+
+    /**
+     * Tells if the values are zigzag encoded.
+     * 
+     * @return <code>true</code> if the values are zigzag encoded.
+     */
+    public final boolean isZigZag() {
+        return zigZag;
+    }
+
+    /**
+     * Reads a <tt>Long</tt> object.
+     * 
+     * @param dataInput the stream to read the value from.
+     * @return the read <tt>Long</tt> object.
+     * @throws IOException if I/O errors occur or the encoding is malformed.
+     */
+    public Object read(final DataInput dataInput) throws IOException {
+        return Long.valueOf(readLong(dataInput));
+    }
+
+    /**
+     * Writes the <tt>long</tt> value of a <tt>Long</tt> object.
+     * 
+     * @param dataOutput the stream to write the value to.
+     * @param object the <tt>Long</tt> object to be written.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void write(final DataOutput dataOutput, final Object object) throws IOException {
+        writeLong(dataOutput, ((Long) object).longValue());
+    }
+
+    /**
+     * Reads a <tt>long</tt> value.
+     * 
+     * @param dataInput the stream to read the value from.
+     * @return the read <tt>long</tt> value.
+     * @throws IOException if I/O errors occur or the encoding is malformed.
+     */
+    public long readLong(final DataInput dataInput) throws IOException {
+        return decode(VarIntUtil.readLong(dataInput));
+    }
+
+    /**
+     * Writes a <tt>long</tt> value.
+     * 
+     * @param dataOutput the stream to write the value to.
+     * @param value the <tt>long</tt> value to be written.
+     * @throws IOException includes any I/O exceptions that may occur.
+     */
+    public void writeLong(final DataOutput dataOutput, final long value) throws IOException {
+        VarIntUtil.writeLong(dataOutput, encode(value));
+    }
+
+    /**
+     * Reads a <tt>Long</tt> object at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @return the read <tt>Long</tt> object.
+     * @throws IOException if the encoding is malformed.
+     */
+    public Object read(final ByteBuffer buffer) throws IOException {
+        return Long.valueOf(readLong(buffer));
+    }
+
+    /**
+     * Reads a <tt>Long</tt> object at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @param offset the index of the first byte of the value in the buffer.
+     * @return the read <tt>Long</tt> object.
+     * @throws IOException if the encoding is malformed.
+     */
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        return Long.valueOf(readLong(buffer, offset));
+    }
+
+    /**
+     * Writes the <tt>long</tt> value of a <tt>Long</tt> object at the position
+     * of the buffer.
+     * 
+     * @param buffer the buffer to write the value to.
+     * @param object the <tt>Long</tt> object to be written.
+     */
+    public void write(final ByteBuffer buffer, final Object object) {
+        writeLong(buffer, ((Long) object).longValue());
+    }
+
+    /**
+     * Reads a <tt>long</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @return the read <tt>long</tt> value.
+     * @throws IOException if the encoding is malformed.
+     */
+    public long readLong(final ByteBuffer buffer) throws IOException {
+        return decode(VarIntUtil.readLong(buffer));
+    }
+
+    /**
+     * Reads a <tt>long</tt> value at an absolute offset of the buffer.
+     * 
+     * @param buffer the buffer to read the value from.
+     * @param offset the index of the first byte of the value in the buffer.
+     * @return the read <tt>long</tt> value.
+     * @throws IOException if the encoding is malformed.
+     */
+    public long readLong(final ByteBuffer buffer, final int offset) throws IOException {
+        return decode(VarIntUtil.readLong(buffer, offset));
+    }
+
+    /**
+     * Writes a <tt>long</tt> value at the position of the buffer.
+     * 
+     * @param buffer the buffer to write the value to.
+     * @param value the <tt>long</tt> value to be written.
+     */
+    public void writeLong(final ByteBuffer buffer, final long value) {
+        VarIntUtil.writeLong(buffer, encode(value));
+    }
+
+    /**
+     * Computes the number of bytes of an encoded value.
+     * 
+     * @param value the value
+     * @return the number of bytes written for the value.
+     */
+    public int sizeOf(final long value) {
+        return VarIntUtil.sizeOf(encode(value));
+    }
+
+    /**
+     * Maps a value to the unsigned value that is written.
+     * 
+     * @param value the value
+     * @return the unsigned value
+     */
+    private long encode(final long value) {
+        return zigZag ? BinaryUtil.zigZagEncode(value) : value;
+    }
+
+    /**
+     * Maps an unsigned value read back to the original value.
+     * 
+     * @param value the unsigned value
+     * @return the value
+     */
+    private long decode(final long value) {
+        return zigZag ? BinaryUtil.zigZagDecode(value) : value;
+    }
+}
@@ -1,4 +1,13 @@
 /**
  * Provides binary I/O converters for fundamental data types.
+ * <p>
+ * The converters also implement {@link codebase.io.converters.BufferConverter} and read
+ * and write the same format directly from and to a {@link java.nio.ByteBuffer}, such as
+ * a memory-mapped file. Values are transferred in the byte order of the buffer, which is
+ * big-endian by default, like {@link java.io.DataInput} and {@link java.io.DataOutput}.
+ * <p>
+ * Objects of classes whose fields are marked with
+ * {@link codebase.io.converters.binary.RecordField} are converted field by field by an
+ * {@link codebase.io.converters.binary.AnnotatedRecordConverter}.
  */
 package codebase.io.converters.binary;
\ No newline at end of file
@@ -0,0 +1,776 @@
+package codebase.io.converters.display;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import codebase.StringUtil;
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.Converter;
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.ByteBufferDataOutput;
+import codebase.streams.Streams;
+
+/**
+ * A converter for records of delimited text, such as CSV or TSV lines.
+ * <p>
+ * A record is an <code>Object[]</code> with a value per field. It is written as the
+ * fields separated by a delimiter and ended by a new line. Each field is converted by its
+ * own converter, for example an {@link IntegerDisplayConverter}, a
+ * {@link DoubleDisplayConverter} or {@link #TEXT}. A field with a <code>null</code>
+ * converter is skipped when reading, without being decoded, and written empty. Empty
+ * fields are read as <code>null</code>, as are missing fields at the end of a line;
+ * fields beyond the configured ones are ignored. A carriage return before the new line is
+ * ignored.
+ * <p>
+ * Fields that hold the delimiter, a quote, a backslash or a line break are written
+ * between double quotes, escaping quotes and backslashes with a backslash. This is the
+ * format of {@link StringUtil#stringify(String)}, and quoted fields are read like
+ * {@link StringUtil#unstringify(String)} does.
+ * <p>
+ * Field boundaries are sought eight bytes at a time, testing a whole <code>long</code>
+ * for the delimiter and the new line. Records are read directly from a {@link ByteBuffer}
+ * or a {@link ByteBufferDataInput}, and otherwise through a per-thread line buffer.
+ * Large files can be read in parallel with
+ * {@link #readParallel(FileChannel, int, ExecutorService, RecordVisitor)}.
+ * <p>
+ * Instances can be shared between threads if their field converters can.
+ */
+public class DelimitedRecordConverter
+        implements Converter, BufferConverter {
+
+    /**
+     * The delimiter of comma-separated values.
+     */
+    public static final byte COMMA = ',';
+
+    /**
+     * The delimiter of tab-separated values.
+     */
+    public static final byte TAB = '\t';
+
+    /**
+     * A field converter for text, which reads all the characters of a field as UTF-8.
+     * <p>
+     * This converter can only read the fields of delimited records.
+     */
+    public static final Converter TEXT = new Converter() {
+
+        /**
+         * Reads the remaining characters of a field.
+         *
+         * @param dataInput the input over the field
+         * @return the text of the field
+         * @throws IllegalArgumentException if the input is not the field of a delimited
+         *             record
+         */
+        @Override
+        public Object read(final DataInput dataInput) {
+            if (!(dataInput instanceof ByteBufferDataInput)) {
+                throw new IllegalArgumentException(
+                        "TEXT can only read the fields of delimited records");
+            }
+            final ByteBuffer buffer = ((ByteBufferDataInput) dataInput).getBuffer();
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new String(bytes, StringUtil.UTF8);
+        }
+
+        @Override
+        public void write(final DataOutput dataOutput, final Object object)
+                throws IOException {
+            dataOutput.write(object.toString().getBytes(StringUtil.UTF8));
+        }
+    };
+
+    /**
+     * Receives the records read by
+     * {@link DelimitedRecordConverter#readParallel readParallel}.
+     */
+    public interface RecordVisitor {
+
+        /**
+         * Visits a record.
+         * <p>
+         * This method is called concurrently by the threads reading the file. The records
+         * of a chunk are visited in order, but the chunks are visited in any order.
+         *
+         * @param chunk the index of the chunk of the file holding the record
+         * @param record the fields of the record
+         * @throws IOException to abort the reading
+         */
+        void visit(int chunk, Object[] record) throws IOException;
+    }
+
+    // CHECKSTYLE:OFF - characters of the format and word masks
+    /**
+     * The character that starts and ends a quoted field.
+     */
+    private static final byte QUOTE = '"';
+
+    /**
+     * The character that escapes the next character of a quoted field.
+     */
+    private static final byte ESCAPE = '\\';
+
+    /**
+     * The character that ends a record.
+     */
+    private static final byte NEW_LINE = '\n';
+
+    /**
+     * The character ignored before the end of a record.
+     */
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /**
+     * Multiplying a byte by this value repeats it in the eight bytes of a long.
+     */
+    private static final long BYTES_OF_LONG = 0x0101010101010101L;
+
+    /**
+     * The number of bytes of a long.
+     */
+    private static final int WORD_BYTES = 8;
+
+    /**
+     * The new line repeated in the eight bytes of a long.
+     */
+    private static final long NEW_LINE_WORD = NEW_LINE * BYTES_OF_LONG;
+
+    /**
+     * The quote repeated in the eight bytes of a long.
+     */
+    private static final long QUOTE_WORD = QUOTE * BYTES_OF_LONG;
+
+    /**
+     * The escape character repeated in the eight bytes of a long.
+     */
+    private static final long ESCAPE_WORD = ESCAPE * BYTES_OF_LONG;
+
+    /**
+     * The high bit of each byte of a long.
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * The number of bytes read at a time when seeking the start of a chunk.
+     */
+    private static final int SEEK_WINDOW = 4096;
+    // CHECKSTYLE:ON
+
+    /**
+     * The per-thread buffers of the converter.
+     */
+    private static final class Scratch {
+
+        /**
+         * The bytes of a line read from a stream.
+         */
+        private byte[] line = new byte[1024];
+
+        /**
+         * The unescaped bytes of a quoted field.
+         */
+        private byte[] field = new byte[256];
+
+        /**
+         * A buffer over {@link #field}.
+         */
+        private ByteBuffer fieldBuffer = ByteBuffer.wrap(field);
+
+        /**
+         * The number of bytes of the last field unescaped into {@link #field}.
+         */
+        private int fieldLength;
+
+        /**
+         * The data input over {@link #fieldBuffer}.
+         */
+        private ByteBufferDataInput fieldInput = new ByteBufferDataInput(fieldBuffer);
+
+        /**
+         * The bytes of a field being written, exposing the array of the stream.
+         */
+        private final FieldOutput output = new FieldOutput();
+
+        /**
+         * The data output over {@link #output}.
+         */
+        private final DataOutputStream dataOutput = new DataOutputStream(output);
+
+        /**
+         * Appends a byte to a line.
+         *
+         * @param length the number of bytes of the line
+         * @param b the byte to append
+         */
+        private void appendLine(final int length, final int b) {
+            if (length == line.length) {
+                final byte[] larger = new byte[2 * line.length];
+                System.arraycopy(line, 0, larger, 0, length);
+                line = larger;
+            }
+            line[length] = (byte) b;
+        }
+
+        /**
+         * Makes room in the field bytes.
+         *
+         * @param length the number of bytes needed
+         * @param kept the number of bytes to keep
+         */
+        private void ensureField(final int length, final int kept) {
+            if (field.length < length) {
+                final byte[] larger = new byte[Math.max(length, 2 * field.length)];
+                System.arraycopy(field, 0, larger, 0, kept);
+                field = larger;
+                fieldBuffer = ByteBuffer.wrap(field);
+                fieldInput = new ByteBufferDataInput(fieldBuffer);
+            }
+        }
+    }
+
+    /**
+     * A byte array output stream that exposes its bytes.
+     */
+    private static final class FieldOutput extends
+            ByteArrayOutputStream {
+
+        /**
+         * Gets the array holding the bytes written.
+         *
+         * @return the internal array of the stream
+         */
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+
+    /**
+     * The converters of the fields, <code>null</code> for the skipped fields.
+     */
+    private final Converter[] fieldConverters;
+
+    /**
+     * The character that separates fields.
+     */
+    private final byte delimiter;
+
+    /**
+     * The delimiter repeated in the eight bytes of a long.
+     */
+    private final long delimiterWord;
+
+    /**
+     * The buffers of each thread.
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Constructs a converter of delimited records.
+     *
+     * @param converters the converters of the fields, <code>null</code> for the fields to
+     *            skip
+     * @param separator the character that separates fields, such as {@link #COMMA} or
+     *            {@link #TAB}
+     * @throws IllegalArgumentException if there are no fields or the delimiter is a quote,
+     *             a backslash or a line break
+     */
+    public DelimitedRecordConverter(final Converter[] converters, final byte separator) {
+        if (converters == null || converters.length == 0) {
+            throw new IllegalArgumentException("A delimited record must have fields");
+        }
+        if (separator == QUOTE || separator == ESCAPE || separator == NEW_LINE
+                || separator == CARRIAGE_RETURN) {
+            throw new IllegalArgumentException("Invalid delimiter: " + (char) separator);
+        }
+        fieldConverters = converters.clone();
+        delimiter = separator;
+        // CHECKSTYLE:OFF - the unsigned value of the byte
+        delimiterWord = (separator & 0xFF) * BYTES_OF_LONG;
+        // CHECKSTYLE:ON
+    }
+
+    /**
+     * Gets the number of fields of a record.
+     *
+     * @return the number of field converters.
+     */
+    public final int getFieldCount() {
+        return fieldConverters.length;
+    }
+
+    /**
+     * Gets the converter of a field.
+     *
+     * @param field the index of the field
+     * @return the converter, or <code>null</code> if the field is skipped.
+     */
+    public final Converter getFieldConverter(final int field) {
+        return fieldConverters[field];
+    }
+
+    /**
+     * Gets the character that separates fields.
+     *
+     * @return the delimiter.
+     */
+    public final byte getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param dataInput the input to read the record from
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws EOFException if there are no more records
+     * @throws IOException if a field cannot be converted
+     */
+    @Override
+    public Object read(final DataInput dataInput) throws IOException {
+        if (dataInput instanceof ByteBufferDataInput) {
+            final ByteBuffer buffer = ((ByteBufferDataInput) dataInput).getBuffer();
+            if (!buffer.hasRemaining()) {
+                throw new EOFException();
+            }
+            return read(buffer);
+        }
+
+        final Scratch buffers = scratch.get();
+        int length = 0;
+        boolean quoted = false;
+        boolean escaped = false;
+        boolean fieldStart = true;
+        while (true) {
+            final int b;
+            try {
+                b = dataInput.readByte();
+            } catch (EOFException e) {
+                if (length == 0) {
+                    throw e;
+                }
+                break;
+            }
+            buffers.appendLine(length++, b);
+            if (escaped) {
+                escaped = false;
+            } else if (quoted) {
+                quoted = b != QUOTE;
+                escaped = b == ESCAPE;
+            } else if (b == NEW_LINE) {
+                break;
+            } else {
+                // as in a buffer, only a field that starts with a quote is quoted
+                quoted = fieldStart && b == QUOTE;
+                fieldStart = b == delimiter;
+            }
+        }
+        final ByteBuffer line = ByteBuffer.wrap(buffers.line, 0, length);
+        return read(line);
+    }
+
+    /**
+     * Reads a record at the position of a buffer.
+     * <p>
+     * The position is moved after the new line that ends the record.
+     *
+     * @param buffer the buffer to read the record from
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws IOException if a field cannot be converted
+     */
+    @Override
+    public Object read(final ByteBuffer buffer) throws IOException {
+        final Scratch buffers = scratch.get();
+        final ByteBuffer region = buffer.duplicate();
+        final ByteBufferDataInput regionInput = new ByteBufferDataInput(region);
+        final Object[] record = new Object[fieldConverters.length];
+        final int limit = buffer.limit();
+        int pos = buffer.position();
+        int field = 0;
+
+        while (true) {
+            final Converter converter = field < fieldConverters.length
+                    ? fieldConverters[field] : null;
+            final int end;
+            if (pos < limit && buffer.get(pos) == QUOTE) {
+                // anything between the closing quote and the delimiter is ignored
+                end = find(buffer, unquote(buffer, pos + 1, limit, buffers), limit);
+                if (converter != null) {
+                    record[field] = decode(converter, field, buffers.fieldBuffer, 0,
+                            buffers.fieldLength, buffers.fieldInput);
+                }
+            } else {
+                end = find(buffer, pos, limit);
+                if (converter != null) {
+                    int last = end;
+                    if (last > pos && buffer.get(last - 1) == CARRIAGE_RETURN
+                            && (last == limit || buffer.get(last) == NEW_LINE)) {
+                        last--;
+                    }
+                    record[field] = decode(converter, field, region, pos, last,
+                            regionInput);
+                }
+            }
+            field++;
+            pos = end;
+            if (pos >= limit) {
+                break;
+            }
+            if (buffer.get(pos++) == NEW_LINE) {
+                break;
+            }
+        }
+        buffer.position(pos);
+        return record;
+    }
+
+    /**
+     * Reads a record at an absolute offset of a buffer.
+     *
+     * @param buffer the buffer to read the record from
+     * @param offset the index of the first byte of the record
+     * @return the <code>Object[]</code> with the values of the fields
+     * @throws IOException if a field cannot be converted
+     */
+    @Override
+    public Object read(final ByteBuffer buffer, final int offset) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return read(view);
+    }
+
+    /**
+     * Decodes a field.
+     * <p>
+     * A field that ends before its converter is done, or that does not hold a valid
+     * number, is malformed. It is reported as an {@link IOException}, so that it is not
+     * taken for the end of the input.
+     *
+     * @param converter the converter of the field
+     * @param field the index of the field
+     * @param region the buffer holding the field, which is repositioned
+     * @param start the index of the first byte of the field
+     * @param end the index after the last byte of the field
+     * @param input the data input over the region
+     * @return the value of the field, <code>null</code> if it is empty
+     * @throws IOException if the field cannot be converted
+     */
+    private static Object decode(final Converter converter, final int field,
+                                 final ByteBuffer region, final int start, final int end,
+                                 final ByteBufferDataInput input) throws IOException {
+        if (start == end) {
+            return null;
+        }
+        region.limit(end);
+        region.position(start);
+        try {
+            return converter.read(input);
+        } catch (EOFException e) {
+            throw new IOException("Malformed field " + field, e);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed field " + field, e);
+        }
+    }
+
+    /**
+     * Finds the next delimiter or new line, eight bytes at a time.
+     *
+     * @param buffer the buffer holding the record
+     * @param from the index where the search starts
+     * @param limit the index where the search ends
+     * @return the index of the delimiter or new line, or the limit if there is none
+     */
+    private int find(final ByteBuffer buffer, final int from, final int limit) {
+        int i = from;
+        while (i + WORD_BYTES <= limit) {
+            final long word = buffer.getLong(i);
+            if (hasZeroByte(word ^ delimiterWord) || hasZeroByte(word ^ NEW_LINE_WORD)) {
+                break;
+            }
+            i += WORD_BYTES;
+        }
+        while (i < limit) {
+            final byte b = buffer.get(i);
+            if (b == delimiter || b == NEW_LINE) {
+                return i;
+            }
+            i++;
+        }
+        return limit;
+    }
+
+    /**
+     * Unescapes a quoted field into the field buffer of the thread.
+     * <p>
+     * Runs of plain bytes are sought eight bytes at a time and copied in bulk. A field
+     * without a closing quote ends with the record.
+     *
+     * @param buffer the buffer holding the record
+     * @param from the index after the opening quote
+     * @param limit the index where the record ends
+     * @param buffers the buffers of the thread
+     * @return the index after the closing quote
+     */
+    private static int unquote(final ByteBuffer buffer, final int from, final int limit,
+                               final Scratch buffers) {
+        final ByteBuffer source = buffer.duplicate();
+        int length = 0;
+        int pos = from;
+        while (pos < limit) {
+            int run = pos;
+            while (run + WORD_BYTES <= limit) {
+                final long word = buffer.getLong(run);
+                if (hasZeroByte(word ^ QUOTE_WORD) || hasZeroByte(word ^ ESCAPE_WORD)) {
+                    break;
+                }
+                run += WORD_BYTES;
+            }
+            while (run < limit && buffer.get(run) != QUOTE && buffer.get(run) != ESCAPE) {
+                run++;
+            }
+            buffers.ensureField(length + run - pos + 1, length);
+            source.limit(run);
+            source.position(pos);
+            source.get(buffers.field, length, run - pos);
+            length += run - pos;
+            pos = run;
+            if (pos == limit) {
+                break;
+            }
+            if (buffer.get(pos++) == QUOTE) {
+                break;
+            }
+            if (pos < limit) {
+                buffers.field[length++] = buffer.get(pos++);
+            }
+        }
+        buffers.fieldLength = length;
+        return pos;
+    }
+
+    /**
+     * Indicates if a long has a zero byte.
+     *
+     * @param word the bytes to test
+     * @return <code>true</code> if at least one of the bytes is zero
+     */
+    private static boolean hasZeroByte(final long word) {
+        return ((word - BYTES_OF_LONG) & ~word & HIGH_BITS) != 0;
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param dataOutput the output to write the record to
+     * @param object the <code>Object[]</code> with the values of the fields
+     * @throws IOException if a field cannot be converted or written
+     */
+    @Override
+    public void write(final DataOutput dataOutput, final Object object)
+            throws IOException {
+        assert dataOutput != null;
+
+        final Object[] record = (Object[]) object;
+        final Scratch buffers = scratch.get();
+        for (int i = 0; i < fieldConverters.length; i++) {
+            if (i > 0) {
+                dataOutput.writeByte(delimiter);
+            }
+            final Object value = i < record.length ? record[i] : null;
+            if (value != null && fieldConverters[i] != null) {
+                buffers.output.reset();
+                fieldConverters[i].write(buffers.dataOutput, value);
+                writeField(dataOutput, buffers.output.bytes(), buffers.output.size());
+            }
+        }
+        dataOutput.writeByte(NEW_LINE);
+    }
+
+    /**
+     * Writes the bytes of a field, quoting them if needed.
+     *
+     * @param dataOutput the output to write the field to
+     * @param bytes the bytes of the field
+     * @param length the number of bytes of the field
+     * @throws IOException if an exception occurs while writing the field
+     */
+    private void writeField(final DataOutput dataOutput, final byte[] bytes,
+                            final int length) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < length && !quoted; i++) {
+            final byte b = bytes[i];
+            quoted = b == delimiter || b == QUOTE || b == ESCAPE || b == NEW_LINE
+                    || b == CARRIAGE_RETURN;
+        }
+        if (!quoted) {
+            dataOutput.write(bytes, 0, length);
+            return;
+        }
+
+        dataOutput.writeByte(QUOTE);
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == QUOTE || bytes[i] == ESCAPE) {
+                dataOutput.write(bytes, start, i - start);
+                dataOutput.writeByte(ESCAPE);
+                start = i;
+            }
+        }
+        dataOutput.write(bytes, start, length - start);
+        dataOutput.writeByte(QUOTE);
+    }
+
+    /**
+     * Writes a record at the position of a buffer.
+     *
+     * @param buffer the buffer to write the record to
+     * @param object the <code>Object[]</code> with the values of the fields
+     * @throws IOException if a field cannot be converted or there is no room for it
+     */
+    @Override
+    public void write(final ByteBuffer buffer, final Object object) throws IOException {
+        write(new ByteBufferDataOutput(buffer), object);
+    }
+
+    /**
+     * Reads the records of a file in parallel.
+     * <p>
+     * The file is split in chunks of about <code>chunkSize</code> bytes, each extended up
+     * to the end of its last line. The chunks are mapped in memory and read by tasks
+     * submitted to the executor, which pass each record to the visitor. This method
+     * returns when all the chunks have been read.
+     * <p>
+     * Since the chunks are split at new lines, quoted fields must not hold line breaks.
+     *
+     * @param channel the file to read
+     * @param chunkSize the approximate number of bytes of a chunk
+     * @param executor the executor that reads the chunks
+     * @param visitor the visitor of the records
+     * @return the number of records read
+     * @throws IOException if the file cannot be read, a field cannot be converted or the
+     *             visitor fails
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public long readParallel(final FileChannel channel, final int chunkSize,
+                             final ExecutorService executor, final RecordVisitor visitor)
+            throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        final long size = channel.size();
+        final List<Long> starts = new ArrayList<Long>();
+        long start = 0;
+        while (start < size) {
+            starts.add(Long.valueOf(start));
+            start = nextLine(channel, start + chunkSize, size);
+        }
+
+        final List<Future<Long>> results = new ArrayList<Future<Long>>(starts.size());
+        try {
+            for (int i = 0; i < starts.size(); i++) {
+                final int chunk = i;
+                final long from = starts.get(i).longValue();
+                final long to = i + 1 < starts.size() ? starts.get(i + 1).longValue()
+                        : size;
+                if (to - from > Integer.MAX_VALUE) {
+                    throw new IOException("Line too long at offset " + from);
+                }
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        return Long.valueOf(readChunk(channel, chunk, from, to, visitor));
+                    }
+                }));
+            }
+
+            long records = 0;
+            for (Future<Long> result : results) {
+                records += result.get().longValue();
+            }
+            return records;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading records");
+        } catch (ExecutionException e) {
+            throw Streams.unwrap(e, "Cannot read records");
+        } finally {
+            for (Future<Long> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a chunk of a file.
+     *
+     * @param channel the file to read
+     * @param chunk the index of the chunk
+     * @param from the offset of the first record of the chunk
+     * @param to the offset after the last record of the chunk
+     * @param visitor the visitor of the records
+     * @return the number of records read
+     * @throws IOException if the file cannot be read, a field cannot be converted or the
+     *             visitor fails
+     */
+    private long readChunk(final FileChannel channel, final int chunk, final long from,
+                           final long to, final RecordVisitor visitor) throws IOException {
+        final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from,
+                to - from);
+        long records = 0;
+        while (buffer.hasRemaining()) {
+            visitor.visit(chunk, (Object[]) read(buffer));
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Finds the start of the first line at or after an offset of a file.
+     *
+     * @param channel the file to search
+     * @param offset the offset where the search starts
+     * @param size the size of the file
+     * @return the offset after the first new line at or after <code>offset - 1</code>, or
+     *         the size of the file if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLine(final FileChannel channel, final long offset,
+                                 final long size) throws IOException {
+        final ByteBuffer window = ByteBuffer.allocate(SEEK_WINDOW);
+        long position = offset - 1;
+        while (position < size) {
+            window.clear();
+            final int count = channel.read(window, position);
+            if (count <= 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                if (window.get(i) == NEW_LINE) {
+                    return position + i + 1;
+                }
+            }
+            position += count;
+        }
+        return size;
+    }
+}
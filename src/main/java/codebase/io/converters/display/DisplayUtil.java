@@ -0,0 +1,65 @@
+package codebase.io.converters.display;
+
+/**
+ * Formatting routines shared by the display converters.
+ * <p>
+ * The routines write ASCII digits into caller-provided arrays, so formatting a value does
+ * not allocate any object.
+ */
+final class DisplayUtil {
+
+    /**
+     * The numeric base of the display format.
+     */
+    static final int RADIX = 10;
+
+    /**
+     * The maximum number of characters of a formatted <code>long</code>, with its sign.
+     */
+    static final int LONG_MAX_CHARS = 20;
+
+    /**
+     * Prevents the instantiation of the class.
+     */
+    private DisplayUtil() {
+    }
+
+    /**
+     * Formats a value right-aligned at the end of a range of an array.
+     *
+     * @param value the value to format
+     * @param bytes the array where the characters are written
+     * @param end the index after the last character to write
+     * @return the index of the first character written
+     */
+    static int format(final long value, final byte[] bytes, final int end) {
+        // accumulate on the negative range, which holds Long.MIN_VALUE
+        long remaining = value < 0 ? value : -value;
+        int pos = end;
+        do {
+            bytes[--pos] = (byte) ('0' - (int) (remaining % RADIX));
+            remaining /= RADIX;
+        } while (remaining != 0);
+        if (value < 0) {
+            bytes[--pos] = '-';
+        }
+        return pos;
+    }
+
+    /**
+     * Formats an unsigned value left-padded with zeros to a number of digits.
+     *
+     * @param value the value to format, not negative
+     * @param digits the number of digits to write
+     * @param bytes the array where the characters are written
+     * @param start the index of the first character to write
+     */
+    static void formatDigits(final long value, final int digits, final byte[] bytes,
+                             final int start) {
+        long remaining = value;
+        for (int pos = start + digits - 1; pos >= start; pos--) {
+            bytes[pos] = (byte) ('0' + (int) (remaining % RADIX));
+            remaining /= RADIX;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package codebase.io.converters.display;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import codebase.BinaryUtil;
+import codebase.io.converters.DoubleValueConverter;
+
+/**
+ * A converter for floating-point numbers in display format.
+ * <p>
+ * Like {@link IntegerDisplayConverter}, this converter skips the input until a number
+ * starts, then consumes the input until the first character that cannot be part of it,
+ * which is used as delimiter and consumed. A number starts with a digit, or with a sign or
+ * a point followed by a digit; <code>NaN</code> and <code>Infinity</code>, optionally
+ * signed, are only taken as whole words, and other words are skipped. The accepted syntax
+ * is the one of {@link Double#parseDouble(String)}, without the hexadecimal form and the
+ * type suffixes.
+ * <p>
+ * Parsing is done in a per-thread buffer. Numbers with up to 15 significant digits and
+ * small exponents, which are the bulk of text dumps, are converted exactly with a single
+ * floating-point operation. Other numbers are delegated to
+ * {@link Double#parseDouble(String)}, so every number is parsed correctly.
+ * <p>
+ * Values are written as the shortest decimal in plain notation that reads back to the
+ * same <code>double</code>, found by scaling with powers of ten. The output matches
+ * {@link Double#toString(double)} in style, for example <code>"1.0"</code> and
+ * <code>"0.1"</code>. Values outside [10<sup>-3</sup>, 10<sup>7</sup>[ and values whose
+ * shortest decimal has more than 15 digits are written by
+ * {@link Double#toString(double)}. Either way, the value read back is the value written.
+ * <p>
+ * Instances can be shared between threads.
+ */
+public class DoubleDisplayConverter implements DoubleValueConverter {
+
+    /**
+     * The maximum number of characters of a number read.
+     */
+    public static final int MAX_CHARS = 256;
+
+    // CHECKSTYLE:OFF - limits of exact floating-point arithmetic
+    /**
+     * The exactly representable powers of ten.
+     */
+    private static final double[] POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+            1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21,
+            1e22 };
+
+    /**
+     * The largest integer below which all integers are exactly representable.
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    /**
+     * The maximum number of significant digits accumulated in a <code>long</code>.
+     */
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    /**
+     * The smallest value written by the fast path.
+     */
+    private static final double MIN_PLAIN = 1e-3;
+
+    /**
+     * The value from which numbers are written in scientific notation.
+     */
+    private static final double MAX_PLAIN = 1e7;
+
+    /**
+     * Exponents are clamped to this magnitude while they are parsed.
+     */
+    private static final int MAX_EXPONENT = 100000;
+    // CHECKSTYLE:ON
+
+    /**
+     * The buffer used by each thread to parse and format values.
+     */
+    private final ThreadLocal<byte[]> buffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_CHARS];
+        }
+    };
+
+    /**
+     * Parses a double object.
+     *
+     * @param dataInput the data input to read the data input from, should never be
+     *            <code>null</code>
+     * @throws IOException if an exception occurs while reading the number
+     * @return the <tt>Double</tt> read from the data input
+     * @see #readDouble(DataInput)
+     */
+    @Override
+    public Object read(DataInput dataInput) throws IOException {
+        return Double.valueOf(readDouble(dataInput));
+    }
+
+    /**
+     * Parses a double value.
+     *
+     * @param dataInput the data input to read the data input from, should never be
+     *            <code>null</code>
+     * @throws IOException if an exception occurs while reading the number
+     * @throws NumberFormatException if the characters are not a valid number or are more
+     *             than {@link #MAX_CHARS}
+     * @return the value read from the data input
+     */
+    @Override
+    public double readDouble(DataInput dataInput) throws IOException {
+        assert dataInput != null;
+
+        final byte[] chars = buffer.get();
+        int count = 0;
+        int ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
+        // skips until a number starts, keeping a sign that may start it
+        while (true) {
+            if (isDigit(ch)) {
+                chars[count++] = (byte) ch;
+                break;
+            }
+            if (ch == '-' || ch == '+') {
+                count = 0;
+                chars[count++] = (byte) ch;
+            } else if (ch == '.') {
+                ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
+                if (isDigit(ch)) {
+                    chars[count++] = '.';
+                    chars[count++] = (byte) ch;
+                    break;
+                }
+                count = 0;
+                continue;
+            } else if (isLetter(ch)) {
+                boolean whole = true;
+                do {
+                    if (count < chars.length) {
+                        chars[count++] = (byte) ch;
+                    } else {
+                        whole = false;
+                    }
+                    ch = readOrEnd(dataInput);
+                } while (isLetter(ch));
+                if (whole && isSpecial(chars, count)) {
+                    return parseSlowly(chars, count);
+                }
+                count = 0;
+                if (ch < 0) {
+                    throw new EOFException("No number before the end of the input");
+                }
+                continue;
+            } else {
+                count = 0;
+            }
+            ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
+        }
+
+        while (true) {
+            try {
+                ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
+            } catch (EOFException e) {
+                break;
+            }
+            if (!(isDigit(ch) || ch == '.' || ch == 'e' || ch == 'E' || ch == '-'
+                    || ch == '+')) {
+                break;
+            }
+            if (count == chars.length) {
+                throw new NumberFormatException("Number longer than " + MAX_CHARS
+                        + " characters");
+            }
+            chars[count++] = (byte) ch;
+        }
+        return parse(chars, count);
+    }
+
+    /**
+     * Indicates if a character is a decimal digit.
+     *
+     * @param ch the character
+     * @return <code>true</code> if the character is a digit
+     */
+    private static boolean isDigit(final int ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Indicates if a character is an ASCII letter.
+     *
+     * @param ch the character
+     * @return <code>true</code> if the character is a letter
+     */
+    private static boolean isLetter(final int ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+    }
+
+    /**
+     * Reads the next character, if any.
+     *
+     * @param dataInput the data input to read from
+     * @return the character, or <code>-1</code> at the end of the input
+     * @throws IOException if an exception occurs while reading
+     */
+    private static int readOrEnd(final DataInput dataInput) throws IOException {
+        try {
+            return dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Indicates if a word, optionally signed, is <code>NaN</code> or
+     * <code>Infinity</code>.
+     *
+     * @param chars the characters of the word
+     * @param count the number of characters
+     * @return <code>true</code> if the word is one of the special values
+     */
+    private static boolean isSpecial(final byte[] chars, final int count) {
+        final int start = chars[0] == '-' || chars[0] == '+' ? 1 : 0;
+        return matches(chars, start, count, "NaN")
+                || matches(chars, start, count, "Infinity");
+    }
+
+    /**
+     * Compares a range of characters with a word.
+     *
+     * @param chars the characters
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @param word the word
+     * @return <code>true</code> if the characters are the word
+     */
+    private static boolean matches(final byte[] chars, final int start, final int end,
+                                   final String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (chars[i] != word.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the characters of a number.
+     *
+     * @param chars the characters of the number
+     * @param count the number of characters
+     * @return the value of the number
+     * @throws NumberFormatException if the characters are not a valid number
+     */
+    private static double parse(final byte[] chars, final int count) {
+        int i = 0;
+        final boolean negative = chars[0] == '-';
+        if (chars[0] == '-' || chars[0] == '+') {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        boolean hasDigits = false;
+        while (i < count && isDigit(chars[i])) {
+            hasDigits = true;
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * DisplayUtil.RADIX + (chars[i] - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                truncated |= chars[i] != '0';
+            }
+            i++;
+        }
+        if (i < count && chars[i] == '.') {
+            i++;
+            while (i < count && isDigit(chars[i])) {
+                hasDigits = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * DisplayUtil.RADIX + (chars[i] - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated |= chars[i] != '0';
+                }
+                i++;
+            }
+        }
+        if (!hasDigits) {
+            return parseSlowly(chars, count);
+        }
+        if (i < count && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            final boolean negativeExponent = i < count && chars[i] == '-';
+            if (i < count && (chars[i] == '-' || chars[i] == '+')) {
+                i++;
+            }
+            if (i == count) {
+                throw new NumberFormatException("Exponent digits missing");
+            }
+            int value = 0;
+            while (i < count && isDigit(chars[i])) {
+                value = Math.min(MAX_EXPONENT, value * DisplayUtil.RADIX
+                        + (chars[i] - '0'));
+                i++;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != count) {
+            throw new NumberFormatException("Invalid number: "
+                    + new String(toChars(chars, count)));
+        }
+
+        if (mantissa == 0 && !truncated) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (!truncated && mantissa < MAX_EXACT && exponent >= -(POWERS.length - 1)
+                && exponent <= POWERS.length - 1) {
+            // both operands are exact, thus the result is correctly rounded
+            final double value = exponent < 0 ? mantissa / POWERS[-exponent]
+                    : mantissa * POWERS[exponent];
+            return negative ? -value : value;
+        }
+        return parseSlowly(chars, count);
+    }
+
+    /**
+     * Converts the characters of a number with {@link Double#parseDouble(String)}.
+     *
+     * @param chars the characters of the number
+     * @param count the number of characters
+     * @return the value of the number
+     * @throws NumberFormatException if the characters are not a valid number
+     */
+    private static double parseSlowly(final byte[] chars, final int count) {
+        return Double.parseDouble(new String(toChars(chars, count)));
+    }
+
+    /**
+     * Copies ASCII characters to a new array.
+     *
+     * @param chars the ASCII characters
+     * @param count the number of characters
+     * @return the characters
+     */
+    private static char[] toChars(final byte[] chars, final int count) {
+        final char[] result = new char[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (char) chars[i];
+        }
+        return result;
+    }
+
+    /**
+     * Writes a double to the output in display format.
+     *
+     * @param dataOutput the data output object to write to
+     * @param object the <tt>Double</tt> to write
+     * @throws IOException if an exception occurs while writing the value
+     */
+    @Override
+    public void write(DataOutput dataOutput, Object object) throws IOException {
+        assert object != null;
+
+        writeDouble(dataOutput, ((Double) object).doubleValue());
+    }
+
+    /**
+     * Writes a double value to the output in display format.
+     *
+     * @param dataOutput the data output object to write to
+     * @param value the value to write
+     * @throws IOException if an exception occurs while writing the value
+     */
+    @Override
+    public void writeDouble(DataOutput dataOutput, double value) throws IOException {
+        assert dataOutput != null;
+
+        final double magnitude = Math.abs(value);
+        if (value == 0 || magnitude < MIN_PLAIN || magnitude >= MAX_PLAIN
+                || Double.isNaN(value)) {
+            dataOutput.writeBytes(Double.toString(value));
+            return;
+        }
+
+        // the fewest fraction digits that read back to the same value
+        for (int scale = 0; scale < POWERS.length; scale++) {
+            final double scaled = magnitude * POWERS[scale];
+            if (scaled >= MAX_EXACT) {
+                break;
+            }
+            final long digits = Math.round(scaled);
+            if (digits / POWERS[scale] == magnitude) {
+                writePlain(dataOutput, value < 0, digits, scale);
+                return;
+            }
+        }
+        dataOutput.writeBytes(Double.toString(value));
+    }
+
+    /**
+     * Writes a number in plain notation, with at least one fraction digit.
+     *
+     * @param dataOutput the data output object to write to
+     * @param negative <code>true</code> to write a minus sign
+     * @param digits the digits of the number
+     * @param scale the number of fraction digits
+     * @throws IOException if an exception occurs while writing the value
+     */
+    private void writePlain(final DataOutput dataOutput, final boolean negative,
+                            final long digits, final int scale) throws IOException {
+        final byte[] chars = buffer.get();
+        final int end = chars.length;
+        long integer = digits;
+        int pos;
+        if (scale == 0) {
+            pos = end - 1;
+            chars[pos] = '0';
+        } else {
+            final long divisor = (long) POWERS[scale];
+            integer = digits / divisor;
+            pos = end - scale;
+            DisplayUtil.formatDigits(digits % divisor, scale, chars, pos);
+        }
+        chars[--pos] = '.';
+        pos = DisplayUtil.format(integer, chars, pos);
+        if (negative) {
+            chars[--pos] = '-';
+        }
+        dataOutput.write(chars, pos, end - pos);
+    }
+}
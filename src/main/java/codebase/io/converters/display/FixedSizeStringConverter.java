@@ -7,9 +7,15 @@ package codebase.io.converters.display;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+import codebase.BinaryUtil;
 import codebase.StringUtil;
 import codebase.io.converters.AbstractFixedSizeConverter;
+import codebase.io.converters.BufferConverter;
 
 /**
  * A converter for strings with fixed size.
@@ -21,14 +27,33 @@ import codebase.io.converters.AbstractFixedSizeConverter;
  * only a fixed number of characters are considered. No end of string marker is sought.
  * When writing only a predefined number of characters are written out. No end of line
  * marker is written. If the String is smaller that the fixed sized, then it is right
- * padded with space characters.
+ * padded with space characters. Optionally, the padding is removed when reading; the
+ * trailing pad bytes are then sought eight bytes at a time.
+ * <p>
+ * Reading needs no lock: strings are decoded from per-thread buffers or, for heap
+ * {@link ByteBuffer}s, directly from the array of the buffer. Instances can be shared
+ * between threads.
  */
-public class FixedSizeStringConverter extends AbstractFixedSizeConverter {
+public class FixedSizeStringConverter extends
+        AbstractFixedSizeConverter
+        implements BufferConverter {
+
+    // CHECKSTYLE:OFF - a byte in every byte of a long
+    /**
+     * Multiplying a byte by this value repeats it in the eight bytes of a long.
+     */
+    private static final long BYTES_OF_LONG = 0x0101010101010101L;
+    // CHECKSTYLE:ON
 
     /**
-     * The buffer used to read in the data.
+     * The buffer used by each thread to read in the data.
      */
-    private final byte[] readBuffer;
+    private final ThreadLocal<ByteBuffer> readBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(length);
+        }
+    };
 
     /**
      * Caches the number of characters to read for optimization purposes.
@@ -41,34 +66,162 @@ public class FixedSizeStringConverter extends AbstractFixedSizeConverter {
     private final byte padByte;
 
     /**
-     * Builds a new fixed size string converter.
+     * Eight pad bytes, to trim the padding a word at a time.
+     */
+    private final long padWord;
+
+    /**
+     * Indicates if the padding is removed when reading.
+     */
+    private final boolean trimPad;
+
+    /**
+     * Indicates if the class overrides the deprecated {@link #createString(byte[])}.
+     */
+    private final boolean legacyHook;
+
+    /**
+     * Builds a new fixed size string converter that keeps the padding when reading.
      * 
      * @param size of the string
      * @param pad the byte to pad the string to fill it up to the specified size
      * @throws IllegalArgumentException if size is not positive
      */
     public FixedSizeStringConverter(final int size, final byte pad) {
+        this(size, pad, false);
+    }
+
+    /**
+     * Builds a new fixed size string converter.
+     * 
+     * @param size of the string
+     * @param pad the byte to pad the string to fill it up to the specified size
+     * @param trim <code>true</code> to remove the trailing pad bytes when reading
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public FixedSizeStringConverter(final int size, final byte pad, final boolean trim) {
         super(size);
         if (size < 1) {
             throw new IllegalArgumentException("The size must be positive");
         }
-        readBuffer = new byte[size];
         padByte = pad;
+        // CHECKSTYLE:OFF - the unsigned value of the byte
+        padWord = (pad & 0xFF) * BYTES_OF_LONG;
+        // CHECKSTYLE:ON
+        trimPad = trim;
         length = size;
+        legacyHook = overridesLegacyHook(getClass());
+    }
+
+    /**
+     * Checks if a class overrides {@link #createString(byte[])}.
+     * 
+     * @param type the class of the converter
+     * @return <code>true</code> if the method is declared below this class
+     */
+    private static boolean overridesLegacyHook(final Class<?> type) {
+        Class<?> c = type;
+        while (c != FixedSizeStringConverter.class) {
+            try {
+                c.getDeclaredMethod("createString", byte[].class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                c = c.getSuperclass();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indicates if the padding is removed when reading.
+     * 
+     * @return <code>true</code> if the trailing pad bytes are removed.
+     */
+    public final boolean isTrimmingPad() {
+        return trimPad;
     }
 
     /**
      * Creates a string object from an array of bytes.
      * <p>
-     * Descending classes can override this method to provide a different encoding.
+     * This method is only called for descending classes that override it, with a copy of
+     * the bytes of each string.
      * 
      * @param readBytes the array of bytes
      * @return a string with the default encoding
+     * @deprecated override {@link #createString(byte[], int, int)}, which is given the
+     *             bytes without copying them
      */
+    @Deprecated
     protected String createString(final byte[] readBytes) {
         return new String(readBytes, StringUtil.UTF8);
     }
 
+    /**
+     * Creates a string object from a range of an array of bytes.
+     * <p>
+     * Descending classes can override this method to provide a different encoding. The
+     * array must not be kept, since it may be reused. For classes that override
+     * {@link #createString(byte[])} instead, the range is copied and passed to it.
+     * 
+     * @param bytes the array of bytes
+     * @param offset the index of the first byte of the string
+     * @param count the number of bytes of the string, without the padding if it is
+     *            trimmed
+     * @return a string with the default encoding
+     */
+    @SuppressWarnings("deprecation")
+    protected String createString(final byte[] bytes, final int offset, final int count) {
+        if (legacyHook) {
+            return createString(Arrays.copyOfRange(bytes, offset, offset + count));
+        }
+        return new String(bytes, offset, count, StringUtil.UTF8);
+    }
+
+    /**
+     * Counts the bytes of a string read, without the trailing pad bytes if they are
+     * trimmed.
+     * <p>
+     * The pad bytes are compared eight at a time, then one at a time.
+     * 
+     * @param buffer the buffer holding the string
+     * @param offset the index of the first byte of the string in the buffer
+     * @return the number of bytes of the string
+     */
+    private int countBytes(final ByteBuffer buffer, final int offset) {
+        if (!trimPad) {
+            return length;
+        }
+        int end = length;
+        while (end >= BinaryUtil.SIZE_OF_LONG
+                && buffer.getLong(offset + end - BinaryUtil.SIZE_OF_LONG) == padWord) {
+            end -= BinaryUtil.SIZE_OF_LONG;
+        }
+        while (end > 0 && buffer.get(offset + end - 1) == padByte) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Decodes a string at an absolute offset of a buffer.
+     * 
+     * @param buffer the buffer holding the string, whose bytes are all available
+     * @param offset the index of the first byte of the string in the buffer
+     * @return the string
+     */
+    private String decode(final ByteBuffer buffer, final int offset) {
+        final int count = countBytes(buffer, offset);
+        if (buffer.hasArray()) {
+            return createString(buffer.array(), buffer.arrayOffset() + offset, count);
+        }
+        final ByteBuffer scratch = readBuffer.get();
+        for (int i = 0; i < count; i++) {
+            scratch.put(i, buffer.get(offset + i));
+        }
+        return createString(scratch.array(), 0, count);
+    }
+
     /**
      * Returns a new string object from the bytes read.
      * <p>
@@ -79,11 +232,69 @@ public class FixedSizeStringConverter extends AbstractFixedSizeConverter {
      * @throws IOException if an exception occurs while reading the string
      * @return a string read from the data input
      */
-    public synchronized Object read(final DataInput dataInput) throws IOException {
+    public Object read(final DataInput dataInput) throws IOException {
         assert dataInput != null;
         
-        dataInput.readFully(readBuffer, 0, length);
-        return createString(readBuffer);
+        final ByteBuffer scratch = readBuffer.get();
+        dataInput.readFully(scratch.array(), 0, length);
+        return createString(scratch.array(), 0, countBytes(scratch, 0));
+    }
+
+    /**
+     * Reads a string at the position of a buffer.
+     * 
+     * @param buffer the buffer to read the string from
+     * @return the string read
+     * @throws BufferUnderflowException if there are not enough bytes in the buffer
+     */
+    public Object read(final ByteBuffer buffer) {
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        final String string = decode(buffer, buffer.position());
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /**
+     * Reads a string at an absolute offset of a buffer.
+     * 
+     * @param buffer the buffer to read the string from
+     * @param offset the index of the first byte of the string in the buffer
+     * @return the string read
+     * @throws BufferUnderflowException if there are not enough bytes in the buffer
+     */
+    public Object read(final ByteBuffer buffer, final int offset) {
+        if (offset < 0 || buffer.limit() - offset < length) {
+            throw new BufferUnderflowException();
+        }
+        return decode(buffer, offset);
+    }
+
+    /**
+     * Writes a string with a fixed size at the position of a buffer.
+     * <p>
+     * The bytes are the same as the ones written to a {@link DataOutput}.
+     * 
+     * @param buffer the buffer to write the string to
+     * @param object the string object to write
+     * @throws BufferOverflowException if there is no room for the string
+     */
+    public void write(final ByteBuffer buffer, final Object object) {
+        if (!(object instanceof String)) {
+            throw new IllegalArgumentException("Object must be a String");
+        }
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        final String input = (String) object;
+        final int count = Math.min(length, input.length());
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) input.charAt(i));
+        }
+        for (int i = count; i < length; i++) {
+            buffer.put(padByte);
+        }
     }
 
     /**
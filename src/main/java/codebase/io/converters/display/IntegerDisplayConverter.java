@@ -6,8 +6,7 @@ import java.io.EOFException;
 import java.io.IOException;
 
 import codebase.BinaryUtil;
-import codebase.StringUtil;
-import codebase.io.converters.Converter;
+import codebase.io.converters.IntValueConverter;
 
 /**
  * A converter for integers in display format.
@@ -16,14 +15,32 @@ import codebase.io.converters.Converter;
  * digit. This last character will be used as delimiter and is consumed. Note that this is
  * a technical limitation. Since we do not know the number of digits up front, any
  * character that is not a digit will serve as delimiter.
+ * <p>
+ * Values are parsed and formatted without allocating objects; each thread formats into
+ * its own buffer, so instances can be shared between threads.
  */
-public class IntegerDisplayConverter implements Converter {
+public class IntegerDisplayConverter implements IntValueConverter {
 
     /**
      * The maximum amount of digits that held by a Integer.
      */
     public static final int INTEGER_MAX_DIGITS = 10;
 
+    /**
+     * The numeric base of the display format.
+     */
+    private static final int RADIX = DisplayUtil.RADIX;
+
+    /**
+     * The buffer used by each thread to format values.
+     */
+    private final ThreadLocal<byte[]> formatBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[DisplayUtil.LONG_MAX_CHARS];
+        }
+    };
+
     /**
      * Parses an integer object.
      * <p>
@@ -34,59 +51,68 @@ public class IntegerDisplayConverter implements Converter {
      *            <code>null</code>
      * @throws IOException if an exception occurs while reading the string
      * @return a string read from the data input
+     * @see #readInt(DataInput)
      */
     @Override
     public Object read(DataInput dataInput) throws IOException {
+        return Integer.valueOf(readInt(dataInput));
+    }
+
+    /**
+     * Parses an integer value.
+     * <p>
+     * The digits are accumulated as they are read, without intermediate buffers or
+     * strings. Accumulation is done on the negative range so that
+     * {@link Integer#MIN_VALUE} is parsed without overflowing. All the digits of the number
+     * are read, so a number too large is rejected rather than split.
+     * 
+     * @param dataInput the data input to read the data input from, should never be
+     *            <code>null</code>
+     * @throws IOException if an exception occurs while reading the string
+     * @throws NumberFormatException if the digits are missing or do not fit in an
+     *             <code>int</code>
+     * @return the value read from the data input
+     */
+    @Override
+    public int readInt(DataInput dataInput) throws IOException {
         assert dataInput != null;
 
         int ch;
         do {
-            try {
-                ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
-            } catch (EOFException e) {
-                /*
-                 * This means that no valid integer digits where found
-                 */
-                throw e;
-            }
+            ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
         } while (!((ch == '-' || ch == '+') || (ch >= '0' && ch <= '9')));
 
         final boolean hasLeadingSign = ch == '-' || ch == '+';
+        final boolean negative = ch == '-';
+        final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
 
-        final byte[] data;
-
-        int pos = 0;
-        if (hasLeadingSign) {
-            data = new byte[INTEGER_MAX_DIGITS + 1];
-            data[pos] = (byte) ch;
-        } else if (ch >= '0' && ch <= '9') {
-            data = new byte[INTEGER_MAX_DIGITS];
-            data[pos] = (byte) ch;
-        } else
-            throw new NumberFormatException("Expecting digits but found '" + (char) ch + "'");
+        int pos = 1;
+        int result = hasLeadingSign ? 0 : -(ch - '0');
 
-        pos++;
-
-        do {
+        while (true) {
             try {
                 ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
-                final boolean isValidDigit = ch >= '0' && ch <= '9';
-
-                if (!isValidDigit)
-                    break;
-
-                data[pos] = (byte) ch;
-                pos++;
             } catch (EOFException e) {
                 break;
             }
-        } while (pos < data.length);
+
+            final boolean isValidDigit = ch >= '0' && ch <= '9';
+            if (!isValidDigit)
+                break;
+
+            final int digit = ch - '0';
+            if (result < limit / RADIX || result * RADIX < limit + digit) {
+                throw new NumberFormatException("Integer value out of range");
+            }
+            result = result * RADIX - digit;
+            pos++;
+        }
 
         if (pos == 1 && hasLeadingSign) {
             throw new NumberFormatException("Found sign but number digits missing");
         }
 
-        return Integer.parseInt(new String(data, 0, pos, StringUtil.UTF8));
+        return negative ? result : -result;
     }
 
 
@@ -102,7 +128,22 @@ public class IntegerDisplayConverter implements Converter {
         assert dataOutput != null;
         assert object != null;
 
-        dataOutput.write(object.toString().getBytes(StringUtil.UTF8));
+        writeInt(dataOutput, ((Integer) object).intValue());
     }
 
+    /**
+     * Writes an integer value to the output in display format.
+     * 
+     * @param dataOutput the data output object to write to
+     * @param value the value to write
+     * @throws IOException if an exception occurs while writing the value
+     */
+    @Override
+    public void writeInt(DataOutput dataOutput, int value) throws IOException {
+        assert dataOutput != null;
+
+        final byte[] chars = formatBuffer.get();
+        final int start = DisplayUtil.format(value, chars, chars.length);
+        dataOutput.write(chars, start, chars.length - start);
+    }
 }
@@ -0,0 +1,142 @@
+package codebase.io.converters.display;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import codebase.BinaryUtil;
+import codebase.io.converters.LongValueConverter;
+
+/**
+ * A converter for long integers in display format.
+ * <p>
+ * Like {@link IntegerDisplayConverter}, this converter consumes the input until the first
+ * character that is not a sign or digit, which is used as delimiter and consumed.
+ * <p>
+ * Values are parsed and formatted without allocating objects; each thread formats into
+ * its own buffer, so instances can be shared between threads.
+ */
+public class LongDisplayConverter implements LongValueConverter {
+
+    /**
+     * The maximum amount of digits that held by a Long.
+     */
+    public static final int LONG_MAX_DIGITS = 19;
+
+    /**
+     * The numeric base of the display format.
+     */
+    private static final int RADIX = DisplayUtil.RADIX;
+
+    /**
+     * The buffer used by each thread to format values.
+     */
+    private final ThreadLocal<byte[]> formatBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[DisplayUtil.LONG_MAX_CHARS];
+        }
+    };
+
+    /**
+     * Parses a long object.
+     *
+     * @param dataInput the data input to read the data input from, should never be
+     *            <code>null</code>
+     * @throws IOException if an exception occurs while reading the string
+     * @return the <tt>Long</tt> read from the data input
+     * @see #readLong(DataInput)
+     */
+    @Override
+    public Object read(DataInput dataInput) throws IOException {
+        return Long.valueOf(readLong(dataInput));
+    }
+
+    /**
+     * Parses a long value.
+     * <p>
+     * Characters are skipped until a sign or a digit is found. The digits are accumulated
+     * as they are read on the negative range, so that {@link Long#MIN_VALUE} is parsed
+     * without overflowing. All the digits of the number are read, so a number too large is
+     * rejected rather than split.
+     *
+     * @param dataInput the data input to read the data input from, should never be
+     *            <code>null</code>
+     * @throws IOException if an exception occurs while reading the string
+     * @throws NumberFormatException if the digits are missing or do not fit in a
+     *             <code>long</code>
+     * @return the value read from the data input
+     */
+    @Override
+    public long readLong(DataInput dataInput) throws IOException {
+        assert dataInput != null;
+
+        int ch;
+        do {
+            ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
+        } while (!((ch == '-' || ch == '+') || (ch >= '0' && ch <= '9')));
+
+        final boolean hasLeadingSign = ch == '-' || ch == '+';
+        final boolean negative = ch == '-';
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+
+        int pos = 1;
+        long result = hasLeadingSign ? 0 : -(ch - '0');
+
+        while (true) {
+            try {
+                ch = (dataInput.readByte() & BinaryUtil.INT_LOW_BYTE_MASK);
+            } catch (EOFException e) {
+                break;
+            }
+
+            if (ch < '0' || ch > '9') {
+                break;
+            }
+
+            final int digit = ch - '0';
+            if (result < limit / RADIX || result * RADIX < limit + digit) {
+                throw new NumberFormatException("Long value out of range");
+            }
+            result = result * RADIX - digit;
+            pos++;
+        }
+
+        if (pos == 1 && hasLeadingSign) {
+            throw new NumberFormatException("Found sign but number digits missing");
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Writes a long to the output in display format.
+     *
+     * @param dataOutput the data output object to write to
+     * @param object the <tt>Long</tt> to write
+     * @throws IOException if an exception occurs while writing the value
+     */
+    @Override
+    public void write(DataOutput dataOutput, Object object) throws IOException {
+        assert object != null;
+
+        writeLong(dataOutput, ((Long) object).longValue());
+    }
+
+    /**
+     * Writes a long value to the output in display format.
+     *
+     * @param dataOutput the data output object to write to
+     * @param value the value to write
+     * @throws IOException if an exception occurs while writing the value
+     */
+    @Override
+    public void writeLong(DataOutput dataOutput, long value) throws IOException {
+        assert dataOutput != null;
+
+        final byte[] chars = formatBuffer.get();
+        final int start = DisplayUtil.format(value, chars, chars.length);
+        dataOutput.write(chars, start, chars.length - start);
+    }
+}
@@ -1,4 +1,9 @@
 /**
  * Provides display I/O converters for fundamental data types.
+ * <p>
+ * The numeric converters implement the primitive converter interfaces, such as
+ * {@link codebase.io.converters.IntValueConverter}, and parse and format ASCII text
+ * without allocating objects. {@link DelimitedRecordConverter} combines them into
+ * converters of CSV and TSV records.
  */
-package codebase.io.converters.display;
\ No newline at end of file
+package codebase.io.converters.display;
@@ -16,5 +16,20 @@
  * consequence is that a fixed size converter consumes and produces the same amount of
  * bytes and this number of bytes is known up-front. In contrast, a variable size
  * converter does not know up-front how many bytes it will consume.
+ * <p>
+ * Converters of primitive values, such as {@link codebase.io.converters.IntValueConverter},
+ * also read and write the values without boxing them.
+ * <p>
+ * A {@link codebase.io.converters.BufferConverter} reads and writes objects directly from
+ * and to a {@link java.nio.ByteBuffer}, at its position or at an absolute offset. The
+ * {@link codebase.io.converters.StreamToBufferConverter} and
+ * {@link codebase.io.converters.BufferToStreamConverter} adapters bridge both interfaces.
+ * <p>
+ * Streams of objects of several types are converted by a
+ * {@link codebase.io.converters.TaggedConverter}, which writes a one-byte type tag before
+ * each object.
+ * <p>
+ * Corrupted data is detected by a {@link codebase.io.converters.ChecksumConverter}, which
+ * writes batches of objects in frames ending with a checksum.
  */
 package codebase.io.converters;
\ No newline at end of file
@@ -0,0 +1,5 @@
+/**
+ * Provides structured access to files built on top of the
+ * {@link codebase.io.converters converters}.
+ */
+package codebase.io;
@@ -5,7 +5,6 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
-import codebase.StringUtil;
 import codebase.io.converters.Converter;
 import codebase.io.converters.display.IntegerDisplayConverter;
 import codebase.io.converters.display.StringLiteralConverter;
@@ -47,7 +46,7 @@ public class NodeDisplayConverter implements Converter {
     @Override
     public Object read(DataInput input) throws IOException {
         skipUntilChar(input, '#');
-        final int nodeNumber = (Integer) intConverter.read(input);
+        final int nodeNumber = intConverter.readInt(input);
 
         checkAndSkip(input, "= ");
         final int nodeType = input.readByte();
@@ -55,7 +54,7 @@ public class NodeDisplayConverter implements Converter {
         checkAndSkip(input, '(');
         final Node node;
         if (nodeType == 'A') {
-            final int instanceNode = (Integer) intConverter.read(input);
+            final int instanceNode = intConverter.readInt(input);
             final String attrName = (String) stringConverter.read(input);
             final String attrValue = (String) stringConverter.read(input);
             node = new AttributeNode(nodeNumber, instanceNode, attrName, attrValue);
@@ -64,8 +63,8 @@ public class NodeDisplayConverter implements Converter {
             node = new InstanceNode(nodeNumber, instanceTypeName);
         } else if (nodeType == 'R') {
             final String instanceTypeName = (String) stringConverter.read(input);
-            final int sourceNode = (Integer) intConverter.read(input);
-            final int targetNode = (Integer) intConverter.read(input);
+            final int sourceNode = intConverter.readInt(input);
+            final int targetNode = intConverter.readInt(input);
             node = new RelationNode(nodeNumber, instanceTypeName, sourceNode, targetNode);
         } else {
             throw new IOException("Malformed line for node #" + nodeNumber + ": found '" + nodeType
@@ -101,27 +100,52 @@ public class NodeDisplayConverter implements Converter {
         assert dataOutput != null;
         assert object instanceof Node;
 
-        final String nodeRepresentation;
+        /*
+         * The node numbers are written through the primitive path to avoid boxing them.
+         */
         if (object instanceof AttributeNode) {
             final AttributeNode node = (AttributeNode) object;
-            nodeRepresentation = "#" + node.getNumber() + " = A(" + node.getInstanceNode() + ", "
-                    + codebase.StringUtil.stringify(node.getName()) + ", "
-                    + codebase.StringUtil.stringify(node.getValue()) + ")";
+            writeHeader(dataOutput, node.getNumber(), 'A');
+            intConverter.writeInt(dataOutput, node.getInstanceNode());
+            dataOutput.writeBytes(", ");
+            stringConverter.write(dataOutput, node.getName());
+            dataOutput.writeBytes(", ");
+            stringConverter.write(dataOutput, node.getValue());
         } else if (object instanceof InstanceNode) {
             final InstanceNode node = (InstanceNode) object;
-            nodeRepresentation = "#" + node.getNumber() + " = I("
-                    + codebase.StringUtil.stringify(node.getTypeName()) + ")";
+            writeHeader(dataOutput, node.getNumber(), 'I');
+            stringConverter.write(dataOutput, node.getTypeName());
         } else if (object instanceof RelationNode) {
             final RelationNode node = (RelationNode) object;
-            nodeRepresentation =
-                "#" + node.getNumber() + " = R(" + codebase.StringUtil.stringify(node.getTypeName())
-                        + ", " + node.getSource() + ", " + node.getTarget() + ")";
+            writeHeader(dataOutput, node.getNumber(), 'R');
+            stringConverter.write(dataOutput, node.getTypeName());
+            dataOutput.writeBytes(", ");
+            intConverter.writeInt(dataOutput, node.getSource());
+            dataOutput.writeBytes(", ");
+            intConverter.writeInt(dataOutput, node.getTarget());
         } else {
             throw new IllegalArgumentException(
                     "The supplied node object cannot be written because it is of an unknow type");
         }
 
-        dataOutput.write(nodeRepresentation.getBytes(StringUtil.UTF8));
+        dataOutput.writeByte(')');
         dataOutput.writeByte('\n');
     }
+
+    /**
+     * Writes the beginning of a node line, up to the opening parenthesis.
+     * 
+     * @param dataOutput the output to write to
+     * @param nodeNumber the number of the node
+     * @param nodeType the character that identifies the type of the node
+     * @throws IOException if an error occurs while writing
+     */
+    private void writeHeader(DataOutput dataOutput, int nodeNumber, char nodeType)
+            throws IOException {
+        dataOutput.writeByte('#');
+        intConverter.writeInt(dataOutput, nodeNumber);
+        dataOutput.writeBytes(" = ");
+        dataOutput.writeByte(nodeType);
+        dataOutput.writeByte('(');
+    }
 }
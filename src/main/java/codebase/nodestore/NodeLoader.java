@@ -0,0 +1,27 @@
+package codebase.nodestore;
+
+import java.io.IOException;
+
+/**
+ * A source of nodes that are not held in memory by a {@link NodeStore}.
+ * <p>
+ * Loaders are typically backed by a persistence layer. The store calls the loader with
+ * all the node numbers it could not find in a single batch so that the loader can fetch
+ * them with as few I/O operations as possible.
+ */
+public interface NodeLoader {
+
+    /**
+     * Loads a batch of nodes.
+     * <p>
+     * For each position <i>i</i>, the node numbered <code>nodeNumbers[i]</code> should be
+     * stored in <code>nodes[i]</code>. Nodes that do not exist are left
+     * <code>null</code>.
+     *
+     * @param nodeNumbers the numbers of the nodes to be loaded, never <code>null</code>
+     * @param nodes the array where the loaded nodes are stored, with the same length as
+     *            <code>nodeNumbers</code>
+     * @throws IOException if an error occurs while loading the nodes
+     */
+    void load(int[] nodeNumbers, Node[] nodes) throws IOException;
+}
@@ -1,53 +1,522 @@
 package codebase.nodestore;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.io.ObjectInput;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import codebase.io.converters.ObjectConverterInput;
 
 /**
  * A node store.
+ * <p>
+ * The store is safe to be used by multiple threads. Locking is done with
+ * {@link ReentrantLock} objects rather than monitors and the lock is never held while
+ * nodes are being loaded from the {@link NodeLoader}, if one is given.
+ * <p>
+ * Lookups issued through {@link #queryAsync(int)} are queued and served in batches:
+ * all the lookups that arrive while a batch is being served are coalesced into the next
+ * call to {@link #queryAll(int[])}.
  */
 public class NodeStore {
 
+    /**
+     * An executor that runs the tasks in the calling thread.
+     */
+    private static final Executor CALLER_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * The maximum number of nodes inserted under the lock by {@link #read}.
+     */
+    private static final int READ_BATCH_SIZE = 256;
+
+    /**
+     * A lookup that was issued asynchronously and is waiting to be served.
+     */
+    private static final class PendingQuery implements Future<Node> {
+        private final int nodeNumber;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Node result;
+        private Throwable failure;
+
+        PendingQuery(final int number) {
+            this.nodeNumber = number;
+        }
+
+        void complete(final Node node) {
+            result = node;
+            done.countDown();
+        }
+
+        void fail(final Throwable cause) {
+            failure = cause;
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public Node get() throws InterruptedException, ExecutionException {
+            done.await();
+            return getResult();
+        }
+
+        @Override
+        public Node get(final long timeout, final TimeUnit unit) throws InterruptedException,
+                ExecutionException, java.util.concurrent.TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new java.util.concurrent.TimeoutException("Node #" + nodeNumber
+                        + " was not served after " + timeout + " " + unit.toString());
+            }
+            return getResult();
+        }
+
+        private Node getResult() throws ExecutionException {
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+    }
+
     /**
      * Maintains the nodes by number.
      */
     private final HashMap<Integer, Node> nodesByNumber = new HashMap<Integer, Node>(1024);
 
+    /**
+     * Guards {@link #nodesByNumber}.
+     */
+    private final ReentrantLock storeLock = new ReentrantLock();
+
+    /**
+     * Loads the nodes that are not in memory, can be <code>null</code>.
+     */
+    private final NodeLoader nodeLoader;
+
+    /**
+     * Runs the task that serves the pending asynchronous lookups.
+     */
+    private final Executor queryExecutor;
+
+    /**
+     * Guards {@link #pendingQueries} and {@link #drainScheduled}.
+     */
+    private final ReentrantLock pendingLock = new ReentrantLock();
+
+    /**
+     * The asynchronous lookups waiting for the next batch.
+     */
+    private ArrayList<PendingQuery> pendingQueries = new ArrayList<PendingQuery>();
+
+    /**
+     * Indicates that a task serving the pending lookups was already submitted.
+     */
+    private boolean drainScheduled;
+
+    /**
+     * Serves the pending asynchronous lookups.
+     */
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainPendingQueries();
+        }
+    };
+
+    /**
+     * Creates an in-memory node store.
+     * <p>
+     * Asynchronous lookups are served by the calling threads.
+     */
+    public NodeStore() {
+        this(null, CALLER_EXECUTOR);
+    }
+
+    /**
+     * Creates a node store backed by a loader.
+     *
+     * @param loader the loader used to fetch the nodes that are not in memory, can be
+     *            <code>null</code>
+     * @param executor the executor that serves the asynchronous lookups, cannot be
+     *            <code>null</code>
+     */
+    public NodeStore(final NodeLoader loader, final Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("The executor must be assigned");
+        }
+        this.nodeLoader = loader;
+        this.queryExecutor = executor;
+    }
+
+    /**
+     * Reads nodes from an input and inserts them in the store.
+     * <p>
+     * Reading stops after <code>numObjects</code> nodes or at the end of the input. An
+     * {@link ObjectConverterInput} is read in batches, and other inputs until
+     * {@link ObjectInput#readObject()} throws an {@link EOFException}.
+     *
+     * @param input the input to read the nodes from
+     * @param numObjects the maximum number of nodes to read
+     * @return the number of nodes read
+     * @throws IOException if the input cannot be read
+     * @throws InvalidObjectException if an object read is not a node
+     */
     public int read(final ObjectInput input, final int numObjects)
             throws IOException, InvalidObjectException {
+        if (input instanceof ObjectConverterInput) {
+            return readBatches((ObjectConverterInput) input, numObjects);
+        }
+
         int i = 0;
-        while (i < numObjects && input.available() > 0) {
+        while (i < numObjects) {
             final Object o;
             try {
                 o = input.readObject();
-                if (!(o instanceof Node)) {
-                    throw new InvalidObjectException(
-                            "Object " + o.getClass().getCanonicalName() + " is not a node.");
-                }
-                insert((Node) o);
+            } catch (EOFException e) {
+                break;
             } catch (ClassNotFoundException e) {
                 throw new InvalidObjectException(e.getMessage());
             }
+            insert(toNode(o));
             i++;
         }
         return i;
     }
 
+    /**
+     * Reads nodes from an object converter input in batches.
+     *
+     * @param input the input to read the nodes from
+     * @param numObjects the maximum number of nodes to read
+     * @return the number of nodes read
+     * @throws IOException if the input cannot be read
+     * @throws InvalidObjectException if an object read is not a node
+     */
+    private int readBatches(final ObjectConverterInput input, final int numObjects)
+            throws IOException, InvalidObjectException {
+        final Object[] batch = new Object[Math.max(0,
+                Math.min(numObjects, READ_BATCH_SIZE))];
+        int total = 0;
+        while (total < numObjects) {
+            final int count = input.readObjects(batch, numObjects - total);
+            if (count == 0) {
+                break;
+            }
+            storeLock.lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    final Node node = toNode(batch[i]);
+                    nodesByNumber.put(node.getNumber(), node);
+                    batch[i] = null;
+                }
+            } finally {
+                storeLock.unlock();
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Casts an object read from an input to a node.
+     *
+     * @param o the object read
+     * @return the node
+     * @throws InvalidObjectException if the object is not a node
+     */
+    private static Node toNode(final Object o) throws InvalidObjectException {
+        if (!(o instanceof Node)) {
+            throw new InvalidObjectException("Object "
+                    + (o == null ? "null" : o.getClass().getCanonicalName())
+                    + " is not a node.");
+        }
+        return (Node) o;
+    }
+
     public void insert(final Node node) {
-        nodesByNumber.put(node.getNumber(), node);
+        storeLock.lock();
+        try {
+            nodesByNumber.put(node.getNumber(), node);
+        } finally {
+            storeLock.unlock();
+        }
     }
 
     public void delete(final Node node) {
-        nodesByNumber.remove(node.getNumber());
+        storeLock.lock();
+        try {
+            nodesByNumber.remove(node.getNumber());
+        } finally {
+            storeLock.unlock();
+        }
     }
 
     public void update(final Node node) {
-        nodesByNumber.put(node.getNumber(), node);
+        insert(node);
     }
 
+    /**
+     * Looks up a node in memory.
+     * <p>
+     * The loader is not consulted.
+     *
+     * @param nodeNumber the number of the node
+     * @return the node or <code>null</code> if the node is not in memory
+     */
     public Node query(final int nodeNumber) {
-        return nodesByNumber.get(nodeNumber);
+        storeLock.lock();
+        try {
+            return nodesByNumber.get(nodeNumber);
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    /**
+     * Looks up a batch of nodes.
+     * <p>
+     * The nodes held in memory are looked up under a single lock acquisition. The
+     * remaining nodes are fetched from the loader in a single call and kept in memory.
+     *
+     * @param nodeNumbers the numbers of the nodes to look up
+     * @return an array with the node for each number, or <code>null</code> in the
+     *         positions of the nodes that were not found
+     * @throws IOException if the loader fails
+     */
+    public Node[] queryAll(final int[] nodeNumbers) throws IOException {
+        final Node[] nodes = new Node[nodeNumbers.length];
+        int misses = 0;
+
+        storeLock.lock();
+        try {
+            for (int i = 0; i < nodeNumbers.length; i++) {
+                nodes[i] = nodesByNumber.get(nodeNumbers[i]);
+                if (nodes[i] == null) {
+                    misses++;
+                }
+            }
+        } finally {
+            storeLock.unlock();
+        }
+
+        if (misses > 0 && nodeLoader != null) {
+            loadMissing(nodeNumbers, nodes, misses);
+        }
+        return nodes;
+    }
+
+    /**
+     * Looks up a node asynchronously.
+     * <p>
+     * The lookup is queued and served together with the other lookups that are pending
+     * at the time by a single call to {@link #queryAll(int[])}. Loader errors are
+     * reported through the {@link ExecutionException} thrown by the future.
+     *
+     * @param nodeNumber the number of the node
+     * @return a future with the node or <code>null</code> if the node does not exist
+     */
+    public Future<Node> queryAsync(final int nodeNumber) {
+        final PendingQuery query = new PendingQuery(nodeNumber);
+        final boolean schedule;
+
+        pendingLock.lock();
+        try {
+            pendingQueries.add(query);
+            schedule = !drainScheduled;
+            drainScheduled = true;
+        } finally {
+            pendingLock.unlock();
+        }
+
+        if (schedule) {
+            try {
+                queryExecutor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                /*
+                 * Do not leave the lookups behind: serve them in the calling thread.
+                 */
+                drainPendingQueries();
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Fetches the nodes missing in a lookup from the loader.
+     * <p>
+     * Each missing number is requested only once, even if it was looked up more than
+     * once.
+     *
+     * @param nodeNumbers the node numbers looked up
+     * @param nodes the nodes found, with <code>null</code> in the missing positions
+     * @param misses the number of missing positions
+     * @throws IOException if the loader fails
+     */
+    private void loadMissing(final int[] nodeNumbers, final Node[] nodes, final int misses)
+            throws IOException {
+        final HashMap<Integer, Integer> missingIndexes = new HashMap<Integer, Integer>(misses);
+        final int[] missingNumbers = new int[misses];
+        int m = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null && !missingIndexes.containsKey(nodeNumbers[i])) {
+                missingIndexes.put(nodeNumbers[i], m);
+                missingNumbers[m] = nodeNumbers[i];
+                m++;
+            }
+        }
+
+        final int[] requested = m == misses ? missingNumbers : Arrays.copyOf(missingNumbers, m);
+        final Node[] loaded = new Node[m];
+        nodeLoader.load(requested, loaded);
+
+        storeLock.lock();
+        try {
+            for (int j = 0; j < m; j++) {
+                if (loaded[j] == null) {
+                    continue;
+                }
+                /*
+                 * Nodes inserted while we were loading take precedence.
+                 */
+                final Node current = nodesByNumber.get(requested[j]);
+                if (current == null) {
+                    nodesByNumber.put(requested[j], loaded[j]);
+                } else {
+                    loaded[j] = current;
+                }
+            }
+        } finally {
+            storeLock.unlock();
+        }
+
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null) {
+                nodes[i] = loaded[missingIndexes.get(nodeNumbers[i])];
+            }
+        }
+    }
+
+    /**
+     * Serves the pending asynchronous lookups in batches until none is left.
+     * <p>
+     * If an {@link Error} stops the loop, the lookups queued meanwhile are served by a new
+     * task, or fail with the error if the executor rejects it.
+     */
+    private void drainPendingQueries() {
+        Error stopped = null;
+        try {
+            while (true) {
+                final ArrayList<PendingQuery> batch;
+
+                pendingLock.lock();
+                try {
+                    if (pendingQueries.isEmpty()) {
+                        drainScheduled = false;
+                        return;
+                    }
+                    batch = pendingQueries;
+                    pendingQueries = new ArrayList<PendingQuery>();
+                } finally {
+                    pendingLock.unlock();
+                }
+
+                final int[] numbers = new int[batch.size()];
+                for (int i = 0; i < numbers.length; i++) {
+                    numbers[i] = batch.get(i).nodeNumber;
+                }
+
+                try {
+                    final Node[] nodes = queryAll(numbers);
+                    for (int i = 0; i < nodes.length; i++) {
+                        batch.get(i).complete(nodes[i]);
+                    }
+                } catch (IOException e) {
+                    failAll(batch, e);
+                } catch (RuntimeException e) {
+                    failAll(batch, e);
+                } catch (Error e) {
+                    failAll(batch, e);
+                    stopped = e;
+                    throw e;
+                }
+            }
+        } finally {
+            if (stopped != null) {
+                rescheduleAfter(stopped);
+            }
+        }
+    }
+
+    /**
+     * Schedules a new task for the lookups left pending by a task stopped by an error.
+     *
+     * @param stopped the error that stopped the task
+     */
+    private void rescheduleAfter(final Error stopped) {
+        pendingLock.lock();
+        try {
+            if (pendingQueries.isEmpty()) {
+                drainScheduled = false;
+                return;
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+
+        try {
+            queryExecutor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            final ArrayList<PendingQuery> remaining;
+            pendingLock.lock();
+            try {
+                remaining = pendingQueries;
+                pendingQueries = new ArrayList<PendingQuery>();
+                drainScheduled = false;
+            } finally {
+                pendingLock.unlock();
+            }
+            failAll(remaining, stopped);
+        }
+    }
+
+    /**
+     * Reports an error to a batch of lookups.
+     *
+     * @param batch the lookups
+     * @param cause the error
+     */
+    private static void failAll(final ArrayList<PendingQuery> batch, final Throwable cause) {
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).fail(cause);
+        }
     }
 }
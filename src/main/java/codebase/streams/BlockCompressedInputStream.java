@@ -0,0 +1,500 @@
+package codebase.streams;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An input stream that reads the blocks written by a {@link BlockCompressedOutputStream}.
+ * <p>
+ * The checksum of every block is verified, and an <code>IOException</code> reports a
+ * corrupted block. Whole blocks can be skipped without being decompressed, either with
+ * {@link #skipBlocks(int)} or when {@link #skip(long)} goes past them; the payload of a
+ * block that was not read ahead is skipped in the underlying stream, without being read.
+ * When an executor is given, the following blocks are read ahead and decompressed in
+ * parallel on its threads.
+ * <p>
+ * The stream ends at the index of the blocks. It can start at any block, for example at
+ * an offset given by a {@link BlockIndex}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BlockCompressedInputStream extends
+        InputStream {
+
+    /**
+     * A block read from the underlying stream but not consumed yet.
+     */
+    private static final class PendingBlock {
+
+        /**
+         * The compression method.
+         */
+        private byte method;
+
+        /**
+         * The number of uncompressed bytes.
+         */
+        private int length;
+
+        /**
+         * The expected checksum of the uncompressed bytes.
+         */
+        private int checksum;
+
+        /**
+         * The number of bytes of the payload.
+         */
+        private int payloadLength;
+
+        /**
+         * The payload of the block, or <code>null</code> if it was not read yet.
+         */
+        private byte[] payload;
+
+        /**
+         * The number of the block in the stream.
+         */
+        private long number;
+
+        /**
+         * The decompression running on the executor, or <code>null</code>.
+         */
+        private Future<byte[]> future;
+    }
+
+    /**
+     * The stream where the blocks are read.
+     */
+    private final DataInputStream in;
+
+    /**
+     * The executor decompressing the blocks, or <code>null</code>.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of blocks read ahead.
+     */
+    private final int readAhead;
+
+    /**
+     * The blocks read ahead.
+     */
+    private final LinkedList<PendingBlock> pending;
+
+    /**
+     * The uncompressed bytes of the current block.
+     */
+    private byte[] current;
+
+    /**
+     * The index of the next byte of the current block.
+     */
+    private int currentPosition;
+
+    /**
+     * The number of bytes of the current block.
+     */
+    private int currentLength;
+
+    /**
+     * The number of blocks read from the underlying stream.
+     */
+    private long blocksRead;
+
+    /**
+     * Indicates if the end of the blocks was reached in the underlying stream.
+     */
+    private boolean ended;
+
+    /**
+     * Creates a stream that decompresses the blocks in the reading thread.
+     *
+     * @param input the stream where the blocks are read
+     */
+    public BlockCompressedInputStream(final InputStream input) {
+        this(input, null, 0);
+    }
+
+    /**
+     * Creates a stream that decompresses blocks ahead on an executor.
+     * <p>
+     * The executor is not shut down by the stream.
+     *
+     * @param input the stream where the blocks are read
+     * @param decompressor the executor decompressing the blocks, or <code>null</code> to
+     *            decompress them in the reading thread
+     * @param blocksAhead the number of blocks decompressed ahead, ignored without an
+     *            executor
+     * @throws IllegalArgumentException if the number of blocks is negative
+     */
+    public BlockCompressedInputStream(final InputStream input,
+                                      final ExecutorService decompressor,
+                                      final int blocksAhead) {
+        if (input == null) {
+            throw new IllegalArgumentException("The input stream must be assigned");
+        }
+        if (blocksAhead < 0) {
+            throw new IllegalArgumentException("The number of blocks read ahead cannot be"
+                    + " negative");
+        }
+        in = new DataInputStream(input);
+        executor = decompressor;
+        readAhead = decompressor == null ? 1 : Math.max(1, blocksAhead);
+        pending = new LinkedList<PendingBlock>();
+    }
+
+    /**
+     * Reads a byte.
+     *
+     * @return the byte read, or <code>-1</code> at the end of the stream
+     * @throws IOException if a block cannot be read or is corrupted
+     */
+    @Override
+    public int read() throws IOException {
+        if (currentPosition == currentLength && !nextBlock()) {
+            return -1;
+        }
+        return current[currentPosition++] & 0xFF;
+    }
+
+    /**
+     * Reads a sequence of bytes.
+     *
+     * @param bytes the array where the bytes are stored
+     * @param offset the index of the first byte to store
+     * @param length the maximum number of bytes to read
+     * @return the number of bytes read, or <code>-1</code> at the end of the stream
+     * @throws IOException if a block cannot be read or is corrupted
+     */
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length)
+            throws IOException {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length) {
+            if (currentPosition == currentLength && !nextBlock()) {
+                break;
+            }
+            final int chunk = Math.min(length - count, currentLength - currentPosition);
+            System.arraycopy(current, currentPosition, bytes, offset + count, chunk);
+            currentPosition += chunk;
+            count += chunk;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Skips bytes, without decompressing the blocks that are skipped as a whole.
+     *
+     * @param count the number of bytes to skip
+     * @return the number of bytes skipped
+     * @throws IOException if a block cannot be read or is corrupted
+     */
+    @Override
+    public long skip(final long count) throws IOException {
+        long skipped = Math.min(Math.max(count, 0), currentLength - currentPosition);
+        currentPosition += (int) skipped;
+        while (skipped < count) {
+            final PendingBlock next = peekBlock();
+            if (next == null) {
+                break;
+            }
+            if (skipped + next.length > count) {
+                if (next.payload == null) {
+                    readPayload(next);
+                }
+                nextBlock();
+                final int rest = (int) (count - skipped);
+                currentPosition = rest;
+                skipped += rest;
+            } else {
+                skipBlock();
+                skipped += next.length;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Discards the rest of the current block and skips the following blocks without
+     * decompressing them.
+     *
+     * @param count the number of blocks to skip after the current one
+     * @return the number of blocks skipped
+     * @throws IOException if a block cannot be read
+     */
+    public int skipBlocks(final int count) throws IOException {
+        currentPosition = currentLength;
+        int skipped = 0;
+        while (skipped < count && peekBlock() != null) {
+            skipBlock();
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /**
+     * Gets the next block, reading only its header if it was not read ahead.
+     * <p>
+     * A block whose payload was not read must be skipped or have its payload read before
+     * any other block is read.
+     *
+     * @return the next block, or <code>null</code> if there are no more blocks
+     * @throws IOException if the header cannot be read
+     */
+    private PendingBlock peekBlock() throws IOException {
+        if (pending.isEmpty() && !ended) {
+            final PendingBlock block = readHeader();
+            if (block == null) {
+                ended = true;
+            } else {
+                pending.add(block);
+            }
+        }
+        return pending.isEmpty() ? null : pending.getFirst();
+    }
+
+    /**
+     * Skips the next block, skipping its payload in the underlying stream if it was not
+     * read ahead.
+     *
+     * @throws IOException if the payload cannot be skipped
+     */
+    private void skipBlock() throws IOException {
+        final PendingBlock block = pending.removeFirst();
+        if (block.payload != null) {
+            discard(block);
+            return;
+        }
+        long left = block.payloadLength;
+        while (left > 0) {
+            long n = in.skip(left);
+            if (n <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Block #" + block.number + " is truncated");
+                }
+                n = 1;
+            }
+            left -= n;
+        }
+    }
+
+    /**
+     * Gets the number of bytes that can be read without reading a block.
+     *
+     * @return the number of bytes left in the current block.
+     */
+    @Override
+    public int available() {
+        return currentLength - currentPosition;
+    }
+
+    /**
+     * Closes the stream and the underlying stream.
+     *
+     * @throws IOException if the underlying stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (PendingBlock block : pending) {
+            discard(block);
+        }
+        pending.clear();
+        current = null;
+        currentPosition = 0;
+        currentLength = 0;
+        ended = true;
+        in.close();
+    }
+
+    /**
+     * Makes the next block the current block.
+     *
+     * @return <code>false</code> if there are no more blocks
+     * @throws IOException if a block cannot be read or is corrupted
+     */
+    private boolean nextBlock() throws IOException {
+        if (!fill()) {
+            return false;
+        }
+        final PendingBlock block = pending.removeFirst();
+        if (block.future == null) {
+            current = decompress(block);
+        } else {
+            current = await(block.future);
+        }
+        currentPosition = 0;
+        currentLength = block.length;
+        if (executor != null) {
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Reads blocks ahead, submitting their decompression to the executor if any.
+     *
+     * @return <code>true</code> if there is at least one block read ahead
+     * @throws IOException if a block cannot be read
+     */
+    private boolean fill() throws IOException {
+        while (!ended && pending.size() < readAhead) {
+            final PendingBlock block = readHeader();
+            if (block == null) {
+                ended = true;
+            } else {
+                readPayload(block);
+                if (executor != null) {
+                    block.future = executor.submit(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws IOException {
+                            return decompress(block);
+                        }
+                    });
+                }
+                pending.add(block);
+            }
+        }
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Reads the header of the next block.
+     *
+     * @return the block read, without its payload, or <code>null</code> at the index or
+     *         at the end of the underlying stream
+     * @throws IOException if the header cannot be read or is not valid
+     */
+    private PendingBlock readHeader() throws IOException {
+        final int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (magic == BlockFormat.INDEX_MAGIC) {
+            return null;
+        }
+        if (magic != BlockFormat.BLOCK_MAGIC) {
+            throw new IOException("Invalid header of block #" + blocksRead);
+        }
+        final PendingBlock block = new PendingBlock();
+        block.number = blocksRead++;
+        block.method = in.readByte();
+        block.length = in.readInt();
+        block.payloadLength = in.readInt();
+        block.checksum = in.readInt();
+        // the records are only needed by the index
+        in.readInt();
+        in.readInt();
+        // payloads are never larger than the uncompressed bytes, which are stored instead
+        if (block.length < 0 || block.length > BlockFormat.MAX_BLOCK_SIZE
+                || block.payloadLength < 0 || block.payloadLength > block.length
+                || (block.method != BlockFormat.STORED
+                        && block.method != BlockFormat.DEFLATED)) {
+            throw new IOException("Invalid header of block #" + block.number);
+        }
+        return block;
+    }
+
+    /**
+     * Reads the payload of a block whose header was just read.
+     *
+     * @param block the block
+     * @throws IOException if the payload cannot be read
+     */
+    private void readPayload(final PendingBlock block) throws IOException {
+        block.payload = new byte[block.payloadLength];
+        in.readFully(block.payload);
+    }
+
+    /**
+     * Decompresses a block and verifies its checksum.
+     *
+     * @param block the block to decompress
+     * @return the uncompressed bytes
+     * @throws IOException if the block is corrupted
+     */
+    private static byte[] decompress(final PendingBlock block) throws IOException {
+        byte[] data = block.payload;
+        if (block.method == BlockFormat.DEFLATED) {
+            data = new byte[block.length];
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(block.payload);
+                int length = 0;
+                while (length < data.length && !inflater.finished()) {
+                    final int count = inflater.inflate(data, length, data.length - length);
+                    if (count == 0
+                            && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += count;
+                }
+                if (length != data.length || !inflater.finished()) {
+                    throw new IOException("Block #" + block.number
+                            + " does not have the expected length");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Block #" + block.number + " is corrupted", e);
+            } finally {
+                inflater.end();
+            }
+        } else if (data.length != block.length) {
+            throw new IOException("Block #" + block.number
+                    + " does not have the expected length");
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if ((int) crc.getValue() != block.checksum) {
+            throw new IOException("Checksum mismatch in block #" + block.number);
+        }
+        return data;
+    }
+
+    /**
+     * Waits for the decompression of a block.
+     *
+     * @param future the result of the decompression
+     * @return the uncompressed bytes
+     * @throws IOException if the block is corrupted or the thread was interrupted
+     */
+    private static byte[] await(final Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing a block");
+        } catch (ExecutionException e) {
+            throw Streams.unwrap(e, "Cannot decompress a block");
+        }
+    }
+
+    /**
+     * Discards a block read ahead.
+     *
+     * @param block the block to discard
+     */
+    private static void discard(final PendingBlock block) {
+        if (block.future != null) {
+            block.future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package codebase.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that compresses its bytes in independent, self-describing blocks.
+ * <p>
+ * The bytes are cut in blocks of a fixed number of uncompressed bytes. Each block is
+ * written with a header holding its lengths and the CRC-32 of its uncompressed bytes,
+ * thus it can be verified, decompressed or skipped on its own. When an executor is
+ * given, the blocks are compressed in parallel on its threads and written in order, so
+ * the throughput grows with the number of threads.
+ * <p>
+ * The stream may also record where records start, by calling {@link #markRecord()}
+ * before writing each of them. On {@link #close()} an index of the blocks is appended,
+ * which allows {@link BlockIndex} to locate the block holding the start of any record.
+ * The format is read by {@link BlockCompressedInputStream}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BlockCompressedOutputStream extends
+        OutputStream {
+
+    /**
+     * The default number of uncompressed bytes of a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * A compressed block waiting to be written.
+     */
+    private static final class CompressedBlock {
+
+        /**
+         * The uncompressed bytes.
+         */
+        private byte[] data;
+
+        /**
+         * The number of uncompressed bytes.
+         */
+        private int length;
+
+        /**
+         * The compression method.
+         */
+        private byte method;
+
+        /**
+         * The payload written after the header.
+         */
+        private byte[] payload;
+
+        /**
+         * The number of bytes of the payload.
+         */
+        private int payloadLength;
+
+        /**
+         * The checksum of the uncompressed bytes.
+         */
+        private int checksum;
+
+        /**
+         * The number of records started in previous blocks.
+         */
+        private long firstRecord;
+
+        /**
+         * The number of records starting in the block.
+         */
+        private int records;
+
+        /**
+         * The offset of the first record starting in the block, or <code>-1</code>.
+         */
+        private int firstRecordOffset;
+    }
+
+    /**
+     * The stream where the blocks are written.
+     */
+    private final OutputStream out;
+
+    /**
+     * The number of uncompressed bytes of a block.
+     */
+    private final int blockSize;
+
+    /**
+     * The compression level.
+     */
+    private final int level;
+
+    /**
+     * The executor compressing the blocks, or <code>null</code> to compress them in the
+     * writing thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The maximum number of blocks being compressed at the same time.
+     */
+    private final int maxPending;
+
+    /**
+     * The blocks being compressed, in the order they are to be written.
+     */
+    private final LinkedList<Future<CompressedBlock>> pending;
+
+    /**
+     * The arrays of blocks already written, to be reused.
+     */
+    private final LinkedList<byte[]> freeArrays;
+
+    /**
+     * The entries of the index, written as the blocks are written.
+     */
+    private final ByteArrayOutputStream indexBytes;
+
+    /**
+     * The stream writing the entries of the index.
+     */
+    private final DataOutputStream index;
+
+    /**
+     * The buffer of the header of a block.
+     */
+    private final ByteBuffer header;
+
+    /**
+     * The block being filled.
+     */
+    private byte[] block;
+
+    /**
+     * The number of bytes of the block being filled.
+     */
+    private int blockLength;
+
+    /**
+     * The number of records starting in the block being filled.
+     */
+    private int blockRecords;
+
+    /**
+     * The offset of the first record starting in the block being filled.
+     */
+    private int blockFirstRecordOffset;
+
+    /**
+     * The number of records started in previous blocks.
+     */
+    private long blockFirstRecord;
+
+    /**
+     * The number of records marked.
+     */
+    private long recordCount;
+
+    /**
+     * The number of blocks written.
+     */
+    private int blockCount;
+
+    /**
+     * The number of bytes written to the underlying stream.
+     */
+    private long position;
+
+    /**
+     * Indicates if the stream was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a stream that compresses blocks of {@link #DEFAULT_BLOCK_SIZE} bytes in the
+     * writing thread.
+     *
+     * @param output the stream where the blocks are written
+     */
+    public BlockCompressedOutputStream(final OutputStream output) {
+        this(output, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, null);
+    }
+
+    /**
+     * Creates a stream that compresses blocks on an executor.
+     * <p>
+     * The executor is not shut down by the stream.
+     *
+     * @param output the stream where the blocks are written
+     * @param size the number of uncompressed bytes of a block
+     * @param compressionLevel the compression level, from 0 to 9, or
+     *            {@link Deflater#DEFAULT_COMPRESSION}
+     * @param compressor the executor compressing the blocks, or <code>null</code> to
+     *            compress them in the writing thread
+     * @throws IllegalArgumentException if the size or the level are not valid
+     */
+    public BlockCompressedOutputStream(final OutputStream output, final int size,
+                                       final int compressionLevel,
+                                       final ExecutorService compressor) {
+        if (output == null) {
+            throw new IllegalArgumentException("The output stream must be assigned");
+        }
+        if (size < 1 || size > BlockFormat.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("The block size must be positive and at"
+                    + " most " + BlockFormat.MAX_BLOCK_SIZE + " bytes");
+        }
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION
+                        || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: "
+                    + compressionLevel);
+        }
+        out = output;
+        blockSize = size;
+        level = compressionLevel;
+        executor = compressor;
+        maxPending = 2 * Runtime.getRuntime().availableProcessors();
+        pending = new LinkedList<Future<CompressedBlock>>();
+        freeArrays = new LinkedList<byte[]>();
+        indexBytes = new ByteArrayOutputStream();
+        index = new DataOutputStream(indexBytes);
+        header = ByteBuffer.allocate(BlockFormat.HEADER_SIZE);
+        block = new byte[size];
+        blockFirstRecordOffset = -1;
+    }
+
+    /**
+     * Gets the number of uncompressed bytes of a block.
+     *
+     * @return the size of the blocks.
+     */
+    public final int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Gets the number of records marked so far.
+     *
+     * @return the number of calls to {@link #markRecord()}.
+     */
+    public final long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Marks the start of a record at the current position.
+     * <p>
+     * Records may span several blocks. The index stores, for each block, the offset of the
+     * first record starting in it.
+     *
+     * @return the number of the record, counting from zero
+     * @throws IOException if the stream is closed
+     */
+    public long markRecord() throws IOException {
+        checkOpen();
+        if (blockFirstRecordOffset < 0) {
+            blockFirstRecordOffset = blockLength;
+        }
+        blockRecords++;
+        return recordCount++;
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b the byte to write
+     * @throws IOException if the stream is closed or a block cannot be written
+     */
+    @Override
+    public void write(final int b) throws IOException {
+        checkOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    /**
+     * Writes a sequence of bytes.
+     *
+     * @param bytes the bytes to write
+     * @param offset the index of the first byte to write
+     * @param length the number of bytes to write
+     * @throws IOException if the stream is closed or a block cannot be written
+     */
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length)
+            throws IOException {
+        checkOpen();
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int from = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final int count = Math.min(remaining, blockSize - blockLength);
+            System.arraycopy(bytes, from, block, blockLength, count);
+            blockLength += count;
+            from += count;
+            remaining -= count;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Ends the current block and writes all the blocks to the underlying stream.
+     * <p>
+     * Since a partial block is ended, flushing often lowers the compression ratio.
+     *
+     * @throws IOException if the stream is closed or the blocks cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        submitBlock();
+        while (!pending.isEmpty()) {
+            writeBlock(await(pending.removeFirst()));
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining blocks and the index, and closes the underlying stream.
+     *
+     * @throws IOException if the blocks cannot be written or the stream closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            final DataOutputStream output = new DataOutputStream(out);
+            output.writeInt(BlockFormat.INDEX_MAGIC);
+            output.writeInt(blockCount);
+            indexBytes.writeTo(output);
+            output.writeLong(position);
+            output.writeInt(BlockFormat.END_MAGIC);
+            output.flush();
+        } finally {
+            closed = true;
+            for (Future<CompressedBlock> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+
+    /**
+     * Checks that the stream is open.
+     *
+     * @throws IOException if the stream was closed
+     */
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+    }
+
+    /**
+     * Ends the block being filled, compresses it and writes the blocks whose compression
+     * ended.
+     *
+     * @throws IOException if the blocks cannot be written
+     */
+    private void submitBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+        final CompressedBlock compressed = new CompressedBlock();
+        compressed.data = block;
+        compressed.length = blockLength;
+        compressed.firstRecord = blockFirstRecord;
+        compressed.records = blockRecords;
+        compressed.firstRecordOffset = blockFirstRecordOffset;
+
+        final byte[] free = freeArrays.poll();
+        block = free == null ? new byte[blockSize] : free;
+        blockLength = 0;
+        blockRecords = 0;
+        blockFirstRecordOffset = -1;
+        blockFirstRecord = recordCount;
+
+        if (executor == null) {
+            writeBlock(compress(compressed, level));
+            return;
+        }
+        pending.add(executor.submit(new Callable<CompressedBlock>() {
+            @Override
+            public CompressedBlock call() {
+                return compress(compressed, level);
+            }
+        }));
+        while (!pending.isEmpty()
+                && (pending.getFirst().isDone() || pending.size() > maxPending)) {
+            writeBlock(await(pending.removeFirst()));
+        }
+    }
+
+    /**
+     * Waits for the compression of a block.
+     *
+     * @param future the result of the compression
+     * @return the compressed block
+     * @throws IOException if the compression failed or the thread was interrupted
+     */
+    private static CompressedBlock await(final Future<CompressedBlock> future)
+            throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing a block");
+        } catch (ExecutionException e) {
+            throw Streams.unwrap(e, "Cannot compress a block");
+        }
+    }
+
+    /**
+     * Compresses a block, storing it as is when it does not shrink.
+     *
+     * @param compressed the block to compress
+     * @param level the compression level
+     * @return the given block
+     */
+    private static CompressedBlock compress(final CompressedBlock compressed,
+                                            final int level) {
+        final CRC32 crc = new CRC32();
+        crc.update(compressed.data, 0, compressed.length);
+        compressed.checksum = (int) crc.getValue();
+
+        final Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(compressed.data, 0, compressed.length);
+            deflater.finish();
+            final byte[] payload = new byte[compressed.length];
+            int length = 0;
+            while (!deflater.finished() && length < payload.length) {
+                length += deflater.deflate(payload, length, payload.length - length);
+            }
+            if (deflater.finished() && length < compressed.length) {
+                compressed.method = BlockFormat.DEFLATED;
+                compressed.payload = payload;
+                compressed.payloadLength = length;
+                return compressed;
+            }
+        } finally {
+            deflater.end();
+        }
+        compressed.method = BlockFormat.STORED;
+        compressed.payload = compressed.data;
+        compressed.payloadLength = compressed.length;
+        return compressed;
+    }
+
+    /**
+     * Writes a compressed block and its entry of the index.
+     *
+     * @param compressed the block to write
+     * @throws IOException if the block cannot be written
+     */
+    private void writeBlock(final CompressedBlock compressed) throws IOException {
+        index.writeLong(position);
+        index.writeLong(compressed.firstRecord);
+        index.writeInt(compressed.records);
+        index.writeInt(compressed.firstRecordOffset);
+
+        header.clear();
+        header.putInt(BlockFormat.BLOCK_MAGIC);
+        header.put(compressed.method);
+        header.putInt(compressed.length);
+        header.putInt(compressed.payloadLength);
+        header.putInt(compressed.checksum);
+        header.putInt(compressed.records);
+        header.putInt(compressed.firstRecordOffset);
+        out.write(header.array(), 0, BlockFormat.HEADER_SIZE);
+        out.write(compressed.payload, 0, compressed.payloadLength);
+
+        position += BlockFormat.HEADER_SIZE + compressed.payloadLength;
+        blockCount++;
+        freeArrays.add(compressed.data);
+    }
+}
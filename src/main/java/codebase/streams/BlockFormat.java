@@ -0,0 +1,77 @@
+package codebase.streams;
+
+/**
+ * Constants of the format written by {@link BlockCompressedOutputStream}.
+ * <p>
+ * A block compressed stream is a sequence of blocks followed by an index and a trailer.
+ * Every block starts with a header of {@link #HEADER_SIZE} bytes:
+ * <ol>
+ * <li>the magic number {@link #BLOCK_MAGIC} (int);
+ * <li>the compression method, {@link #STORED} or {@link #DEFLATED} (byte);
+ * <li>the number of uncompressed bytes (int);
+ * <li>the number of bytes of the payload following the header (int);
+ * <li>the CRC-32 of the uncompressed bytes (int);
+ * <li>the number of records starting in the block (int);
+ * <li>the offset of the first record starting in the block, or <code>-1</code> (int).
+ * </ol>
+ * The index starts with {@link #INDEX_MAGIC} (int) and the number of blocks (int),
+ * followed by an entry of {@link #INDEX_ENTRY_SIZE} bytes per block: its offset in the
+ * stream (long), the number of records started in previous blocks (long), the number of
+ * records starting in the block (int) and the offset of the first of them (int). The
+ * trailer holds the offset of the index (long) and {@link #END_MAGIC} (int).
+ */
+final class BlockFormat {
+
+    // CHECKSTYLE:OFF
+    /**
+     * The magic number of a block, <code>"CBLK"</code>.
+     */
+    static final int BLOCK_MAGIC = 0x43424C4B;
+
+    /**
+     * The magic number of the index, <code>"CBIX"</code>.
+     */
+    static final int INDEX_MAGIC = 0x43424958;
+
+    /**
+     * The magic number ending the stream, <code>"CBEN"</code>.
+     */
+    static final int END_MAGIC = 0x4342454E;
+
+    /**
+     * The method of blocks whose payload is not compressed.
+     */
+    static final byte STORED = 0;
+
+    /**
+     * The method of blocks whose payload is compressed in the zlib format.
+     */
+    static final byte DEFLATED = 1;
+
+    /**
+     * The maximum number of uncompressed bytes of a block.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 30;
+
+    /**
+     * The number of bytes of the header of a block.
+     */
+    static final int HEADER_SIZE = 25;
+
+    /**
+     * The number of bytes of an entry of the index.
+     */
+    static final int INDEX_ENTRY_SIZE = 24;
+
+    /**
+     * The number of bytes of the trailer.
+     */
+    static final int TRAILER_SIZE = 12;
+    // CHECKSTYLE:ON
+
+    /**
+     * Prevents the instantiation of the class.
+     */
+    private BlockFormat() {
+    }
+}
@@ -0,0 +1,198 @@
+package codebase.streams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The index of the blocks of a file written by a {@link BlockCompressedOutputStream}.
+ * <p>
+ * The index gives the offset of every block in the file and the records starting in it,
+ * thus a reader can start at the block holding record <i>n</i> instead of decompressing
+ * all the blocks before it:
+ *
+ * <pre>
+ * BlockIndex index = new BlockIndex(channel);
+ * int block = index.findBlock(n);
+ * channel.position(index.getBlockOffset(block));
+ * InputStream in = new BlockCompressedInputStream(Channels.newInputStream(channel));
+ * in.skip(index.getFirstRecordOffset(block));
+ * // skip n - index.getFirstRecord(block) records
+ * </pre>
+ *
+ * Instances are immutable.
+ */
+public class BlockIndex {
+
+    /**
+     * The offsets of the blocks in the file.
+     */
+    private final long[] blockOffsets;
+
+    /**
+     * The number of records started before each block.
+     */
+    private final long[] firstRecords;
+
+    /**
+     * The number of records starting in each block.
+     */
+    private final int[] recordCounts;
+
+    /**
+     * The offset of the first record starting in each block, or <code>-1</code>.
+     */
+    private final int[] firstRecordOffsets;
+
+    /**
+     * Reads the index at the end of a file.
+     * <p>
+     * The position of the channel is not changed.
+     *
+     * @param channel the channel of the file
+     * @throws IOException if the file cannot be read or does not end with an index
+     */
+    public BlockIndex(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size < BlockFormat.TRAILER_SIZE) {
+            throw new IOException("The file is too short to hold a block index");
+        }
+        final ByteBuffer trailer = read(channel, size - BlockFormat.TRAILER_SIZE,
+                BlockFormat.TRAILER_SIZE);
+        final long indexOffset = trailer.getLong();
+        if (trailer.getInt() != BlockFormat.END_MAGIC || indexOffset < 0
+                || indexOffset > size - BlockFormat.TRAILER_SIZE - 2 * 4) {
+            throw new IOException("The file does not end with a block index");
+        }
+
+        final ByteBuffer head = read(channel, indexOffset, 2 * 4);
+        final int count = head.getInt(4);
+        if (head.getInt(0) != BlockFormat.INDEX_MAGIC || count < 0
+                || (long) count * BlockFormat.INDEX_ENTRY_SIZE != size
+                        - BlockFormat.TRAILER_SIZE - indexOffset - 2 * 4) {
+            throw new IOException("Invalid block index");
+        }
+
+        final ByteBuffer entries = read(channel, indexOffset + 2 * 4, count
+                * BlockFormat.INDEX_ENTRY_SIZE);
+        blockOffsets = new long[count];
+        firstRecords = new long[count];
+        recordCounts = new int[count];
+        firstRecordOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            blockOffsets[i] = entries.getLong();
+            firstRecords[i] = entries.getLong();
+            recordCounts[i] = entries.getInt();
+            firstRecordOffsets[i] = entries.getInt();
+        }
+    }
+
+    /**
+     * Reads bytes of a file at a given offset.
+     *
+     * @param channel the channel of the file
+     * @param offset the offset of the first byte
+     * @param length the number of bytes to read
+     * @return a buffer with the bytes read, positioned at the first of them
+     * @throws IOException if the bytes cannot be read
+     */
+    private static ByteBuffer read(final FileChannel channel, final long offset,
+                                   final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Gets the number of blocks.
+     *
+     * @return the number of blocks in the file.
+     */
+    public final int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Gets the number of records of the file.
+     *
+     * @return the number of records marked when the file was written.
+     */
+    public final long getRecordCount() {
+        final int last = blockOffsets.length - 1;
+        return last < 0 ? 0 : firstRecords[last] + recordCounts[last];
+    }
+
+    /**
+     * Gets the offset of a block in the file.
+     *
+     * @param block the index of the block
+     * @return the offset of the header of the block.
+     */
+    public final long getBlockOffset(final int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * Gets the number of the first record starting in a block.
+     *
+     * @param block the index of the block
+     * @return the number of records started in the previous blocks.
+     */
+    public final long getFirstRecord(final int block) {
+        return firstRecords[block];
+    }
+
+    /**
+     * Gets the number of records starting in a block.
+     *
+     * @param block the index of the block
+     * @return the number of records starting in the block.
+     */
+    public final int getBlockRecordCount(final int block) {
+        return recordCounts[block];
+    }
+
+    /**
+     * Gets the offset in the uncompressed bytes of a block of the first record starting
+     * in it.
+     *
+     * @param block the index of the block
+     * @return the offset of the record, or <code>-1</code> if no record starts in the
+     *         block.
+     */
+    public final int getFirstRecordOffset(final int block) {
+        return firstRecordOffsets[block];
+    }
+
+    /**
+     * Finds the block where a record starts.
+     *
+     * @param record the number of the record
+     * @return the index of the block.
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public int findBlock(final long record) {
+        if (record < 0 || record >= getRecordCount()) {
+            throw new IndexOutOfBoundsException("Record #" + record + " does not exist, "
+                    + getRecordCount() + " records are held");
+        }
+        // the last block whose first record is not after the record
+        int low = 0;
+        int high = firstRecords.length - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (firstRecords[middle] <= record) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
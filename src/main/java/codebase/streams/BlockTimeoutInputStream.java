@@ -0,0 +1,370 @@
+package codebase.streams;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import codebase.BinaryUtil;
+
+/**
+ * An input stream decorator that times out (instead of blocking) on read operations,
+ * transferring the bytes in blocks.
+ * <p>
+ * Unlike {@link TimeoutInputStream}, which hands each byte over from its reader thread,
+ * the reader thread of this stream reads the decorated stream in chunks as large as the
+ * free space of a ring buffer. A read takes every byte available in the buffer, up to the
+ * length asked, and waits for bytes at most the timeout, which covers the whole call.
+ * <p>
+ * An exception thrown by the decorated stream is rethrown to the reader once the bytes
+ * read before it are consumed, wrapped in an {@link IOException} if it is unchecked.
+ */
+public class BlockTimeoutInputStream extends FilterInputStream {
+
+    /**
+     * Port default timeout in milliseconds for read operations.
+     */
+    private static final int DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * The default size of the ring buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Reads chunks of the decorated stream into the free space of the ring buffer.
+     */
+    private final class ChunkReader extends Thread {
+
+        /**
+         * Creates the thread, as a daemon.
+         */
+        private ChunkReader() {
+            super("BlockTimeoutInputStream reader");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final int tail;
+                    final int free;
+                    lock.lock();
+                    try {
+                        while (count == ring.length && !closed) {
+                            notFull.await();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        tail = (head + count) % ring.length;
+                        free = Math.min(ring.length - count, ring.length - tail);
+                    } finally {
+                        lock.unlock();
+                    }
+
+                    // the reader never touches the free space, so no lock is needed here
+                    int n;
+                    IOException error = null;
+                    try {
+                        n = in.read(ring, tail, free);
+                    } catch (IOException e) {
+                        n = -1;
+                        error = e;
+                    } catch (RuntimeException e) {
+                        // would otherwise end the thread and leave the reader timing out
+                        n = -1;
+                        error = new IOException("The decorated stream failed", e);
+                    }
+
+                    lock.lock();
+                    try {
+                        if (n < 0) {
+                            ended = true;
+                            failure = error;
+                        } else {
+                            count += n;
+                        }
+                        notEmpty.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (n < 0) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // the stream was closed
+                return;
+            }
+        }
+    }
+
+    /**
+     * The timeout of the read operations, in nanoseconds.
+     */
+    private final long timeoutNanos;
+
+    /**
+     * The ring buffer holding the bytes read and not yet consumed.
+     */
+    private final byte[] ring;
+
+    /**
+     * The index of the next byte to consume.
+     */
+    private int head = 0;
+
+    /**
+     * The number of bytes read and not yet consumed.
+     */
+    private int count = 0;
+
+    /**
+     * Indicates if the decorated stream ended, normally or not.
+     */
+    private boolean ended = false;
+
+    /**
+     * The exception that ended the decorated stream, or <code>null</code> if none.
+     */
+    private IOException failure;
+
+    /**
+     * Indicates if the stream was closed.
+     */
+    private boolean closed = false;
+
+    /**
+     * Guards the state of the ring buffer.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when bytes are added to the ring buffer or the decorated stream ends.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Signalled when bytes are consumed from the ring buffer or the stream is closed.
+     */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * The thread reading the decorated stream.
+     */
+    private final ChunkReader reader;
+
+    /**
+     * Instantiates a new timeout stream decorator with default timeout and buffer size.
+     *
+     * @param in the input stream to be decorated from where the reading will take place.
+     */
+    public BlockTimeoutInputStream(final InputStream in) {
+        this(in, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new timeout stream decorator with the given timeout.
+     *
+     * @param in the input stream to be decorated from where the reading will take place.
+     * @param timeout the timeout of read operations. Must be positive.
+     * @param timeoutUnit the units of the timeout parameter
+     */
+    public BlockTimeoutInputStream(final InputStream in, final int timeout,
+                                   final TimeUnit timeoutUnit) {
+        this(in, timeout, timeoutUnit, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Instantiates a new timeout stream decorator with the given timeout and buffer size.
+     *
+     * @param in the input stream to be decorated from where the reading will take place.
+     * @param timeout the timeout of read operations. Must be positive.
+     * @param timeoutUnit the units of the timeout parameter
+     * @param bufferSize the size of the ring buffer, in bytes. Must be positive.
+     */
+    public BlockTimeoutInputStream(final InputStream in, final int timeout,
+                                   final TimeUnit timeoutUnit, final int bufferSize) {
+        super(in);
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive.");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        timeoutNanos = timeoutUnit.toNanos(timeout);
+        ring = new byte[bufferSize];
+
+        reader = new ChunkReader();
+        reader.start();
+    }
+
+    /**
+     * Waits until bytes are available or the decorated stream ended, at most until a
+     * deadline. Must be called holding the lock.
+     *
+     * @param deadline the value of {@link System#nanoTime()} when waiting stops
+     * @return <code>true</code> if bytes are available, <code>false</code> at the end of
+     *         the decorated stream
+     * @throws TimeoutException if no bytes arrived before the deadline
+     * @throws IOException if the stream is closed, the decorated stream failed, or the
+     *             wait was interrupted
+     */
+    private boolean awaitBytes(final long deadline) throws IOException {
+        try {
+            while (count == 0 && !ended && !closed) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Could not read from decorated input stream"
+                            + " after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                            + " " + TimeUnit.MILLISECONDS.toString());
+                }
+                notEmpty.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (count == 0 && failure != null) {
+            throw failure;
+        }
+        return count > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        lock.lock();
+        try {
+            if (!awaitBytes(deadline)) {
+                return -1;
+            }
+            final int b = ring[head] & BinaryUtil.INT_LOW_BYTE_MASK;
+            consumed(1);
+            return b;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    /**
+     * Reads the bytes available, up to a given length, waiting at most the timeout for
+     * the first one.
+     *
+     * @param b the array to store the bytes in
+     * @param off the index of the first byte stored
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, or <code>-1</code> at the end of the stream
+     * @throws TimeoutException if no bytes were read in time
+     * @throws IOException if the decorated stream failed
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        lock.lock();
+        try {
+            if (!awaitBytes(deadline)) {
+                return -1;
+            }
+            final int n = Math.min(len, count);
+            final int first = Math.min(n, ring.length - head);
+            System.arraycopy(ring, head, b, off, first);
+            System.arraycopy(ring, 0, b, off + first, n - first);
+            consumed(n);
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        lock.lock();
+        try {
+            if (!awaitBytes(deadline)) {
+                return 0;
+            }
+            final int skipped = (int) Math.min(n, count);
+            consumed(skipped);
+            return skipped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases consumed bytes of the ring buffer. Must be called holding the lock.
+     *
+     * @param n the number of bytes consumed
+     */
+    private void consumed(final int n) {
+        head = (head + n) % ring.length;
+        count -= n;
+        notFull.signal();
+    }
+
+    /**
+     * Gets the number of bytes already read from the decorated stream.
+     *
+     * @return the number of bytes that can be read without waiting.
+     */
+    @Override
+    public int available() throws IOException {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the reader thread and closes the decorated stream.
+     *
+     * @throws IOException if the decorated stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        reader.interrupt();
+        in.close();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -4,17 +4,22 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 import codebase.BinaryUtil;
 
 /**
  * A {@link DataInput} that reads data from a byte[].
  * <p>
- * Calls to <tt>read</tt> methods will be translated to array byte[] accesses.
+ * Calls to <tt>read</tt> methods will be translated to array byte[] accesses. Multi-byte
+ * values are assembled directly from the array.
  * <p>
- * For performance (yes!) this class assumes that the caller will not go past EOF (or end
- * of bytes)
- * 
+ * An input created with {@link #ByteArrayDataInput(byte[], int, int)} reads a slice of an
+ * array in place, without copying it, and {@link #setInput(byte[], int, int)} points the
+ * same input to another slice, so that a single input can read any number of messages.
+ * <p>
+ * Reading past the end of the bytes throws an {@link EOFException}.
+ *
  * @see ByteArrayDataOutput
  */
 public class ByteArrayDataInput implements DataInput {
@@ -25,90 +30,153 @@ public class ByteArrayDataInput implements DataInput {
      */
     private byte[] inputBuffer;
 
+    /**
+     * The index of the first byte of the input.
+     */
+    private int start = 0;
+
     /**
      * The next byte to return.
      */
     private int pos = 0;
 
+    /**
+     * The index following the last byte of the input.
+     */
+    private int limit = 0;
+
     /**
      * Buffer used to hold the bytes read for a line in subsequent calls to
      * {@link #readLine()}.
      */
     private char[] lineBuffer;
 
+    /**
+     * Buffer used to hold the characters decoded by {@link #readUTF()}.
+     */
+    private char[] charBuffer;
+
+    /**
+     * Creates a data input with no bytes, to be pointed to an array with
+     * {@link #setInput(byte[], int, int)}.
+     */
     public ByteArrayDataInput() {
+        this.inputBuffer = new byte[0];
     }
 
     /**
-     * Creates a data input based on a byte array.
-     * 
+     * Creates a data input based on a copy of a byte array.
+     *
      * @param data the byte array to be used as input, cannot be <code>null</code>
      */
     public ByteArrayDataInput(byte[] data) {
         this.inputBuffer = data.clone();
+        this.limit = data.length;
     }
 
-    private int read() {
-        assert 0 <= pos && pos < inputBuffer.length : "Position is valid";
+    /**
+     * Creates a data input that reads a slice of a byte array in place.
+     * <p>
+     * The array is not copied, thus changes to the array are seen by the input.
+     *
+     * @param data the array holding the input, cannot be <code>null</code>
+     * @param offset the index of the first byte of the input
+     * @param length the number of bytes of the input
+     * @throws IndexOutOfBoundsException if the slice is not inside the array
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP2")
+    public ByteArrayDataInput(final byte[] data, final int offset, final int length) {
+        setInput(data, offset, length);
+    }
+
+    /**
+     * Points this input to a slice of a byte array, which is read in place.
+     *
+     * @param data the array holding the input, cannot be <code>null</code>
+     * @param offset the index of the first byte of the input
+     * @param length the number of bytes of the input
+     * @throws IndexOutOfBoundsException if the slice is not inside the array
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP2")
+    public final void setInput(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("Invalid slice: offset " + offset
+                    + ", length " + length + ", array of " + data.length + " bytes");
+        }
+        this.inputBuffer = data;
+        this.start = offset;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Gets the number of bytes left to read.
+     *
+     * @return the number of bytes between the next byte and the end of the input.
+     */
+    public final int remaining() {
+        return limit - pos;
+    }
 
+    /**
+     * Reads the next byte, if any.
+     *
+     * @return the byte, as an unsigned value, or <code>-1</code> if there are no bytes
+     *         left
+     */
+    private int read() {
+        if (pos >= limit) {
+            return -1;
+        }
         return ((int) inputBuffer[pos++]) & BinaryUtil.INT_LOW_BYTE_MASK;
     }
 
     /**
-     * Gets a copy of the internal input buffer.
-     * 
-     * @return the internal input buffer
+     * Checks that enough bytes remain to be read.
+     *
+     * @param count the number of bytes needed
+     * @param what the name of the value being read
+     * @throws EOFException if fewer bytes remain
+     */
+    private void require(final int count, final String what) throws EOFException {
+        if (limit - pos < count) {
+            throw new EOFException("Not enough bytes left to read " + what);
+        }
+    }
+
+    /**
+     * Gets a copy of the input bytes.
+     *
+     * @return the bytes of the input, from its first to its last byte
      */
     public byte[] getBytes() {
-        return inputBuffer.clone();
+        return Arrays.copyOfRange(inputBuffer, start, limit);
     }
 
     @Override
     public final boolean readBoolean() throws IOException {
-        if (pos >= inputBuffer.length - 1) {
-            throw new EOFException("Not enough bytes left to read a boolean");
-        }
-
-        final int b = read();
-        return (b != 0);
+        require(1, "a boolean");
+        return inputBuffer[pos++] != 0;
     }
 
     @Override
     public final byte readByte() throws IOException {
-        if (pos > inputBuffer.length - 1) {
-            throw new EOFException("Not enough bytes left to read a byte");
-        }
-
-        final int b = read();
-        return (byte) (b);
+        require(1, "a byte");
+        return inputBuffer[pos++];
     }
 
     @Override
     public final char readChar() throws IOException {
-        if (pos > inputBuffer.length - BinaryUtil.SIZE_OF_CHAR) {
-            throw new EOFException("Not enough bytes left to read a byte");
-        }
-
-        final int b1 = read();
-        final int b2 = read();
-        return (char) ((b1 << BinaryUtil.BIT_SIZE_OF_BYTE) + (b2 << 0));
+        return (char) readUnsignedShort();
     }
 
     @Override
     public final double readDouble() throws IOException {
-        if (pos > inputBuffer.length - BinaryUtil.SIZE_OF_DOUBLE) {
-            throw new EOFException("Not enough bytes left to read a double");
-        }
-
         return Double.longBitsToDouble(readLong());
     }
 
     @Override
     public final float readFloat() throws IOException {
-        if (pos > inputBuffer.length - BinaryUtil.SIZE_OF_FLOAT) {
-            throw new EOFException("Not enough bytes left to read a float");
-        }
-
         return Float.intBitsToFloat(readInt());
     }
 
@@ -119,23 +187,22 @@ public class ByteArrayDataInput implements DataInput {
 
     @Override
     public void readFully(byte[] b, int off, int len) throws IOException {
+        require(len, len + " bytes");
         System.arraycopy(inputBuffer, pos, b, off, len);
         pos += len;
     }
 
     @Override
     public final int readInt() throws IOException {
-        if (pos > inputBuffer.length - BinaryUtil.SIZE_OF_INT) {
-            throw new EOFException("Not enough bytes left to read a float");
-        }
-
-        final int b1 = read();
-        final int b2 = read();
-        final int b3 = read();
-        final int b4 = read();
-        return ((b1 << BinaryUtil.BIT_SIZE_OF_THREE_BYTES)
-                + (b2 << BinaryUtil.BIT_SIZE_OF_TWO_BYTES) + (b3 << BinaryUtil.BIT_SIZE_OF_BYTE)
-                + (b4 << 0));
+        require(BinaryUtil.SIZE_OF_INT, "an int");
+        final byte[] b = inputBuffer;
+        final int p = pos;
+        pos = p + BinaryUtil.SIZE_OF_INT;
+        //CHECKSTYLE:OFF - uses byte position and number of bit rotations
+        return (b[p] << 24) | ((b[p + 1] & BinaryUtil.INT_LOW_BYTE_MASK) << 16)
+                | ((b[p + 2] & BinaryUtil.INT_LOW_BYTE_MASK) << 8)
+                | (b[p + 3] & BinaryUtil.INT_LOW_BYTE_MASK);
+        //CHECKSTYLE:ON
     }
 
     @Override
@@ -157,7 +224,9 @@ public class ByteArrayDataInput implements DataInput {
                     break loop;
 
                 case '\r':
-                    read();
+                    if (pos < limit && inputBuffer[pos] == '\n') {
+                        pos++;
+                    }
                     break loop;
 
                 default:
@@ -179,48 +248,88 @@ public class ByteArrayDataInput implements DataInput {
 
     @Override
     public final long readLong() throws IOException {
-        final byte[] readBuffer = new byte[BinaryUtil.SIZE_OF_LONG];
-        readFully(readBuffer, 0, BinaryUtil.SIZE_OF_LONG);
+        require(BinaryUtil.SIZE_OF_LONG, "a long");
+        final byte[] b = inputBuffer;
+        final int p = pos;
+        pos = p + BinaryUtil.SIZE_OF_LONG;
         //CHECKSTYLE:OFF - uses byte position and number of bit rotations
-        return (((long) readBuffer[0] << 56)
-                + ((long) (readBuffer[1] & BinaryUtil.INT_LOW_BYTE_MASK) << 48)
-                + ((long) (readBuffer[2] & BinaryUtil.INT_LOW_BYTE_MASK) << 40)
-                + ((long) (readBuffer[3] & BinaryUtil.INT_LOW_BYTE_MASK) << 32)
-                + ((long) (readBuffer[4] & BinaryUtil.INT_LOW_BYTE_MASK) << 24)
-                + ((long) (readBuffer[5] & BinaryUtil.INT_LOW_BYTE_MASK) << 16)
-                + ((long) (readBuffer[6] & BinaryUtil.INT_LOW_BYTE_MASK) << 8)
-                + ((long) (readBuffer[7] & BinaryUtil.INT_LOW_BYTE_MASK) << 0));
+        return (((long) b[p] << 56)
+                + ((long) (b[p + 1] & BinaryUtil.INT_LOW_BYTE_MASK) << 48)
+                + ((long) (b[p + 2] & BinaryUtil.INT_LOW_BYTE_MASK) << 40)
+                + ((long) (b[p + 3] & BinaryUtil.INT_LOW_BYTE_MASK) << 32)
+                + ((long) (b[p + 4] & BinaryUtil.INT_LOW_BYTE_MASK) << 24)
+                + ((long) (b[p + 5] & BinaryUtil.INT_LOW_BYTE_MASK) << 16)
+                + ((long) (b[p + 6] & BinaryUtil.INT_LOW_BYTE_MASK) << 8)
+                + ((long) (b[p + 7] & BinaryUtil.INT_LOW_BYTE_MASK) << 0));
         //CHECKSTYLE:ON
     }
 
     @Override
     public final short readShort() throws IOException {
-        final int b1 = read();
-        final int b2 = read();
-        return (short) ((b1 << BinaryUtil.BIT_SIZE_OF_BYTE) + (b2 << 0));
+        return (short) readUnsignedShort();
     }
 
     @Override
     public final int readUnsignedByte() throws IOException {
-        final int b = read();
-        return b;
+        require(1, "a byte");
+        return inputBuffer[pos++] & BinaryUtil.INT_LOW_BYTE_MASK;
     }
 
     @Override
     public final int readUnsignedShort() throws IOException {
-        final int b1 = read();
-        final int b2 = read();
+        require(BinaryUtil.SIZE_OF_SHORT, "a short");
+        final int b1 = inputBuffer[pos++] & BinaryUtil.INT_LOW_BYTE_MASK;
+        final int b2 = inputBuffer[pos++] & BinaryUtil.INT_LOW_BYTE_MASK;
         return (b1 << BinaryUtil.BIT_SIZE_OF_BYTE) + (b2 << 0);
     }
 
+    /**
+     * Reads a string encoded in modified UTF-8, as specified by {@link DataInput}.
+     * <p>
+     * Strings of ASCII characters only are decoded directly from the array; other strings
+     * are decoded by {@link DataInputStream#readUTF(DataInput)}.
+     *
+     * @return the string read
+     * @throws IOException if the bytes are not a valid string or there are not enough
+     *             bytes left
+     */
     @Override
     public final String readUTF() throws IOException {
-        return DataInputStream.readUTF(this);
+        final int mark = pos;
+        final int utflen = readUnsignedShort();
+        require(utflen, "a string");
+
+        if (charBuffer == null || charBuffer.length < utflen) {
+            charBuffer = new char[Math.max(utflen, LINE_BUFFER_INCREMENT_SIZE)];
+        }
+        final char[] chars = charBuffer;
+        final byte[] b = inputBuffer;
+        final int first = pos;
+        for (int i = 0; i < utflen; i++) {
+            final byte c = b[first + i];
+            if (c < 0) {
+                // not ASCII, decode from the start with the general decoder
+                pos = mark;
+                return DataInputStream.readUTF(this);
+            }
+            chars[i] = (char) c;
+        }
+        pos = first + utflen;
+        return new String(chars, 0, utflen);
     }
 
+    /**
+     * Skips bytes of the input.
+     * <p>
+     * At most the number of bytes remaining are skipped.
+     *
+     * @param n the number of bytes to skip
+     * @return the number of bytes actually skipped
+     */
     @Override
     public int skipBytes(int n) throws IOException {
-        pos += n;
-        return n;
+        final int skipped = Math.max(0, Math.min(n, limit - pos));
+        pos += skipped;
+        return skipped;
     }
 }
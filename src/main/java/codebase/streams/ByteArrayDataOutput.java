@@ -3,21 +3,30 @@ package codebase.streams;
 import java.io.DataOutput;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 import codebase.BinaryUtil;
 
 /**
  * A {@link DataOutput} that writes to a byte array.
  * <p>
- * Data will be written into a byte[] passed as a parameter to the constructor. This
- * byte[] should be large enough to hold the bytes written by subsequent calls to
- * <code>write</code> methods.
+ * An output created with a byte[] writes into that array, which should be large enough to
+ * hold the bytes written by subsequent calls to <code>write</code> methods. Every
+ * <code>write</code> will throw an {@link EOFException} if an attempt is made to write
+ * past the size of the array.
  * <p>
- * Every <code>write</code> will throw an {@link EOFException} if an attempt is made to
- * write past the size of the base byte[] buffer.
+ * An output created with an initial capacity is growable: its array is replaced by one
+ * twice as large whenever it is full, so writing never fails. A growable output can be
+ * {@link #reset()} and reused, and outputs are drawn from a per-thread pool by
+ * {@link #acquire()} and given back by {@link #release()}.
+ * <p>
+ * Primitive values are written directly into the array, thus writing allocates nothing
+ * once the array is large enough.
  * 
- * @see ByteArrayDataOutput
+ * @see ByteArrayDataInput
  */
 public class ByteArrayDataOutput implements DataOutput {
 
@@ -97,6 +106,51 @@ public class ByteArrayDataOutput implements DataOutput {
         return utflen + 2;
     }
 
+    /**
+     * The default initial capacity of a growable output.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * The maximum capacity of an output kept by the pool; larger outputs are discarded
+     * when released, so that a single large write does not pin memory.
+     */
+    public static final int MAX_POOLED_CAPACITY = 1 << 20;
+
+    /**
+     * The maximum number of outputs kept by the pool of a thread.
+     */
+    private static final int POOL_SIZE = 4;
+
+    /**
+     * The outputs released by each thread.
+     */
+    private static final ThreadLocal<ArrayDeque<ByteArrayDataOutput>> POOL =
+            new ThreadLocal<ArrayDeque<ByteArrayDataOutput>>() {
+                @Override
+                protected ArrayDeque<ByteArrayDataOutput> initialValue() {
+                    return new ArrayDeque<ByteArrayDataOutput>(POOL_SIZE);
+                }
+            };
+
+    /**
+     * Gets an empty growable output from the pool of the current thread, or creates one
+     * if the pool is empty.
+     * <p>
+     * The output should be given back with {@link #release()}, by the same thread, once
+     * its bytes are no longer used.
+     * 
+     * @return an empty growable output
+     */
+    public static ByteArrayDataOutput acquire() {
+        ByteArrayDataOutput output = POOL.get().pollLast();
+        if (output == null) {
+            output = new ByteArrayDataOutput(DEFAULT_CAPACITY);
+        }
+        output.pooled = false;
+        return output;
+    }
+
     /**
      * The buffer buffer to write to.
      */
@@ -107,6 +161,16 @@ public class ByteArrayDataOutput implements DataOutput {
      */
     private int pos = 0;
 
+    /**
+     * Indicates if the buffer is replaced when full.
+     */
+    private final boolean growable;
+
+    /**
+     * Indicates if this output was released to the pool.
+     */
+    private boolean pooled = false;
+
     /**
      * Creates a new data output that will write to a given byte array.
      * 
@@ -116,6 +180,121 @@ public class ByteArrayDataOutput implements DataOutput {
     public ByteArrayDataOutput(final byte[] data) {
         assert data != null;
         this.outputBuffer = data;
+        this.growable = false;
+    }
+
+    /**
+     * Creates a new growable data output with a {@link #DEFAULT_CAPACITY} bytes array.
+     */
+    public ByteArrayDataOutput() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new growable data output.
+     * 
+     * @param initialCapacity the initial size of the array
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public ByteArrayDataOutput(final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+        this.outputBuffer = new byte[initialCapacity];
+        this.growable = true;
+    }
+
+    /**
+     * Gets the array this output writes to.
+     * <p>
+     * The array of a growable output is replaced as it grows, thus it must be fetched
+     * again after writing.
+     * 
+     * @return the array, holding the bytes written from index 0 to {@link #size()}.
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP")
+    public byte[] getBytes() {
+        return outputBuffer;
+    }
+
+    /**
+     * Gets the number of bytes written.
+     * 
+     * @return the position of the next byte.
+     */
+    public int size() {
+        return pos;
+    }
+
+    /**
+     * Discards the bytes written, keeping the array to be written again.
+     */
+    public void reset() {
+        pos = 0;
+    }
+
+    /**
+     * Copies the bytes written to a new array.
+     * 
+     * @return an array holding the bytes written.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(outputBuffer, pos);
+    }
+
+    /**
+     * Writes the bytes written so far to a stream.
+     * 
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(outputBuffer, 0, pos);
+    }
+
+    /**
+     * Gives this output back to the pool of the current thread.
+     * <p>
+     * The output must not be used after being released.
+     * 
+     * @throws IllegalStateException if the output is not growable or was already released
+     */
+    public void release() {
+        if (!growable) {
+            throw new IllegalStateException("Only growable outputs can be pooled");
+        }
+        if (pooled) {
+            throw new IllegalStateException("The output was already released");
+        }
+        pooled = true;
+        pos = 0;
+        final ArrayDeque<ByteArrayDataOutput> pool = POOL.get();
+        if (outputBuffer.length <= MAX_POOLED_CAPACITY && pool.size() < POOL_SIZE) {
+            pool.addLast(this);
+        }
+    }
+
+    /**
+     * Makes room for a number of bytes after the position.
+     * 
+     * @param length the number of bytes about to be written
+     * @throws EOFException if the output is not growable and the array is too small
+     */
+    private void ensureCapacity(final int length) throws EOFException {
+        if (length > outputBuffer.length - pos) {
+            if (!growable) {
+                throw new EOFException("Ouput buffer full");
+            }
+            final int required = pos + length;
+            if (required < 0) {
+                throw new EOFException("Ouput buffer too large");
+            }
+            int capacity = Math.max(required, 2 * outputBuffer.length);
+            if (capacity < 0) {
+                capacity = Integer.MAX_VALUE;
+            }
+            outputBuffer = Arrays.copyOf(outputBuffer, capacity);
+        }
     }
 
     @Override
@@ -125,20 +304,14 @@ public class ByteArrayDataOutput implements DataOutput {
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        if ((pos + len) >= outputBuffer.length) {
-            throw new EOFException("Ouput buffer full");
-        }
-
+        ensureCapacity(len);
         System.arraycopy(b, off, outputBuffer, pos, len);
-        pos += b.length;
+        pos += len;
     }
 
     @Override
     public void write(int b) throws IOException {
-        if (pos >= outputBuffer.length) {
-            throw new EOFException("Ouput buffer full");
-        }
-
+        ensureCapacity(1);
         outputBuffer[pos++] = (byte) b;
     }
 
@@ -149,10 +322,7 @@ public class ByteArrayDataOutput implements DataOutput {
 
     @Override
     public final void writeByte(int v) throws IOException {
-        if (pos >= outputBuffer.length) {
-            throw new EOFException("Ouput buffer full");
-        }
-
+        ensureCapacity(1);
         outputBuffer[pos++] = (byte) v;
     }
 
@@ -169,16 +339,15 @@ public class ByteArrayDataOutput implements DataOutput {
     @Override
     public final void writeBytes(String s) throws IOException {
         int len = s.length();
+        ensureCapacity(len);
         for (int i = 0; i < len; i++) {
-            write((byte) s.charAt(i));
+            outputBuffer[pos++] = (byte) s.charAt(i);
         }
     }
 
     @Override
     public final void writeChar(int v) throws IOException {
-        if ((pos + BinaryUtil.SIZE_OF_CHAR) >= outputBuffer.length) {
-            throw new EOFException("Ouput buffer full");
-        }
+        ensureCapacity(BinaryUtil.SIZE_OF_SHORT);
 
         // CHECKSTYLE:OFF - Performs bitwise operations
         outputBuffer[pos++] = (byte) ((v >>> 8) & 0xFF);
@@ -200,11 +369,12 @@ public class ByteArrayDataOutput implements DataOutput {
     @Override
     public final void writeChars(String s) throws IOException {
         int len = s.length();
+        ensureCapacity(2 * len);
         for (int i = 0; i < len; i++) {
             int v = s.charAt(i);
             // CHECKSTYLE:OFF - Performs bitwise operations
-            write((v >>> 8) & 0xFF);
-            write((v >>> 0) & 0xFF);
+            outputBuffer[pos++] = (byte) ((v >>> 8) & 0xFF);
+            outputBuffer[pos++] = (byte) ((v >>> 0) & 0xFF);
             // CHECKSTYLE:ON
         }
     }
@@ -245,9 +415,7 @@ public class ByteArrayDataOutput implements DataOutput {
 
     @Override
     public final void writeInt(int v) throws IOException {
-        if ((pos + BinaryUtil.SIZE_OF_INT) >= outputBuffer.length) {
-            throw new EOFException("Ouput buffer full");
-        }
+        ensureCapacity(BinaryUtil.SIZE_OF_INT);
 
         // CHECKSTYLE:OFF - Performs bitwise operations
         outputBuffer[pos++] = (byte) ((v >>> 24) & 0xFF);
@@ -259,26 +427,23 @@ public class ByteArrayDataOutput implements DataOutput {
 
     @Override
     public final void writeLong(long v) throws IOException {
-        final byte[] writeBuffer = new byte[BinaryUtil.SIZE_OF_LONG];
+        ensureCapacity(BinaryUtil.SIZE_OF_LONG);
 
         // CHECKSTYLE:OFF - Performs bitwise operations
-        writeBuffer[0] = (byte) (v >>> 56);
-        writeBuffer[1] = (byte) (v >>> 48);
-        writeBuffer[2] = (byte) (v >>> 40);
-        writeBuffer[3] = (byte) (v >>> 32);
-        writeBuffer[4] = (byte) (v >>> 24);
-        writeBuffer[5] = (byte) (v >>> 16);
-        writeBuffer[6] = (byte) (v >>> 8);
-        writeBuffer[7] = (byte) (v >>> 0);
-        write(writeBuffer, 0, 8);
+        outputBuffer[pos++] = (byte) (v >>> 56);
+        outputBuffer[pos++] = (byte) (v >>> 48);
+        outputBuffer[pos++] = (byte) (v >>> 40);
+        outputBuffer[pos++] = (byte) (v >>> 32);
+        outputBuffer[pos++] = (byte) (v >>> 24);
+        outputBuffer[pos++] = (byte) (v >>> 16);
+        outputBuffer[pos++] = (byte) (v >>> 8);
+        outputBuffer[pos++] = (byte) (v >>> 0);
         // CHECKSTYLE:ON
     }
 
     @Override
     public final void writeShort(int v) throws IOException {
-        if ((pos + 2) >= outputBuffer.length) {
-            throw new EOFException("Ouput buffer full");
-        }
+        ensureCapacity(BinaryUtil.SIZE_OF_SHORT);
 
         // CHECKSTYLE:OFF - performs bitwise operations
         outputBuffer[pos++] = (byte) ((v >>> 8) & 0xFF);
@@ -298,12 +463,48 @@ public class ByteArrayDataOutput implements DataOutput {
      * <code>written</code> is incremented by the total number of bytes written to the
      * output stream. This will be at least two plus the length of <code>str</code>, and
      * at most two plus thrice the length of <code>str</code>.
+     * <p>
+     * The characters are encoded directly into the array.
      * 
      * @param str a string to be written.
      * @throws java.io.IOException if an I/O error occurs.
      */
     @Override
     public final void writeUTF(String str) throws IOException {
-        writeUTF(str, this);
+        final int strlen = str.length();
+        int utflen = 0;
+
+        // CHECKSTYLE:OFF - uses the byte limits of UTF
+        for (int i = 0; i < strlen; i++) {
+            final char c = str.charAt(i);
+            if ((c >= 0x0001) && (c <= 0x007F)) {
+                utflen++;
+            } else if (c > 0x07FF) {
+                utflen += 3;
+            } else {
+                utflen += 2;
+            }
+        }
+        if (utflen > UTF_BYTES_MESSAGE_SIZE_LIMIT) {
+            throw new UTFDataFormatException();
+        }
+
+        ensureCapacity(utflen + 2);
+        outputBuffer[pos++] = (byte) ((utflen >>> 8) & 0xFF);
+        outputBuffer[pos++] = (byte) ((utflen >>> 0) & 0xFF);
+        for (int i = 0; i < strlen; i++) {
+            final char c = str.charAt(i);
+            if ((c >= 0x0001) && (c <= 0x007F)) {
+                outputBuffer[pos++] = (byte) c;
+            } else if (c > 0x07FF) {
+                outputBuffer[pos++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                outputBuffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                outputBuffer[pos++] = (byte) (0x80 | ((c >> 0) & 0x3F));
+            } else {
+                outputBuffer[pos++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                outputBuffer[pos++] = (byte) (0x80 | ((c >> 0) & 0x3F));
+            }
+        }
+        // CHECKSTYLE:ON
     }
 }
@@ -0,0 +1,233 @@
+package codebase.streams;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.BinaryUtil;
+
+/**
+ * A {@link DataInput} that reads data from a {@link ByteBuffer}.
+ * <p>
+ * Reading starts at the position of the buffer, which is advanced as data is read. The
+ * buffer is not copied, thus heap, direct and memory-mapped buffers are read in place.
+ * Multi-byte values are read in the byte order of the buffer, which is big-endian by
+ * default, as specified by {@link DataInput}.
+ * <p>
+ * Reading past the limit of the buffer throws an {@link EOFException}.
+ * <p>
+ * The input can be pointed to another buffer with {@link #setBuffer(ByteBuffer)}, so that
+ * a single input reads any number of buffers.
+ *
+ * @see ByteBufferDataOutput
+ */
+public class ByteBufferDataInput implements DataInput {
+
+    /**
+     * The initial size of the buffer used by {@link #readLine()}.
+     */
+    private static final int LINE_BUFFER_INCREMENT_SIZE = 128;
+
+    /**
+     * The buffer to read from.
+     */
+    private ByteBuffer inputBuffer;
+
+    /**
+     * Buffer used to hold the characters decoded by {@link #readUTF()}.
+     */
+    private char[] charBuffer;
+
+    /**
+     * Creates a data input that reads from a buffer.
+     *
+     * @param buffer the buffer to read from, cannot be <code>null</code>
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP2")
+    public ByteBufferDataInput(final ByteBuffer buffer) {
+        setBuffer(buffer);
+    }
+
+    /**
+     * Points this input to another buffer, which is read from its position.
+     *
+     * @param buffer the buffer to read from, cannot be <code>null</code>
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP2")
+    public final void setBuffer(final ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The buffer must be assigned");
+        }
+        this.inputBuffer = buffer;
+    }
+
+    /**
+     * Gets the buffer being read.
+     *
+     * @return the buffer, positioned at the next byte to be read
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP")
+    public final ByteBuffer getBuffer() {
+        return inputBuffer;
+    }
+
+    /**
+     * Checks that enough bytes remain to be read.
+     *
+     * @param count the number of bytes needed
+     * @param what the name of the value being read
+     * @throws EOFException if fewer bytes remain
+     */
+    private void require(final int count, final String what) throws EOFException {
+        if (inputBuffer.remaining() < count) {
+            throw new EOFException("Not enough bytes left to read " + what);
+        }
+    }
+
+    @Override
+    public final boolean readBoolean() throws IOException {
+        require(1, "a boolean");
+        return inputBuffer.get() != 0;
+    }
+
+    @Override
+    public final byte readByte() throws IOException {
+        require(1, "a byte");
+        return inputBuffer.get();
+    }
+
+    @Override
+    public final char readChar() throws IOException {
+        require(BinaryUtil.SIZE_OF_SHORT, "a char");
+        return inputBuffer.getChar();
+    }
+
+    @Override
+    public final double readDouble() throws IOException {
+        require(BinaryUtil.SIZE_OF_DOUBLE, "a double");
+        return inputBuffer.getDouble();
+    }
+
+    @Override
+    public final float readFloat() throws IOException {
+        require(BinaryUtil.SIZE_OF_FLOAT, "a float");
+        return inputBuffer.getFloat();
+    }
+
+    @Override
+    public final void readFully(final byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public final void readFully(final byte[] b, final int off, final int len)
+            throws IOException {
+        require(len, len + " bytes");
+        inputBuffer.get(b, off, len);
+    }
+
+    @Override
+    public final int readInt() throws IOException {
+        require(BinaryUtil.SIZE_OF_INT, "an int");
+        return inputBuffer.getInt();
+    }
+
+    @Override
+    public final String readLine() throws IOException {
+        if (!inputBuffer.hasRemaining()) {
+            return null;
+        }
+
+        final StringBuilder line = new StringBuilder(LINE_BUFFER_INCREMENT_SIZE);
+        while (inputBuffer.hasRemaining()) {
+            final int c = inputBuffer.get() & BinaryUtil.INT_LOW_BYTE_MASK;
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if (inputBuffer.hasRemaining()
+                        && inputBuffer.get(inputBuffer.position()) == '\n') {
+                    inputBuffer.get();
+                }
+                break;
+            }
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    @Override
+    public final long readLong() throws IOException {
+        require(BinaryUtil.SIZE_OF_LONG, "a long");
+        return inputBuffer.getLong();
+    }
+
+    @Override
+    public final short readShort() throws IOException {
+        require(BinaryUtil.SIZE_OF_SHORT, "a short");
+        return inputBuffer.getShort();
+    }
+
+    @Override
+    public final int readUnsignedByte() throws IOException {
+        return readByte() & BinaryUtil.INT_LOW_BYTE_MASK;
+    }
+
+    @Override
+    public final int readUnsignedShort() throws IOException {
+        // CHECKSTYLE:OFF - masks the low two bytes
+        return readShort() & 0xFFFF;
+        // CHECKSTYLE:ON
+    }
+
+    /**
+     * Reads a string encoded in modified UTF-8, as specified by {@link DataInput}.
+     * <p>
+     * Strings of ASCII characters only are decoded with absolute reads of the buffer;
+     * other strings are decoded by {@link DataInputStream#readUTF(DataInput)}.
+     *
+     * @return the string read
+     * @throws IOException if the bytes are not a valid string or there are not enough
+     *             bytes left
+     */
+    @Override
+    public final String readUTF() throws IOException {
+        final int mark = inputBuffer.position();
+        final int utflen = readUnsignedShort();
+        require(utflen, "a string");
+
+        if (charBuffer == null || charBuffer.length < utflen) {
+            charBuffer = new char[Math.max(utflen, LINE_BUFFER_INCREMENT_SIZE)];
+        }
+        final char[] chars = charBuffer;
+        final int first = inputBuffer.position();
+        for (int i = 0; i < utflen; i++) {
+            final byte c = inputBuffer.get(first + i);
+            if (c < 0) {
+                // not ASCII, decode from the start with the general decoder
+                inputBuffer.position(mark);
+                return DataInputStream.readUTF(this);
+            }
+            chars[i] = (char) c;
+        }
+        inputBuffer.position(first + utflen);
+        return new String(chars, 0, utflen);
+    }
+
+    /**
+     * Skips bytes of the buffer.
+     * <p>
+     * At most the number of bytes remaining in the buffer are skipped.
+     *
+     * @param n the number of bytes to skip
+     * @return the number of bytes actually skipped
+     */
+    @Override
+    public final int skipBytes(final int n) {
+        final int skipped = Math.max(0, Math.min(n, inputBuffer.remaining()));
+        inputBuffer.position(inputBuffer.position() + skipped);
+        return skipped;
+    }
+}
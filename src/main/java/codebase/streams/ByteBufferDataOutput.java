@@ -0,0 +1,148 @@
+package codebase.streams;
+
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.BinaryUtil;
+
+/**
+ * A {@link DataOutput} that writes data to a {@link ByteBuffer}.
+ * <p>
+ * Writing starts at the position of the buffer, which is advanced as data is written.
+ * Multi-byte values are written in the byte order of the buffer, which is big-endian by
+ * default, as specified by {@link DataOutput}.
+ * <p>
+ * Writing past the limit of the buffer throws an {@link EOFException}.
+ *
+ * @see ByteBufferDataInput
+ */
+public class ByteBufferDataOutput implements DataOutput {
+
+    /**
+     * The buffer to write to.
+     */
+    private final ByteBuffer outputBuffer;
+
+    /**
+     * Creates a data output that writes to a buffer.
+     *
+     * @param buffer the buffer to write to, cannot be <code>null</code>
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP2")
+    public ByteBufferDataOutput(final ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The buffer must be assigned");
+        }
+        this.outputBuffer = buffer;
+    }
+
+    /**
+     * Gets the buffer being written.
+     *
+     * @return the buffer, positioned at the next byte to be written
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings("EI_EXPOSE_REP")
+    public final ByteBuffer getBuffer() {
+        return outputBuffer;
+    }
+
+    /**
+     * Checks that enough room remains to be written.
+     *
+     * @param count the number of bytes needed
+     * @throws EOFException if less room remains
+     */
+    private void require(final int count) throws EOFException {
+        if (outputBuffer.remaining() < count) {
+            throw new EOFException("Output buffer full");
+        }
+    }
+
+    @Override
+    public final void write(final byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public final void write(final byte[] b, final int off, final int len) throws IOException {
+        require(len);
+        outputBuffer.put(b, off, len);
+    }
+
+    @Override
+    public final void write(final int b) throws IOException {
+        require(1);
+        outputBuffer.put((byte) b);
+    }
+
+    @Override
+    public final void writeBoolean(final boolean v) throws IOException {
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public final void writeByte(final int v) throws IOException {
+        write(v);
+    }
+
+    @Override
+    public final void writeBytes(final String s) throws IOException {
+        final int len = s.length();
+        require(len);
+        for (int i = 0; i < len; i++) {
+            outputBuffer.put((byte) s.charAt(i));
+        }
+    }
+
+    @Override
+    public final void writeChar(final int v) throws IOException {
+        require(BinaryUtil.SIZE_OF_SHORT);
+        outputBuffer.putChar((char) v);
+    }
+
+    @Override
+    public final void writeChars(final String s) throws IOException {
+        final int len = s.length();
+        require(len * BinaryUtil.SIZE_OF_SHORT);
+        for (int i = 0; i < len; i++) {
+            outputBuffer.putChar(s.charAt(i));
+        }
+    }
+
+    @Override
+    public final void writeDouble(final double v) throws IOException {
+        require(BinaryUtil.SIZE_OF_DOUBLE);
+        outputBuffer.putDouble(v);
+    }
+
+    @Override
+    public final void writeFloat(final float v) throws IOException {
+        require(BinaryUtil.SIZE_OF_FLOAT);
+        outputBuffer.putFloat(v);
+    }
+
+    @Override
+    public final void writeInt(final int v) throws IOException {
+        require(BinaryUtil.SIZE_OF_INT);
+        outputBuffer.putInt(v);
+    }
+
+    @Override
+    public final void writeLong(final long v) throws IOException {
+        require(BinaryUtil.SIZE_OF_LONG);
+        outputBuffer.putLong(v);
+    }
+
+    @Override
+    public final void writeShort(final int v) throws IOException {
+        require(BinaryUtil.SIZE_OF_SHORT);
+        outputBuffer.putShort((short) v);
+    }
+
+    @Override
+    public final void writeUTF(final String str) throws IOException {
+        ByteArrayDataOutput.writeUTF(str, this);
+    }
+}
@@ -0,0 +1,425 @@
+package codebase.streams;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import codebase.BinaryUtil;
+
+/**
+ * A buffered input stream that reads a channel into a direct buffer.
+ * <p>
+ * Unlike {@link FastBufferedInputStream}, which copies the bytes of another stream into a
+ * heap array, this stream reads its channel straight into a large direct
+ * {@link ByteBuffer}, so file bytes are not copied on their way in. The stream is also a
+ * {@link DataInput} whose primitive values and lines are read off that buffer.
+ * <p>
+ * {@link #transferTo(WritableByteChannel)} copies the rest of the input to another
+ * channel, and lets a {@link FileChannel} send its bytes without reading them.
+ * <p>
+ * This stream is not thread safe and does not support marks.
+ */
+public class ChannelBufferedInputStream extends InputStream implements DataInput {
+
+    /**
+     * The default size of the buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The initial size of the buffer used by {@link #readLine()}.
+     */
+    private static final int LINE_BUFFER_INCREMENT_SIZE = 128;
+
+    /**
+     * The channel being read.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The bytes read from the channel and not yet consumed, from the position to the
+     * limit of the buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Indicates if the end of the channel was reached.
+     */
+    private boolean endOfInput = false;
+
+    /**
+     * Buffer used to hold the characters of a line in subsequent calls to
+     * {@link #readLine()}.
+     */
+    private final StringBuilder lineBuffer = new StringBuilder(LINE_BUFFER_INCREMENT_SIZE);
+
+    /**
+     * Creates a stream that reads a channel with a {@link #DEFAULT_BUFFER_SIZE} buffer.
+     *
+     * @param in the channel to read from
+     */
+    public ChannelBufferedInputStream(final ReadableByteChannel in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a stream that reads a channel.
+     *
+     * @param in the channel to read from
+     * @param bufferSize the number of bytes of the buffer, at least the size of a
+     *            <code>long</code>
+     * @throws IllegalArgumentException if the channel is not assigned or the buffer is
+     *             too small
+     */
+    public ChannelBufferedInputStream(final ReadableByteChannel in, final int bufferSize) {
+        if (in == null) {
+            throw new IllegalArgumentException("The channel must be assigned");
+        }
+        if (bufferSize < BinaryUtil.SIZE_OF_LONG) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        this.channel = in;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * Creates a stream that reads a file with a {@link #DEFAULT_BUFFER_SIZE} buffer.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public ChannelBufferedInputStream(final File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a stream that reads a file.
+     *
+     * @param file the file to read
+     * @param bufferSize the number of bytes of the buffer, at least the size of a
+     *            <code>long</code>
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if the buffer is too small
+     */
+    public ChannelBufferedInputStream(final File file, final int bufferSize)
+            throws IOException {
+        this(new FileInputStream(file).getChannel(), bufferSize);
+    }
+
+    /**
+     * Gets the channel being read.
+     * <p>
+     * The position of a file channel is ahead of this stream by the bytes still buffered.
+     *
+     * @return the channel.
+     */
+    public final ReadableByteChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Reads more bytes from the channel, keeping the bytes not yet consumed.
+     *
+     * @return <code>true</code> if bytes were read, <code>false</code> at the end of the
+     *         channel
+     * @throws IOException if the channel cannot be read
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        buffer.compact();
+        try {
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0 && buffer.hasRemaining());
+            if (n < 0) {
+                endOfInput = true;
+                return false;
+            }
+            return true;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Makes sure that a number of bytes are buffered.
+     *
+     * @param count the number of bytes needed, at most the size of the buffer
+     * @param what the name of the value being read
+     * @throws EOFException if the channel ends before
+     * @throws IOException if the channel cannot be read
+     */
+    private void require(final int count, final String what) throws IOException {
+        while (buffer.remaining() < count) {
+            if (!fill()) {
+                throw new EOFException("Not enough bytes left to read " + what);
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & BinaryUtil.INT_LOW_BYTE_MASK;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        final int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    /**
+     * Skips bytes of the input.
+     * <p>
+     * Bytes past the buffer of a file channel are skipped by moving its position.
+     *
+     * @param n the number of bytes to skip
+     * @return the number of bytes skipped
+     * @throws IOException if the channel cannot be read
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + (int) skipped);
+        if (skipped < n && channel instanceof FileChannel) {
+            final FileChannel file = (FileChannel) channel;
+            final long position = file.position();
+            final long step = Math.max(0, Math.min(n - skipped, file.size() - position));
+            file.position(position + step);
+            skipped += step;
+        } else {
+            while (skipped < n && fill()) {
+                final int step = (int) Math.min(n - skipped, buffer.remaining());
+                buffer.position(buffer.position() + step);
+                skipped += step;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Gets the number of bytes that can be read without blocking.
+     *
+     * @return the bytes buffered, plus the bytes left in the file for a file channel
+     * @throws IOException if the size of a file channel cannot be read
+     */
+    @Override
+    public int available() throws IOException {
+        long available = buffer.remaining();
+        if (channel instanceof FileChannel) {
+            final FileChannel file = (FileChannel) channel;
+            available += Math.max(0, file.size() - file.position());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, available);
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Copies the rest of the input to a channel.
+     * <p>
+     * The buffered bytes are written first. The rest of a file channel is then sent with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the
+     * operating system copy the bytes; other channels are copied through the buffer.
+     *
+     * @param target the channel to write to
+     * @return the number of bytes copied
+     * @throws IOException if either channel fails
+     */
+    public long transferTo(final WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        if (channel instanceof FileChannel) {
+            transferred += drain(target);
+            final FileChannel file = (FileChannel) channel;
+            final long size = file.size();
+            long position = file.position();
+            while (position < size) {
+                final long n = file.transferTo(position, size - position, target);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+                transferred += n;
+            }
+            file.position(position);
+        } else {
+            do {
+                transferred += drain(target);
+            } while (fill());
+        }
+        return transferred;
+    }
+
+    /**
+     * Writes the buffered bytes to a channel.
+     *
+     * @param target the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the channel fails
+     */
+    private int drain(final WritableByteChannel target) throws IOException {
+        final int count = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        return count;
+    }
+
+    @Override
+    public final void readFully(final byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public final void readFully(final byte[] b, final int off, final int len)
+            throws IOException {
+        int done = 0;
+        while (done < len) {
+            final int n = read(b, off + done, len - done);
+            if (n < 0) {
+                throw new EOFException("Not enough bytes left to read " + len + " bytes");
+            }
+            done += n;
+        }
+    }
+
+    @Override
+    public final int skipBytes(final int n) throws IOException {
+        return (int) skip(n);
+    }
+
+    @Override
+    public final boolean readBoolean() throws IOException {
+        require(1, "a boolean");
+        return buffer.get() != 0;
+    }
+
+    @Override
+    public final byte readByte() throws IOException {
+        require(1, "a byte");
+        return buffer.get();
+    }
+
+    @Override
+    public final int readUnsignedByte() throws IOException {
+        return readByte() & BinaryUtil.INT_LOW_BYTE_MASK;
+    }
+
+    @Override
+    public final short readShort() throws IOException {
+        require(BinaryUtil.SIZE_OF_SHORT, "a short");
+        return buffer.getShort();
+    }
+
+    @Override
+    public final int readUnsignedShort() throws IOException {
+        // CHECKSTYLE:OFF - masks the low two bytes
+        return readShort() & 0xFFFF;
+        // CHECKSTYLE:ON
+    }
+
+    @Override
+    public final char readChar() throws IOException {
+        require(BinaryUtil.SIZE_OF_SHORT, "a char");
+        return buffer.getChar();
+    }
+
+    @Override
+    public final int readInt() throws IOException {
+        require(BinaryUtil.SIZE_OF_INT, "an int");
+        return buffer.getInt();
+    }
+
+    @Override
+    public final long readLong() throws IOException {
+        require(BinaryUtil.SIZE_OF_LONG, "a long");
+        return buffer.getLong();
+    }
+
+    @Override
+    public final float readFloat() throws IOException {
+        require(BinaryUtil.SIZE_OF_FLOAT, "a float");
+        return buffer.getFloat();
+    }
+
+    @Override
+    public final double readDouble() throws IOException {
+        require(BinaryUtil.SIZE_OF_DOUBLE, "a double");
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads a line of bytes, each taken as a character, as specified by
+     * {@link DataInput#readLine()}.
+     * <p>
+     * The bytes are scanned in the buffer, which is refilled as needed.
+     *
+     * @return the line, without its terminator, or <code>null</code> at the end of the
+     *         input
+     * @throws IOException if the channel cannot be read
+     */
+    @Override
+    public final String readLine() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return null;
+        }
+
+        lineBuffer.setLength(0);
+        while (buffer.hasRemaining() || fill()) {
+            final int c = buffer.get() & BinaryUtil.INT_LOW_BYTE_MASK;
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if ((buffer.hasRemaining() || fill())
+                        && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                }
+                break;
+            }
+            lineBuffer.append((char) c);
+        }
+        return lineBuffer.toString();
+    }
+
+    @Override
+    public final String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
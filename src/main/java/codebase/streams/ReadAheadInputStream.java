@@ -0,0 +1,327 @@
+package codebase.streams;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import codebase.BinaryUtil;
+
+/**
+ * An input stream decorator that reads ahead of its reader in a background thread.
+ * <p>
+ * The decorated stream is read into a fixed set of buffers by a daemon thread, while the
+ * reader consumes the buffers already filled. Reading and processing the data thus
+ * overlap: with two buffers, the next buffer is filled while the current one is drained.
+ * More buffers absorb larger bursts of either side.
+ * <p>
+ * An exception thrown by the decorated stream, including unchecked exceptions and errors,
+ * is rethrown to the reader once the bytes read before it are consumed. Closing the
+ * stream stops the background thread and closes the decorated stream.
+ * <p>
+ * This stream is not thread safe, besides {@link #close()}, and does not support marks.
+ */
+public class ReadAheadInputStream extends FilterInputStream {
+
+    /**
+     * The default number of buffers.
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 2;
+
+    /**
+     * The default size of each buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A buffer filled by the background thread, or the end of the input.
+     */
+    private static final class Chunk {
+
+        /**
+         * The buffer, or <code>null</code> at the end of the input.
+         */
+        private final byte[] data;
+
+        /**
+         * The number of bytes read into the buffer.
+         */
+        private final int length;
+
+        /**
+         * The exception that ended the input, or <code>null</code> if it ended normally.
+         */
+        private final Throwable error;
+
+        /**
+         * Creates a chunk.
+         *
+         * @param bytes the buffer, or <code>null</code> at the end of the input
+         * @param count the number of bytes read into the buffer
+         * @param exception the exception that ended the input, if any
+         */
+        private Chunk(final byte[] bytes, final int count, final Throwable exception) {
+            data = bytes;
+            length = count;
+            error = exception;
+        }
+    }
+
+    /**
+     * Fills the free buffers with the bytes of the decorated stream.
+     */
+    private final class Filler extends Thread {
+
+        /**
+         * Creates the thread, as a daemon.
+         */
+        private Filler() {
+            super("ReadAheadInputStream");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final byte[] buffer = free.take();
+                    int n;
+                    try {
+                        do {
+                            n = in.read(buffer, 0, buffer.length);
+                        } while (n == 0);
+                    } catch (IOException e) {
+                        filled.put(new Chunk(null, 0, e));
+                        return;
+                    } catch (RuntimeException e) {
+                        filled.put(new Chunk(null, 0, e));
+                        return;
+                    } catch (Error e) {
+                        filled.put(new Chunk(null, 0, e));
+                        return;
+                    }
+                    if (n < 0) {
+                        filled.put(new Chunk(null, 0, null));
+                        return;
+                    }
+                    filled.put(new Chunk(buffer, n, null));
+                }
+            } catch (InterruptedException e) {
+                // the stream was closed
+                return;
+            }
+        }
+    }
+
+    /**
+     * The buffers ready to be filled.
+     */
+    private final BlockingQueue<byte[]> free;
+
+    /**
+     * The buffers filled and not yet read, followed by the end of the input.
+     */
+    private final BlockingQueue<Chunk> filled;
+
+    /**
+     * The thread reading the decorated stream.
+     */
+    private final Filler filler;
+
+    /**
+     * The chunk being read, or <code>null</code> if none was taken yet.
+     */
+    private Chunk current;
+
+    /**
+     * The position of the next byte of the current chunk.
+     */
+    private int position;
+
+    /**
+     * Indicates if the stream was closed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a stream that reads ahead with {@link #DEFAULT_BUFFER_COUNT} buffers of
+     * {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param in the stream to read ahead
+     */
+    public ReadAheadInputStream(final InputStream in) {
+        this(in, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a stream that reads ahead.
+     *
+     * @param in the stream to read ahead
+     * @param bufferCount the number of buffers, at least two
+     * @param bufferSize the size of each buffer, in bytes
+     * @throws IllegalArgumentException if the stream is not assigned, there are less than
+     *             two buffers or the size is not positive
+     */
+    public ReadAheadInputStream(final InputStream in, final int bufferCount,
+                                final int bufferSize) {
+        super(in);
+        if (in == null) {
+            throw new IllegalArgumentException("The stream must be assigned");
+        }
+        if (bufferCount < 2) {
+            throw new IllegalArgumentException("Invalid buffer count: " + bufferCount);
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+
+        free = new ArrayBlockingQueue<byte[]>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        // one more slot for the end of the input
+        filled = new ArrayBlockingQueue<Chunk>(bufferCount + 1);
+
+        filler = new Filler();
+        filler.start();
+    }
+
+    /**
+     * Makes sure the current chunk has bytes left, taking the next chunk if needed.
+     *
+     * @return <code>true</code> if there are bytes to read, <code>false</code> at the end
+     *         of the input
+     * @throws IOException if the decorated stream failed, or the stream is closed
+     */
+    private boolean next() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current != null && current.data == null) {
+            return end();
+        }
+        if (current != null) {
+            free.add(current.data);
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            current = null;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+        position = 0;
+        return current.data != null || end();
+    }
+
+    /**
+     * Reports the end of the input.
+     *
+     * @return <code>false</code>, if the input ended normally
+     * @throws IOException the exception that ended the input, if any; unchecked
+     *             exceptions and errors are rethrown as well
+     */
+    private boolean end() throws IOException {
+        final Throwable error = current.error;
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        return false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!next()) {
+            return -1;
+        }
+        return current.data[position++] & BinaryUtil.INT_LOW_BYTE_MASK;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!next()) {
+            return -1;
+        }
+        final int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && next()) {
+            final int step = (int) Math.min(n - skipped, current.length - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    /**
+     * Gets the number of bytes left in the current buffer.
+     *
+     * @return the number of bytes that can be read without waiting.
+     */
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current == null || current.data == null) {
+            return 0;
+        }
+        return current.length - position;
+    }
+
+    /**
+     * Stops the background thread and closes the decorated stream.
+     * <p>
+     * A thread blocked reading the decorated stream stops once that read returns, which
+     * closing the decorated stream usually causes.
+     *
+     * @throws IOException if the decorated stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        filler.interrupt();
+        in.close();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        // marks are not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Marks are not supported");
+    }
+}
@@ -0,0 +1,477 @@
+package codebase.streams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import codebase.BinaryUtil;
+
+/**
+ * A pipe connecting threads through a lock-free ring buffer.
+ * <p>
+ * Bytes written to the {@link #getOutputStream() output stream} are read from the
+ * {@link #getInputStream() input stream}. Unlike {@link java.io.PipedInputStream}, the
+ * pipe takes no locks: the producer and the consumer each advance their own counter of
+ * the bytes written and read, and only read the counter of the other side. The counters
+ * are padded so that they do not share a cache line. Reads and writes transfer as many
+ * bytes as fit at once, and a side that must wait spins, yields or parks, according to
+ * the {@link WaitStrategy}.
+ * <p>
+ * A pipe has a single producer and a single consumer thread, unless it is created for
+ * multiple producers. In that case the producers claim space with a compare-and-set and
+ * publish it in order, and a write of at most {@link #getCapacity()} bytes is never
+ * interleaved with the bytes of other producers. There is always a single consumer.
+ * <p>
+ * Closing the output ends the input once the bytes written are read. Closing the input
+ * makes writing fail.
+ */
+public final class RingPipe {
+
+    /**
+     * The default capacity of the ring buffer, in bytes.
+     */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * How long a parked side waits before checking the pipe again, in nanoseconds.
+     */
+    private static final long PARK_NANOS = 10000;
+
+    /**
+     * The ways a side of the pipe waits for the other.
+     */
+    public enum WaitStrategy {
+
+        /**
+         * Busy spins. Gives the lowest latency, at the cost of a busy core per waiting
+         * side.
+         */
+        SPIN,
+
+        /**
+         * Yields the processor between checks. Keeps latency low while letting other
+         * threads run.
+         */
+        YIELD,
+
+        /**
+         * Parks the thread briefly between checks. Uses the least processor time, at the
+         * cost of latency.
+         */
+        PARK
+    }
+
+    /**
+     * A counter padded so that it does not share a cache line with other hot fields.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedCounter extends AtomicLong {
+
+        /**
+         * Serial version identifier.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Padding after the value.
+         */
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /**
+     * The ring buffer.
+     */
+    private final byte[] ring;
+
+    /**
+     * The mask mapping a counter to an index of the ring buffer.
+     */
+    private final int mask;
+
+    /**
+     * Indicates if several threads can write.
+     */
+    private final boolean multiProducer;
+
+    /**
+     * How the sides wait for each other.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * The number of bytes read, advanced by the consumer.
+     */
+    private final PaddedCounter readCount = new PaddedCounter();
+
+    /**
+     * The number of bytes written and visible to the consumer, advanced by the producers.
+     */
+    private final PaddedCounter writeCount = new PaddedCounter();
+
+    /**
+     * The number of bytes claimed by the producers, only used with multiple producers.
+     */
+    private final PaddedCounter claimCount = new PaddedCounter();
+
+    /**
+     * Indicates if the output was closed.
+     */
+    private volatile boolean outputClosed = false;
+
+    /**
+     * Indicates if the input was closed.
+     */
+    private volatile boolean inputClosed = false;
+
+    /**
+     * The input stream of the pipe.
+     */
+    private final Input input = new Input();
+
+    /**
+     * The output stream of the pipe.
+     */
+    private final Output output = new Output();
+
+    /**
+     * Creates a single-producer pipe of {@link #DEFAULT_CAPACITY} bytes that yields while
+     * waiting.
+     */
+    public RingPipe() {
+        this(DEFAULT_CAPACITY, WaitStrategy.YIELD, false);
+    }
+
+    /**
+     * Creates a pipe.
+     *
+     * @param capacity the capacity of the ring buffer, in bytes, a power of two
+     * @param strategy how the sides wait for each other
+     * @param multipleProducers indicates if several threads can write
+     * @throws IllegalArgumentException if the capacity is not a positive power of two or
+     *             the strategy is not assigned
+     */
+    public RingPipe(final int capacity, final WaitStrategy strategy,
+                    final boolean multipleProducers) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: "
+                    + capacity);
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("The wait strategy must be assigned");
+        }
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.waitStrategy = strategy;
+        this.multiProducer = multipleProducers;
+    }
+
+    /**
+     * Gets the capacity of the ring buffer.
+     *
+     * @return the number of bytes the pipe holds.
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * Gets the stream reading the pipe, to be used by a single thread.
+     *
+     * @return the input stream.
+     */
+    public InputStream getInputStream() {
+        return input;
+    }
+
+    /**
+     * Gets the stream writing to the pipe, to be used by a single thread unless the pipe
+     * was created for multiple producers.
+     *
+     * @return the output stream.
+     */
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    /**
+     * Waits a moment, according to the wait strategy.
+     *
+     * @throws InterruptedIOException if the thread is interrupted
+     */
+    private void idle() throws InterruptedIOException {
+        pause();
+        if (Thread.interrupted()) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on the pipe");
+        }
+    }
+
+    /**
+     * Waits a moment, according to the wait strategy, whether the thread is interrupted
+     * or not.
+     */
+    private void pause() {
+        switch (waitStrategy) {
+            case YIELD:
+                Thread.yield();
+                break;
+            case PARK:
+                LockSupport.parkNanos(PARK_NANOS);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Copies bytes into the ring buffer.
+     *
+     * @param position the counter of the first byte
+     * @param b the array holding the bytes
+     * @param off the index of the first byte
+     * @param len the number of bytes, at most the free space
+     */
+    private void copyIn(final long position, final byte[] b, final int off,
+                        final int len) {
+        final int index = (int) position & mask;
+        final int first = Math.min(len, ring.length - index);
+        System.arraycopy(b, off, ring, index, first);
+        System.arraycopy(b, off + first, ring, 0, len - first);
+    }
+
+    /**
+     * The consumer side of the pipe.
+     */
+    private final class Input extends InputStream {
+
+        /**
+         * The number of bytes read, owned by the consumer.
+         */
+        private long position = 0;
+
+        /**
+         * Waits until bytes can be read.
+         *
+         * @return the number of bytes available, or <code>0</code> at the end of the pipe
+         * @throws IOException if the input is closed or the wait is interrupted
+         */
+        private int awaitBytes() throws IOException {
+            while (true) {
+                if (inputClosed) {
+                    throw new IOException("Pipe closed");
+                }
+                long available = writeCount.get() - position;
+                if (available > 0) {
+                    return (int) available;
+                }
+                if (outputClosed) {
+                    // the output may have written its last bytes before closing
+                    available = writeCount.get() - position;
+                    return (int) available;
+                }
+                idle();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (awaitBytes() == 0) {
+                return -1;
+            }
+            final int b = ring[(int) position & mask] & BinaryUtil.INT_LOW_BYTE_MASK;
+            position++;
+            readCount.lazySet(position);
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            final int available = awaitBytes();
+            if (available == 0) {
+                return -1;
+            }
+            final int n = Math.min(len, available);
+            final int index = (int) position & mask;
+            final int first = Math.min(n, ring.length - index);
+            System.arraycopy(ring, index, b, off, first);
+            System.arraycopy(ring, 0, b, off + first, n - first);
+            position += n;
+            readCount.lazySet(position);
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (inputClosed) {
+                throw new IOException("Pipe closed");
+            }
+            return (int) (writeCount.get() - position);
+        }
+
+        @Override
+        public void close() {
+            inputClosed = true;
+        }
+    }
+
+    /**
+     * The producer side of the pipe.
+     */
+    private final class Output extends OutputStream {
+
+        /**
+         * The number of bytes written, owned by the single producer.
+         */
+        private long position = 0;
+
+        /**
+         * Waits until a number of bytes can be written by the single producer.
+         *
+         * @param needed the number of bytes to wait for, at most the capacity
+         * @return the number of bytes free, at least the number needed
+         * @throws IOException if the pipe is closed or the wait is interrupted
+         */
+        private int awaitSpace(final int needed) throws IOException {
+            while (true) {
+                checkOpen();
+                final long free = ring.length - (position - readCount.get());
+                if (free >= needed) {
+                    return (int) free;
+                }
+                idle();
+            }
+        }
+
+        /**
+         * Checks that the pipe can be written.
+         *
+         * @throws IOException if either side is closed
+         */
+        private void checkOpen() throws IOException {
+            if (inputClosed || outputClosed) {
+                throw new IOException("Pipe closed");
+            }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (multiProducer) {
+                final long start = claim(1);
+                ring[(int) start & mask] = (byte) b;
+                publish(start, 1);
+                return;
+            }
+            awaitSpace(1);
+            ring[(int) position & mask] = (byte) b;
+            position++;
+            writeCount.lazySet(position);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (multiProducer) {
+                writeShared(b, off, len);
+                return;
+            }
+            int done = 0;
+            while (done < len) {
+                final int n = Math.min(len - done, awaitSpace(1));
+                copyIn(position, b, off + done, n);
+                position += n;
+                writeCount.lazySet(position);
+                done += n;
+            }
+        }
+
+        /**
+         * Writes bytes when the pipe has multiple producers.
+         * <p>
+         * Space is claimed for up to the capacity at a time, and published once the
+         * claims before it are.
+         *
+         * @param b the array holding the bytes
+         * @param off the index of the first byte
+         * @param len the number of bytes
+         * @throws IOException if the pipe is closed or the wait is interrupted
+         */
+        private void writeShared(final byte[] b, final int off, final int len)
+                throws IOException {
+            int done = 0;
+            while (done < len) {
+                final int n = Math.min(len - done, ring.length);
+                final long start = claim(n);
+                copyIn(start, b, off + done, n);
+                publish(start, n);
+                done += n;
+            }
+        }
+
+        /**
+         * Claims space for a number of bytes when the pipe has multiple producers.
+         *
+         * @param n the number of bytes, at most the capacity
+         * @return the counter of the first byte claimed
+         * @throws IOException if the pipe is closed or the wait is interrupted
+         */
+        private long claim(final int n) throws IOException {
+            while (true) {
+                checkOpen();
+                final long start = claimCount.get();
+                final long free = ring.length - (start - readCount.get());
+                if (free >= n && claimCount.compareAndSet(start, start + n)) {
+                    return start;
+                }
+                if (free < n) {
+                    idle();
+                }
+            }
+        }
+
+        /**
+         * Publishes claimed bytes once the claims before them are published.
+         * <p>
+         * The wait cannot be interrupted, since the producers of the later claims wait
+         * for this one. An interrupt is kept for the caller. The wait only gives up when
+         * the pipe is closed, which makes the later producers give up too.
+         *
+         * @param start the counter of the first byte claimed
+         * @param n the number of bytes claimed
+         * @throws IOException if the pipe is closed before the earlier claims are
+         *             published
+         */
+        private void publish(final long start, final int n) throws IOException {
+            boolean interrupted = false;
+            try {
+                while (writeCount.get() != start) {
+                    checkOpen();
+                    // a parked thread that stays interrupted would only spin
+                    interrupted |= Thread.interrupted();
+                    pause();
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writeCount.lazySet(start + n);
+        }
+
+        @Override
+        public void close() {
+            outputClosed = true;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package codebase.streams;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import codebase.BinaryUtil;
+
+/**
+ * An input stream decorator that times out (instead of blocking) on read operations,
+ * without a thread of its own.
+ * <p>
+ * Unlike {@link TimeoutInputStream}, which starts a reader thread per stream, the reads
+ * of the decorated stream are run by an executor shared by many streams, and the stream
+ * itself is a small object. A thread of the executor is only held while a read is in
+ * progress.
+ * <p>
+ * A read that does not complete in time throws a {@link TimeoutException} but is left
+ * running: the bytes it eventually reads are returned by the next read, thus no data is
+ * lost.
+ */
+public class SharedTimeoutInputStream extends FilterInputStream {
+
+    /**
+     * Port default timeout in milliseconds for read operations.
+     */
+    private static final int DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * The maximum number of bytes read from the decorated stream at once.
+     */
+    private static final int MAX_READ_SIZE = 8192;
+
+    /**
+     * The executor running the reads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The timeout of the read operations.
+     */
+    private final int streamTimeout;
+
+    /**
+     * The unit of the timeout.
+     */
+    private final TimeUnit streamTimeoutUnit;
+
+    /**
+     * The buffer the decorated stream is read into, allocated by the first read.
+     */
+    private byte[] readBuffer;
+
+    /**
+     * The index of the next byte of the buffer to return.
+     */
+    private int bufferStart = 0;
+
+    /**
+     * The index following the last byte of the buffer to return.
+     */
+    private int bufferEnd = 0;
+
+    /**
+     * The read in progress, or <code>null</code> if there is none.
+     */
+    private Future<Integer> pendingRead;
+
+    /**
+     * Instantiates a new timeout stream decorator with default timeout, run by the shared
+     * executor.
+     *
+     * @param in the input stream to be decorated from where the reading will take place.
+     */
+    public SharedTimeoutInputStream(final InputStream in) {
+        this(in, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new timeout stream decorator with the given timeout, run by the
+     * shared executor.
+     *
+     * @param in the input stream to be decorated from where the reading will take place.
+     * @param timeout the timeout of read operations. Must be positive.
+     * @param timeoutUnit the units of the timeout parameter
+     */
+    public SharedTimeoutInputStream(final InputStream in, final int timeout,
+                                    final TimeUnit timeoutUnit) {
+        this(in, timeout, timeoutUnit, TimeoutTasks.shared());
+    }
+
+    /**
+     * Instantiates a new timeout stream decorator with the given timeout and executor.
+     *
+     * @param in the input stream to be decorated from where the reading will take place.
+     * @param timeout the timeout of read operations. Must be positive.
+     * @param timeoutUnit the units of the timeout parameter
+     * @param readExecutor the executor running the reads, usually shared by many streams
+     */
+    public SharedTimeoutInputStream(final InputStream in, final int timeout,
+                                    final TimeUnit timeoutUnit,
+                                    final ExecutorService readExecutor) {
+        super(in);
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive.");
+        }
+        if (timeoutUnit == null || readExecutor == null) {
+            throw new IllegalArgumentException(
+                    "The timeout unit and executor must be assigned");
+        }
+        streamTimeout = timeout;
+        streamTimeoutUnit = timeoutUnit;
+        executor = readExecutor;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (bufferStart == bufferEnd && !fill()) {
+            return -1;
+        }
+        return readBuffer[bufferStart++] & BinaryUtil.INT_LOW_BYTE_MASK;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    /**
+     * Reads bytes from the decorated stream, waiting at most the timeout.
+     *
+     * @param b the array to store the bytes in
+     * @param off the index of the first byte stored
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, or <code>-1</code> at the end of the stream
+     * @throws TimeoutException if no bytes were read in time
+     * @throws IOException if the decorated stream fails
+     */
+    @Override
+    public synchronized int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (bufferStart == bufferEnd && !fill()) {
+            return -1;
+        }
+        final int count = Math.min(len, bufferEnd - bufferStart);
+        System.arraycopy(readBuffer, bufferStart, b, off, count);
+        bufferStart += count;
+        return count;
+    }
+
+    /**
+     * Reads the decorated stream into the empty buffer, waiting at most the timeout.
+     * <p>
+     * A read that times out, or whose wait is interrupted, is kept and awaited by the next
+     * call.
+     *
+     * @return <code>true</code> if bytes were read, <code>false</code> at the end of the
+     *         stream
+     * @throws TimeoutException if no bytes were read in time
+     * @throws IOException if the decorated stream fails
+     */
+    private boolean fill() throws IOException {
+        if (pendingRead == null) {
+            if (readBuffer == null) {
+                readBuffer = new byte[MAX_READ_SIZE];
+            }
+            final byte[] buffer = readBuffer;
+            pendingRead = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    int n;
+                    do {
+                        n = in.read(buffer, 0, buffer.length);
+                    } while (n == 0);
+                    return n;
+                }
+            });
+        }
+
+        final int n;
+        try {
+            n = TimeoutTasks.await(pendingRead, streamTimeout, streamTimeoutUnit,
+                    "read from decorated input stream");
+        } catch (TimeoutException e) {
+            // keep the read, its bytes are returned by the next call
+            throw e;
+        } catch (InterruptedIOException e) {
+            // an interrupted wait leaves the read running, unlike a failed read
+            if (!Thread.currentThread().isInterrupted()) {
+                pendingRead = null;
+            }
+            throw e;
+        } catch (IOException e) {
+            pendingRead = null;
+            throw e;
+        } catch (RuntimeException e) {
+            pendingRead = null;
+            throw e;
+        }
+        pendingRead = null;
+        bufferStart = 0;
+        bufferEnd = Math.max(0, n);
+        return n > 0;
+    }
+
+    /**
+     * Gets the number of bytes that can be read without blocking.
+     *
+     * @return the bytes already read from the decorated stream, or the bytes available in
+     *         the decorated stream if no read is in progress
+     * @throws IOException if the decorated stream fails
+     */
+    @Override
+    public synchronized int available() throws IOException {
+        final int buffered = bufferEnd - bufferStart;
+        if (buffered > 0 || pendingRead != null) {
+            return buffered;
+        }
+        return in.available();
+    }
+
+    /**
+     * Cancels the read in progress, if any, and closes the decorated stream.
+     *
+     * @throws IOException if the decorated stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        final Future<Integer> pending;
+        synchronized (this) {
+            pending = pendingRead;
+        }
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        super.close();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
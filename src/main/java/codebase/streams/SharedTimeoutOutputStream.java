@@ -0,0 +1,257 @@
+package codebase.streams;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An output stream decorator that times out (instead of blocking) on write operations,
+ * without a thread of its own.
+ * <p>
+ * Unlike {@link TimeoutOutputStream}, which starts a writer thread per stream, the writes
+ * of the decorated stream are run by an executor shared by many streams, and the stream
+ * itself is a small object. A thread of the executor is only held while a write is in
+ * progress. The stream needs not be opened.
+ * <p>
+ * A write that does not complete in time throws a {@link TimeoutException} but is left
+ * running, and the next operation first waits for it. As for {@link TimeoutOutputStream},
+ * a timeout only guarantees that writing does not block indefinitely, not that the bytes
+ * were not written.
+ */
+public class SharedTimeoutOutputStream extends FilterOutputStream {
+
+    /**
+     * Port default timeout in milliseconds for write operations.
+     */
+    private static final int DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * The name of the write operations, for the messages of the exceptions.
+     */
+    private static final String WRITE = "write to decorated output stream";
+
+    /**
+     * The executor running the writes.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The timeout of the write operations.
+     */
+    private final int streamTimeout;
+
+    /**
+     * The unit of the timeout.
+     */
+    private final TimeUnit streamTimeoutUnit;
+
+    /**
+     * The copy of the bytes being written, allocated by the first write.
+     */
+    private byte[] writeBuffer = new byte[0];
+
+    /**
+     * The write or flush in progress, or <code>null</code> if there is none.
+     */
+    private Future<Void> pendingWrite;
+
+    /**
+     * Instantiates a new timeout stream decorator with default timeout, run by the shared
+     * executor.
+     *
+     * @param out the output stream to be decorated where the writing will take place.
+     */
+    public SharedTimeoutOutputStream(final OutputStream out) {
+        this(out, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new timeout stream decorator with the given timeout, run by the
+     * shared executor.
+     *
+     * @param out the output stream to be decorated where the writing will take place.
+     * @param timeout the timeout of write operations. Must be positive.
+     * @param timeoutUnit the units of the timeout parameter
+     */
+    public SharedTimeoutOutputStream(final OutputStream out, final int timeout,
+                                     final TimeUnit timeoutUnit) {
+        this(out, timeout, timeoutUnit, TimeoutTasks.shared());
+    }
+
+    /**
+     * Instantiates a new timeout stream decorator with the given timeout and executor.
+     *
+     * @param out the output stream to be decorated where the writing will take place.
+     * @param timeout the timeout of write operations. Must be positive.
+     * @param timeoutUnit the units of the timeout parameter
+     * @param writeExecutor the executor running the writes, usually shared by many
+     *            streams
+     */
+    public SharedTimeoutOutputStream(final OutputStream out, final int timeout,
+                                     final TimeUnit timeoutUnit,
+                                     final ExecutorService writeExecutor) {
+        super(out);
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive.");
+        }
+        if (timeoutUnit == null || writeExecutor == null) {
+            throw new IllegalArgumentException(
+                    "The timeout unit and executor must be assigned");
+        }
+        streamTimeout = timeout;
+        streamTimeoutUnit = timeoutUnit;
+        executor = writeExecutor;
+    }
+
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        awaitPending(WRITE);
+        ensureCapacity(1);
+        writeBuffer[0] = (byte) b;
+        submitWrite(1);
+    }
+
+    @Override
+    public void write(final byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    /**
+     * Writes a segment of a message buffer into the decorated stream, waiting at most the
+     * timeout.
+     *
+     * @param b the byte[] message to be written
+     * @param off the offset of the first byte to write
+     * @param len the number of bytes to write
+     * @throws TimeoutException if the bytes, or the bytes of a previous write, were not
+     *             written in time
+     * @throws IOException if the decorated stream fails
+     */
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        awaitPending(WRITE);
+        ensureCapacity(len);
+        System.arraycopy(b, off, writeBuffer, 0, len);
+        submitWrite(len);
+    }
+
+    /**
+     * Flushes the decorated stream, waiting at most the timeout.
+     *
+     * @throws TimeoutException if the stream, or a previous write, did not complete in
+     *             time
+     * @throws IOException if the decorated stream fails
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        awaitPending(WRITE);
+        pendingWrite = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                out.flush();
+                return null;
+            }
+        });
+        awaitPending("flush decorated output stream");
+    }
+
+    /**
+     * Flushes and closes the decorated stream.
+     * <p>
+     * The decorated stream is closed even if flushing it times out, in which case the
+     * pending operation is cancelled.
+     *
+     * @throws IOException if the decorated stream fails or times out
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            final Future<Void> pending;
+            synchronized (this) {
+                pending = pendingWrite;
+                pendingWrite = null;
+            }
+            if (pending != null) {
+                pending.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Makes sure the copy of the bytes written can hold a number of bytes.
+     *
+     * @param length the number of bytes
+     */
+    private void ensureCapacity(final int length) {
+        if (writeBuffer.length < length) {
+            writeBuffer = Arrays.copyOf(writeBuffer, Math.max(length,
+                    2 * writeBuffer.length));
+        }
+    }
+
+    /**
+     * Writes the copy of the bytes in the executor, waiting at most the timeout.
+     *
+     * @param length the number of bytes to write
+     * @throws IOException if the bytes were not written in time or the stream fails
+     */
+    private void submitWrite(final int length) throws IOException {
+        final byte[] bytes = writeBuffer;
+        pendingWrite = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                out.write(bytes, 0, length);
+                return null;
+            }
+        });
+        awaitPending(WRITE);
+    }
+
+    /**
+     * Waits for the operation in progress, if any.
+     * <p>
+     * An operation that times out, or whose wait is interrupted, is kept and awaited by
+     * the next call.
+     *
+     * @param what the name of the operation, for the messages of the exceptions
+     * @throws TimeoutException if the operation does not complete in time
+     * @throws IOException if the operation failed
+     */
+    private void awaitPending(final String what) throws IOException {
+        if (pendingWrite == null) {
+            return;
+        }
+        try {
+            TimeoutTasks.await(pendingWrite, streamTimeout, streamTimeoutUnit, what);
+        } catch (TimeoutException e) {
+            // keep the operation, the next call waits for it
+            throw e;
+        } catch (InterruptedIOException e) {
+            // an interrupted wait leaves the operation running, unlike a failed one
+            if (!Thread.currentThread().isInterrupted()) {
+                pendingWrite = null;
+            }
+            throw e;
+        } catch (IOException e) {
+            pendingWrite = null;
+            throw e;
+        } catch (RuntimeException e) {
+            pendingWrite = null;
+            throw e;
+        }
+        pendingWrite = null;
+    }
+}
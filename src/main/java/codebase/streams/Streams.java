@@ -10,6 +10,7 @@ import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Utilities for managing streams.
@@ -54,4 +55,28 @@ public final class Streams {
         return bufferedInput;
     }
 
+    /**
+     * Gets the exception to report for a task that failed in another thread.
+     * <p>
+     * An {@link IOException} thrown by the task is returned as is, so that the caller can
+     * throw it. Unchecked exceptions and errors are rethrown, and other exceptions are
+     * wrapped in a new {@link IOException}.
+     *
+     * @param e the exception thrown while getting the result of the task
+     * @param message the message of the wrapping exception
+     * @return the exception to throw
+     */
+    public static IOException unwrap(final ExecutionException e, final String message) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(message, cause);
+    }
 }
@@ -5,8 +5,9 @@ import java.io.IOException;
 /**
  * The exception thrown to signal that the streams timeout.
  * <p>
- * This is a sub-type of {@link IOException} thrown by {@link TimeoutInputStream} and
- * {@link TimeoutOutputStream}.
+ * This is a sub-type of {@link IOException} thrown by {@link TimeoutInputStream},
+ * {@link TimeoutOutputStream}, {@link SharedTimeoutInputStream},
+ * {@link SharedTimeoutOutputStream} and {@link BlockTimeoutInputStream}.
  */
 public class TimeoutException extends
         IOException {
@@ -160,19 +160,33 @@ public class TimeoutInputStream extends FilterInputStream {
 
     @Override
     public int read(byte[] b) throws IOException {
-        int i = 0;
-        while (i < b.length) {
-            b[i] = (byte) this.read();
-            i++;
-        }
-        return i;
+        return read(b, 0, b.length);
     }
 
+    /**
+     * Reads bytes one at a time until the length asked is read or the decorated stream
+     * ends.
+     *
+     * @param b the array to store the bytes in
+     * @param off the index of the first byte stored
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, or <code>-1</code> if the stream ended before the
+     *         first one
+     * @throws TimeoutException if a byte was not read in time
+     * @throws IOException if the decorated stream failed
+     */
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        int i = off;
-        while (i < (off + len)) {
-            b[i] = (byte) this.read();
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = 0;
+        while (i < len) {
+            final int c = this.read();
+            if (c < 0) {
+                return i == 0 ? -1 : i;
+            }
+            b[off + i] = (byte) c;
             i++;
         }
         return i;
@@ -0,0 +1,87 @@
+package codebase.streams;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking operations of the shared timeout streams.
+ * <p>
+ * The streams created without an executor share a single cached pool of daemon threads,
+ * whose threads are only held while an operation is blocked and expire when idle.
+ *
+ * @see SharedTimeoutInputStream
+ * @see SharedTimeoutOutputStream
+ */
+final class TimeoutTasks {
+
+    /**
+     * The number of threads created by the shared pool, used to name them.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * The executor shared by the streams created without one.
+     */
+    private static final ExecutorService SHARED = Executors.newCachedThreadPool(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable task) {
+                    final Thread thread = new Thread(task, "Timeout stream worker "
+                            + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Avoid anyone from instantiating this class.
+     */
+    private TimeoutTasks() {
+    }
+
+    /**
+     * Gets the executor shared by the streams created without one.
+     *
+     * @return the shared executor.
+     */
+    static ExecutorService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Waits for an operation to complete.
+     * <p>
+     * An operation that does not complete in time is left running, so that its result can
+     * be awaited again.
+     *
+     * @param <T> the type of the result of the operation
+     * @param operation the operation
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @param what the name of the operation, for the messages of the exceptions
+     * @return the result of the operation
+     * @throws TimeoutException if the operation does not complete in time
+     * @throws IOException if the operation failed or the wait was interrupted
+     */
+    static <T> T await(final Future<T> operation, final long timeout, final TimeUnit unit,
+                       final String what) throws IOException {
+        try {
+            return operation.get(timeout, unit);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException("Could not " + what + " after " + timeout + " "
+                    + unit.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to " + what);
+        } catch (ExecutionException e) {
+            throw Streams.unwrap(e, "Could not " + what);
+        }
+    }
+}
@@ -1,4 +1,21 @@
 /**
  * Utility classes for working with streams.
+ * <p>
+ * {@link codebase.streams.BlockCompressedOutputStream} and
+ * {@link codebase.streams.BlockCompressedInputStream} compress a stream in independent
+ * blocks, in parallel, and {@link codebase.streams.BlockIndex} locates the block of any
+ * record written to them.
+ * <p>
+ * {@link codebase.streams.ChannelBufferedInputStream} reads a file or any channel through
+ * a large direct buffer and decodes primitive values straight off it, and
+ * {@link codebase.streams.ReadAheadInputStream} reads a stream ahead of its reader in a
+ * background thread.
+ * <p>
+ * {@link codebase.streams.SharedTimeoutInputStream} and
+ * {@link codebase.streams.SharedTimeoutOutputStream} time out blocking operations like
+ * the timeout streams, but run them in an executor shared by all the streams.
+ * <p>
+ * {@link codebase.streams.RingPipe} connects threads through a lock-free ring buffer,
+ * with a single or multiple producers.
  */
-package codebase.streams;
\ No newline at end of file
+package codebase.streams;
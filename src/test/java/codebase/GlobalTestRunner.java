@@ -25,6 +25,8 @@ public class GlobalTestRunner {
 
         // Individual package tests
         suite.addTest(codebase.binary.AllTests.suite());
+        suite.addTest(codebase.io.AllTests.suite());
+        suite.addTest(codebase.io.converters.AllTests.suite());
         suite.addTest(codebase.io.converters.binary.AllTests.suite());
         suite.addTest(codebase.io.converters.display.AllTests.suite());
         suite.addTest(codebase.iterators.AllTests.suite());
@@ -206,4 +206,25 @@ public class TestBinaryUtil extends
                 new ArrayIterator<Integer>(ArrayUtil.toIntegerArray(BinaryUtil.encodeBytesToIntegers(
                         input3, 0, 8))));
     }
+
+    /**
+     * Tests the zigzag encoding of integers and longs.
+     */
+    public void testZigZag() {
+        assertEquals(0, BinaryUtil.zigZagEncode(0));
+        assertEquals(1, BinaryUtil.zigZagEncode(-1));
+        assertEquals(2, BinaryUtil.zigZagEncode(1));
+        assertEquals(-1, BinaryUtil.zigZagEncode(Integer.MIN_VALUE));
+        assertEquals(-2, BinaryUtil.zigZagEncode(Integer.MAX_VALUE));
+        assertEquals(3L, BinaryUtil.zigZagEncode(-2L));
+        assertEquals(-1L, BinaryUtil.zigZagEncode(Long.MIN_VALUE));
+
+        final int[] ints = { 0, 1, -1, 63, -64, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        for (int i : ints) {
+            assertEquals(i, BinaryUtil.zigZagDecode(BinaryUtil.zigZagEncode(i)));
+            assertEquals((long) i, BinaryUtil.zigZagDecode(BinaryUtil.zigZagEncode((long) i)));
+        }
+        assertEquals(Long.MAX_VALUE, BinaryUtil.zigZagDecode(BinaryUtil
+                .zigZagEncode(Long.MAX_VALUE)));
+    }
 }
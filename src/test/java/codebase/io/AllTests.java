@@ -0,0 +1,19 @@
+package codebase.io;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Runs all tests of the io package.
+ */
+public class AllTests {
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(AllTests.class.getName());
+        //$JUnit-BEGIN$
+        suite.addTestSuite(TestExternalSorter.class);
+        suite.addTestSuite(TestFixedRecordFile.class);
+        //$JUnit-END$
+        return suite;
+    }
+}
@@ -0,0 +1,152 @@
+package codebase.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import codebase.io.converters.binary.IntegerConverter;
+
+public class TestExternalSorter extends TestCase {
+
+    /**
+     * Orders integers by their last two digits only, so that many records tie.
+     */
+    private static final Comparator<Object> BY_LAST_DIGITS = new Comparator<Object>() {
+        public int compare(final Object a, final Object b) {
+            return ((Integer) a).intValue() % 100 - ((Integer) b).intValue() % 100;
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdown();
+    }
+
+    private static byte[] integers(final int count, final boolean shuffled)
+            throws IOException {
+        final Random random = new Random(42);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        for (int i = 0; i < count; i++) {
+            output.writeInt(shuffled ? random.nextInt(1000000) : i);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int[] sorted(final ExternalSorter sorter, final byte[] input,
+                                final ExternalSorter.Report[] report) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        report[0] = sorter.sort(new ByteArrayInputStream(input), output);
+        assertEquals(input.length, output.size());
+        final DataInputStream result = new DataInputStream(new ByteArrayInputStream(output
+                .toByteArray()));
+        final int[] values = new int[input.length / 4];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = result.readInt();
+        }
+        return values;
+    }
+
+    public void testInMemory() throws IOException {
+        final ExternalSorter sorter = new ExternalSorter(new IntegerConverter(),
+                BY_LAST_DIGITS, 1 << 20, null, executor, 2);
+        final ExternalSorter.Report[] report = new ExternalSorter.Report[1];
+        final int[] values = sorted(sorter, integers(1000, true), report);
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(values[i - 1] % 100 <= values[i] % 100);
+        }
+        assertEquals(1000, report[0].getRecords());
+        assertEquals(1, report[0].getRuns());
+        assertEquals(0, report[0].getBytesSpilled());
+        assertEquals(0, report[0].getMergePasses());
+
+        assertEquals(0, sorted(sorter, new byte[0], report).length);
+        assertEquals(0, report[0].getRuns());
+    }
+
+    public void testMultiplePasses() throws IOException {
+        // 20 runs of 1024 records, merged 3 at a time into 7, 3 and 1 runs
+        final ExternalSorter sorter = new ExternalSorter(new IntegerConverter(),
+                BY_LAST_DIGITS, 12000, null, executor, 2, 3);
+        final ExternalSorter.Report[] report = new ExternalSorter.Report[1];
+        final int[] values = sorted(sorter, integers(20000, false), report);
+
+        // stable: ties keep the input order
+        for (int i = 1; i < values.length; i++) {
+            final int previous = values[i - 1] % 100;
+            assertTrue(previous < values[i] % 100
+                    || (previous == values[i] % 100 && values[i - 1] < values[i]));
+        }
+        assertEquals(20000, report[0].getRecords());
+        assertEquals(20, report[0].getRuns());
+        assertEquals(3, report[0].getMergePasses());
+        assertEquals(3 * 80000, report[0].getBytesSpilled());
+    }
+
+    public void testMergesBoundedByParallelism() throws IOException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(8, 8, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(final Callable<T> task) {
+                return super.newTaskFor(new Callable<T>() {
+                    public T call() throws Exception {
+                        final int n = running.incrementAndGet();
+                        int max;
+                        while ((max = maxRunning.get()) < n
+                                && !maxRunning.compareAndSet(max, n)) {
+                            continue;
+                        }
+                        try {
+                            return task.call();
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        };
+        try {
+            // 20 runs merged 3 at a time: the first pass has 7 merges
+            final ExternalSorter sorter = new ExternalSorter(new IntegerConverter(),
+                    BY_LAST_DIGITS, 12000, null, pool, 1, 3);
+            final ExternalSorter.Report[] report = new ExternalSorter.Report[1];
+            sorted(sorter, integers(20000, true), report);
+            assertEquals(3, report[0].getMergePasses());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, maxRunning.get());
+    }
+
+    public void testInvalidArguments() {
+        try {
+            new ExternalSorter(new IntegerConverter(), BY_LAST_DIGITS, 100, null, executor,
+                    1, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
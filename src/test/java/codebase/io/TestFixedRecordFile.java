@@ -0,0 +1,220 @@
+package codebase.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import codebase.io.converters.FixedSizeConverter;
+import codebase.io.converters.StructConverter;
+import codebase.io.converters.binary.DoubleConverter;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.binary.LongConverter;
+
+import junit.framework.TestCase;
+
+public class TestFixedRecordFile extends
+        TestCase {
+
+    private static final StructConverter LAYOUT = new StructConverter(new String[] {
+            "sensor", "time", "reading" }, new FixedSizeConverter[] { new IntegerConverter(),
+            new LongConverter(), new DoubleConverter() });
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("TestFixedRecordFile", ".dat");
+        file.deleteOnExit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    private static Object[] record(final int i) {
+        return new Object[] { Integer.valueOf(i % 7), Long.valueOf(1000L * i),
+                Double.valueOf(i / 4.0) };
+    }
+
+    private void fill(final int records) throws IOException {
+        FixedRecordFile out = new FixedRecordFile(file, LAYOUT, true);
+        for (int i = 0; i < records; i++) {
+            assertEquals(i, out.append(record(i)));
+        }
+        out.close();
+    }
+
+    /**
+     * Tests appending records and reading them back in random order.
+     */
+    public void testAppendAndRandomAccess() throws IOException {
+        fill(1000);
+
+        FixedRecordFile in = new FixedRecordFile(file, LAYOUT, false);
+        try {
+            assertEquals(1000, in.getRecordCount());
+            for (int i = 999; i >= 0; i -= 7) {
+                Object[] record = (Object[]) in.read(i);
+                assertEquals(record(i)[0], record[0]);
+                assertEquals(record(i)[1], record[1]);
+                assertEquals(record(i)[2], record[2]);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Tests reading single fields, boxed and unboxed.
+     */
+    public void testReadField() throws IOException {
+        fill(100);
+
+        FixedRecordFile in = new FixedRecordFile(file, LAYOUT, false);
+        try {
+            assertEquals(Long.valueOf(42000L), in.readField(42, "time"));
+            assertEquals(Double.valueOf(10.0), in.readField(40, 2));
+
+            final ByteBuffer buffer = in.getBuffer();
+            final int reading = LAYOUT.getFieldOffset(LAYOUT.getFieldIndex("reading"));
+            assertEquals(24.75, new DoubleConverter().readDouble(buffer, in
+                    .getRecordOffset(99)
+                    + reading), 0);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Tests scanning and bulk reads.
+     */
+    public void testScan() throws IOException {
+        fill(500);
+
+        FixedRecordFile in = new FixedRecordFile(file, LAYOUT, false);
+        try {
+            final IntegerConverter sensor = new IntegerConverter();
+            final int[] counts = new int[7];
+            in.scan(0, in.getRecordCount(), new FixedRecordFile.RecordVisitor() {
+                @Override
+                public void visit(int index, ByteBuffer buffer, int offset) {
+                    counts[sensor.readInt(buffer, offset)]++;
+                }
+            });
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            assertEquals(500, total);
+            assertEquals(72, counts[0]);
+
+            Object[] records = new Object[3];
+            in.read(10, records);
+            assertEquals(Long.valueOf(12000L), ((Object[]) records[2])[1]);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Tests overwriting records and reopening a file for appending.
+     */
+    public void testUpdate() throws IOException {
+        fill(10);
+
+        FixedRecordFile out = new FixedRecordFile(file, LAYOUT, true);
+        out.write(3, new Object[] { Integer.valueOf(-1), Long.valueOf(-1L), 0.0 });
+        assertEquals(10, out.append(record(10)));
+        out.close();
+
+        FixedRecordFile in = new FixedRecordFile(file, LAYOUT, false);
+        try {
+            assertEquals(11, in.getRecordCount());
+            assertEquals(Integer.valueOf(-1), in.readField(3, 0));
+            assertEquals(Long.valueOf(10000L), in.readField(10, 1));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Tests that the room made for appending is not taken for records, even if the file
+     * was not closed, and that it is trimmed when the file is opened for writing.
+     */
+    public void testRecordCountPersisted() throws IOException {
+        FixedRecordFile out = new FixedRecordFile(file, LAYOUT, true);
+        for (int i = 0; i < 10; i++) {
+            out.append(record(i));
+        }
+        out.flush();
+        assertTrue(file.length() > FixedRecordFile.HEADER_SIZE + 10L * LAYOUT.getSize());
+
+        FixedRecordFile in = new FixedRecordFile(file, LAYOUT, false);
+        try {
+            assertEquals(10, in.getRecordCount());
+        } finally {
+            in.close();
+            out.close();
+        }
+
+        out = new FixedRecordFile(file, LAYOUT, true);
+        try {
+            assertEquals(10, out.getRecordCount());
+            assertEquals(FixedRecordFile.HEADER_SIZE + 10L * LAYOUT.getSize(), file
+                    .length());
+        } finally {
+            out.close();
+        }
+        try {
+            out.read(0);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests the reported errors.
+     */
+    public void testErrors() throws IOException {
+        fill(2);
+
+        FixedRecordFile in = new FixedRecordFile(file, LAYOUT, false);
+        try {
+            in.read(2);
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            in.append(record(2));
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            in.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(FixedRecordFile.HEADER_SIZE + 2L * LAYOUT.getSize() - 1);
+        raf.close();
+        try {
+            new FixedRecordFile(file, LAYOUT, false);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+
+        raf = new RandomAccessFile(file, "rw");
+        raf.writeInt(0);
+        raf.close();
+        try {
+            new FixedRecordFile(file, LAYOUT, true);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package codebase.io.converters;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Runs all tests of the converters package.
+ */
+public class AllTests {
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(AllTests.class.getName());
+        //$JUnit-BEGIN$
+        suite.addTestSuite(TestArrayConverter.class);
+        suite.addTestSuite(TestBufferConverterAdapters.class);
+        suite.addTestSuite(TestChecksumConverter.class);
+        suite.addTestSuite(TestObjectConverterStreams.class);
+        suite.addTestSuite(TestParallelRecordDecoder.class);
+        suite.addTestSuite(TestStructConverter.class);
+        suite.addTestSuite(TestTaggedConverter.class);
+        //$JUnit-END$
+        return suite;
+    }
+}
@@ -0,0 +1,86 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import codebase.io.converters.binary.DoubleConverter;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.display.StringLiteralConverter;
+
+public class TestArrayConverter extends
+        TestCase {
+
+    /**
+     * Tests that arrays of objects are read and written.
+     */
+    public void testObjectArray() throws IOException {
+        ArrayConverter c = new ArrayConverter(new IntegerConverter(), 3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        c.write(new DataOutputStream(output), new Integer[] { 1, -2, 3 });
+
+        Object[] read = (Object[]) c.read(new DataInputStream(new ByteArrayInputStream(
+                output.toByteArray())));
+
+        assertEquals(3, read.length);
+        assertEquals(1, read[0]);
+        assertEquals(-2, read[1]);
+        assertEquals(3, read[2]);
+    }
+
+    /**
+     * Tests that primitive arrays are written in the same format as arrays of objects.
+     */
+    public void testPrimitiveArrayRoundTrip() throws IOException {
+        ArrayConverter c = new ArrayConverter(new IntegerConverter(), 3);
+        ByteArrayOutputStream primitiveOutput = new ByteArrayOutputStream();
+        c.write(new DataOutputStream(primitiveOutput), new int[] { 1, -2, Integer.MAX_VALUE });
+        ByteArrayOutputStream objectOutput = new ByteArrayOutputStream();
+        c.write(new DataOutputStream(objectOutput), new Integer[] { 1, -2, Integer.MAX_VALUE });
+
+        assertEquals(objectOutput.size(), primitiveOutput.size());
+
+        int[] read = (int[]) c.readPrimitives(new DataInputStream(new ByteArrayInputStream(
+                primitiveOutput.toByteArray())));
+        assertEquals(1, read[0]);
+        assertEquals(-2, read[1]);
+        assertEquals(Integer.MAX_VALUE, read[2]);
+    }
+
+    /**
+     * Tests the primitive path with doubles.
+     */
+    public void testPrimitiveDoubles() throws IOException {
+        ArrayConverter c = new ArrayConverter(new DoubleConverter(), 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        c.write(new DataOutputStream(output), new double[] { 0.5, -1e300 });
+
+        double[] read = (double[]) c.readPrimitives(new DataInputStream(
+                new ByteArrayInputStream(output.toByteArray())));
+        assertEquals(0.5, read[0], 0.0);
+        assertEquals(-1e300, read[1], 0.0);
+    }
+
+    /**
+     * Tests that converters of objects do not support the primitive path.
+     */
+    public void testPrimitivesNotSupported() throws IOException {
+        ArrayConverter c = new ArrayConverter(new StringLiteralConverter(), 1);
+        try {
+            c.readPrimitives(new DataInputStream(new ByteArrayInputStream(new byte[0])));
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        try {
+            c.write(new DataOutputStream(new ByteArrayOutputStream()), new int[] { 1 });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.binary.UTFStringConverter;
+import codebase.io.converters.display.IntegerDisplayConverter;
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.ByteBufferDataOutput;
+
+import junit.framework.TestCase;
+
+public class TestBufferConverterAdapters extends
+        TestCase {
+
+    /**
+     * Tests a stream converter used on a buffer.
+     */
+    public void testStreamToBuffer() throws IOException {
+        final StreamToBufferConverter converter = new StreamToBufferConverter(
+                new IntegerDisplayConverter());
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        converter.write(buffer, Integer.valueOf(-123));
+        buffer.put((byte) ';');
+        converter.write(buffer, Integer.valueOf(45));
+        buffer.flip();
+
+        assertEquals(Integer.valueOf(45), converter.read(buffer, 5));
+        assertEquals(0, buffer.position());
+        assertEquals(Integer.valueOf(-123), converter.read(buffer));
+        assertEquals(Integer.valueOf(45), converter.read(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Tests a buffer converter used on streams.
+     */
+    public void testBufferToStream() throws IOException {
+        final BufferToStreamConverter converter = new BufferToStreamConverter(
+                new IntegerConverter());
+        assertEquals(IntegerConverter.SIZE, converter.getSize());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), Integer.valueOf(7));
+        converter.write(new DataOutputStream(output), Integer.valueOf(-7));
+        assertEquals(2 * IntegerConverter.SIZE, output.size());
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(output
+                .toByteArray()));
+        assertEquals(7, input.readInt());
+        assertEquals(Integer.valueOf(-7), converter.read(input));
+    }
+
+    /**
+     * Tests that buffer-backed streams are converted in place.
+     */
+    public void testBufferToStreamInPlace() throws IOException {
+        final BufferToStreamConverter converter = new BufferToStreamConverter(
+                new UTFStringConverter(), 8);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        buffer.put(7, (byte) 1);
+        converter.write(new ByteBufferDataOutput(buffer), "abc");
+        assertEquals(8, buffer.position());
+        assertEquals(0, buffer.get(7));
+
+        buffer.flip();
+        assertEquals("abc", converter.read(new ByteBufferDataInput(buffer)));
+        assertEquals(8, buffer.position());
+
+        buffer.limit(12);
+        try {
+            converter.read(new ByteBufferDataInput(buffer));
+            fail("Reading past the end of the buffer should fail");
+        } catch (EOFException e) {
+            assertEquals(8, buffer.position());
+        }
+    }
+
+    /**
+     * Tests that objects shorter than the size are padded and longer ones rejected.
+     */
+    public void testBufferToStreamPadding() throws IOException {
+        final BufferToStreamConverter converter = new BufferToStreamConverter(
+                new UTFStringConverter(), 6);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), "abcd");
+        converter.write(new DataOutputStream(output), "a");
+        byte[] bytes = output.toByteArray();
+        assertEquals(12, bytes.length);
+        assertEquals(0, bytes[9]);
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertEquals("abcd", converter.read(input));
+        assertEquals("a", converter.read(input));
+
+        try {
+            converter.write(new DataOutputStream(output), "abcde");
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
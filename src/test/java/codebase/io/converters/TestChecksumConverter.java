@@ -0,0 +1,131 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.binary.UTF8StringConverter;
+
+public class TestChecksumConverter extends TestCase {
+
+    private final ChecksumConverter converter = new ChecksumConverter(
+            new UTF8StringConverter(), 1024, true);
+
+    private byte[] frames(final Object[][] batches) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        for (Object[] batch : batches) {
+            converter.writeFrame(output, batch, 0, batch.length);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void testSingleObjects() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        converter.write(output, "one");
+        converter.write(output, "");
+        assertEquals(2 * ChecksumConverter.FRAME_OVERHEAD + 1 + 3 + 1, bytes.size());
+
+        final DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("one", converter.read(input));
+        assertEquals("", converter.read(input));
+        try {
+            converter.read(input);
+            fail("Reading past the last frame must fail");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testBatchedFrames() throws IOException {
+        final Object[][] batches = { { "a", "b", "c" }, {}, { "d" } };
+        final byte[] bytes = frames(batches);
+
+        final PushbackInputStream input = converter.newInput(
+                new ByteArrayInputStream(bytes));
+        for (Object[] batch : batches) {
+            assertTrue(Arrays.equals(batch, converter.readFrame(input)));
+        }
+        assertNull(converter.readFrame(input));
+        assertEquals(0, converter.getSkippedBytes());
+    }
+
+    public void testCorruptionDetected() throws IOException {
+        final byte[] bytes = frames(new Object[][] { { "payload" } });
+        bytes[ChecksumConverter.FRAME_OVERHEAD] ^= 1;
+        try {
+            new ChecksumConverter(new UTF8StringConverter()).read(new DataInputStream(
+                    new ByteArrayInputStream(bytes)));
+            fail("A corrupted frame must be detected");
+        } catch (IOException e) {
+            assertEquals("Frame checksum mismatch", e.getMessage());
+        }
+    }
+
+    public void testResynchronizes() throws IOException {
+        final byte[] good = frames(new Object[][] { { "first" }, { "second", "third" } });
+        final int firstLength = ChecksumConverter.FRAME_OVERHEAD + 1 + 5;
+
+        // garbage before the frames, a flipped payload bit and a bad length field
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[] { 1, 2, (byte) 0xF7, (byte) 0xC3, 3 });
+        final byte[] corrupted = good.clone();
+        corrupted[firstLength - 6] ^= 0x40;
+        bytes.write(corrupted, 0, firstLength);
+        final byte[] badLength = good.clone();
+        badLength[5] = 0x7f;
+        bytes.write(badLength, 0, firstLength);
+        bytes.write(good);
+        bytes.write(new byte[] { (byte) 0xF7, (byte) 0xC3, (byte) 0xA5 });
+
+        final PushbackInputStream input = converter.newInput(new ByteArrayInputStream(
+                bytes.toByteArray()));
+        assertTrue(Arrays.equals(new Object[] { "first" }, converter.readFrame(input)));
+        assertTrue(Arrays.equals(new Object[] { "second", "third" },
+                converter.readFrame(input)));
+        assertNull(converter.readFrame(input));
+        assertEquals(5 + 2 * firstLength + 3, converter.getSkippedBytes());
+    }
+
+    public void testStrictReadThrows() throws IOException {
+        final ChecksumConverter strict = new ChecksumConverter(new IntegerConverter());
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        strict.write(new DataOutputStream(bytes), 5);
+        final byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+
+        final PushbackInputStream input = strict.newInput(new ByteArrayInputStream(
+                new byte[ChecksumConverter.FRAME_OVERHEAD]));
+        try {
+            strict.readFrame(input);
+            fail("A missing marker must be reported");
+        } catch (IOException e) {
+            assertFalse(e instanceof EOFException);
+        }
+        try {
+            strict.readFrame(strict.newInput(new ByteArrayInputStream(truncated)));
+            fail("A truncated frame must be reported");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testPayloadTooLarge() throws IOException {
+        final ChecksumConverter small = new ChecksumConverter(new UTF8StringConverter(), 4,
+                false);
+        try {
+            small.write(new DataOutputStream(new ByteArrayOutputStream()), "too long");
+            fail("A payload larger than the maximum must be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.streams.ByteBufferDataInput;
+
+public class TestObjectConverterStreams extends TestCase {
+
+    private static final Converter INTEGERS = new IntegerConverter();
+
+    private static byte[] writeIntegers(final int count) throws IOException {
+        final List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < count; i++) {
+            values.add(i);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectConverterOutput output = new ObjectConverterOutput(
+                new DataOutputStream(bytes), INTEGERS);
+        assertEquals(count / 2, output.writeObjects(values.subList(0, count / 2)));
+        final Object[] rest = values.subList(count / 2, count).toArray();
+        output.writeObjects(rest, 0, rest.length);
+        return bytes.toByteArray();
+    }
+
+    private static void assertBatches(final ObjectConverterInput input, final int count)
+            throws IOException {
+        final Object[] batch = new Object[7];
+        int read = 0;
+        int n;
+        while ((n = input.readObjects(batch, 5)) > 0) {
+            assertTrue(n <= 5);
+            for (int i = 0; i < n; i++) {
+                assertEquals(read + i, batch[i]);
+            }
+            read += n;
+        }
+        assertEquals(count, read);
+        assertEquals(0, input.readObjects(batch, batch.length));
+    }
+
+    public void testReadObjects() throws IOException {
+        final byte[] bytes = writeIntegers(23);
+        assertBatches(new ObjectConverterInput(new PushbackInputStream(
+                new ByteArrayInputStream(bytes)), INTEGERS), 23);
+        assertBatches(new ObjectConverterInput(new ByteBufferDataInput(ByteBuffer
+                .wrap(bytes)), INTEGERS), 23);
+        assertBatches(new ObjectConverterInput(new DataInputStream(
+                new ByteArrayInputStream(bytes)), INTEGERS), 23);
+        assertEquals(0, new ObjectConverterInput(new ByteBufferDataInput(ByteBuffer
+                .wrap(bytes)), INTEGERS).readObjects(new Object[0], 10));
+    }
+
+    public void testTruncatedObject() throws IOException {
+        final byte[] bytes = Arrays.copyOf(writeIntegers(3), 10);
+        final Object[] batch = new Object[5];
+        final ObjectConverterInput[] detectable = {
+                new ObjectConverterInput(new PushbackInputStream(new ByteArrayInputStream(
+                        bytes)), INTEGERS),
+                new ObjectConverterInput(new ByteBufferDataInput(ByteBuffer.wrap(bytes)),
+                        INTEGERS) };
+        for (ObjectConverterInput input : detectable) {
+            try {
+                input.readObjects(batch, 5);
+                fail("A truncated object should not be taken for the end of the input");
+            } catch (EOFException e) {
+                fail("A truncated object should not be reported as the end of the input");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        final ObjectConverterInput input = new ObjectConverterInput(new DataInputStream(
+                new ByteArrayInputStream(bytes)), INTEGERS);
+        assertEquals(2, input.readObjects(batch, 5));
+        assertEquals(1, batch[1]);
+        assertEquals(0, input.readObjects(batch, 5));
+    }
+
+    public void testIterator() throws IOException {
+        final byte[] bytes = writeIntegers(200);
+        final ObjectConverterInput input = new ObjectConverterInput(
+                new PushbackInputStream(new ByteArrayInputStream(bytes)), INTEGERS);
+        int expected = 0;
+        for (Object value : input) {
+            assertEquals(expected++, value);
+        }
+        assertEquals(200, expected);
+        final Iterator<Object> iterator = input.iterator();
+        assertFalse(iterator.hasNext());
+    }
+}
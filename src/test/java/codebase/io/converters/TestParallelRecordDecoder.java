@@ -0,0 +1,108 @@
+package codebase.io.converters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.binary.LongConverter;
+
+public class TestParallelRecordDecoder extends TestCase {
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdown();
+    }
+
+    private static ByteBuffer longs(final int count) {
+        final ByteBuffer buffer = ByteBuffer.allocate(count * 8 + 3);
+        buffer.put(new byte[3]);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(i * 1000003L);
+        }
+        buffer.flip();
+        buffer.position(3);
+        return buffer;
+    }
+
+    public void testDecodeBuffer() throws IOException {
+        final ParallelRecordDecoder decoder = new ParallelRecordDecoder(
+                new LongConverter(), executor, 100);
+        final ByteBuffer buffer = longs(1234);
+        final Object[] records = decoder.decode(buffer);
+        assertEquals(1234, records.length);
+        for (int i = 0; i < records.length; i++) {
+            assertEquals(i * 1000003L, records[i]);
+        }
+        assertFalse(buffer.hasRemaining());
+        assertEquals(0, decoder.decode(ByteBuffer.allocate(0)).length);
+    }
+
+    public void testLittleEndianBuffer() throws IOException {
+        final ParallelRecordDecoder decoder = new ParallelRecordDecoder(
+                new IntegerConverter(), executor, 1);
+        final ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 1; i <= 4; i++) {
+            buffer.putInt(i);
+        }
+        buffer.flip();
+        final Object[] records = decoder.decode(buffer);
+        for (int i = 0; i < records.length; i++) {
+            assertEquals(i + 1, records[i]);
+        }
+    }
+
+    public void testStreamConverter() throws IOException {
+        final ParallelRecordDecoder decoder = new ParallelRecordDecoder(
+                new BufferToStreamConverter(new IntegerConverter(), 8), executor, 7);
+        final Object[] records = decoder.decode(longs(50));
+        for (int i = 0; i < records.length; i++) {
+            // the integer is read from the high half of each long
+            assertEquals((int) ((i * 1000003L) >>> 32), records[i]);
+        }
+    }
+
+    public void testPartialRecord() {
+        final ParallelRecordDecoder decoder = new ParallelRecordDecoder(
+                new LongConverter(), executor);
+        try {
+            decoder.decode(ByteBuffer.allocate(20));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testDecodeFile() throws IOException {
+        final File file = File.createTempFile("records", ".bin");
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer buffer = longs(5000);
+            buffer.position(3);
+            channel.write(buffer);
+            final Object[] records = new ParallelRecordDecoder(new LongConverter(),
+                    executor, 333).decode(channel);
+            assertEquals(5000, records.length);
+            for (int i = 0; i < records.length; i++) {
+                assertEquals(i * 1000003L, records[i]);
+            }
+        } finally {
+            raf.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import codebase.io.converters.binary.ByteSkipConverter;
+import codebase.io.converters.binary.DoubleConverter;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.display.FixedSizeStringConverter;
+
+import junit.framework.TestCase;
+
+public class TestStructConverter extends
+        TestCase {
+
+    private static StructConverter createStruct() {
+        return new StructConverter(new String[] { "id", "name", "filler", "value" },
+                new FixedSizeConverter[] { new IntegerConverter(),
+                        new FixedSizeStringConverter(5, (byte) ' '), new ByteSkipConverter(2),
+                        new DoubleConverter() });
+    }
+
+    /**
+     * Tests the layout of the fields.
+     */
+    public void testLayout() {
+        final StructConverter struct = createStruct();
+
+        assertEquals(19, struct.getSize());
+        assertEquals(4, struct.getFieldCount());
+        assertEquals(0, struct.getFieldOffset(0));
+        assertEquals(4, struct.getFieldOffset(1));
+        assertEquals(9, struct.getFieldOffset(2));
+        assertEquals(11, struct.getFieldOffset(3));
+        assertEquals(3, struct.getFieldIndex("value"));
+        assertEquals("name", struct.getFieldName(1));
+    }
+
+    /**
+     * Tests that the stream and buffer formats are the same.
+     */
+    public void testStreamAndBuffer() throws IOException {
+        final StructConverter struct = createStruct();
+        final Object[] record = { Integer.valueOf(7), "abc  ", null, Double.valueOf(0.25) };
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        struct.write(new DataOutputStream(output), record);
+
+        ByteBuffer buffer = ByteBuffer.allocate(struct.getSize() + 1);
+        buffer.put((byte) 1);
+        struct.write(buffer, record);
+        assertEquals(1 + struct.getSize(), buffer.position());
+        assertTrue(Arrays.equals(output.toByteArray(), Arrays.copyOfRange(buffer.array(), 1,
+                buffer.position())));
+
+        assertTrue(Arrays.equals(record, (Object[]) struct.read(new DataInputStream(
+                new ByteArrayInputStream(output.toByteArray())))));
+        assertTrue(Arrays.equals(record, (Object[]) struct.read(buffer, 1)));
+
+        buffer.position(1);
+        assertTrue(Arrays.equals(record, (Object[]) struct.read(buffer)));
+        assertEquals(1 + struct.getSize(), buffer.position());
+    }
+
+    /**
+     * Tests reading a single field.
+     */
+    public void testReadField() throws IOException {
+        final StructConverter struct = createStruct();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * struct.getSize());
+        struct.write(buffer, new Object[] { Integer.valueOf(1), "one", null, 1.0 });
+        struct.write(buffer, new Object[] { Integer.valueOf(2), "two", null, 2.0 });
+
+        assertEquals("two  ", struct.readField(buffer, struct.getSize(), 1));
+        assertEquals(Double.valueOf(1.0), struct.readField(buffer, 0, 3));
+    }
+
+    /**
+     * Tests the validation of arguments.
+     */
+    public void testInvalidArguments() throws IOException {
+        try {
+            new StructConverter(new String[] { "a", "a" }, new FixedSizeConverter[] {
+                    new IntegerConverter(), new IntegerConverter() });
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new StructConverter(new String[] { "a" }, new FixedSizeConverter[0]);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            createStruct().write(ByteBuffer.allocate(64), new Object[] { 1 });
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package codebase.io.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import codebase.io.converters.binary.IntegerConverter;
+import codebase.io.converters.binary.LongConverter;
+import codebase.io.converters.binary.UTF8StringConverter;
+
+public class TestTaggedConverter extends TestCase {
+
+    /**
+     * Writes any character sequence as a string.
+     */
+    private static final Converter TEXT = new UTF8StringConverter() {
+        @Override
+        public void write(final DataOutput dataOutput, final Object object)
+                throws IOException {
+            super.write(dataOutput, object.toString());
+        }
+    };
+
+    private final TaggedConverter converter = new TaggedConverter()
+            .register(1, Integer.class, new IntegerConverter())
+            .register(2, Long.class, new LongConverter())
+            .register(200, CharSequence.class, TEXT);
+
+    public void testMixedTypes() throws IOException {
+        final Object[] values = { 7, 8L, "nine", 10, new StringBuilder("eleven") };
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        for (Object value : values) {
+            converter.write(output, value);
+        }
+        assertEquals(5 + 9 + 6 + 5 + 8, bytes.size());
+        assertEquals(1, bytes.toByteArray()[0]);
+
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes
+                .toByteArray()));
+        for (Object value : values) {
+            assertEquals(value.toString(), converter.read(input).toString());
+        }
+    }
+
+    public void testLookup() {
+        assertEquals(1, converter.getTag(Integer.class));
+        assertEquals(200, converter.getTag(String.class));
+        assertEquals(200, converter.getTag(StringBuilder.class));
+        assertEquals(-1, converter.getTag(Double.class));
+        assertNull(converter.getConverter(3));
+
+        converter.register(3, Number.class, new LongConverter());
+        assertEquals(3, converter.getTag(Double.class));
+        assertEquals(1, converter.getTag(Integer.class));
+    }
+
+    public void testRegisterWhileLookingUp() throws InterruptedException {
+        final Class<?>[] types = { Double.class, Float.class, Short.class, Byte.class };
+        for (int round = 0; round < 200; round++) {
+            final TaggedConverter tagged = new TaggedConverter().register(1, Object.class,
+                    new IntegerConverter());
+            final Thread reader = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        tagged.getTag(types[i % types.length]);
+                    }
+                }
+            };
+            reader.start();
+            tagged.register(2, Number.class, new LongConverter());
+            reader.join();
+            for (Class<?> type : types) {
+                assertEquals(type.getName(), 2, tagged.getTag(type));
+            }
+        }
+    }
+
+    public void testErrors() throws IOException {
+        try {
+            converter.register(1, Short.class, new IntegerConverter());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            converter.register(4, Integer.class, new IntegerConverter());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            converter.write(new DataOutputStream(new ByteArrayOutputStream()), 1.5);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            final byte[] unknownTag = { 9 };
+            converter.read(new DataInputStream(new ByteArrayInputStream(unknownTag)));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -8,7 +8,9 @@ public class AllTests {
     public static Test suite() {
         TestSuite suite = new TestSuite(AllTests.class.getName());
         //$JUnit-BEGIN$
+        suite.addTestSuite(TestAnnotatedRecordConverter.class);
         suite.addTestSuite(TestBooleanConverter.class);
+        suite.addTestSuite(TestBufferConverters.class);
         suite.addTestSuite(TestByteConverter.class);
         suite.addTestSuite(TestByteSkipConverter.class);
         suite.addTestSuite(TestCharacterConverter.class);
@@ -16,7 +18,10 @@ public class AllTests {
         suite.addTestSuite(TestFloatConverter.class);
         suite.addTestSuite(TestIntegerConverter.class);
         suite.addTestSuite(TestLongConverter.class);
+        suite.addTestSuite(TestPrimitiveArrayConverters.class);
+        suite.addTestSuite(TestUTF8StringConverter.class);
         suite.addTestSuite(TestUTFStringConverter.class);
+        suite.addTestSuite(TestVarIntConverters.class);
         //$JUnit-END$
         return suite;
     }
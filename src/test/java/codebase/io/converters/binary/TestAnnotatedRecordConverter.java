@@ -0,0 +1,144 @@
+package codebase.io.converters.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class TestAnnotatedRecordConverter extends TestCase {
+
+    static class Base {
+        @RecordField(0)
+        int id;
+    }
+
+    static final class Sample extends Base {
+        @RecordField(3)
+        private String name;
+        @RecordField(1)
+        double weight;
+        @RecordField(2)
+        boolean flag;
+        @RecordField(4)
+        short small;
+        @RecordField(5)
+        char letter;
+        @RecordField(6)
+        long big;
+        @RecordField(7)
+        Sample next;
+        int transientValue = -1;
+
+        private Sample() {
+        }
+
+        Sample(final int i, final String n) {
+            id = i;
+            name = n;
+        }
+    }
+
+    static class Clash {
+        @RecordField(1)
+        int a;
+        @RecordField(1)
+        int b;
+    }
+
+    static class Boxed {
+        @RecordField(0)
+        Integer value;
+    }
+
+    static class Holder {
+        @RecordField(0)
+        Base base;
+    }
+
+    static class Derived extends Base {
+        @RecordField(1)
+        int extra;
+    }
+
+    private static byte[] write(final Object object) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AnnotatedRecordConverter.forClass(object.getClass()).write(
+                new DataOutputStream(bytes), object);
+        return bytes.toByteArray();
+    }
+
+    public void testRoundTrip() throws IOException {
+        final Sample sample = new Sample(42, "first");
+        sample.weight = 2.5;
+        sample.flag = true;
+        sample.small = -3;
+        sample.letter = 'z';
+        sample.big = Long.MIN_VALUE;
+        sample.transientValue = 99;
+        sample.next = new Sample(43, null);
+
+        final byte[] bytes = write(sample);
+        // id, weight, flag, name, small, letter, big, next flag, then the nested record
+        final int nested = 4 + 8 + 1 + 1 + 2 + 2 + 8 + 1;
+        assertEquals(nested + 6 + nested, bytes.length);
+        assertEquals(42, new DataInputStream(new ByteArrayInputStream(bytes)).readInt());
+
+        final Sample read = (Sample) AnnotatedRecordConverter.forClass(Sample.class).read(
+                new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertEquals(42, read.id);
+        assertEquals("first", read.name);
+        assertEquals(2.5, read.weight);
+        assertTrue(read.flag);
+        assertEquals(-3, read.small);
+        assertEquals('z', read.letter);
+        assertEquals(Long.MIN_VALUE, read.big);
+        assertEquals(-1, read.transientValue);
+        assertEquals(43, read.next.id);
+        assertNull(read.next.name);
+        assertNull(read.next.next);
+    }
+
+    public void testCached() {
+        assertSame(AnnotatedRecordConverter.forClass(Sample.class),
+                AnnotatedRecordConverter.forClass(Sample.class));
+        assertSame(Base.class, AnnotatedRecordConverter.forClass(Base.class)
+                .getRecordClass());
+    }
+
+    public void testInvalidClasses() {
+        try {
+            AnnotatedRecordConverter.forClass(Clash.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            AnnotatedRecordConverter.forClass(String.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            AnnotatedRecordConverter.forClass(Boxed.class);
+            fail("A field of a class without record fields should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testSubclassValueRejected() throws IOException {
+        final Holder holder = new Holder();
+        holder.base = new Base();
+        assertEquals(1 + 4, write(holder).length);
+        holder.base = new Derived();
+        try {
+            write(holder);
+            fail("A subclass would be read as its field type");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
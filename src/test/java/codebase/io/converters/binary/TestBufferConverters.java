@@ -0,0 +1,247 @@
+package codebase.io.converters.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import codebase.io.converters.BufferConverter;
+import codebase.io.converters.Converter;
+import codebase.streams.ByteBufferDataInput;
+import codebase.streams.ByteBufferDataOutput;
+
+import junit.framework.TestCase;
+
+public class TestBufferConverters extends
+        TestCase {
+
+    private static final String UNICODE = "a\u0000bé€￿";
+
+    /**
+     * Tests that the buffer format is the same as the stream format.
+     */
+    public void testSameFormatAsStreams() throws IOException {
+        final Object[][] cases = {
+                { new BooleanConverter(), Boolean.TRUE },
+                { new ByteConverter(), Byte.valueOf((byte) -7) },
+                { new CharacterConverter(), Character.valueOf('€') },
+                { new IntegerConverter(), Integer.valueOf(Integer.MIN_VALUE) },
+                { new LongConverter(), Long.valueOf(0x0102030405060708L) },
+                { new FloatConverter(), Float.valueOf(-1.25f) },
+                { new DoubleConverter(), Double.valueOf(Math.E) },
+                { new UTFStringConverter(), UNICODE },
+                { new IntArrayConverter(3), new int[] { 1, -2, 3 } } };
+
+        for (Object[] c : cases) {
+            final Converter converter = (Converter) c[0];
+            final BufferConverter bufferConverter = (BufferConverter) c[0];
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            converter.write(new DataOutputStream(expected), c[1]);
+
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            bufferConverter.write(buffer, c[1]);
+            assertEquals(converter.toString(), expected.size(), buffer.position());
+            assertTrue(converter.toString(), Arrays.equals(expected.toByteArray(),
+                    Arrays.copyOf(buffer.array(), buffer.position())));
+
+            buffer.flip();
+            final Object read = bufferConverter.read(buffer);
+            assertFalse(converter.toString(), buffer.hasRemaining());
+            if (read instanceof int[]) {
+                assertTrue(Arrays.equals((int[]) c[1], (int[]) read));
+            } else {
+                assertEquals(c[1], read);
+            }
+        }
+    }
+
+    /**
+     * Tests the scalar converters with an explicit byte order, on streams and on buffers
+     * of either order.
+     */
+    public void testExplicitByteOrder() throws IOException {
+        final ByteOrder little = ByteOrder.LITTLE_ENDIAN;
+        final Object[][] cases = {
+                { new CharacterConverter(little), Character.valueOf('€'),
+                        new byte[] { (byte) 0xac, 0x20 } },
+                { new IntegerConverter(little), Integer.valueOf(0x01020304),
+                        new byte[] { 4, 3, 2, 1 } },
+                { new LongConverter(little), Long.valueOf(0x0102030405060708L),
+                        new byte[] { 8, 7, 6, 5, 4, 3, 2, 1 } },
+                { new FloatConverter(little), Float.valueOf(-1.25f),
+                        new byte[] { 0, 0, (byte) 0xa0, (byte) 0xbf } },
+                { new DoubleConverter(little), Double.valueOf(-1.25),
+                        new byte[] { 0, 0, 0, 0, 0, 0, (byte) 0xf4, (byte) 0xbf } } };
+
+        for (Object[] c : cases) {
+            final Converter converter = (Converter) c[0];
+            final BufferConverter bufferConverter = (BufferConverter) c[0];
+            final byte[] expected = (byte[]) c[2];
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            converter.write(new DataOutputStream(output), c[1]);
+            assertTrue(converter.toString(), Arrays.equals(expected, output.toByteArray()));
+            assertEquals(c[1], converter.read(new DataInputStream(
+                    new ByteArrayInputStream(expected))));
+
+            for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, little }) {
+                final ByteBuffer buffer = ByteBuffer.allocate(16).order(order);
+                bufferConverter.write(buffer, c[1]);
+                assertTrue(converter.toString(), Arrays.equals(expected,
+                        Arrays.copyOf(buffer.array(), buffer.position())));
+                assertEquals(c[1], bufferConverter.read(buffer, 0));
+                buffer.flip();
+                assertEquals(c[1], bufferConverter.read(buffer));
+
+                // the data input and output of a buffer use the order of the buffer
+                buffer.clear();
+                converter.write(new ByteBufferDataOutput(buffer), c[1]);
+                assertTrue(converter.toString(), Arrays.equals(expected,
+                        Arrays.copyOf(buffer.array(), buffer.position())));
+                buffer.flip();
+                assertEquals(c[1], converter.read(new ByteBufferDataInput(buffer)));
+            }
+        }
+        assertEquals(little, new LongConverter(little).getByteOrder());
+        assertNull(new LongConverter().getByteOrder());
+        try {
+            new IntegerConverter(null);
+            fail("A null byte order must be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that absolute reads leave the position unchanged.
+     */
+    public void testAbsoluteReads() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new LongConverter().writeLong(buffer, -1L);
+        new IntegerConverter().writeInt(buffer, 42);
+        new UTFStringConverter().write(buffer, "abc");
+        new DoubleConverter().writeDouble(buffer, 0.5);
+        buffer.position(3);
+
+        assertEquals(-1L, new LongConverter().readLong(buffer, 0));
+        assertEquals(42, new IntegerConverter().readInt(buffer, 8));
+        assertEquals("abc", new UTFStringConverter().read(buffer, 12));
+        assertEquals(0.5, new DoubleConverter().readDouble(buffer, 17), 0);
+        assertEquals(3, buffer.position());
+    }
+
+    /**
+     * Tests the skip converter on buffers.
+     */
+    public void testByteSkip() {
+        final ByteSkipConverter converter = new ByteSkipConverter(3);
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+
+        converter.write(buffer, null);
+        assertEquals(3, buffer.position());
+        assertEquals(' ', buffer.get(2));
+
+        buffer.flip();
+        assertNull(converter.read(buffer));
+        assertEquals(3, buffer.position());
+        try {
+            converter.read(buffer);
+            fail("Expected a BufferUnderflowException");
+        } catch (BufferUnderflowException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that array converters use their own byte order regardless of the buffer.
+     */
+    public void testArrayByteOrder() {
+        final ShortArrayConverter converter = new ShortArrayConverter(2,
+                ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+        buffer.put((byte) 9);
+
+        converter.write(buffer, new short[] { 0x0102, -1 });
+        assertEquals(5, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        assertEquals(0x02, buffer.get(1));
+        assertEquals(0x01, buffer.get(2));
+
+        assertTrue(Arrays.equals(new short[] { 0x0102, -1 },
+                (short[]) converter.read(buffer, 1)));
+    }
+
+    /**
+     * Tests the errors of the UTF converter.
+     */
+    public void testUTFErrors() throws IOException {
+        final UTFStringConverter converter = new UTFStringConverter();
+        try {
+            converter.write(ByteBuffer.allocate(4), "abcd");
+            fail("Expected a BufferOverflowException");
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+
+        try {
+            converter.read(ByteBuffer.wrap(new byte[] { 0, 5, 'a' }));
+            fail("Expected a BufferUnderflowException");
+        } catch (BufferUnderflowException e) {
+            // expected
+        }
+
+        try {
+            converter.read(ByteBuffer.wrap(new byte[] { 0, 2, (byte) 0xC3, 'a' }));
+            fail("Expected an UTFDataFormatException");
+        } catch (UTFDataFormatException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests decoding records directly from a memory-mapped file.
+     */
+    public void testMappedFile() throws IOException {
+        final IntegerConverter intConverter = new IntegerConverter();
+        final DoubleConverter doubleConverter = new DoubleConverter();
+        final int recordSize = intConverter.getSize() + doubleConverter.getSize();
+        final int records = 100;
+
+        File file = File.createTempFile("TestBufferConverters", ".bin");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, records
+                    * recordSize);
+            for (int i = 0; i < records; i++) {
+                intConverter.writeInt(map, i);
+                doubleConverter.writeDouble(map, i / 2.0);
+            }
+            map.force();
+
+            MappedByteBuffer readMap = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    records * recordSize);
+            for (int i = records - 1; i >= 0; i--) {
+                final int offset = i * recordSize;
+                assertEquals(i, intConverter.readInt(readMap, offset));
+                assertEquals(i / 2.0, doubleConverter.readDouble(readMap,
+                        offset + intConverter.getSize()), 0);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+}
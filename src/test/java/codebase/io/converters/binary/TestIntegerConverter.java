@@ -56,4 +56,20 @@ public class TestIntegerConverter extends
         input.close();
         output.close();
     }
+
+    /**
+     * Tests that the primitive methods use the same format as the object methods.
+     */
+    public void testIntegerConverterPrimitive() throws IOException {
+        ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+
+        IntegerConverter c = new IntegerConverter();
+        c.writeInt(new DataOutputStream(output), -42);
+        c.write(new DataOutputStream(output), -42);
+
+        java.io.ByteArrayInputStream input = new java.io.ByteArrayInputStream(output.toByteArray());
+
+        assertEquals(-42, c.read(new DataInputStream(input)));
+        assertEquals(-42, c.readInt(new DataInputStream(input)));
+    }
 }
@@ -0,0 +1,144 @@
+package codebase.io.converters.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import codebase.io.converters.ArrayConverter;
+
+import junit.framework.TestCase;
+
+public class TestPrimitiveArrayConverters extends
+        TestCase {
+
+    private static byte[] write(final AbstractPrimitiveArrayConverter converter,
+                                final Object array) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), array);
+        assertEquals(converter.getSize(), output.size());
+        return output.toByteArray();
+    }
+
+    private static Object read(final AbstractPrimitiveArrayConverter converter,
+                               final byte[] bytes) throws IOException {
+        return converter.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Tests that the big-endian format is the same as converting element by element.
+     */
+    public void testIntArrayCompatibleWithArrayConverter() throws IOException {
+        final int[] values = { 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 123456789 };
+        final IntArrayConverter converter = new IntArrayConverter(values.length);
+
+        final byte[] bytes = write(converter, values);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new ArrayConverter(new IntegerConverter(), values.length).write(
+                new DataOutputStream(expected), values);
+        assertTrue(Arrays.equals(expected.toByteArray(), bytes));
+        assertTrue(Arrays.equals(values, (int[]) read(converter, bytes)));
+    }
+
+    /**
+     * Tests the little-endian layout.
+     */
+    public void testIntArrayLittleEndian() throws IOException {
+        final IntArrayConverter converter = new IntArrayConverter(2, ByteOrder.LITTLE_ENDIAN);
+
+        final byte[] bytes = write(converter, new int[] { 0x01020304, -2 });
+
+        assertTrue(Arrays.equals(new byte[] { 4, 3, 2, 1, -2, -1, -1, -1 }, bytes));
+        assertTrue(Arrays.equals(new int[] { 0x01020304, -2 }, (int[]) read(converter, bytes)));
+    }
+
+    /**
+     * Tests round trips of the other element types in both byte orders.
+     */
+    public void testRoundTrips() throws IOException {
+        final ByteOrder[] orders = { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN };
+        for (ByteOrder order : orders) {
+            final short[] shorts = { Short.MIN_VALUE, -1, 0, 1, Short.MAX_VALUE };
+            assertTrue(Arrays.equals(shorts, (short[]) read(new ShortArrayConverter(5, order),
+                    write(new ShortArrayConverter(5, order), shorts))));
+
+            final long[] longs = { Long.MIN_VALUE, -1L, 0L, 0x0102030405060708L };
+            assertTrue(Arrays.equals(longs, (long[]) read(new LongArrayConverter(4, order),
+                    write(new LongArrayConverter(4, order), longs))));
+
+            final float[] floats = { Float.NaN, -0.0f, Float.MIN_VALUE, 3.5f };
+            assertTrue(Arrays.equals(floats, (float[]) read(new FloatArrayConverter(4, order),
+                    write(new FloatArrayConverter(4, order), floats))));
+
+            final double[] doubles = { Double.NEGATIVE_INFINITY, Math.PI, Double.MAX_VALUE };
+            assertTrue(Arrays.equals(doubles, (double[]) read(
+                    new DoubleArrayConverter(3, order),
+                    write(new DoubleArrayConverter(3, order), doubles))));
+        }
+    }
+
+    /**
+     * Tests that the big-endian layout of longs matches {@link DataOutputStream}.
+     */
+    public void testLongArrayBigEndian() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(expected);
+        out.writeLong(Long.MIN_VALUE);
+        out.writeLong(42L);
+
+        assertTrue(Arrays.equals(expected.toByteArray(),
+                write(new LongArrayConverter(2), new long[] { Long.MIN_VALUE, 42L })));
+    }
+
+    /**
+     * Tests reading into an existing array and writing only the first elements.
+     */
+    public void testReuseArrays() throws IOException {
+        final DoubleArrayConverter converter = new DoubleArrayConverter(2);
+        final byte[] bytes = write(converter, new double[] { 1.5, 2.5, 3.5 });
+
+        final double[] target = new double[] { 0, 0, 9 };
+        converter.read(new DataInputStream(new ByteArrayInputStream(bytes)), target);
+        assertTrue(Arrays.equals(new double[] { 1.5, 2.5, 9 }, target));
+    }
+
+    /**
+     * Tests the validation of arguments.
+     */
+    public void testInvalidArguments() throws IOException {
+        try {
+            new IntArrayConverter(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new IntArrayConverter(1, null);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            write(new IntArrayConverter(3), new int[2]);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that a truncated input is reported.
+     */
+    public void testTruncatedInput() throws IOException {
+        try {
+            read(new IntArrayConverter(2), new byte[7]);
+            fail("Expected an EOFException");
+        } catch (java.io.EOFException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package codebase.io.converters.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestUTF8StringConverter extends
+        TestCase {
+
+    private static final String[] STRINGS = { "", "a", "Hello world!", "0123456789abcdef",
+            "caf\u00e9 cr\u00e8me", "\u0000null\u0000", "\u20ac 12,50",
+            "\ud83d\ude00 smile", "\u65e5\u672c\u8a9e" };
+
+    private static byte[] write(final UTF8StringConverter converter, final String string)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), string);
+        return output.toByteArray();
+    }
+
+    private static String read(final UTF8StringConverter converter, final byte[] bytes)
+            throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        final String string = (String) converter.read(input);
+        assertEquals(0, input.available());
+        return string;
+    }
+
+    /**
+     * Tests that the bytes are the length followed by standard UTF-8.
+     */
+    public void testFormat() throws IOException {
+        for (String string : STRINGS) {
+            final byte[] utf8 = string.getBytes("UTF-8");
+            final byte[] bytes = write(UTF8StringConverter.DEFAULT_INSTANCE, string);
+            assertEquals(utf8.length, VarIntUtil.readInt(ByteBuffer.wrap(bytes)));
+            assertTrue(Arrays.equals(utf8, Arrays.copyOfRange(bytes, VarIntUtil
+                    .sizeOf(utf8.length), bytes.length)));
+        }
+        assertEquals("a?b", read(new UTF8StringConverter(), write(
+                new UTF8StringConverter(), "a\ud800b")));
+    }
+
+    /**
+     * Tests round trips on streams and on heap and direct buffers.
+     */
+    public void testRoundTrips() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            builder.append(i % 100 == 0 ? '\u00e9' : (char) ('a' + i % 26));
+        }
+        final String large = builder.toString();
+        final UTF8StringConverter[] converters = { new UTF8StringConverter(),
+                new UTF8StringConverter(16) };
+
+        for (UTF8StringConverter converter : converters) {
+            for (String string : STRINGS) {
+                assertEquals(string, read(converter, write(converter, string)));
+            }
+            assertEquals(large, read(converter, write(converter, large)));
+
+            final ByteBuffer[] buffers = { ByteBuffer.allocate(40000),
+                    ByteBuffer.allocateDirect(40000) };
+            for (ByteBuffer buffer : buffers) {
+                buffer.put((byte) 9);
+                for (String string : STRINGS) {
+                    converter.write(buffer, string);
+                }
+                converter.write(buffer, large);
+                buffer.flip();
+                assertEquals(STRINGS[0], converter.read(buffer, 1));
+                buffer.get();
+                for (String string : STRINGS) {
+                    assertEquals(string, converter.read(buffer));
+                }
+                assertEquals(large, converter.read(buffer));
+                assertFalse(buffer.hasRemaining());
+            }
+        }
+    }
+
+    /**
+     * Tests that the cache returns the same instances for repeated strings.
+     */
+    public void testDeduplication() throws IOException {
+        final UTF8StringConverter converter = new UTF8StringConverter(100);
+        assertEquals(128, converter.getCacheSize());
+        assertEquals(0, new UTF8StringConverter().getCacheSize());
+
+        final byte[] bytes = write(converter, "Lisboa");
+        final String first = read(converter, bytes);
+        assertSame(first, read(converter, bytes));
+        assertNotSame(first, read(new UTF8StringConverter(), bytes));
+        assertEquals("Porto", read(converter, write(converter, "Porto")));
+
+        try {
+            new UTF8StringConverter(-1);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that malformed and truncated strings are reported.
+     */
+    public void testMalformed() throws IOException {
+        final byte[][] malformed = { { 1, (byte) 0x80 }, { 2, (byte) 0xC3, 'a' },
+                { 1, (byte) 0xC3 }, { 2, (byte) 0xC0, (byte) 0x80 },
+                { 3, (byte) 0xED, (byte) 0xA0, (byte) 0x80 },
+                { 4, (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80 },
+                { 9, 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', (byte) 0xFF } };
+        for (byte[] bytes : malformed) {
+            try {
+                read(new UTF8StringConverter(4), bytes);
+                fail("Expected an UTFDataFormatException");
+            } catch (UTFDataFormatException e) {
+                // expected
+            }
+        }
+        try {
+            UTF8StringConverter.DEFAULT_INSTANCE.read(ByteBuffer.wrap(new byte[] { 3, 'a' }));
+            fail("Expected a BufferUnderflowException");
+        } catch (BufferUnderflowException e) {
+            // expected
+        }
+    }
+}
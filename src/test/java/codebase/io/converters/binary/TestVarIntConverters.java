@@ -0,0 +1,242 @@
+package codebase.io.converters.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import codebase.io.converters.Converter;
+
+import junit.framework.TestCase;
+
+public class TestVarIntConverters extends
+        TestCase {
+
+    private static final int[] INTS = { 0, 1, 127, 128, 16383, 16384, -1, -64, 65,
+            Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+    private static final long[] LONGS = { 0L, 1L, 127L, 128L, -1L, Long.MAX_VALUE,
+            Long.MIN_VALUE, 1L << 62, 0x0123456789ABCDEFL };
+
+    private static byte[] write(final Converter converter, final Object object)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), object);
+        return output.toByteArray();
+    }
+
+    private static Object read(final Converter converter, final byte[] bytes)
+            throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        final Object object = converter.read(input);
+        assertEquals(0, input.available());
+        return object;
+    }
+
+    /**
+     * Tests the number of bytes of encoded values.
+     */
+    public void testSizes() throws IOException {
+        assertEquals(1, write(new VarIntConverter(), 127).length);
+        assertEquals(2, write(new VarIntConverter(), 128).length);
+        assertEquals(5, write(new VarIntConverter(), -1).length);
+        assertEquals(1, write(new VarIntConverter(true), -1).length);
+        assertEquals(1, write(new VarIntConverter(true), 63).length);
+        assertEquals(2, write(new VarIntConverter(true), 64).length);
+        assertEquals(10, write(new VarLongConverter(), -1L).length);
+        assertEquals(1, write(new VarLongConverter(true), -1L).length);
+
+        assertTrue(Arrays.equals(new byte[] { (byte) 0xAC, 0x02 },
+                write(new VarIntConverter(), 300)));
+        assertEquals(3, new VarIntConverter().sizeOf(16384));
+        assertEquals(10, new VarLongConverter().sizeOf(Long.MIN_VALUE));
+    }
+
+    /**
+     * Tests round trips of single values on streams and buffers.
+     */
+    public void testScalarRoundTrips() throws IOException {
+        final boolean[] modes = { false, true };
+        for (boolean zigZag : modes) {
+            final VarIntConverter ints = new VarIntConverter(zigZag);
+            final VarLongConverter longs = new VarLongConverter(zigZag);
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            for (int i : INTS) {
+                assertEquals(Integer.valueOf(i), read(ints, write(ints, i)));
+                ints.writeInt(buffer, i);
+            }
+            for (long l : LONGS) {
+                assertEquals(Long.valueOf(l), read(longs, write(longs, l)));
+                longs.writeLong(buffer, l);
+            }
+
+            buffer.flip();
+            assertEquals(INTS[1], ints.readInt(buffer, ints.sizeOf(INTS[0])));
+            for (int i : INTS) {
+                assertEquals(i, ints.readInt(buffer));
+            }
+            for (long l : LONGS) {
+                assertEquals(l, longs.readLong(buffer));
+            }
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    /**
+     * Tests that malformed and truncated values are reported.
+     */
+    public void testMalformed() throws IOException {
+        final byte[] tooLong = { -1, -1, -1, -1, -1, 1 };
+        try {
+            read(new VarIntConverter(), tooLong);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            read(new VarIntConverter(), new byte[] { (byte) 0x80 });
+            fail("Expected an EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+        try {
+            read(new VarIntArrayConverter(), new byte[] { 2, 2, 1, (byte) 0x80 });
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            read(new VarIntArrayConverter(), new byte[] { 2, 1, 1 });
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests round trips of arrays with every encoding, on streams and on heap and direct
+     * buffers.
+     */
+    public void testArrayRoundTrips() throws IOException {
+        final Random random = new Random(31);
+        final int[] ints = new int[1000];
+        final long[] longs = new long[1000];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = random.nextInt() >> random.nextInt(32);
+            longs[i] = random.nextLong() >> random.nextInt(64);
+        }
+
+        for (VarIntEncoding encoding : VarIntEncoding.values()) {
+            final VarIntArrayConverter intConverter = new VarIntArrayConverter(encoding);
+            final VarLongArrayConverter longConverter = new VarLongArrayConverter(encoding);
+
+            assertTrue(Arrays.equals(ints, (int[]) read(intConverter, write(intConverter,
+                    ints))));
+            assertTrue(Arrays.equals(longs, (long[]) read(longConverter, write(
+                    longConverter, longs))));
+            assertEquals(0, ((int[]) read(intConverter, write(intConverter, new int[0])))
+                    .length);
+
+            final ByteBuffer[] buffers = { ByteBuffer.allocate(20000),
+                    ByteBuffer.allocateDirect(20000) };
+            for (ByteBuffer buffer : buffers) {
+                buffer.put((byte) 5);
+                intConverter.write(buffer, ints);
+                longConverter.write(buffer, longs);
+                buffer.flip();
+                buffer.get();
+                assertTrue(Arrays.equals(ints, (int[]) intConverter.read(buffer, 1)));
+                assertTrue(Arrays.equals(ints, (int[]) intConverter.read(buffer)));
+                assertTrue(Arrays.equals(longs, (long[]) longConverter.read(buffer)));
+                assertFalse(buffer.hasRemaining());
+            }
+        }
+    }
+
+    /**
+     * Tests arrays encoded in several chunks, on streams and on buffers.
+     */
+    public void testLargeArrays() throws IOException {
+        final Random random = new Random(17);
+        final int[] ints = new int[20000];
+        final long[] longs = new long[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = random.nextInt() >> random.nextInt(32);
+            longs[i] = random.nextLong() >> random.nextInt(64);
+        }
+        for (VarIntEncoding encoding : VarIntEncoding.values()) {
+            final VarIntArrayConverter intConverter = new VarIntArrayConverter(encoding);
+            final VarLongArrayConverter longConverter = new VarLongArrayConverter(encoding);
+            final byte[] encoded = write(intConverter, ints);
+            assertTrue(Arrays.equals(ints, (int[]) read(intConverter, encoded)));
+            assertTrue(Arrays.equals(longs, (long[]) read(longConverter, write(
+                    longConverter, longs))));
+
+            final ByteBuffer buffer = ByteBuffer.allocate(encoded.length);
+            intConverter.write(buffer, ints);
+            assertFalse(buffer.hasRemaining());
+            buffer.flip();
+            assertTrue(Arrays.equals(ints, (int[]) intConverter.read(buffer)));
+        }
+    }
+
+    /**
+     * Tests that bulk decoding stops at the given end rather than at the end of the array.
+     */
+    public void testDecodeBoundedByEnd() throws IOException {
+        final byte[] bytes = { 1, (byte) 0x81, 1, (byte) 0x80, 1, 0, 0 };
+        final int[] ints = new int[3];
+        VarIntUtil.decode(bytes, 0, 5, ints, 3);
+        assertEquals(129, ints[1]);
+        assertEquals(128, ints[2]);
+        try {
+            VarIntUtil.decode(bytes, 0, 4, ints, 3);
+            fail("Expected an EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+        try {
+            VarIntUtil.decode(bytes, 0, 4, new long[3], 3);
+            fail("Expected an EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+        try {
+            VarIntUtil.decode(bytes, 0, 8, ints, 3);
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that delta encoding shrinks sorted identifiers at least twofold.
+     */
+    public void testDeltaShrinksSortedSequences() throws IOException {
+        final Random random = new Random(7);
+        final int[] ids = new int[10000];
+        final long[] timestamps = new long[ids.length];
+        ids[0] = 1000000;
+        timestamps[0] = 1300000000000L;
+        for (int i = 1; i < ids.length; i++) {
+            ids[i] = ids[i - 1] + 1 + random.nextInt(60);
+            timestamps[i] = timestamps[i - 1] + random.nextInt(1000);
+        }
+
+        final byte[] deltaInts = write(new VarIntArrayConverter(VarIntEncoding.DELTA), ids);
+        final byte[] deltaLongs = write(new VarLongArrayConverter(VarIntEncoding.DELTA),
+                timestamps);
+
+        assertTrue(deltaInts.length * 2 < ids.length * IntegerConverter.SIZE);
+        assertTrue(deltaLongs.length * 4 < timestamps.length * LongConverter.SIZE);
+        assertTrue(Arrays.equals(ids, (int[]) read(new VarIntArrayConverter(
+                VarIntEncoding.DELTA), deltaInts)));
+        assertTrue(Arrays.equals(timestamps, (long[]) read(new VarLongArrayConverter(
+                VarIntEncoding.DELTA), deltaLongs)));
+    }
+}
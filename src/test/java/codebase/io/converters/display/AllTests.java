@@ -11,7 +11,11 @@ public class AllTests {
     public static Test suite() {
         TestSuite suite = new TestSuite(AllTests.class.getName());
         //$JUnit-BEGIN$
+        suite.addTestSuite(TestDelimitedRecordConverter.class);
+        suite.addTestSuite(TestDoubleDisplayConverter.class);
+        suite.addTestSuite(TestFixedSizeStringConverter.class);
         suite.addTestSuite(TestIntegerDisplayConverter.class);
+        suite.addTestSuite(TestLongDisplayConverter.class);
         suite.addTestSuite(TestStringLitteralConverter.class);
         //$JUnit-END$
         return suite;
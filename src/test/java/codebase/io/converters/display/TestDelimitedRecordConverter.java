@@ -0,0 +1,215 @@
+package codebase.io.converters.display;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+import codebase.StringUtil;
+import codebase.io.converters.Converter;
+import codebase.streams.ByteBufferDataInput;
+
+public class TestDelimitedRecordConverter extends TestCase {
+
+    private final DelimitedRecordConverter csv = new DelimitedRecordConverter(
+            new Converter[] { new IntegerDisplayConverter(), DelimitedRecordConverter.TEXT,
+                    new DoubleDisplayConverter() }, DelimitedRecordConverter.COMMA);
+
+    private static byte[] write(final DelimitedRecordConverter converter,
+                                final Object[] record) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), record);
+        return output.toByteArray();
+    }
+
+    private static Object[] read(final DelimitedRecordConverter converter,
+                                 final String text) throws IOException {
+        return (Object[]) converter.read(ByteBuffer.wrap(text.getBytes("UTF-8")));
+    }
+
+    public void testWrite() throws IOException {
+        assertEquals("1,abc,2.5\n", new String(write(csv, new Object[] { 1, "abc", 2.5 }),
+                "UTF-8"));
+        assertEquals(",\"a,b\",\n", new String(write(csv, new Object[] { null, "a,b" }),
+                "UTF-8"));
+        final DelimitedRecordConverter text = new DelimitedRecordConverter(
+                new Converter[] { DelimitedRecordConverter.TEXT, null },
+                DelimitedRecordConverter.COMMA);
+        assertEquals(StringUtil.stringify("say \"hi\"") + ",\n", new String(write(text,
+                new Object[] { "say \"hi\"", "skipped" }), "UTF-8"));
+    }
+
+    public void testRead() throws IOException {
+        assertEquals(Arrays.asList(1, "abc", 2.5),
+                Arrays.asList(read(csv, "1,abc,2.5\n")));
+        assertEquals(Arrays.asList(-7, "x", null), Arrays.asList(read(csv, "-7,x\r\n")));
+        assertEquals(Arrays.asList(null, null, 0.5), Arrays.asList(read(csv, ",,.5,9,9")));
+        assertEquals(Arrays.asList(3, "a,\"b\"\n\\c", null), Arrays.asList(read(csv,
+                "3,\"a,\\\"b\\\"\n\\\\c\",\n")));
+        assertEquals(Arrays.asList(null, "long text with many words", null), Arrays
+                .asList(read(csv, ",long text with many words,")));
+        assertEquals(StringUtil.unstringify("\"q\\\"uo\\\\te\""), read(csv,
+                "0,\"q\\\"uo\\\\te\"")[1]);
+    }
+
+    public void testMalformedFields() throws IOException {
+        final String[] texts = { "x,abc,2.5\n", "1,abc,1e\n",
+                "99999999999,abc,2.5\n" };
+        for (String text : texts) {
+            try {
+                read(csv, text);
+                fail("Expected an IOException for " + text);
+            } catch (EOFException e) {
+                fail("A malformed field was taken for the end of the input: " + text);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("field"));
+            }
+        }
+        try {
+            DelimitedRecordConverter.TEXT.read(new DataInputStream(new ByteArrayInputStream(
+                    new byte[1])));
+            fail("TEXT should only read the fields of delimited records");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testQuoteInsideFieldOfStream() throws IOException {
+        final DelimitedRecordConverter text = new DelimitedRecordConverter(
+                new Converter[] { DelimitedRecordConverter.TEXT,
+                        new IntegerDisplayConverter() }, DelimitedRecordConverter.COMMA);
+        final DataInputStream stream = new DataInputStream(new ByteArrayInputStream(
+                "5\" screen,3\nnext,1\nlast,2\n".getBytes("UTF-8")));
+        assertEquals(Arrays.asList("5\" screen", 3), Arrays.asList((Object[]) text
+                .read(stream)));
+        assertEquals(Arrays.asList("next", 1), Arrays.asList((Object[]) text
+                .read(stream)));
+        assertEquals(Arrays.asList("last", 2), Arrays.asList((Object[]) text
+                .read(stream)));
+        try {
+            text.read(stream);
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testSkippedFields() throws IOException {
+        final DelimitedRecordConverter tsv = new DelimitedRecordConverter(new Converter[] {
+                null, new LongDisplayConverter() }, DelimitedRecordConverter.TAB);
+        assertEquals(Arrays.asList(null, 42L), Arrays.asList(read(tsv,
+                "not a number\t42\tignored\n")));
+        assertEquals(Arrays.asList(null, 42L), Arrays.asList(read(tsv,
+                "\"quoted\tand\\\"escaped\"\t42\n")));
+    }
+
+    public void testRoundTrip() throws IOException {
+        final String[] texts = { "", "plain", "a,b", "\"", "\\", "line\nbreak", "cr\r",
+                "\u00e9t\u00e9 \u4e2d\u6587", "1234567890123456789,\"\\" };
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(output);
+        for (int i = 0; i < texts.length; i++) {
+            csv.write(data, new Object[] { i, texts[i], i / 4.0 });
+        }
+        final byte[] bytes = output.toByteArray();
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final DataInputStream stream = new DataInputStream(
+                new ByteArrayInputStream(bytes));
+        final ByteBufferDataInput direct = new ByteBufferDataInput(ByteBuffer
+                .allocateDirect(bytes.length).put(bytes));
+        direct.getBuffer().flip();
+        for (int i = 0; i < texts.length; i++) {
+            final String text = texts[i].length() == 0 ? null : texts[i];
+            final List<Object> expected = Arrays.<Object> asList(i, text, i / 4.0);
+            assertEquals(expected, Arrays.asList((Object[]) csv.read(buffer)));
+            assertEquals(expected, Arrays.asList((Object[]) csv.read(stream)));
+            assertEquals(expected, Arrays.asList((Object[]) csv.read(direct)));
+        }
+        assertFalse(buffer.hasRemaining());
+        try {
+            csv.read(stream);
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+        try {
+            csv.read(direct);
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testInvalidDelimiter() {
+        try {
+            new DelimitedRecordConverter(new Converter[] { null }, (byte) '"');
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new DelimitedRecordConverter(new Converter[0], DelimitedRecordConverter.COMMA);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testReadParallel() throws Exception {
+        final File file = File.createTempFile("records", ".csv");
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final FileOutputStream output = new FileOutputStream(file);
+            DataOutputStream data = new DataOutputStream(output);
+            long expectedSum = 0;
+            final int count = 20000;
+            for (int i = 0; i < count; i++) {
+                csv.write(data, new Object[] { i, "record " + i, 0.5 });
+                expectedSum += i;
+            }
+            data.close();
+
+            final AtomicLong sum = new AtomicLong();
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final FileChannel channel = raf.getChannel();
+                final long records = csv.readParallel(channel, 10000, executor,
+                        new DelimitedRecordConverter.RecordVisitor() {
+                            @Override
+                            public void visit(final int chunk, final Object[] record) {
+                                assertEquals("record " + record[0], record[1]);
+                                sum.addAndGet(((Integer) record[0]).intValue());
+                            }
+                        });
+                assertEquals(count, records);
+                assertEquals(expectedSum, sum.get());
+                assertEquals(count, csv.readParallel(channel, Integer.MAX_VALUE, executor,
+                        new DelimitedRecordConverter.RecordVisitor() {
+                            @Override
+                            public void visit(final int chunk, final Object[] record) {
+                                assertEquals(0, chunk);
+                            }
+                        }));
+            } finally {
+                raf.close();
+            }
+        } finally {
+            executor.shutdown();
+            file.delete();
+        }
+    }
+}
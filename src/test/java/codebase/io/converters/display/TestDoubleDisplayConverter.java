@@ -0,0 +1,128 @@
+package codebase.io.converters.display;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import codebase.StringUtil;
+import codebase.streams.ByteArrayDataInput;
+
+public class TestDoubleDisplayConverter extends TestCase {
+
+    final DataInput getDataInputFor(String s) {
+        return new ByteArrayDataInput(s.getBytes(StringUtil.UTF8));
+    }
+
+    private static String write(final DoubleDisplayConverter c, final double value)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        c.writeDouble(new DataOutputStream(output), value);
+        return output.toString();
+    }
+
+    public void testReadFormats() throws IOException {
+        DoubleDisplayConverter c = new DoubleDisplayConverter();
+        final String[] texts = { "0", "-0.0", "1.5", "+2.25", ".5", "5.", "1e3", "-2.5E-3",
+                "123456789012345678901234567890", "3.14159265358979323846264338327950288",
+                "4.9e-324", "1.7976931348623157E308", "1e400", "0.30000000000000004",
+                "9007199254740993", "NaN", "-Infinity" };
+        for (String text : texts) {
+            final double expected = Double.parseDouble(text);
+            final double actual = c.readDouble(getDataInputFor(text));
+            assertEquals(text, Double.doubleToLongBits(expected), Double
+                    .doubleToLongBits(actual));
+        }
+    }
+
+    public void testReadDelimited() throws IOException {
+        DoubleDisplayConverter c = new DoubleDisplayConverter();
+        final DataInput input = getDataInputFor(" x=1.5;-2e2, 0.125\t7");
+
+        assertEquals(1.5, c.readDouble(input), 0);
+        assertEquals(-200.0, c.readDouble(input), 0);
+        assertEquals(0.125, c.readDouble(input), 0);
+        assertEquals(Double.valueOf(7.0), c.read(input));
+    }
+
+    public void testReadErrors() throws IOException {
+        DoubleDisplayConverter c = new DoubleDisplayConverter();
+        final String[] texts = { "1e", "1e+", "1.2.3", "1-2" };
+        for (String text : texts) {
+            try {
+                c.readDouble(getDataInputFor(text));
+                fail("Expected a NumberFormatException for " + text);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testSkipsWords() throws IOException {
+        DoubleDisplayConverter c = new DoubleDisplayConverter();
+        final DataInput input = getDataInputFor("Index: 3.5; Items. -Infinity, INaN NaN;"
+                + " e.-.25 Infinite +NaN");
+
+        assertEquals(3.5, c.readDouble(input), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, c.readDouble(input), 0);
+        assertTrue(Double.isNaN(c.readDouble(input)));
+        assertEquals(-0.25, c.readDouble(input), 0);
+        assertTrue(Double.isNaN(c.readDouble(input)));
+
+        final String[] texts = { "-.", "Infinit", "Index." };
+        for (String text : texts) {
+            try {
+                c.readDouble(getDataInputFor(text));
+                fail("Expected an EOFException for " + text);
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testWriteShortest() throws IOException {
+        DoubleDisplayConverter c = new DoubleDisplayConverter();
+
+        assertEquals("0.1", write(c, 0.1));
+        assertEquals("1.0", write(c, 1));
+        assertEquals("-123.456", write(c, -123.456));
+        assertEquals("0.3", write(c, 0.3));
+        assertEquals("0.30000000000000004", write(c, 0.1 + 0.2));
+        assertEquals("0.001", write(c, 0.001));
+        assertEquals("9999999.0", write(c, 9999999));
+        assertEquals("1.0E7", write(c, 1e7));
+        assertEquals("-0.0", write(c, -0.0));
+        assertEquals("NaN", write(c, Double.NaN));
+    }
+
+    public void testRoundTrips() throws IOException {
+        DoubleDisplayConverter c = new DoubleDisplayConverter();
+        final Random random = new Random(35);
+        for (int i = 0; i < 20000; i++) {
+            final double value;
+            switch (i % 4) {
+                case 0:
+                    value = random.nextDouble();
+                    break;
+                case 1:
+                    value = Math.round(random.nextDouble() * 1e6) / 100.0;
+                    break;
+                case 2:
+                    value = -random.nextInt(10000000) / 1000.0;
+                    break;
+                default:
+                    value = Double.longBitsToDouble(random.nextLong());
+                    break;
+            }
+            final String text = write(c, value);
+            assertEquals(text, Double.doubleToLongBits(value), Double.doubleToLongBits(c
+                    .readDouble(getDataInputFor(text))));
+            if (i % 4 == 1) {
+                assertTrue(text, text.length() <= Double.toString(value).length());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package codebase.io.converters.display;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+import codebase.streams.ByteArrayDataInput;
+
+public class TestFixedSizeStringConverter extends TestCase {
+
+    private static byte[] write(final FixedSizeStringConverter converter, final String s)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        converter.write(new DataOutputStream(output), s);
+        return output.toByteArray();
+    }
+
+    public void testPadding() throws IOException {
+        final FixedSizeStringConverter keep = new FixedSizeStringConverter(5, (byte) ' ');
+        final FixedSizeStringConverter trim = new FixedSizeStringConverter(5, (byte) ' ',
+                true);
+
+        assertEquals("ab   ", new String(write(keep, "ab"), "US-ASCII"));
+        assertEquals("abcde", new String(write(keep, "abcdefg"), "US-ASCII"));
+        assertEquals("ab   ", keep.read(new ByteArrayDataInput(write(keep, "ab"))));
+        assertEquals("ab", trim.read(new ByteArrayDataInput(write(trim, "ab"))));
+        assertEquals("", trim.read(new ByteArrayDataInput(write(trim, ""))));
+        assertFalse(keep.isTrimmingPad());
+    }
+
+    public void testWordTrimming() throws IOException {
+        final FixedSizeStringConverter trim = new FixedSizeStringConverter(40, (byte) 0,
+                true);
+        for (int i = 0; i <= 40; i++) {
+            final StringBuilder s = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                s.append((char) ('a' + j % 26));
+            }
+            assertEquals(s.toString(), trim.read(new ByteArrayDataInput(write(trim, s
+                    .toString()))));
+        }
+        assertEquals("a b", trim.read(new ByteArrayDataInput(write(trim, "a b"))));
+    }
+
+    public void testBuffers() throws IOException {
+        final FixedSizeStringConverter trim = new FixedSizeStringConverter(12, (byte) '.',
+                true);
+        final ByteBuffer[] buffers = { ByteBuffer.allocate(30),
+                ByteBuffer.allocateDirect(30), ByteBuffer.wrap(new byte[40], 5, 30).slice() };
+        for (ByteBuffer buffer : buffers) {
+            buffer.put((byte) 1);
+            trim.write(buffer, "hello");
+            trim.write(buffer, "hello world!!");
+            assertEquals(25, buffer.position());
+            buffer.flip();
+            assertEquals("hello", trim.read(buffer, 1));
+            buffer.get();
+            assertEquals("hello", trim.read(buffer));
+            assertEquals("hello world!", trim.read(buffer));
+        }
+    }
+
+    public void testConcurrentReads() throws Exception {
+        final FixedSizeStringConverter converter = new FixedSizeStringConverter(16,
+                (byte) ' ', true);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                final String value = "thread " + t;
+                final byte[] bytes = write(converter, value);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws IOException {
+                        for (int i = 0; i < 20000; i++) {
+                            if (!value.equals(converter.read(new ByteArrayDataInput(bytes)))) {
+                                return Boolean.FALSE;
+                            }
+                        }
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that subclasses overriding the deprecated hook are still called.
+     */
+    public void testLegacyHook() throws IOException {
+        final FixedSizeStringConverter upper = new FixedSizeStringConverter(5, (byte) ' ',
+                true) {
+            @Override
+            @Deprecated
+            protected String createString(final byte[] readBytes) {
+                return new String(readBytes).toUpperCase();
+            }
+        };
+        assertEquals("AB", upper.read(new ByteArrayDataInput(write(upper, "ab"))));
+        assertEquals("AB", upper.read(ByteBuffer.wrap(write(upper, "ab"))));
+    }
+}
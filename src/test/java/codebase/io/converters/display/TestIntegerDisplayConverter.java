@@ -89,4 +89,64 @@ public class TestIntegerDisplayConverter extends TestCase {
 
         assertEquals((int) i, Integer.MIN_VALUE);
     }
+
+    public void testReadTooManyDigits() throws IOException {
+        IntegerDisplayConverter c = new IntegerDisplayConverter();
+        try {
+            c.readInt(getDataInputFor("21474836470 5"));
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        assertEquals(7, c.readInt(getDataInputFor("000000000007 ")));
+    }
+
+    public void testReadIntPrimitive() throws IOException {
+        IntegerDisplayConverter c = new IntegerDisplayConverter();
+        final DataInput input = getDataInputFor("12, -34, +56");
+
+        assertEquals(12, c.readInt(input));
+        assertEquals(-34, c.readInt(input));
+        assertEquals(56, c.readInt(input));
+    }
+
+    public void testReadIntOverflow() throws IOException {
+        IntegerDisplayConverter c = new IntegerDisplayConverter();
+        try {
+            c.readInt(getDataInputFor("2147483648"));
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    public void testReadSignWithoutDigits() throws IOException {
+        IntegerDisplayConverter c = new IntegerDisplayConverter();
+        try {
+            c.readInt(getDataInputFor("-x"));
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    public void testWriteIntPrimitive() throws IOException {
+        IntegerDisplayConverter c = new IntegerDisplayConverter();
+        java.io.ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+        c.writeInt(new java.io.DataOutputStream(output), Integer.MIN_VALUE);
+
+        assertEquals(Integer.toString(Integer.MIN_VALUE), output.toString());
+    }
+
+    public void testWriteValues() throws IOException {
+        IntegerDisplayConverter c = new IntegerDisplayConverter();
+        final int[] values = { 0, 7, -7, 10, 99, -100, 123456789, Integer.MAX_VALUE };
+        for (int value : values) {
+            java.io.ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+            c.write(new java.io.DataOutputStream(output), Integer.valueOf(value));
+
+            assertEquals(Integer.toString(value), output.toString());
+            assertEquals(value, c.readInt(getDataInputFor(output.toString())));
+        }
+    }
 }
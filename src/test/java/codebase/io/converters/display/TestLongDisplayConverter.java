@@ -0,0 +1,65 @@
+package codebase.io.converters.display;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import codebase.StringUtil;
+import codebase.streams.ByteArrayDataInput;
+
+public class TestLongDisplayConverter extends TestCase {
+
+    final DataInput getDataInputFor(String s) {
+        return new ByteArrayDataInput(s.getBytes(StringUtil.UTF8));
+    }
+
+    public void testReadLongPrimitive() throws IOException {
+        LongDisplayConverter c = new LongDisplayConverter();
+        final DataInput input = getDataInputFor("  12, -34;+5600000000 "
+                + Long.MIN_VALUE + " " + Long.MAX_VALUE);
+
+        assertEquals(12L, c.readLong(input));
+        assertEquals(-34L, c.readLong(input));
+        assertEquals(5600000000L, c.readLong(input));
+        assertEquals(Long.MIN_VALUE, c.readLong(input));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), c.read(input));
+    }
+
+    public void testReadErrors() throws IOException {
+        LongDisplayConverter c = new LongDisplayConverter();
+        try {
+            c.readLong(getDataInputFor("9223372036854775808"));
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        try {
+            c.readLong(getDataInputFor("10000000000000000000 7"));
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        assertEquals(7, c.readLong(getDataInputFor("00000000000000000000007 ")));
+        try {
+            c.readLong(getDataInputFor("+ 1"));
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    public void testWriteValues() throws IOException {
+        LongDisplayConverter c = new LongDisplayConverter();
+        final long[] values = { 0L, 1L, -1L, 1234567890123L, Long.MIN_VALUE,
+                Long.MAX_VALUE };
+        for (long value : values) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            c.writeLong(new DataOutputStream(output), value);
+
+            assertEquals(Long.toString(value), output.toString());
+            assertEquals(value, c.readLong(getDataInputFor(output.toString())));
+        }
+    }
+}
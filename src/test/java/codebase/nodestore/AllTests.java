@@ -13,6 +13,7 @@ public class AllTests {
         //$JUnit-BEGIN$
         suite.addTestSuite(TestNodeDisplayConverter.class);
         suite.addTestSuite(TestNodeDisplayConverterIntegerated.class);
+        suite.addTestSuite(TestNodeStore.class);
         //$JUnit-END$
         return suite;
     }
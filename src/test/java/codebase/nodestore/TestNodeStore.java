@@ -0,0 +1,241 @@
+package codebase.nodestore;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import codebase.io.converters.ObjectConverterInput;
+import codebase.streams.StringInputStream;
+
+public class TestNodeStore extends
+        TestCase {
+
+    /**
+     * A loader that creates instance nodes for positive numbers and counts its calls.
+     */
+    private static class CountingLoader implements NodeLoader {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger loaded = new AtomicInteger();
+
+        @Override
+        public void load(int[] nodeNumbers, Node[] nodes) throws IOException {
+            calls.incrementAndGet();
+            for (int i = 0; i < nodeNumbers.length; i++) {
+                if (nodeNumbers[i] > 0) {
+                    nodes[i] = new InstanceNode(nodeNumbers[i], "loaded");
+                    loaded.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a batch lookup finds the nodes in memory.
+     */
+    public void testQueryAllInMemory() throws IOException {
+        NodeStore store = new NodeStore();
+        store.insert(new InstanceNode(1, "a"));
+        store.insert(new InstanceNode(3, "c"));
+
+        Node[] nodes = store.queryAll(new int[] { 3, 2, 1 });
+
+        assertEquals(3, nodes.length);
+        assertEquals(3, nodes[0].getNumber());
+        assertNull(nodes[1]);
+        assertEquals(1, nodes[2].getNumber());
+    }
+
+    /**
+     * Tests that missing nodes are loaded in a single call and then kept in memory.
+     */
+    public void testQueryAllLoadsMissing() throws IOException {
+        CountingLoader loader = new CountingLoader();
+        NodeStore store = new NodeStore(loader, Executors.newSingleThreadExecutor());
+        store.insert(new InstanceNode(1, "memory"));
+
+        Node[] nodes = store.queryAll(new int[] { 1, 2, -3, 4 });
+
+        assertEquals(1, loader.calls.get());
+        assertEquals("memory", ((InstanceNode) nodes[0]).getTypeName());
+        assertEquals("loaded", ((InstanceNode) nodes[1]).getTypeName());
+        assertNull(nodes[2]);
+        assertEquals(4, nodes[3].getNumber());
+
+        assertEquals(2, store.query(2).getNumber());
+        store.queryAll(new int[] { 2, 4 });
+        assertEquals(1, loader.calls.get());
+    }
+
+    /**
+     * Tests asynchronous lookups served by the calling thread.
+     */
+    public void testQueryAsyncInCallerThread() throws Exception {
+        NodeStore store = new NodeStore();
+        store.insert(new InstanceNode(7, "seven"));
+
+        Future<Node> found = store.queryAsync(7);
+        Future<Node> missing = store.queryAsync(8);
+
+        assertTrue(found.isDone());
+        assertEquals(7, found.get().getNumber());
+        assertNull(missing.get());
+    }
+
+    /**
+     * Tests that loader errors are reported through the futures.
+     */
+    public void testQueryAsyncFailure() throws Exception {
+        NodeStore store = new NodeStore(new NodeLoader() {
+            @Override
+            public void load(int[] nodeNumbers, Node[] nodes) throws IOException {
+                throw new IOException("broken");
+            }
+        }, Executors.newSingleThreadExecutor());
+
+        try {
+            store.queryAsync(1).get(1, TimeUnit.SECONDS);
+            fail("Expected the loader error");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * Tests that an error thrown by the loader fails the lookup and does not stop later
+     * lookups from being served.
+     */
+    public void testQueryAsyncSurvivesLoaderError() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        NodeStore store = new NodeStore(new NodeLoader() {
+            @Override
+            public void load(int[] nodeNumbers, Node[] nodes) throws IOException {
+                if (calls.incrementAndGet() == 1) {
+                    throw new AssertionError("broken");
+                }
+                nodes[0] = new InstanceNode(nodeNumbers[0], "loaded");
+            }
+        }, Executors.newSingleThreadExecutor());
+
+        try {
+            store.queryAsync(1).get(1, TimeUnit.SECONDS);
+            fail("Expected the loader error");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        assertEquals(2, store.queryAsync(2).get(1, TimeUnit.SECONDS).getNumber());
+    }
+
+    /**
+     * Tests that lookups that arrive while a batch is being served are coalesced into the
+     * next batch.
+     */
+    public void testQueryAsyncCoalesces() throws Exception {
+        final CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+        final CountingLoader counter = new CountingLoader();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        NodeStore store = new NodeStore(new NodeLoader() {
+            @Override
+            public void load(int[] nodeNumbers, Node[] nodes) throws IOException {
+                if (counter.calls.get() == 0) {
+                    firstLoadStarted.countDown();
+                    try {
+                        releaseFirstLoad.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e.getMessage());
+                    }
+                }
+                counter.load(nodeNumbers, nodes);
+            }
+        }, executor);
+
+        Future<Node> first = store.queryAsync(1);
+        assertTrue(firstLoadStarted.await(1, TimeUnit.SECONDS));
+
+        List<Future<Node>> others = new ArrayList<Future<Node>>();
+        for (int i = 2; i <= 100; i++) {
+            others.add(store.queryAsync(i));
+        }
+        releaseFirstLoad.countDown();
+
+        assertEquals(1, first.get(1, TimeUnit.SECONDS).getNumber());
+        for (int i = 0; i < others.size(); i++) {
+            assertEquals(i + 2, others.get(i).get(1, TimeUnit.SECONDS).getNumber());
+        }
+        assertEquals(2, counter.calls.get());
+        executor.shutdown();
+    }
+
+    /**
+     * Tests many concurrent readers issuing asynchronous lookups.
+     */
+    public void testConcurrentReaders() throws Exception {
+        final int readers = 64;
+        final int queriesPerReader = 1000;
+        final CountingLoader loader = new CountingLoader();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final NodeStore store = new NodeStore(loader, executor);
+        final AtomicInteger errors = new AtomicInteger();
+
+        Thread[] threads = new Thread[readers];
+        for (int t = 0; t < readers; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 1; i <= queriesPerReader; i++) {
+                            final int number = (i * (offset + 1)) % 5000 + 1;
+                            if (store.queryAsync(number).get().getNumber() != number) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < readers; t++) {
+            threads[t].join();
+        }
+        executor.shutdown();
+
+        assertEquals(0, errors.get());
+        assertTrue(loader.calls.get() < readers * queriesPerReader);
+        assertTrue(loader.loaded.get() <= 5000);
+    }
+
+    /**
+     * Tests that nodes are read until the end of the input.
+     */
+    public void testReadUntilEnd() throws IOException {
+        final String nodes = TestNodeDisplayConverterIntegerated.nodeStore;
+        NodeStore store = new NodeStore();
+        // the end is detected exactly, so the input must not end with a separator
+        ObjectConverterInput input = new ObjectConverterInput(new PushbackInputStream(
+                new StringInputStream(nodes.trim())), new NodeDisplayConverter());
+        assertEquals(2, store.read(input, 2));
+        assertEquals(1, store.read(input, 10));
+        assertEquals(0, store.read(input, 10));
+        assertEquals(3, store.query(3).getNumber());
+
+        store = new NodeStore();
+        input = new ObjectConverterInput(new DataInputStream(new StringInputStream(nodes)),
+                new NodeDisplayConverter());
+        assertEquals(3, store.read(input, 10));
+        assertNotNull(store.query(2));
+    }
+}
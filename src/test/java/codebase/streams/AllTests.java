@@ -11,8 +11,17 @@ public class AllTests {
     public static Test suite() {
         TestSuite suite = new TestSuite(AllTests.class.getName());
         //$JUnit-BEGIN$
+        suite.addTestSuite(TestBlockCompressedStreams.class);
+        suite.addTestSuite(TestBlockTimeoutInputStream.class);
+        suite.addTestSuite(TestByteArrayDataInput.class);
+        suite.addTestSuite(TestByteArrayDataOutput.class);
+        suite.addTestSuite(TestByteBufferDataStreams.class);
+        suite.addTestSuite(TestChannelBufferedInputStream.class);
         suite.addTestSuite(TestConstantInputStream.class);
         suite.addTestSuite(TestDelayedOutputStream.class);
+        suite.addTestSuite(TestReadAheadInputStream.class);
+        suite.addTestSuite(TestRingPipe.class);
+        suite.addTestSuite(TestSharedTimeoutStreams.class);
         suite.addTestSuite(TestTimeoutInputStream.class);
         suite.addTestSuite(TestTimeoutOutputStream.class);
         //$JUnit-END$
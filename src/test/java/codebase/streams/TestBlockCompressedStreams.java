@@ -0,0 +1,263 @@
+package codebase.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import codebase.io.converters.ObjectConverterInput;
+import codebase.io.converters.ObjectConverterOutput;
+import codebase.io.converters.binary.UTFStringConverter;
+
+import junit.framework.TestCase;
+
+public class TestBlockCompressedStreams extends
+        TestCase {
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates compressible bytes.
+     */
+    private static byte[] createData(final int length) {
+        final Random random = new Random(length);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        return data;
+    }
+
+    private static byte[] compress(final byte[] data, final int blockSize,
+                                   final ExecutorService executor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BlockCompressedOutputStream out = new BlockCompressedOutputStream(bytes, blockSize,
+                Deflater.DEFAULT_COMPRESSION, executor);
+        out.write(data, 0, 1000);
+        out.write(data[1000]);
+        out.write(data, 1001, data.length - 1001);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(final BlockCompressedInputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[777];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, count);
+        }
+        in.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Tests round trips in the calling thread and on an executor.
+     */
+    public void testRoundTrip() throws IOException {
+        final byte[] data = createData(100000);
+        final byte[] sequential = compress(data, 4096, null);
+        final byte[] parallel = compress(data, 4096, executor);
+
+        assertTrue(Arrays.equals(sequential, parallel));
+        assertTrue(sequential.length < data.length / 2);
+        assertTrue(Arrays.equals(data, readAll(new BlockCompressedInputStream(
+                new ByteArrayInputStream(parallel)))));
+        assertTrue(Arrays.equals(data, readAll(new BlockCompressedInputStream(
+                new ByteArrayInputStream(sequential), executor, 3))));
+    }
+
+    /**
+     * Tests that incompressible blocks are stored.
+     */
+    public void testIncompressible() throws IOException {
+        final byte[] data = new byte[5000];
+        new Random(1).nextBytes(data);
+        final byte[] compressed = compress(data, 2000, executor);
+
+        assertTrue(compressed.length < data.length + 200);
+        assertTrue(Arrays.equals(data, readAll(new BlockCompressedInputStream(
+                new ByteArrayInputStream(compressed)))));
+    }
+
+    /**
+     * Tests that a corrupted block is reported.
+     */
+    public void testChecksum() throws IOException {
+        final byte[] data = new byte[3000];
+        new Random(2).nextBytes(data);
+        final byte[] compressed = compress(data, 1024, null);
+        compressed[1024 + 2 * BlockFormat.HEADER_SIZE + 10] ^= 1;
+
+        final BlockCompressedInputStream in = new BlockCompressedInputStream(
+                new ByteArrayInputStream(compressed));
+        assertEquals(1024, in.skip(1024));
+        try {
+            in.read();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().indexOf("Checksum") >= 0);
+        }
+    }
+
+    /**
+     * Tests skipping whole blocks and bytes across blocks.
+     */
+    public void testSkip() throws IOException {
+        final byte[] data = createData(10000);
+        final byte[] compressed = compress(data, 1000, null);
+
+        BlockCompressedInputStream in = new BlockCompressedInputStream(
+                new ByteArrayInputStream(compressed), executor, 2);
+        assertEquals(data[0], (byte) in.read());
+        assertEquals(3, in.skipBlocks(3));
+        assertEquals(data[4000], (byte) in.read());
+        assertEquals(2500, in.skip(2500));
+        assertEquals(data[6501], (byte) in.read());
+        assertEquals(3, in.skipBlocks(10));
+        assertEquals(-1, in.read());
+        in.close();
+
+        in = new BlockCompressedInputStream(new ByteArrayInputStream(compressed));
+        assertEquals(9999, in.skip(9999));
+        assertEquals(data[9999], (byte) in.read());
+        assertEquals(0, in.skip(10));
+        in.close();
+    }
+
+    /**
+     * Counts the bytes read, but not those skipped.
+     */
+    private static final class CountingInput extends ByteArrayInputStream {
+
+        private int read;
+
+        CountingInput(final byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read() {
+            final int b = super.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(final byte[] b, final int off, final int len) {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Tests that the payloads of skipped blocks are skipped in the underlying stream.
+     */
+    public void testSkipDoesNotReadPayloads() throws IOException {
+        final byte[] data = new byte[10000];
+        new Random(3).nextBytes(data);
+        final byte[] compressed = compress(data, 1000, null);
+
+        final CountingInput counting = new CountingInput(compressed);
+        final BlockCompressedInputStream in = new BlockCompressedInputStream(counting);
+        assertEquals(8, in.skipBlocks(8));
+        assertEquals(500, in.skip(500));
+        assertEquals(data[8500], (byte) in.read());
+        assertTrue(counting.read < 8 * BlockFormat.HEADER_SIZE + 2000);
+        in.close();
+    }
+
+    /**
+     * Tests that a header with an impossible payload length is rejected.
+     */
+    public void testInvalidPayloadLength() throws IOException {
+        final byte[] compressed = compress(createData(3000), 1024, null);
+        // the payload length follows the magic number, the method and the length
+        compressed[9] = 0x7F;
+
+        final BlockCompressedInputStream in = new BlockCompressedInputStream(
+                new ByteArrayInputStream(compressed));
+        try {
+            in.read();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().indexOf("Invalid header") >= 0);
+        }
+    }
+
+    /**
+     * Tests writing objects in blocks and seeking them through the index.
+     */
+    public void testSeekRecord() throws IOException {
+        final File file = File.createTempFile("TestBlockCompressedStreams", ".dat");
+        file.deleteOnExit();
+        final UTFStringConverter converter = new UTFStringConverter();
+        try {
+            final ObjectConverterOutput output = new ObjectConverterOutput(
+                    new BlockCompressedOutputStream(new FileOutputStream(file), 512,
+                            Deflater.BEST_SPEED, executor), converter);
+            for (int i = 0; i < 2000; i++) {
+                output.writeObject("record " + i);
+            }
+            output.writeObject(new String(createData(3000), "US-ASCII"));
+            output.writeObject("last");
+            output.close();
+
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            final FileChannel channel = raf.getChannel();
+            final BlockIndex index = new BlockIndex(channel);
+            assertEquals(2002, index.getRecordCount());
+            assertTrue(index.getBlockCount() > 40);
+            assertEquals(0, index.getFirstRecord(0));
+            assertEquals(0, index.getFirstRecordOffset(0));
+
+            final int[] records = { 1234, 0, 1999, 77, 2001 };
+            for (int record : records) {
+                assertTrue(record >= index.getFirstRecord(index.findBlock(record)));
+                channel.position(0);
+                final ObjectConverterInput input = new ObjectConverterInput(channel, index,
+                        record, converter);
+                if (record == 2001) {
+                    assertEquals("last", input.readObject());
+                } else {
+                    assertEquals("record " + record, input.readObject());
+                }
+                if (record == 1999) {
+                    assertEquals(3000, ((String) input.readObject()).length());
+                }
+            }
+            raf.close();
+            try {
+                index.findBlock(2002);
+                fail("Expected an IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package codebase.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link BlockTimeoutInputStream} class.
+ */
+public class TestBlockTimeoutInputStream extends TestCase {
+
+    public void testBulkTransfer() throws IOException {
+        final byte[] bytes = new byte[200000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+        final InputStream s = new BlockTimeoutInputStream(new ByteArrayInputStream(bytes),
+                1, TimeUnit.SECONDS, 1000);
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        copy.write(s.read());
+        final byte[] chunk = new byte[4096];
+        int n;
+        while ((n = s.read(chunk, 10, 700)) > 0) {
+            copy.write(chunk, 10, n);
+        }
+        assertTrue(Arrays.equals(bytes, copy.toByteArray()));
+        assertEquals(-1, s.read());
+        s.close();
+    }
+
+    public void testTimeoutCoversBulkCall() throws IOException {
+        final PipedOutputStream source = new PipedOutputStream();
+        final InputStream s = new BlockTimeoutInputStream(new PipedInputStream(source),
+                200, TimeUnit.MILLISECONDS);
+        source.write(new byte[] { 1, 2, 3 });
+        source.flush();
+
+        final byte[] b = new byte[10];
+        int n = s.read(b);
+        while (n < 3) {
+            n += s.read(b, n, b.length - n);
+        }
+        assertEquals(3, n);
+        assertEquals(3, b[2]);
+
+        final long start = System.nanoTime();
+        try {
+            s.read(b);
+            fail("The read must time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Waited " + elapsed + " ms", elapsed >= 150 && elapsed < 1000);
+
+        // bytes arriving after the timeout are not lost
+        source.write(9);
+        source.flush();
+        assertEquals(9, s.read());
+        source.close();
+        s.close();
+    }
+
+    public void testErrorCarriedToReader() throws IOException {
+        final InputStream failing = new InputStream() {
+            private int count = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (count == 5) {
+                    throw new IOException("broken");
+                }
+                return count++;
+            }
+        };
+        final InputStream s = new BlockTimeoutInputStream(failing);
+        final byte[] b = new byte[5];
+        int done = 0;
+        while (done < 5) {
+            done += s.read(b, done, 5 - done);
+        }
+        assertEquals(4, b[4]);
+        try {
+            s.read();
+            fail("The error must reach the reader");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        s.close();
+    }
+
+    public void testUncheckedErrorCarriedToReader() throws IOException {
+        final InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("broken");
+            }
+        };
+        final InputStream s = new BlockTimeoutInputStream(failing, 5, TimeUnit.SECONDS);
+        try {
+            s.read();
+            fail("The error must reach the reader");
+        } catch (TimeoutException e) {
+            fail("The reader thread must report the error");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        s.close();
+    }
+}
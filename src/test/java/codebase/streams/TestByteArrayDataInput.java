@@ -0,0 +1,94 @@
+package codebase.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class TestByteArrayDataInput extends TestCase {
+
+    private static byte[] sample() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(99);
+        output.writeBoolean(true);
+        output.writeShort(-2);
+        output.writeChar('\u20ac');
+        output.writeInt(0x80402010);
+        output.writeLong(Long.MIN_VALUE + 5);
+        output.writeFloat(1.5f);
+        output.writeDouble(-2.25);
+        output.writeUTF("ascii only");
+        output.writeUTF("h\u00e9llo\u0000");
+        output.writeBytes("line\r\nlast");
+        return bytes.toByteArray();
+    }
+
+    private static void checkSample(final ByteArrayDataInput in) throws IOException {
+        assertEquals(99, in.readUnsignedByte());
+        assertTrue(in.readBoolean());
+        assertEquals(-2, in.readShort());
+        assertEquals('\u20ac', in.readChar());
+        assertEquals(0x80402010, in.readInt());
+        assertEquals(Long.MIN_VALUE + 5, in.readLong());
+        assertEquals(1.5f, in.readFloat(), 0);
+        assertEquals(-2.25, in.readDouble(), 0);
+        assertEquals("ascii only", in.readUTF());
+        assertEquals("h\u00e9llo\u0000", in.readUTF());
+        assertEquals("line", in.readLine());
+        assertEquals("last", in.readLine());
+        assertNull(in.readLine());
+        assertEquals(0, in.remaining());
+    }
+
+    public void testCopiedArray() throws IOException {
+        checkSample(new ByteArrayDataInput(sample()));
+    }
+
+    public void testSliceIsNotCopied() throws IOException {
+        final byte[] bytes = sample();
+        final byte[] framed = new byte[bytes.length + 7];
+        System.arraycopy(bytes, 0, framed, 3, bytes.length);
+        checkSample(new ByteArrayDataInput(framed, 3, bytes.length));
+
+        final ByteArrayDataInput in = new ByteArrayDataInput(framed, 3, 1);
+        framed[3] = 42;
+        assertEquals(42, in.readByte());
+    }
+
+    public void testRepointed() throws IOException {
+        final byte[] bytes = sample();
+        final ByteArrayDataInput in = new ByteArrayDataInput();
+        assertEquals(0, in.remaining());
+        for (int i = 0; i < 3; i++) {
+            in.setInput(bytes, 0, bytes.length);
+            checkSample(in);
+        }
+        try {
+            in.setInput(bytes, 1, bytes.length);
+            fail("A slice past the end of the array must be rejected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    public void testEndOfSlice() throws IOException {
+        final ByteArrayDataInput in = new ByteArrayDataInput(new byte[8], 2, 3);
+        try {
+            in.readInt();
+            fail("Reading past the slice must fail");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertEquals(3, in.remaining());
+        assertEquals(3, in.skipBytes(5));
+        try {
+            in.readByte();
+            fail("Reading past the slice must fail");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package codebase.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestByteArrayDataOutput extends TestCase {
+
+    private static final String UNICODE = "a\u0000b\u00e9\u20ac\uffff";
+
+    private static void writeAll(final DataOutput output) throws IOException {
+        output.writeBoolean(true);
+        output.writeByte(-3);
+        output.writeShort(0x1234);
+        output.writeChar('\u20ac');
+        output.writeInt(Integer.MIN_VALUE);
+        output.writeLong(0x0102030405060708L);
+        output.writeFloat(-1.5f);
+        output.writeDouble(Math.PI);
+        output.writeBytes("bytes");
+        output.writeChars("chars");
+        output.writeUTF(UNICODE);
+        output.write(new byte[] { 9, 8, 7 }, 1, 2);
+    }
+
+    public void testSameFormatAsDataOutputStream() throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        writeAll(new DataOutputStream(expected));
+
+        final ByteArrayDataOutput output = new ByteArrayDataOutput(1);
+        writeAll(output);
+        assertEquals(expected.size(), output.size());
+        assertTrue(Arrays.equals(expected.toByteArray(), output.toByteArray()));
+
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        output.writeTo(copy);
+        assertTrue(Arrays.equals(expected.toByteArray(), copy.toByteArray()));
+    }
+
+    public void testFixedArrayFillsExactly() throws IOException {
+        final byte[] bytes = new byte[14];
+        final ByteArrayDataOutput output = new ByteArrayDataOutput(bytes);
+        output.writeShort(1);
+        output.writeInt(2);
+        output.writeLong(3);
+        assertEquals(14, output.size());
+        assertSame(bytes, output.getBytes());
+        try {
+            output.writeByte(4);
+            fail("Writing past a fixed array must fail");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testReset() throws IOException {
+        final ByteArrayDataOutput output = new ByteArrayDataOutput(4);
+        output.writeLong(1);
+        final byte[] grown = output.getBytes();
+        assertTrue(grown.length >= 8);
+
+        output.reset();
+        assertEquals(0, output.size());
+        output.writeInt(5);
+        assertSame(grown, output.getBytes());
+        assertTrue(Arrays.equals(new byte[] { 0, 0, 0, 5 }, output.toByteArray()));
+    }
+
+    public void testPool() throws IOException {
+        final ByteArrayDataOutput first = ByteArrayDataOutput.acquire();
+        final ByteArrayDataOutput second = ByteArrayDataOutput.acquire();
+        assertNotSame(first, second);
+        first.writeInt(1);
+        first.release();
+        try {
+            first.release();
+            fail("Releasing twice must fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        final ByteArrayDataOutput reused = ByteArrayDataOutput.acquire();
+        assertSame(first, reused);
+        assertEquals(0, reused.size());
+        reused.release();
+        second.release();
+
+        try {
+            new ByteArrayDataOutput(new byte[1]).release();
+            fail("Fixed outputs cannot be pooled");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
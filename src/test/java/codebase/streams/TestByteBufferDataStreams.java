@@ -0,0 +1,96 @@
+package codebase.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link ByteBufferDataInput} and {@link ByteBufferDataOutput} streams.
+ */
+public class TestByteBufferDataStreams extends
+        TestCase {
+
+    /**
+     * Tests that the bytes written are the same as the ones of a {@link DataOutputStream}
+     * and that they are read back.
+     */
+    public void testRoundTrip() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        ByteBufferDataOutput out = new ByteBufferDataOutput(buffer);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream reference = new DataOutputStream(expected);
+
+        out.writeBoolean(true);
+        reference.writeBoolean(true);
+        out.writeByte(-3);
+        reference.writeByte(-3);
+        out.writeShort(0xABCD);
+        reference.writeShort(0xABCD);
+        out.writeChar('€');
+        reference.writeChar('€');
+        out.writeInt(-123456);
+        reference.writeInt(-123456);
+        out.writeLong(Long.MIN_VALUE);
+        reference.writeLong(Long.MIN_VALUE);
+        out.writeFloat(1.5f);
+        reference.writeFloat(1.5f);
+        out.writeDouble(-2.25);
+        reference.writeDouble(-2.25);
+        out.writeUTF("héllo");
+        reference.writeUTF("héllo");
+        out.writeBytes("line\r\n");
+        reference.writeBytes("line\r\n");
+
+        assertTrue(Arrays.equals(expected.toByteArray(), Arrays.copyOf(buffer.array(),
+                buffer.position())));
+
+        buffer.flip();
+        ByteBufferDataInput in = new ByteBufferDataInput(buffer);
+        assertTrue(in.readBoolean());
+        assertEquals(-3, in.readByte());
+        assertEquals(0xABCD, in.readUnsignedShort());
+        assertEquals('€', in.readChar());
+        assertEquals(-123456, in.readInt());
+        assertEquals(Long.MIN_VALUE, in.readLong());
+        assertEquals(1.5f, in.readFloat(), 0);
+        assertEquals(-2.25, in.readDouble(), 0);
+        assertEquals("héllo", in.readUTF());
+        assertEquals("line", in.readLine());
+        assertNull(in.readLine());
+    }
+
+    /**
+     * Tests that running past the limit of the buffer is reported.
+     */
+    public void testEndOfBuffer() throws IOException {
+        ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(new byte[3]));
+        try {
+            in.readInt();
+            fail("Expected an EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertEquals(0, in.getBuffer().position());
+        assertEquals(3, in.skipBytes(5));
+
+        final ByteBuffer other = ByteBuffer.allocateDirect(16);
+        other.putShort((short) 3).put("abc".getBytes("US-ASCII")).flip();
+        in.setBuffer(other);
+        assertEquals("abc", in.readUTF());
+        assertFalse(other.hasRemaining());
+
+        ByteBufferDataOutput out = new ByteBufferDataOutput(ByteBuffer.allocate(3));
+        out.writeShort(1);
+        try {
+            out.writeShort(2);
+            fail("Expected an EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package codebase.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestChannelBufferedInputStream extends TestCase {
+
+    private File file;
+
+    private byte[] contents;
+
+    @Override
+    protected void setUp() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        for (int i = 0; i < 100; i++) {
+            output.writeByte(i);
+            output.writeShort(-i);
+            output.writeChar('a' + i);
+            output.writeInt(i * 1000003);
+            output.writeLong(i * -7000000000L);
+            output.writeFloat(i / 4f);
+            output.writeDouble(i / 8.0);
+            output.writeUTF("value " + i);
+            output.writeBytes("line " + i + (i % 2 == 0 ? "\r\n" : "\n"));
+        }
+        contents = bytes.toByteArray();
+
+        file = File.createTempFile("channel", ".bin");
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(contents);
+        out.close();
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    private static void checkValues(final ChannelBufferedInputStream in)
+            throws IOException {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, in.readUnsignedByte());
+            assertEquals(-i, in.readShort());
+            assertEquals('a' + i, in.readChar());
+            assertEquals(i * 1000003, in.readInt());
+            assertEquals(i * -7000000000L, in.readLong());
+            assertEquals(i / 4f, in.readFloat(), 0);
+            assertEquals(i / 8.0, in.readDouble(), 0);
+            assertEquals("value " + i, in.readUTF());
+            assertEquals("line " + i, in.readLine());
+        }
+        assertNull(in.readLine());
+        assertEquals(-1, in.read());
+        try {
+            in.readInt();
+            fail("Reading past the end must fail");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testFileWithSmallBuffer() throws IOException {
+        final ChannelBufferedInputStream in = new ChannelBufferedInputStream(file, 11);
+        checkValues(in);
+        in.close();
+    }
+
+    public void testOtherChannel() throws IOException {
+        final ChannelBufferedInputStream in = new ChannelBufferedInputStream(
+                Channels.newChannel(new ByteArrayInputStream(contents)), 64);
+        checkValues(in);
+        in.close();
+    }
+
+    public void testBulkReadAndSkip() throws IOException {
+        final ChannelBufferedInputStream in = new ChannelBufferedInputStream(file, 16);
+        assertEquals(contents.length, in.available());
+        final byte[] head = new byte[40];
+        in.readFully(head);
+        assertTrue(Arrays.equals(Arrays.copyOf(contents, 40), head));
+        assertEquals(100, in.skip(100));
+        assertEquals(contents[140] & 0xff, in.read());
+        assertEquals(contents.length - 141, in.skip(Long.MAX_VALUE));
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    public void testTransferTo() throws IOException {
+        for (boolean fromFile : new boolean[] { true, false }) {
+            final ChannelBufferedInputStream in = fromFile
+                    ? new ChannelBufferedInputStream(file, 32)
+                    : new ChannelBufferedInputStream(Channels.newChannel(
+                            new ByteArrayInputStream(contents)), 32);
+            assertEquals(0, in.readByte());
+            final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            assertEquals(contents.length - 1, in.transferTo(Channels.newChannel(copy)));
+            assertTrue(Arrays.equals(Arrays.copyOfRange(contents, 1, contents.length),
+                    copy.toByteArray()));
+            assertEquals(-1, in.read());
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package codebase.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class TestReadAheadInputStream extends TestCase {
+
+    private static byte[] sample(final int size) {
+        final byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    /**
+     * Counts the bytes read.
+     */
+    private static final class CountingStream extends ByteArrayInputStream {
+
+        private final AtomicInteger read = new AtomicInteger();
+
+        CountingStream(final byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(final byte[] b, final int off, final int len) {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                read.addAndGet(n);
+            }
+            return n;
+        }
+    }
+
+    public void testReadsEverything() throws IOException {
+        final byte[] bytes = sample(100000);
+        final InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 3,
+                777);
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        copy.write(in.read());
+        assertEquals(10, in.skip(10));
+        copy.write(bytes, 1, 10);
+        final byte[] chunk = new byte[1000];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            copy.write(chunk, 0, n);
+        }
+        assertTrue(Arrays.equals(bytes, copy.toByteArray()));
+        assertEquals(-1, in.read());
+        assertEquals(0, in.skip(5));
+        in.close();
+    }
+
+    public void testReadsAhead() throws Exception {
+        final CountingStream source = new CountingStream(sample(10000));
+        final InputStream in = new ReadAheadInputStream(source, 3, 100);
+        assertEquals(0, in.read());
+        for (int i = 0; i < 100 && source.read.get() < 300; i++) {
+            Thread.sleep(10);
+        }
+        // the buffer being read and the two other buffers are full, and no more
+        Thread.sleep(20);
+        assertEquals(300, source.read.get());
+        in.close();
+    }
+
+    public void testErrorCarriedToReader() throws IOException {
+        final InputStream failing = new InputStream() {
+            private int count = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (count == 50) {
+                    throw new IOException("broken");
+                }
+                return count++;
+            }
+        };
+        final InputStream in = new ReadAheadInputStream(failing, 2, 16);
+        final byte[] bytes = new byte[50];
+        int done = 0;
+        while (done < 50) {
+            done += in.read(bytes, done, 50 - done);
+        }
+        assertEquals(49, bytes[49]);
+        try {
+            in.read();
+            fail("The error must reach the reader");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        in.close();
+    }
+
+    public void testUncheckedErrorCarriedToReader() throws IOException {
+        final InputStream failing = new InputStream() {
+            private boolean first = true;
+
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) {
+                if (!first) {
+                    throw new IllegalStateException("broken");
+                }
+                first = false;
+                return len;
+            }
+        };
+        final InputStream in = new ReadAheadInputStream(failing, 2, 16);
+        assertEquals(16, in.skip(16));
+        try {
+            in.read();
+            fail("The unchecked exception must reach the reader");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        in.close();
+    }
+
+    public void testClose() throws IOException {
+        final InputStream in = new ReadAheadInputStream(new ConstantInputStream(
+                new byte[] { 1 }),
+                2, 8);
+        assertEquals(1, in.read());
+        in.close();
+        in.close();
+        try {
+            in.read();
+            fail("A closed stream cannot be read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package codebase.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestRingPipe extends TestCase {
+
+    private static byte[] sample(final int size) {
+        final byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes bytes to a stream in chunks of varying size, then closes it.
+     */
+    private static final class Writer extends Thread {
+
+        private final OutputStream out;
+
+        private final byte[] bytes;
+
+        private volatile IOException error;
+
+        Writer(final OutputStream out, final byte[] bytes) {
+            this.out = out;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int off = 0;
+                int step = 1;
+                while (off < bytes.length) {
+                    final int n = Math.min(step, bytes.length - off);
+                    if (n == 1) {
+                        out.write(bytes[off]);
+                    } else {
+                        out.write(bytes, off, n);
+                    }
+                    off += n;
+                    step = step * 3 % 5003;
+                }
+                out.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[1500];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            copy.write(chunk, 0, n);
+        }
+        return copy.toByteArray();
+    }
+
+    private static void checkTransfer(final RingPipe pipe) throws Exception {
+        final byte[] bytes = sample(300000);
+        final Writer writer = new Writer(pipe.getOutputStream(), bytes);
+        writer.start();
+        final byte[] copy = readAll(pipe.getInputStream());
+        writer.join();
+        assertNull(writer.error);
+        assertTrue(Arrays.equals(bytes, copy));
+        assertEquals(-1, pipe.getInputStream().read());
+    }
+
+    public void testTransfersWithEachWaitStrategy() throws Exception {
+        for (RingPipe.WaitStrategy strategy : RingPipe.WaitStrategy.values()) {
+            checkTransfer(new RingPipe(1024, strategy, false));
+        }
+        checkTransfer(new RingPipe());
+    }
+
+    public void testReadsBytesWrittenBeforeClose() throws IOException {
+        final RingPipe pipe = new RingPipe(16, RingPipe.WaitStrategy.SPIN, false);
+        final OutputStream out = pipe.getOutputStream();
+        out.write(new byte[] { 1, 2, 3 });
+        out.write(-1);
+        out.close();
+        final InputStream in = pipe.getInputStream();
+        assertEquals(4, in.available());
+        assertEquals(1, in.read());
+        final byte[] b = new byte[10];
+        assertEquals(3, in.read(b, 0, 10));
+        assertEquals(255, b[2] & 0xFF);
+        assertEquals(-1, in.read(b, 0, 10));
+        try {
+            out.write(5);
+            fail("Writing after closing the output should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testMultipleProducersKeepWritesWhole() throws Exception {
+        final int producers = 4;
+        final int records = 2000;
+        final int size = 24;
+        final RingPipe pipe = new RingPipe(256, RingPipe.WaitStrategy.YIELD, true);
+        final Thread[] threads = new Thread[producers];
+        final IOException[] errors = new IOException[producers];
+        for (int p = 0; p < producers; p++) {
+            final byte[] record = new byte[size];
+            Arrays.fill(record, (byte) (p + 1));
+            final int index = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < records; i++) {
+                            pipe.getOutputStream().write(record);
+                        }
+                    } catch (IOException e) {
+                        errors[index] = e;
+                    }
+                }
+            };
+            threads[p].start();
+        }
+
+        final InputStream in = pipe.getInputStream();
+        final int[] counts = new int[producers];
+        final byte[] record = new byte[size];
+        for (int r = 0; r < producers * records; r++) {
+            int done = 0;
+            while (done < size) {
+                final int n = in.read(record, done, size - done);
+                assertTrue(n > 0);
+                done += n;
+            }
+            final int p = record[0] - 1;
+            for (int i = 1; i < size; i++) {
+                assertEquals(record[0], record[i]);
+            }
+            counts[p]++;
+        }
+        for (int p = 0; p < producers; p++) {
+            threads[p].join();
+            assertNull(errors[p]);
+            assertEquals(records, counts[p]);
+        }
+        pipe.getOutputStream().close();
+        assertEquals(-1, in.read());
+    }
+
+    public void testInterruptedProducersKeepPublishing() throws Exception {
+        final int producers = 4;
+        final int records = 500;
+        // large records keep claims unpublished long enough to be waited for
+        final int size = 8192;
+        final RingPipe pipe = new RingPipe(65536, RingPipe.WaitStrategy.YIELD, true);
+        final Thread[] threads = new Thread[producers];
+        final IOException[] errors = new IOException[producers];
+        for (int p = 0; p < producers; p++) {
+            final byte[] record = new byte[size];
+            Arrays.fill(record, (byte) (p + 1));
+            final int index = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        // records and single bytes, in turn
+                        int i = 0;
+                        while (i < records * 2) {
+                            try {
+                                if (i % 2 == 0) {
+                                    pipe.getOutputStream().write(record);
+                                } else {
+                                    pipe.getOutputStream().write(record[0]);
+                                }
+                                i++;
+                            } catch (InterruptedIOException e) {
+                                // an interrupted claim writes nothing, so retry
+                                Thread.interrupted();
+                            }
+                        }
+                    } catch (IOException e) {
+                        errors[index] = e;
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        final Thread interrupter = new Thread() {
+            @Override
+            public void run() {
+                boolean alive = true;
+                while (alive) {
+                    alive = false;
+                    for (Thread thread : threads) {
+                        alive |= thread.isAlive();
+                        thread.interrupt();
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        interrupter.setDaemon(true);
+        interrupter.start();
+        // a producer that gives up a claim stalls the others, so end the pipe then
+        final Thread watchdog = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    pipe.getOutputStream().close();
+                } catch (IOException e) {
+                    // cannot happen
+                }
+            }
+        };
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        final InputStream in = pipe.getInputStream();
+        final int[] counts = new int[producers];
+        final byte[] chunk = new byte[4096];
+        int bytes = 0;
+        int n;
+        while (bytes < producers * records * (size + 1) && (n = in.read(chunk)) >= 0) {
+            for (int i = 0; i < n; i++) {
+                counts[chunk[i] - 1]++;
+            }
+            bytes += n;
+        }
+        watchdog.interrupt();
+        for (int p = 0; p < producers; p++) {
+            threads[p].join();
+            assertNull(errors[p]);
+            assertEquals(records * (size + 1), counts[p]);
+        }
+    }
+
+    public void testWritingAfterInputClosedFails() throws IOException {
+        final RingPipe pipe = new RingPipe(8, RingPipe.WaitStrategy.PARK, false);
+        pipe.getOutputStream().write(new byte[8]);
+        pipe.getInputStream().close();
+        try {
+            pipe.getOutputStream().write(1);
+            fail("Writing to a pipe whose input is closed should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            pipe.getInputStream().read();
+            fail("Reading a closed input should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testRejectsInvalidCapacity() {
+        try {
+            new RingPipe(1000, RingPipe.WaitStrategy.SPIN, false);
+            fail("A capacity that is not a power of two should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new RingPipe(0, RingPipe.WaitStrategy.SPIN, false);
+            fail("A capacity of zero should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
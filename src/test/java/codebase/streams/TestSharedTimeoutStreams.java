@@ -0,0 +1,140 @@
+package codebase.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import codebase.StringUtil;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link SharedTimeoutInputStream} and
+ * {@link SharedTimeoutOutputStream} classes.
+ */
+public class TestSharedTimeoutStreams extends TestCase {
+
+    /**
+     * Returns the bytes of a string, waiting before each read.
+     */
+    private static InputStream slowInput(final String text, final int delayMillis) {
+        return new ByteArrayInputStream(text.getBytes()) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    return -1;
+                }
+                return super.read(b, off, 1);
+            }
+        };
+    }
+
+    public void testRead() throws IOException {
+        final InputStream s = new SharedTimeoutInputStream(new StringInputStream("XYZ"));
+        assertEquals('X', s.read());
+        final byte[] rest = new byte[5];
+        assertEquals(2, s.read(rest));
+        assertEquals('Y', rest[0]);
+        assertEquals('Z', rest[1]);
+        assertEquals(0, s.available());
+        assertEquals(-1, s.read());
+        s.close();
+    }
+
+    public void testReadTimeoutKeepsData() throws Exception {
+        final InputStream s = new SharedTimeoutInputStream(slowInput("AB", 300), 100,
+                TimeUnit.MILLISECONDS);
+        try {
+            s.read();
+            fail("The read must time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        Thread.sleep(300);
+        assertEquals('A', s.read());
+        s.close();
+    }
+
+    public void testInterruptedReadKeepsData() throws Exception {
+        final InputStream s = new SharedTimeoutInputStream(slowInput("AB", 300), 1,
+                TimeUnit.SECONDS);
+        Thread.currentThread().interrupt();
+        try {
+            s.read();
+            fail("The wait must be interrupted");
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+        assertEquals('A', s.read());
+        assertEquals('B', s.read());
+        s.close();
+    }
+
+    public void testManyStreamsShareFewThreads() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final InputStream[] streams = new InputStream[50];
+            for (int i = 0; i < streams.length; i++) {
+                streams[i] = new SharedTimeoutInputStream(new StringInputStream("s" + i),
+                        1, TimeUnit.SECONDS, executor);
+            }
+            for (int i = 0; i < streams.length; i++) {
+                assertEquals('s', streams[i].read());
+            }
+            for (int i = 0; i < streams.length; i++) {
+                assertEquals(String.valueOf(i).charAt(0), streams[i].read());
+                streams[i].close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testWrite() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final OutputStream s = new SharedTimeoutOutputStream(os);
+        s.write('X');
+        s.write(new byte[] { 'Y', 'Z', 'W' }, 0, 2);
+        s.flush();
+        assertEquals("XYZ", os.toString(StringUtil.UTF8_NAME));
+        s.close();
+    }
+
+    public void testWriteTimeout() throws Exception {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final OutputStream s = new SharedTimeoutOutputStream(new DelayedOutputStream(os,
+                300), 100, TimeUnit.MILLISECONDS);
+        try {
+            s.write('X');
+            fail("The write must time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        // the timed out write completes in the background
+        Thread.sleep(300);
+        s.close();
+        assertEquals("X", os.toString(StringUtil.UTF8_NAME));
+    }
+
+    public void testErrorsReachCaller() throws IOException {
+        final OutputStream s = new SharedTimeoutOutputStream(new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("broken");
+            }
+        });
+        try {
+            s.write(1);
+            fail("The error must reach the caller");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+}
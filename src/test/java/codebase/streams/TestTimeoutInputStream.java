@@ -72,6 +72,21 @@ public class TestTimeoutInputStream extends
         s.close();
     }
 
+    /**
+     * Tests that reading an array stops at the end of the stream.
+     */
+    public void testArrayReadStopsAtEnd() throws IOException {
+        InputStream s = new TimeoutInputStream(new StringInputStream("XY"));
+
+        byte[] b = new byte[5];
+        assertEquals(2, s.read(b, 1, 4));
+        assertEquals(b[2], 'Y');
+        assertEquals(0, b[3]);
+        assertEquals(-1, s.read(b));
+
+        s.close();
+    }
+
     /**
      * Tests that skipping elements form the buffer correctly cycles through the buffer.
      */